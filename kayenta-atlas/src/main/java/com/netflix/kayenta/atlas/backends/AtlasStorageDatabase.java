@@ -17,42 +17,71 @@
 package com.netflix.kayenta.atlas.backends;
 
 import com.netflix.kayenta.atlas.model.AtlasStorage;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Like {@link BackendDatabase}, lookups read from an immutable snapshot that {@link #update} swaps
+ * in wholesale, so they never block. The snapshot precomputes the global and per-region cnames for
+ * every account.
+ */
 public class AtlasStorageDatabase {
 
-  private Map<String, AtlasStorage> atlasStorages = new HashMap<>();
-
-  public synchronized Optional<String> getGlobalUri(String scheme, String accountId) {
-    Optional<String> uri =
-        atlasStorages.entrySet().stream()
-            .filter(map -> map.getKey().equals(accountId))
-            .findFirst()
-            .map(Map.Entry::getValue)
-            .map(AtlasStorage::getGlobal)
-            .map(s -> scheme + "://" + s);
-    return uri;
+  private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap());
+
+  public Optional<String> getGlobalUri(String scheme, String accountId) {
+    return Optional.ofNullable(snapshot.globalCnames.get(accountId)).map(s -> scheme + "://" + s);
   }
 
-  public synchronized Optional<String> getRegionalUri(
-      String scheme, String accountId, String region) {
-    Optional<String> uri =
-        atlasStorages.entrySet().stream()
-            .filter(map -> map.getKey().equals(accountId))
-            .findFirst()
-            .map(Map.Entry::getValue)
-            .flatMap(s -> s.getRegionalCnameForRegion(region))
-            .map(s -> scheme + "://" + s);
-    return uri;
+  public Optional<String> getRegionalUri(String scheme, String accountId, String region) {
+    return Optional.ofNullable(snapshot.regionalCnames.get(accountId))
+        .map(regionalCnames -> regionalCnames.get(region))
+        .map(s -> scheme + "://" + s);
   }
 
-  public synchronized void update(Map<String, Map<String, AtlasStorage>> newAtlasStorages) {
+  public void update(Map<String, Map<String, AtlasStorage>> newAtlasStorages) {
     if (!newAtlasStorages.containsKey("atlas_storage")) {
       throw new IllegalArgumentException(
           "Expected fetched AtlasStorage URI to contain a top level key 'atlas_storage'");
     }
-    atlasStorages = newAtlasStorages.get("atlas_storage");
+    snapshot = new Snapshot(newAtlasStorages.get("atlas_storage"));
+  }
+
+  private static class Snapshot {
+
+    private final Map<String, String> globalCnames = new HashMap<>();
+
+    private final Map<String, Map<String, String>> regionalCnames = new HashMap<>();
+
+    Snapshot(Map<String, AtlasStorage> atlasStorages) {
+      if (atlasStorages == null) {
+        return;
+      }
+
+      atlasStorages.forEach(
+          (accountId, atlasStorage) -> {
+            if (atlasStorage == null) {
+              return;
+            }
+
+            if (atlasStorage.getGlobal() != null) {
+              globalCnames.put(accountId, atlasStorage.getGlobal());
+            }
+
+            if (atlasStorage.getRegions() != null) {
+              Map<String, String> cnamesByRegion = new HashMap<>();
+
+              for (String region : atlasStorage.getRegions()) {
+                atlasStorage
+                    .getRegionalCnameForRegion(region)
+                    .ifPresent(cname -> cnamesByRegion.put(region, cname));
+              }
+
+              regionalCnames.put(accountId, cnamesByRegion);
+            }
+          });
+    }
   }
 }
@@ -16,17 +16,30 @@
 
 package com.netflix.kayenta.atlas.backends;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.netflix.kayenta.atlas.model.Backend;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+/**
+ * Lookups run on every Atlas query, so they read from an immutable snapshot that {@link #update}
+ * swaps in wholesale. Readers never block, and never observe a partially-applied update.
+ */
 public class BackendDatabase {
 
-  private List<Backend> backends = new ArrayList<>();
+  // The most distinct getOne() lookups resolved per snapshot that are kept.
+  private static final int MAX_RESOLVED_BACKENDS = 1000;
+
+  private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
 
-  private boolean matches(
+  private static boolean matches(
       Backend backend, String deployment, String dataset, String region, String environment) {
     // return false if it doesn't match the deployment.
     if (!backend.getDeployment().equals(deployment)) return false;
@@ -41,31 +54,79 @@ public class BackendDatabase {
     return backend.getEnvironments() == null || backend.getEnvironments().contains(environment);
   }
 
-  public synchronized Optional<Backend> getOne(
+  public Optional<Backend> getOne(
       String deployment, String dataset, String region, String environment) {
-    return backends.stream()
-        .filter(a -> matches(a, deployment, dataset, region, environment))
-        .findFirst();
+    return snapshot.getOne(deployment, dataset, region, environment);
   }
 
-  public synchronized void update(List<Backend> newBackends) {
-    backends = newBackends;
+  public void update(List<Backend> newBackends) {
+    snapshot = new Snapshot(newBackends);
   }
 
-  public synchronized List<String> getLocations() {
-    ArrayList<String> locations = new ArrayList<>();
+  public List<String> getLocations() {
+    return snapshot.locations;
+  }
 
-    for (Backend backend : backends) {
-      locations.addAll(backend.getTargets());
-    }
-    return locations.stream().distinct().collect(Collectors.toList());
+  public String getUriForLocation(String scheme, String location) {
+    String relativeUri = snapshot.relativeUrisByLocation.get(location);
+
+    return relativeUri != null ? scheme + "://" + relativeUri : null;
   }
 
-  public synchronized String getUriForLocation(String scheme, String location) {
-    for (Backend backend : backends) {
-      String cname = backend.getUriForLocation(scheme, location);
-      if (cname != null) return cname;
+  private static class Snapshot {
+
+    private final List<String> locations;
+
+    private final Map<String, String> relativeUrisByLocation;
+
+    // Candidate backends, in their original order, for each (deployment, dataset) pair.
+    private final Map<List<String>, List<Backend>> backendsByDeploymentAndDataset;
+
+    // Resolved getOne() lookups. Region and environment lists may be absent (i.e. match anything),
+    // so the full key space can't be enumerated up front; instead each distinct lookup is resolved
+    // when first made. Lookups carry caller-supplied regions and environments, so only so many are
+    // kept.
+    private final Cache<List<String>, Optional<Backend>> resolvedBackends =
+        CacheBuilder.newBuilder().maximumSize(MAX_RESOLVED_BACKENDS).build();
+
+    Snapshot(List<Backend> backends) {
+      LinkedHashSet<String> locationSet = new LinkedHashSet<>();
+      Map<String, String> relativeUris = new HashMap<>();
+      Map<List<String>, List<Backend>> backendsByKey = new HashMap<>();
+
+      for (Backend backend : backends) {
+        if (backend.getTarget() != null) {
+          locationSet.addAll(backend.getTargets());
+          backend.getRelativeUrisByLocation().forEach(relativeUris::putIfAbsent);
+        }
+        backendsByKey
+            .computeIfAbsent(
+                Arrays.asList(backend.getDeployment(), backend.getDataset()),
+                key -> new ArrayList<>())
+            .add(backend);
+      }
+
+      this.locations = Collections.unmodifiableList(new ArrayList<>(locationSet));
+      this.relativeUrisByLocation = relativeUris;
+      this.backendsByDeploymentAndDataset = backendsByKey;
+    }
+
+    Optional<Backend> getOne(
+        String deployment, String dataset, String region, String environment) {
+      List<String> key = Arrays.asList(deployment, dataset, region, environment);
+      Optional<Backend> resolved = resolvedBackends.getIfPresent(key);
+
+      if (resolved == null) {
+        resolved =
+            backendsByDeploymentAndDataset
+                .getOrDefault(Arrays.asList(deployment, dataset), Collections.emptyList())
+                .stream()
+                .filter(backend -> matches(backend, deployment, dataset, region, environment))
+                .findFirst();
+        resolvedBackends.put(key, resolved);
+      }
+
+      return resolved;
     }
-    return null;
   }
 }
@@ -16,18 +16,22 @@
 
 package com.netflix.kayenta.atlas.config;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.atlas.model.AtlasResults;
+import com.netflix.kayenta.atlas.model.AtlasResultsAccumulator;
 import com.netflix.kayenta.metrics.FatalQueryException;
 import com.netflix.kayenta.metrics.RetryableQueryException;
+import com.netflix.kayenta.util.DoubleArrayBuilder;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -46,6 +50,12 @@ public class AtlasSSEConverter implements Converter {
   private static final List<String> EXPECTED_RESULTS_TYPE_LIST =
       Arrays.asList("timeseries", "close");
 
+  private static final TypeReference<Map<String, String>> STRING_MAP_TYPE =
+      new TypeReference<Map<String, String>>() {};
+
+  private static final TypeReference<List<String>> STRING_LIST_TYPE =
+      new TypeReference<List<String>>() {};
+
   private final ObjectMapper kayentaObjectMapper;
   private String queryName;
   private String queryString;
@@ -74,57 +84,132 @@ public class AtlasSSEConverter implements Converter {
     return null;
   }
 
+  /**
+   * Reads the stream one line at a time, merging each timeseries chunk into a per-id accumulator
+   * as soon as it is parsed. The returned list holds one merged timeseries per id, followed by the
+   * terminating 'close' message.
+   */
   protected List<AtlasResults> processInput(BufferedReader reader) {
-    List<String[]> tokenizedLines =
-        reader
-            .lines()
-            .filter(line -> !StringUtils.isEmpty(line))
-            .map(line -> line.split(": ", 2))
-            .collect(Collectors.toList());
-
-    tokenizedLines.stream()
-        .map(tokenizedLine -> tokenizedLine[0])
-        .filter(openingToken -> !openingToken.equals("data"))
-        .forEach(
-            nonDataOpeningToken ->
-                log.info(
-                    "Received opening token other than 'data' from Atlas: {}",
-                    nonDataOpeningToken));
-
-    List<AtlasResults> atlasResultsList =
-        tokenizedLines.stream()
-            .map(this::convertTokenizedLineToAtlasResults)
-            .filter(Objects::nonNull)
-            .collect(Collectors.toList());
-
-    if (!atlasResultsList.get(atlasResultsList.size() - 1).getType().equals("close")) {
+    AtlasResultsAccumulator accumulator = new AtlasResultsAccumulator();
+    DoubleArrayBuilder scratchValues = new DoubleArrayBuilder(1024);
+    AtlasResults lastAtlasResults = null;
+    String line;
+
+    try {
+      while ((line = reader.readLine()) != null) {
+        if (StringUtils.isEmpty(line)) {
+          continue;
+        }
+
+        String[] tokenizedLine = line.split(": ", 2);
+
+        if (!tokenizedLine[0].equals("data") || tokenizedLine.length < 2) {
+          log.info("Received opening token other than 'data' from Atlas: {}", tokenizedLine[0]);
+          continue;
+        }
+
+        AtlasResults atlasResults =
+            convertTokenizedLineToAtlasResults(tokenizedLine, accumulator, scratchValues);
+
+        if (atlasResults != null) {
+          lastAtlasResults = atlasResults;
+        }
+      }
+    } catch (IOException e) {
+      throw new RetryableQueryException("Failed to read Atlas response: " + e.getMessage());
+    }
+
+    if (lastAtlasResults == null || !lastAtlasResults.getType().equals("close")) {
       log.error("Received data from Atlas that did not terminate with a 'close'.");
       throw new RetryableQueryException(
           "Atlas response did not end in a 'close', we cannot guarantee all data was received.");
     }
 
+    List<AtlasResults> atlasResultsList = accumulator.build();
+    atlasResultsList.add(lastAtlasResults);
+
     return atlasResultsList;
   }
 
-  protected AtlasResults convertTokenizedLineToAtlasResults(String[] tokenizedLine) {
-    try {
-      AtlasResults atlasResults =
-          kayentaObjectMapper.readValue(tokenizedLine[1], AtlasResults.class);
+  /**
+   * Parses one 'data' stanza. Timeseries values are streamed straight into {@code scratchValues}
+   * and merged into the accumulator; only the (value-less) header of the stanza is returned.
+   */
+  protected AtlasResults convertTokenizedLineToAtlasResults(
+      String[] tokenizedLine,
+      AtlasResultsAccumulator accumulator,
+      DoubleArrayBuilder scratchValues) {
+    try (JsonParser parser = kayentaObjectMapper.getFactory().createParser(tokenizedLine[1])) {
+      AtlasResults.AtlasResultsBuilder atlasResultsBuilder = AtlasResults.builder();
+      String dataType = null;
+
+      scratchValues.clear();
+
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IOException("Expected a json object but found: " + tokenizedLine[1]);
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String fieldName = parser.getCurrentName();
+        parser.nextToken();
+
+        switch (fieldName) {
+          case "type":
+            atlasResultsBuilder.type(parser.getValueAsString());
+            break;
+          case "message":
+            atlasResultsBuilder.message(parser.getValueAsString());
+            break;
+          case "id":
+            atlasResultsBuilder.id(parser.getValueAsString());
+            break;
+          case "query":
+            atlasResultsBuilder.query(parser.getValueAsString());
+            break;
+          case "label":
+            atlasResultsBuilder.label(parser.getValueAsString());
+            break;
+          case "start":
+            atlasResultsBuilder.start(parser.getValueAsLong());
+            break;
+          case "step":
+            atlasResultsBuilder.step(parser.getValueAsLong());
+            break;
+          case "end":
+            atlasResultsBuilder.end(parser.getValueAsLong());
+            break;
+          case "tags":
+            atlasResultsBuilder.tags(parser.readValueAs(STRING_MAP_TYPE));
+            break;
+          case "groupByKeys":
+            atlasResultsBuilder.groupByKeys(parser.readValueAs(STRING_LIST_TYPE));
+            break;
+          case "data":
+            dataType = readTimeseriesData(parser, scratchValues);
+            break;
+          default:
+            parser.skipChildren();
+        }
+      }
+
+      AtlasResults atlasResults = atlasResultsBuilder.build();
       String atlasResultsType = atlasResults.getType();
 
       if (StringUtils.isEmpty(atlasResultsType)
           || !EXPECTED_RESULTS_TYPE_LIST.contains(atlasResultsType)) {
-        if (atlasResultsType.equals("error")) {
-          if (atlasResults.getMessage().contains("IllegalStateException")) {
+        if ("error".equals(atlasResultsType)) {
+          String message = atlasResults.getMessage() != null ? atlasResults.getMessage() : "";
+
+          if (message.contains("IllegalStateException")) {
             throw new FatalQueryException(
                 "Atlas query"
                     + ((configName != null) ? " in canary config [" + configName + "]" : "")
                     + ((queryName != null) ? " for query [" + queryName + "]" : "")
                     + ((queryString != null) ? " with query string [" + queryString + "]" : "")
                     + " failed: "
-                    + atlasResults.getMessage());
+                    + message);
           } else {
-            throw new RetryableQueryException("Atlas query failed: " + atlasResults.getMessage());
+            throw new RetryableQueryException("Atlas query failed: " + message);
           }
         }
         log.info(
@@ -134,6 +219,10 @@ public class AtlasSSEConverter implements Converter {
         return null;
       }
 
+      if (atlasResultsType.equals("timeseries")) {
+        accumulator.add(atlasResults, dataType, scratchValues);
+      }
+
       return atlasResults;
     } catch (IOException e) {
       log.error("Cannot process Atlas results", e);
@@ -141,6 +230,48 @@ public class AtlasSSEConverter implements Converter {
     }
   }
 
+  private static String readTimeseriesData(JsonParser parser, DoubleArrayBuilder values)
+      throws IOException {
+    String dataType = null;
+
+    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return null;
+    }
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if (fieldName.equals("type")) {
+        dataType = parser.getValueAsString();
+      } else if (fieldName.equals("values") && token == JsonToken.START_ARRAY) {
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+          values.add(toDouble(parser, token));
+        }
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return dataType;
+  }
+
+  private static double toDouble(JsonParser parser, JsonToken token) throws IOException {
+    switch (token) {
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_STRING:
+        // Atlas encodes non-finite values as strings, e.g. "NaN".
+        return Double.parseDouble(parser.getText());
+      case VALUE_NULL:
+        return Double.NaN;
+      default:
+        throw new IOException("Unexpected token in Atlas timeseries values: " + token);
+    }
+  }
+
   @Override
   public TypedOutput toBody(Object object) {
     return null;
@@ -24,7 +24,6 @@ import com.netflix.kayenta.atlas.backends.BackendDatabase;
 import com.netflix.kayenta.atlas.canary.AtlasCanaryScope;
 import com.netflix.kayenta.atlas.config.AtlasSSEConverter;
 import com.netflix.kayenta.atlas.model.AtlasResults;
-import com.netflix.kayenta.atlas.model.AtlasResultsHelper;
 import com.netflix.kayenta.atlas.model.Backend;
 import com.netflix.kayenta.atlas.security.AtlasNamedAccountCredentials;
 import com.netflix.kayenta.atlas.service.AtlasRemoteService;
@@ -213,10 +212,14 @@ public class AtlasMetricsService implements MetricsService {
       long end = registry.clock().monotonicTime();
       registry.timer("atlas.fetchTime").record(end - start, TimeUnit.NANOSECONDS);
     }
-    Map<String, AtlasResults> idToAtlasResultsMap = AtlasResultsHelper.merge(atlasResultsList);
     List<MetricSet> metricSetList = new ArrayList<>();
 
-    for (AtlasResults atlasResults : idToAtlasResultsMap.values()) {
+    // The converter has already merged the streamed chunks into one result per id.
+    for (AtlasResults atlasResults : atlasResultsList) {
+      if (!"timeseries".equals(atlasResults.getType())) {
+        continue;
+      }
+
       Instant responseStartTimeInstant = Instant.ofEpochMilli(atlasResults.getStart());
       Instant responseEndTimeInstant = Instant.ofEpochMilli(atlasResults.getEnd());
       List<Double> timeSeriesList = atlasResults.getData().getValues();
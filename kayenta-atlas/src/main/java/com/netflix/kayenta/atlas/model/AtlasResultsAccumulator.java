@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.atlas.model;
+
+import com.netflix.kayenta.util.DoubleArrayBuilder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Merges streamed Atlas timeseries chunks into one result per id as they arrive, with the same
+ * semantics as {@link AtlasResultsHelper#merge}: chunks are ordered by start time and gaps between
+ * them are padded with NaN.
+ *
+ * <p>Atlas sends the chunks for an id in time order, so the common case appends straight into a
+ * primitive buffer. Chunks that arrive out of order are held aside and merged in when the results
+ * are built.
+ */
+public class AtlasResultsAccumulator {
+
+  private final Map<String, SeriesAccumulator> seriesById = new LinkedHashMap<>();
+
+  /**
+   * @param header the chunk's metadata; its {@code data} is ignored
+   * @param dataType the chunk's {@code data.type}
+   * @param values the chunk's values; copied, so the caller may reuse it
+   */
+  public void add(AtlasResults header, String dataType, DoubleArrayBuilder values) {
+    seriesById
+        .computeIfAbsent(header.getId(), id -> new SeriesAccumulator(header, dataType))
+        .add(header.getStart(), header.getEnd(), header.getStep(), values);
+  }
+
+  public boolean isEmpty() {
+    return seriesById.isEmpty();
+  }
+
+  public List<AtlasResults> build() {
+    List<AtlasResults> atlasResultsList = new ArrayList<>(seriesById.size());
+
+    for (SeriesAccumulator seriesAccumulator : seriesById.values()) {
+      atlasResultsList.add(seriesAccumulator.build());
+    }
+
+    return atlasResultsList;
+  }
+
+  private static class SeriesAccumulator {
+
+    private final AtlasResults header;
+    private final String dataType;
+    private final DoubleArrayBuilder values = new DoubleArrayBuilder(256);
+    private final long start;
+    private long end;
+    private boolean appended;
+    private List<Chunk> outOfOrderChunks;
+
+    SeriesAccumulator(AtlasResults header, String dataType) {
+      this.header = header;
+      this.dataType = dataType;
+      this.start = header.getStart();
+      this.end = header.getStart();
+    }
+
+    void add(long chunkStart, long chunkEnd, long step, DoubleArrayBuilder chunkValues) {
+      if (chunkStart < end) {
+        if (outOfOrderChunks == null) {
+          outOfOrderChunks = new ArrayList<>();
+        }
+        outOfOrderChunks.add(
+            new Chunk(chunkStart, chunkEnd, step, new DoubleArrayBuilder().addAll(chunkValues)));
+        return;
+      }
+
+      appendWithPadding(values, appended ? end : null, chunkStart, step, chunkValues);
+      appended = true;
+      end = chunkEnd;
+    }
+
+    AtlasResults build() {
+      long mergedStart = start;
+      long mergedEnd = end;
+      DoubleArrayBuilder mergedValues = values;
+
+      if (outOfOrderChunks != null) {
+        List<Chunk> chunks = new ArrayList<>(outOfOrderChunks);
+        chunks.add(new Chunk(start, end, header.getStep(), values));
+        chunks.sort(Comparator.comparingLong(chunk -> chunk.start));
+
+        mergedStart = chunks.get(0).start;
+        mergedValues = new DoubleArrayBuilder(values.size());
+        Long lastEnd = null;
+
+        for (Chunk chunk : chunks) {
+          appendWithPadding(mergedValues, lastEnd, chunk.start, chunk.step, chunk.values);
+          lastEnd = chunk.end;
+        }
+
+        mergedEnd = lastEnd;
+      }
+
+      return AtlasResults.builder()
+          .type(header.getType())
+          .id(header.getId())
+          .query(header.getQuery())
+          .label(header.getLabel())
+          .start(mergedStart)
+          .step(header.getStep())
+          .end(mergedEnd)
+          .tags(header.getTags())
+          .groupByKeys(header.getGroupByKeys())
+          .data(TimeseriesData.builder().type(dataType).values(mergedValues.toList()).build())
+          .build();
+    }
+
+    private static void appendWithPadding(
+        DoubleArrayBuilder target,
+        Long lastEnd,
+        long nextStart,
+        long step,
+        DoubleArrayBuilder chunkValues) {
+      if (lastEnd != null && step > 0) {
+        target.pad((int) ((nextStart - lastEnd) / step));
+      }
+      target.addAll(chunkValues);
+    }
+  }
+
+  private static class Chunk {
+    final long start;
+    final long end;
+    final long step;
+    final DoubleArrayBuilder values;
+
+    Chunk(long start, long end, long step, DoubleArrayBuilder values) {
+      this.start = start;
+      this.end = end;
+      this.step = step;
+      this.values = values;
+    }
+  }
+}
@@ -31,8 +31,11 @@ package com.netflix.kayenta.atlas.model;
  * limitations under the License.
  */
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import lombok.*;
@@ -91,50 +94,59 @@ public class Backend {
 
   public String getUri(
       String scheme, String deployment, String dataset, String region, String environment) {
-    String relativeReference =
-        cname
-            .replace("$(deployment)", deployment)
-            .replace("$(dataset)", dataset)
-            .replace("$(region)", region)
-            .replace("$(env)", environment);
-
-    return scheme + "://" + relativeReference;
+    return scheme + "://" + getRelativeUri(deployment, dataset, region, environment);
+  }
+
+  private String getRelativeUri(
+      String deployment, String dataset, String region, String environment) {
+    return cname
+        .replace("$(deployment)", deployment)
+        .replace("$(dataset)", dataset)
+        .replace("$(region)", region)
+        .replace("$(env)", environment);
   }
 
   public String getUriForLocation(String scheme, String location) {
+    String relativeUri = getRelativeUrisByLocation().get(location);
+
+    return relativeUri != null ? scheme + "://" + relativeUri : null;
+  }
+
+  /**
+   * Returns the scheme-less URI for every location this backend serves, keyed by location. If more
+   * than one region/environment combination expands to the same location, the first one wins.
+   */
+  @JsonIgnore
+  public Map<String, String> getRelativeUrisByLocation() {
     String base = target.replace("$(deployment)", deployment).replace("$(dataset)", dataset);
     boolean hasRegions = (regions != null && regions.size() > 0);
     boolean hasEnvironments = (environments != null && environments.size() > 0);
+    Map<String, String> relativeUrisByLocation = new LinkedHashMap<>();
 
     if (!hasRegions && !hasEnvironments) {
-      if (base.equals(location)) {
-        return getUri(scheme, deployment, dataset, "", "");
-      }
+      relativeUrisByLocation.put(base, getRelativeUri(deployment, dataset, "", ""));
     } else if (!hasRegions && hasEnvironments) {
       for (String environment : environments) {
         String potential = base.replace("$(env)", environment);
-        if (potential.equals(location)) {
-          return getUri(scheme, deployment, dataset, "", environment);
-        }
+        relativeUrisByLocation.putIfAbsent(
+            potential, getRelativeUri(deployment, dataset, "", environment));
       }
     } else if (hasRegions && !hasEnvironments) {
       for (String region : regions) {
         String potential = base.replace("$(region)", region);
-        if (potential.equals(location)) {
-          return getUri(scheme, deployment, dataset, region, "");
-        }
+        relativeUrisByLocation.putIfAbsent(
+            potential, getRelativeUri(deployment, dataset, region, ""));
       }
     } else { // has both regions and environments
       for (String region : regions) {
         for (String environment : environments) {
           String potential = base.replace("$(region)", region).replace("$(env)", environment);
-          if (potential.equals(location)) {
-            return getUri(scheme, deployment, dataset, region, environment);
-          }
+          relativeUrisByLocation.putIfAbsent(
+              potential, getRelativeUri(deployment, dataset, region, environment));
         }
       }
     }
 
-    return null;
+    return relativeUrisByLocation;
   }
 }
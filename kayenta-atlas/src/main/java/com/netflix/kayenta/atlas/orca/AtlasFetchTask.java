@@ -21,9 +21,9 @@ import com.netflix.kayenta.atlas.canary.AtlasCanaryScope;
 import com.netflix.kayenta.atlas.config.AtlasConfigurationProperties;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.metrics.SynchronousQueryProcessor;
+import com.netflix.kayenta.metrics.orca.MetricFetchTask;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
-import com.netflix.spinnaker.orca.api.pipeline.RetryableTask;
 import com.netflix.spinnaker.orca.api.pipeline.TaskResult;
 import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution;
 import java.io.IOException;
@@ -36,7 +36,7 @@ import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class AtlasFetchTask implements RetryableTask {
+public class AtlasFetchTask implements MetricFetchTask {
 
   @Autowired private ObjectMapper kayentaObjectMapper;
 
@@ -52,10 +52,15 @@ public class AtlasFetchTask implements RetryableTask {
   }
 
   @Override
-  public long getTimeout() {
+  public long getAttemptTimeout() {
     return Duration.ofMinutes(atlasConfigurationProperties.getStageTimeoutMinutes()).toMillis();
   }
 
+  @Override
+  public SynchronousQueryProcessor getSynchronousQueryProcessor() {
+    return synchronousQueryProcessor;
+  }
+
   @Override
   public long getDynamicBackoffPeriod(Duration taskDuration) {
     int numZeros = Long.numberOfLeadingZeros(taskDuration.getSeconds());
@@ -101,6 +106,7 @@ public class AtlasFetchTask implements RetryableTask {
         resolvedStorageAccountName,
         canaryConfig,
         metricIndex,
-        atlasCanaryScope);
+        atlasCanaryScope,
+        context);
   }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.atlas.backends
+
+import com.netflix.kayenta.atlas.model.AtlasStorage
+import spock.lang.Specification
+
+class AtlasStorageDatabaseSpec extends Specification {
+
+  AtlasStorageDatabase atlasStorageDatabase = new AtlasStorageDatabase()
+
+  void "storage URIs come from the current snapshot"() {
+    when:
+    atlasStorageDatabase.update([atlas_storage: [
+      "123": new AtlasStorage("global.123.example.com", '$(region).123.example.com', ["us-east-1"])
+    ]])
+
+    then:
+    atlasStorageDatabase.getGlobalUri("http", "123") == Optional.of("http://global.123.example.com")
+    atlasStorageDatabase.getRegionalUri("http", "123", "us-east-1") ==
+      Optional.of("http://us-east-1.123.example.com")
+    atlasStorageDatabase.getRegionalUri("http", "123", "eu-west-1") == Optional.empty()
+
+    when:
+    atlasStorageDatabase.update([atlas_storage: [:]])
+
+    then:
+    atlasStorageDatabase.getGlobalUri("http", "123") == Optional.empty()
+  }
+
+  void "storage without the top level key is rejected"() {
+    when:
+    atlasStorageDatabase.update([:])
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+}
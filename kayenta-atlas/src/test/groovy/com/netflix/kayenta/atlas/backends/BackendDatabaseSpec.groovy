@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.atlas.backends
+
+import com.netflix.kayenta.atlas.model.Backend
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class BackendDatabaseSpec extends Specification {
+
+  static final Backend MAIN_REGIONAL =
+    backend('main.$(region)', "main", "regional", ["us-east-1", "eu-west-1"], null)
+  static final Backend MAIN_GLOBAL = backend("main.global", "main", "global", null, null)
+  static final Backend MAIN_REGIONAL_PROD =
+    backend('prod.$(region)', "main", "regional", ["us-east-1"], ["prod"])
+
+  BackendDatabase backendDatabase = new BackendDatabase()
+
+  @Unroll
+  void "the first backend matching #deployment/#dataset in #region #environment is found"() {
+    given:
+    backendDatabase.update([MAIN_REGIONAL_PROD, MAIN_REGIONAL, MAIN_GLOBAL])
+
+    expect:
+    backendDatabase.getOne(deployment, dataset, region, environment) ==
+      Optional.ofNullable(expected)
+
+    where:
+    deployment | dataset    | region       | environment || expected
+    "main"     | "regional" | "us-east-1"  | "prod"      || MAIN_REGIONAL_PROD
+    "main"     | "regional" | "us-east-1"  | "test"      || MAIN_REGIONAL
+    "main"     | "regional" | "eu-west-1"  | "prod"      || MAIN_REGIONAL
+    "main"     | "regional" | "ap-south-1" | "prod"      || null
+    "main"     | "global"   | "anywhere"   | "anything"  || MAIN_GLOBAL
+    "other"    | "global"   | "anywhere"   | "anything"  || null
+  }
+
+  void "lookups made before an update do not outlive it"() {
+    given:
+    backendDatabase.update([MAIN_REGIONAL])
+
+    expect:
+    backendDatabase.getOne("main", "global", "us-east-1", "prod") == Optional.empty()
+    backendDatabase.getOne("main", "regional", "us-east-1", "prod") == Optional.of(MAIN_REGIONAL)
+
+    when:
+    backendDatabase.update([MAIN_GLOBAL])
+
+    then:
+    backendDatabase.getOne("main", "global", "us-east-1", "prod") == Optional.of(MAIN_GLOBAL)
+    backendDatabase.getOne("main", "regional", "us-east-1", "prod") == Optional.empty()
+  }
+
+  void "lookups keep resolving past the number of lookups kept"() {
+    given:
+    backendDatabase.update([MAIN_REGIONAL, MAIN_GLOBAL])
+
+    expect:
+    (1..(BackendDatabase.MAX_RESOLVED_BACKENDS * 2)).every {
+      backendDatabase.getOne("main", "global", "region-" + it, "prod") == Optional.of(MAIN_GLOBAL)
+    }
+    backendDatabase.getOne("main", "regional", "us-east-1", "prod") == Optional.of(MAIN_REGIONAL)
+  }
+
+  void "locations and their URIs come from the backends of the current snapshot"() {
+    when:
+    backendDatabase.update([MAIN_REGIONAL, MAIN_GLOBAL, MAIN_REGIONAL_PROD])
+
+    then:
+    backendDatabase.locations ==
+      ["main.us-east-1", "main.eu-west-1", "main.global", "prod.us-east-1"]
+    backendDatabase.getUriForLocation("http", "main.eu-west-1") ==
+      "http://main.eu-west-1.example.com"
+    backendDatabase.getUriForLocation("http", "unknown") == null
+
+    when:
+    backendDatabase.update([MAIN_GLOBAL])
+
+    then:
+    backendDatabase.locations == ["main.global"]
+    backendDatabase.getUriForLocation("http", "main.eu-west-1") == null
+  }
+
+  private static Backend backend(
+    String target,
+    String deployment,
+    String dataset,
+    List<String> regions,
+    List<String> environments) {
+    new Backend(
+      target + ".example.com", target, deployment, dataset, environments, regions, "PT1M", "")
+  }
+}
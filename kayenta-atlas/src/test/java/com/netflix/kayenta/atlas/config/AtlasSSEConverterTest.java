@@ -8,6 +8,7 @@ import com.netflix.kayenta.metrics.FatalQueryException;
 import com.netflix.kayenta.metrics.RetryableQueryException;
 import java.io.BufferedReader;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.List;
 import org.junit.Test;
 
@@ -18,6 +19,10 @@ public class AtlasSSEConverterTest {
       "data: {\"type\":\"timeseries\",\"id\":\"randomIdHere\",\"query\":\"name,apache.http.request,:eq,statistic,count,:eq,:and,:sum,(,status,method,),:by\",\"tags\":{\"method\":\"get\",\"name\":\"apache.http.request\",\"statistic\":\"count\",\"atlas.offset\":\"0w\",\"status\":\"2xx\",\"nf.cluster\":\"foocluster\"},\"start\":1517860320000,\"end\":1517863920000,\"step\":60000,\"data\":{\"type\":\"array\",\"values\":[0.8666666666666667]}}\n";
   private String errorMessageIllegalStateMessage =
       "data: {\"type\":\"error\",\"message\":\"IllegalStateException: unknown word ':eqx'\"}\n";
+  private String firstChunkMessage =
+      "data: {\"type\":\"timeseries\",\"id\":\"abc\",\"tags\":{\"nf.cluster\":\"foocluster\"},\"start\":0,\"end\":120000,\"step\":60000,\"data\":{\"type\":\"array\",\"values\":[1.0,\"NaN\"]}}\n";
+  private String secondChunkMessage =
+      "data: {\"type\":\"timeseries\",\"id\":\"abc\",\"tags\":{\"nf.cluster\":\"foocluster\"},\"start\":180000,\"end\":300000,\"step\":60000,\"data\":{\"type\":\"array\",\"values\":[3,4]}}\n";
   private String retryableErrorMessage =
       "data: {\"type\":\"error\",\"message\":\"something went wrong\"}\n";
 
@@ -39,6 +44,27 @@ public class AtlasSSEConverterTest {
     assertEquals(2, results.size());
   }
 
+  @Test
+  public void chunksAreMergedById() {
+    List<AtlasResults> results =
+        atlasResultsFromSSE(firstChunkMessage + secondChunkMessage + closeMessage);
+    assertEquals(2, results.size());
+
+    AtlasResults merged = results.get(0);
+    assertEquals("abc", merged.getId());
+    assertEquals(0, merged.getStart());
+    assertEquals(300000, merged.getEnd());
+    assertEquals("foocluster", merged.getTags().get("nf.cluster"));
+    assertEquals(
+        Arrays.asList(1.0, Double.NaN, Double.NaN, 3.0, 4.0), merged.getData().getValues());
+    assertEquals("close", results.get(1).getType());
+  }
+
+  @Test(expected = RetryableQueryException.class)
+  public void emptyResponseThrows() {
+    atlasResultsFromSSE("");
+  }
+
   @Test(expected = RetryableQueryException.class)
   public void missingCloseThrows() {
     atlasResultsFromSSE(timeseriesMessage);
@@ -29,6 +29,7 @@ import com.netflix.kayenta.index.CanaryConfigIndex;
 import com.netflix.kayenta.index.config.CanaryConfigIndexAction;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.storage.ObjectType;
+import com.netflix.kayenta.storage.StorageBatches;
 import com.netflix.kayenta.storage.StorageService;
 import com.netflix.spinnaker.kork.web.exceptions.NotFoundException;
 import java.io.IOException;
@@ -47,6 +48,9 @@ import org.springframework.util.StringUtils;
 @Slf4j
 public class BlobsStorageService implements StorageService {
 
+  // The most sub-requests a single blob batch request may carry.
+  private static final int MAX_BLOBS_PER_BATCH = 256;
+
   @NotNull @Singular @Getter private List<String> accountNames;
 
   @Autowired private ObjectMapper kayentaObjectMapper;
@@ -313,6 +317,32 @@ public class BlobsStorageService implements StorageService {
     }
   }
 
+  @Override
+  public void deleteObjects(String accountName, ObjectType objectType, List<String> objectKeys) {
+    if (objectType == ObjectType.CANARY_CONFIG) {
+      // Each deleted canary config is also removed from the index.
+      StorageService.super.deleteObjects(accountName, objectType, objectKeys);
+      return;
+    }
+
+    AzureNamedAccountCredentials credentials =
+        accountCredentialsRepository.getRequiredOne(accountName);
+    CloudBlobContainer azureContainer = credentials.getAzureContainer();
+    // Only finding the blobs takes a request per object.
+    List<CloudBlockBlob> blobs =
+        StorageBatches.map(
+            objectKeys,
+            objectKey -> resolveSingularBlob(objectType, objectKey, credentials, azureContainer));
+
+    for (List<CloudBlockBlob> batch : Lists.partition(blobs, MAX_BLOBS_PER_BATCH)) {
+      try {
+        deleteBatch(azureContainer, batch);
+      } catch (StorageException e) {
+        log.error("Failed to delete {} {}: {}", batch.size(), objectType.getGroup(), e);
+      }
+    }
+  }
+
   @Override
   public List<Map<String, Object>> listObjectKeys(
       String accountName, ObjectType objectType, List<String> applications, boolean skipIndex) {
@@ -421,6 +451,17 @@ public class BlobsStorageService implements StorageService {
     blob.deleteIfExists();
   }
 
+  public void deleteBatch(CloudBlobContainer container, List<CloudBlockBlob> blobs)
+      throws StorageException {
+    BlobDeleteBatchOperation batch = new BlobDeleteBatchOperation();
+
+    for (CloudBlockBlob blob : blobs) {
+      batch.addSubOperation(blob);
+    }
+
+    container.getServiceClient().executeBatch(batch);
+  }
+
   public void uploadFromByteArray(
       CloudBlockBlob blob, final byte[] bytes, final int offset, final int length)
       throws StorageException, IOException {
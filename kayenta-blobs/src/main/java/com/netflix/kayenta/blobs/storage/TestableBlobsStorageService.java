@@ -116,6 +116,13 @@ public class TestableBlobsStorageService extends BlobsStorageService {
     blobStored.put(String.format("deleteIfexists(%s)", blob.getName()), "invoked");
   }
 
+  @Override
+  public void deleteBatch(CloudBlobContainer container, List<CloudBlockBlob> blobs) {
+    for (CloudBlockBlob blob : blobs) {
+      blobStored.put(String.format("deleteBatch(%s)", blob.getName()), "invoked");
+    }
+  }
+
   @Override
   public Date getLastModified(BlobProperties properties) {
     return new Date();
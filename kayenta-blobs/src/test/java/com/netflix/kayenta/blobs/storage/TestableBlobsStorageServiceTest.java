@@ -183,6 +183,20 @@ public class TestableBlobsStorageServiceTest {
     }
   }
 
+  @Test
+  public void deleteObjectsSendsABatchRequest() {
+    String fakeBlobName =
+        rootFolder + "/" + ObjectType.METRIC_SET_LIST.getGroup() + "/some(GUID)/canary_test.json";
+
+    testBlobsStorageService.deleteObjects(
+        "Kayenta_Account_1", ObjectType.METRIC_SET_LIST, Collections.singletonList("some(GUID)"));
+
+    HashMap<String, String> result = testBlobsStorageService.blobStored;
+    Assert.assertEquals("invoked", result.get(String.format("deleteBatch(%s)", fakeBlobName)));
+    Assert.assertEquals(
+        "not_invoked", result.get(String.format("deleteIfexists(%s)", fakeBlobName)));
+  }
+
   @Test
   @UseDataProvider("listObjectKeysDataset")
   public void listObjectKeys(
@@ -21,7 +21,7 @@ import javax.validation.constraints.NotNull;
 import lombok.*;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class CanaryExecutionStatusResponse {
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.canary;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.kayenta.canary.results.CanaryJudgeResult;
+import com.netflix.kayenta.canary.results.CanaryJudgeScore;
+import com.netflix.kayenta.canary.results.CanaryResult;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A summary of a canary execution, for listing many of them cheaply: unlike {@link
+ * CanaryExecutionStatusResponse}, it is built without deserializing the canary config, the
+ * execution request or the judge result.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CanaryExecutionSummary {
+
+  private static final Map<String, Function<CanaryExecutionSummary, Object>> FIELDS =
+      ImmutableMap.<String, Function<CanaryExecutionSummary, Object>>builder()
+          .put("pipelineId", CanaryExecutionSummary::getPipelineId)
+          .put("application", CanaryExecutionSummary::getApplication)
+          .put("parentPipelineExecutionId", CanaryExecutionSummary::getParentPipelineExecutionId)
+          .put("canaryConfigId", CanaryExecutionSummary::getCanaryConfigId)
+          .put("status", CanaryExecutionSummary::getStatus)
+          .put("complete", CanaryExecutionSummary::getComplete)
+          .put("score", CanaryExecutionSummary::getScore)
+          .put("buildTimeMillis", CanaryExecutionSummary::getBuildTimeMillis)
+          .put("buildTimeIso", CanaryExecutionSummary::getBuildTimeIso)
+          .put("startTimeMillis", CanaryExecutionSummary::getStartTimeMillis)
+          .put("startTimeIso", CanaryExecutionSummary::getStartTimeIso)
+          .put("endTimeMillis", CanaryExecutionSummary::getEndTimeMillis)
+          .put("endTimeIso", CanaryExecutionSummary::getEndTimeIso)
+          .build();
+
+  @NotNull protected String pipelineId;
+
+  protected String application;
+
+  protected String parentPipelineExecutionId;
+
+  protected String canaryConfigId;
+
+  @NotNull protected String status;
+
+  @NotNull protected Boolean complete;
+
+  // Only set once the canary has been judged.
+  protected Double score;
+
+  protected Long buildTimeMillis;
+
+  protected String buildTimeIso;
+
+  protected Long startTimeMillis;
+
+  protected String startTimeIso;
+
+  protected Long endTimeMillis;
+
+  protected String endTimeIso;
+
+  /** Summarizes a canary execution that was already mapped in full, such as an archived one. */
+  public static CanaryExecutionSummary fromStatusResponse(CanaryExecutionStatusResponse response) {
+    CanaryExecutionSummaryBuilder summaryBuilder =
+        CanaryExecutionSummary.builder()
+            .pipelineId(response.getPipelineId())
+            .application(response.getApplication())
+            .parentPipelineExecutionId(response.getParentPipelineExecutionId())
+            .canaryConfigId(response.getCanaryConfigId())
+            .status(response.getStatus())
+            .complete(response.getComplete())
+            .buildTimeMillis(response.getBuildTimeMillis())
+            .buildTimeIso(response.getBuildTimeIso())
+            .startTimeMillis(response.getStartTimeMillis())
+            .startTimeIso(response.getStartTimeIso())
+            .endTimeMillis(response.getEndTimeMillis())
+            .endTimeIso(response.getEndTimeIso());
+
+    Optional.ofNullable(response.getResult())
+        .map(CanaryResult::getJudgeResult)
+        .map(CanaryJudgeResult::getScore)
+        .map(CanaryJudgeScore::getScore)
+        .ifPresent(summaryBuilder::score);
+
+    return summaryBuilder.build();
+  }
+
+  /**
+   * Returns only the given fields of this summary, in the given order.
+   *
+   * @throws IllegalArgumentException if any of them isn't a field of the summary
+   */
+  public Map<String, Object> project(Collection<String> fields) {
+    Map<String, Object> projection = new LinkedHashMap<>();
+
+    for (String field : fields) {
+      Function<CanaryExecutionSummary, Object> getter = FIELDS.get(field);
+
+      if (getter == null) {
+        throw new IllegalArgumentException(
+            "Unknown canary execution field '" + field + "', expected one of " + FIELDS.keySet());
+      }
+
+      projection.put(field, getter.apply(this));
+    }
+
+    return projection;
+  }
+}
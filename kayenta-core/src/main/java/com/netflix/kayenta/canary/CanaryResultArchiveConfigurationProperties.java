@@ -0,0 +1,32 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.canary;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Configuration of the bulk retrieval of archived canary results. */
+@Data
+@ConfigurationProperties("kayenta.canary-result-archive")
+public class CanaryResultArchiveConfigurationProperties {
+
+  /** How many archived canary results a bulk get loads at once. */
+  private int bulkGetParallelism = 8;
+
+  /** The most archived canary results one bulk get may ask for. */
+  private int maxBulkGetIds = 500;
+}
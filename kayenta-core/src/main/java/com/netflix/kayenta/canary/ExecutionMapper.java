@@ -19,13 +19,18 @@ import static java.util.Optional.ofNullable;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.netflix.kayenta.canary.orca.CanaryStageNames;
 import com.netflix.kayenta.canary.providers.metrics.QueryConfigUtils;
 import com.netflix.kayenta.canary.results.CanaryJudgeResult;
 import com.netflix.kayenta.canary.results.CanaryResult;
+import com.netflix.kayenta.metrics.MetricSetListHandoff;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus;
@@ -38,9 +43,13 @@ import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -54,6 +63,13 @@ public class ExecutionMapper {
 
   public static final String PIPELINE_NAME = "Standard Canary Pipeline";
 
+  /** The canary config id of canary runs whose canary config is passed in rather than stored. */
+  public static final String AD_HOC_CANARY_CONFIG_ID = "ad-hoc";
+
+  private static final long COMPLETED_RESPONSE_CACHE_MAX_ENTRIES = 1000;
+
+  private static final long RUNNING_EXECUTION_CACHE_MAX_ENTRIES = 1000;
+
   private final ObjectMapper objectMapper;
   private final Registry registry;
   private final String currentInstanceId;
@@ -65,6 +81,26 @@ public class ExecutionMapper {
   private final Id pipelineRunId;
   private final Id failureId;
 
+  private final Cache<List<Object>, CanaryExecutionStatusResponse> completedResponses =
+      CacheBuilder.newBuilder()
+          .maximumSize(COMPLETED_RESPONSE_CACHE_MAX_ENTRIES)
+          .expireAfterAccess(1, TimeUnit.HOURS)
+          .build();
+
+  private final Cache<String, ExecutionInputs> runningExecutionInputs =
+      CacheBuilder.newBuilder()
+          .maximumSize(RUNNING_EXECUTION_CACHE_MAX_ENTRIES)
+          .expireAfterAccess(10, TimeUnit.MINUTES)
+          .build();
+
+  /** The canary config and execution request of a canary execution, as deserialized. */
+  @AllArgsConstructor
+  @Getter
+  private static class ExecutionInputs {
+    private final CanaryConfig canaryConfig;
+    private final CanaryExecutionRequest canaryExecutionRequest;
+  }
+
   @Autowired
   public ExecutionMapper(
       ObjectMapper objectMapper,
@@ -92,6 +128,11 @@ public class ExecutionMapper {
    * Maps the Orca Pipeline Execution for a canary triggered via the /canary endpoint to the status
    * response object.
    *
+   * <p>The response of a completed execution can't change anymore, so it is built once and cached
+   * by execution ID, status and end time. The canary config and execution request of a running
+   * execution are set when it is built, so they are deserialized once per execution rather than
+   * on every status poll.
+   *
    * @param pipeline The Orca canary pipeline execution for the canary.
    * @return the canary execution status response.
    */
@@ -103,14 +144,114 @@ public class ExecutionMapper {
               PIPELINE_NAME, pipeline.getName()));
     }
 
-    StageExecution judgeStage = getStageFromExecution(pipeline, CanaryStageNames.REFID_JUDGE);
+    if (!pipeline.getStatus().isComplete()) {
+      Map<String, StageExecution> stagesByRefId = indexStages(pipeline);
+      ExecutionInputs inputs;
+
+      try {
+        inputs =
+            runningExecutionInputs.get(
+                pipeline.getId(), () -> getExecutionInputs(pipeline, stagesByRefId));
+      } catch (ExecutionException | UncheckedExecutionException e) {
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new IllegalStateException(e.getCause());
+      }
+
+      return buildStatusResponse(pipeline, stagesByRefId, inputs);
+    }
+
+    List<Object> cacheKey =
+        Arrays.asList(pipeline.getId(), pipeline.getStatus(), pipeline.getEndTime());
+    CanaryExecutionStatusResponse cachedResponse = completedResponses.getIfPresent(cacheKey);
+
+    if (cachedResponse != null) {
+      return cachedResponse;
+    }
+
+    Map<String, StageExecution> stagesByRefId = indexStages(pipeline);
+    CanaryExecutionStatusResponse response =
+        buildStatusResponse(
+            pipeline, stagesByRefId, getExecutionInputs(pipeline, stagesByRefId));
+
+    completedResponses.put(cacheKey, response);
+    runningExecutionInputs.invalidate(pipeline.getId());
+
+    return response;
+  }
+
+  /**
+   * Summarizes the Orca Pipeline Execution of a canary without deserializing its canary config,
+   * execution request or judge result.
+   *
+   * @param pipeline The Orca canary pipeline execution for the canary.
+   * @return the canary execution summary.
+   */
+  public CanaryExecutionSummary summaryFromExecution(PipelineExecution pipeline) {
+    Map<String, StageExecution> stagesByRefId = indexStages(pipeline);
+    Map<String, Object> contextContext =
+        getStage(pipeline, stagesByRefId, CanaryStageNames.REFID_SET_CONTEXT).getContext();
+    Map<String, Object> judgeOutputs =
+        getStage(pipeline, stagesByRefId, CanaryStageNames.REFID_JUDGE).getOutputs();
+
+    CanaryExecutionSummary.CanaryExecutionSummaryBuilder summaryBuilder =
+        CanaryExecutionSummary.builder()
+            .pipelineId(pipeline.getId())
+            .application((String) contextContext.get("application"))
+            .parentPipelineExecutionId((String) contextContext.get("parentPipelineExecutionId"))
+            .status(pipeline.getStatus().toString().toLowerCase())
+            .complete(pipeline.getStatus().isComplete());
+
+    ofNullable(contextContext.get("canaryConfigId"))
+        .map(String::valueOf)
+        .ifPresent(summaryBuilder::canaryConfigId);
+
+    // The judge result is kept as a map in the stage outputs; only its score is read.
+    ofNullable(judgeOutputs.get("result"))
+        .filter(Map.class::isInstance)
+        .map(result -> ((Map<?, ?>) result).get("score"))
+        .filter(Map.class::isInstance)
+        .map(score -> ((Map<?, ?>) score).get("score"))
+        .filter(Number.class::isInstance)
+        .map(score -> ((Number) score).doubleValue())
+        .ifPresent(summaryBuilder::score);
+
+    ofNullable(pipeline.getBuildTime())
+        .ifPresent(
+            buildTime ->
+                summaryBuilder
+                    .buildTimeMillis(buildTime)
+                    .buildTimeIso(Instant.ofEpochMilli(buildTime) + ""));
+
+    ofNullable(pipeline.getStartTime())
+        .ifPresent(
+            startTime ->
+                summaryBuilder
+                    .startTimeMillis(startTime)
+                    .startTimeIso(Instant.ofEpochMilli(startTime) + ""));
+
+    ofNullable(pipeline.getEndTime())
+        .ifPresent(
+            endTime ->
+                summaryBuilder
+                    .endTimeMillis(endTime)
+                    .endTimeIso(Instant.ofEpochMilli(endTime) + ""));
+
+    return summaryBuilder.build();
+  }
+
+  private CanaryExecutionStatusResponse buildStatusResponse(
+      PipelineExecution pipeline,
+      Map<String, StageExecution> stagesByRefId,
+      ExecutionInputs inputs) {
+    StageExecution judgeStage = getStage(pipeline, stagesByRefId, CanaryStageNames.REFID_JUDGE);
     Map<String, Object> judgeOutputs = judgeStage.getOutputs();
 
     StageExecution contextStage =
-        getStageFromExecution(pipeline, CanaryStageNames.REFID_SET_CONTEXT);
+        getStage(pipeline, stagesByRefId, CanaryStageNames.REFID_SET_CONTEXT);
     Map<String, Object> contextContext = contextStage.getContext();
 
-    StageExecution mixerStage = getStageFromExecution(pipeline, CanaryStageNames.REFID_MIX_METRICS);
+    StageExecution mixerStage =
+        getStage(pipeline, stagesByRefId, CanaryStageNames.REFID_MIX_METRICS);
     Map<String, Object> mixerOutputs = mixerStage.getOutputs();
 
     CanaryExecutionStatusResponse.CanaryExecutionStatusResponseBuilder
@@ -140,15 +281,21 @@ public class ExecutionMapper {
         .map(String::valueOf)
         .ifPresent(canaryExecutionStatusResponseBuilder::metricSetPairListId);
 
-    canaryExecutionStatusResponseBuilder.config(getCanaryConfig(pipeline));
-    CanaryExecutionRequest canaryExecutionRequest = getCanaryExecutionRequest(pipeline);
+    canaryExecutionStatusResponseBuilder.config(inputs.getCanaryConfig());
+    CanaryExecutionRequest canaryExecutionRequest = inputs.getCanaryExecutionRequest();
     canaryExecutionStatusResponseBuilder.canaryExecutionRequest(canaryExecutionRequest);
 
-    Map<String, String> stageStatus =
-        pipeline.getStages().stream()
-            .collect(
-                Collectors.toMap(
-                    StageExecution::getRefId, s -> s.getStatus().toString().toLowerCase()));
+    Map<String, String> stageStatus = new HashMap<>();
+    // Propagate the first canary pipeline exception we can locate.
+    StageExecution stageWithException = null;
+
+    for (StageExecution stage : pipeline.getStages()) {
+      stageStatus.put(stage.getRefId(), stage.getStatus().toString().toLowerCase());
+
+      if (stageWithException == null && stage.getContext().containsKey("exception")) {
+        stageWithException = stage;
+      }
+    }
 
     Boolean isComplete = pipeline.getStatus().isComplete();
     String pipelineStatus = pipeline.getStatus().toString().toLowerCase();
@@ -195,13 +342,6 @@ public class ExecutionMapper {
       }
     }
 
-    // Propagate the first canary pipeline exception we can locate.
-    StageExecution stageWithException =
-        pipeline.getStages().stream()
-            .filter(stage -> stage.getContext().containsKey("exception"))
-            .findFirst()
-            .orElse(null);
-
     if (stageWithException != null) {
       canaryExecutionStatusResponseBuilder.exception(
           stageWithException.getContext().get("exception"));
@@ -210,22 +350,40 @@ public class ExecutionMapper {
     return canaryExecutionStatusResponseBuilder.build();
   }
 
+  private ExecutionInputs getExecutionInputs(
+      PipelineExecution pipeline, Map<String, StageExecution> stagesByRefId) {
+    return new ExecutionInputs(
+        getCanaryConfig(pipeline, stagesByRefId),
+        getCanaryExecutionRequest(pipeline, stagesByRefId));
+  }
+
   // Some older (stored) results have the execution request only in the judge context.
   public String getCanaryExecutionRequestFromJudgeContext(PipelineExecution pipeline) {
-    StageExecution contextStage = getStageFromExecution(pipeline, CanaryStageNames.REFID_JUDGE);
+    return getCanaryExecutionRequestFromJudgeContext(pipeline, indexStages(pipeline));
+  }
+
+  private String getCanaryExecutionRequestFromJudgeContext(
+      PipelineExecution pipeline, Map<String, StageExecution> stagesByRefId) {
+    StageExecution contextStage = getStage(pipeline, stagesByRefId, CanaryStageNames.REFID_JUDGE);
     Map<String, Object> context = contextStage.getContext();
 
     return (String) context.get("canaryExecutionRequest");
   }
 
   public CanaryExecutionRequest getCanaryExecutionRequest(PipelineExecution pipeline) {
+    return getCanaryExecutionRequest(pipeline, indexStages(pipeline));
+  }
+
+  private CanaryExecutionRequest getCanaryExecutionRequest(
+      PipelineExecution pipeline, Map<String, StageExecution> stagesByRefId) {
     StageExecution contextStage =
-        getStageFromExecution(pipeline, CanaryStageNames.REFID_SET_CONTEXT);
+        getStage(pipeline, stagesByRefId, CanaryStageNames.REFID_SET_CONTEXT);
     Map<String, Object> context = contextStage.getContext();
 
     String canaryExecutionRequestJSON = (String) context.get("canaryExecutionRequest");
     if (canaryExecutionRequestJSON == null) {
-      canaryExecutionRequestJSON = getCanaryExecutionRequestFromJudgeContext(pipeline);
+      canaryExecutionRequestJSON =
+          getCanaryExecutionRequestFromJudgeContext(pipeline, stagesByRefId);
     }
     if (canaryExecutionRequestJSON == null) {
       return null;
@@ -242,8 +400,13 @@ public class ExecutionMapper {
   }
 
   public CanaryConfig getCanaryConfig(PipelineExecution pipeline) {
+    return getCanaryConfig(pipeline, indexStages(pipeline));
+  }
+
+  private CanaryConfig getCanaryConfig(
+      PipelineExecution pipeline, Map<String, StageExecution> stagesByRefId) {
     StageExecution contextStage =
-        getStageFromExecution(pipeline, CanaryStageNames.REFID_SET_CONTEXT);
+        getStage(pipeline, stagesByRefId, CanaryStageNames.REFID_SET_CONTEXT);
     Map<String, Object> context = contextStage.getContext();
 
     Map<String, Object> canaryConfigMap = (Map<String, Object>) context.get("canaryConfig");
@@ -258,16 +421,33 @@ public class ExecutionMapper {
    * @return The stage.
    */
   protected StageExecution getStageFromExecution(PipelineExecution pipeline, String refId) {
-    String canaryExecutionId = pipeline.getId();
-    return pipeline.getStages().stream()
-        .filter(stage -> refId.equals(stage.getRefId()))
-        .findFirst()
-        .orElseThrow(
-            () ->
-                new IllegalArgumentException(
-                    String.format(
-                        "Unable to find StageExecution '%s' in pipeline ID '%s'",
-                        refId, canaryExecutionId)));
+    return getStage(pipeline, indexStages(pipeline), refId);
+  }
+
+  /** Indexes the stages of the pipeline by ref id, keeping the first stage of each ref id. */
+  private static Map<String, StageExecution> indexStages(PipelineExecution pipeline) {
+    Map<String, StageExecution> stagesByRefId = new HashMap<>();
+
+    for (StageExecution stage : pipeline.getStages()) {
+      if (stage.getRefId() != null) {
+        stagesByRefId.putIfAbsent(stage.getRefId(), stage);
+      }
+    }
+
+    return stagesByRefId;
+  }
+
+  private static StageExecution getStage(
+      PipelineExecution pipeline, Map<String, StageExecution> stagesByRefId, String refId) {
+    StageExecution stage = stagesByRefId.get(refId);
+
+    if (stage == null) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Unable to find StageExecution '%s' in pipeline ID '%s'", refId, pipeline.getId()));
+    }
+
+    return stage;
   }
 
   private CanaryScopeFactory getScopeFactoryForServiceType(String serviceType) {
@@ -438,6 +618,13 @@ public class ExecutionMapper {
             resolvedMetricsAccountName,
             resolvedStorageAccountName);
 
+    if (AD_HOC_CANARY_CONFIG_ID.equals(canaryConfigId)) {
+      fetchExperimentContexts.forEach(
+          context -> context.put(MetricSetListHandoff.AD_HOC_CANARY_KEY, true));
+      controlFetchContexts.forEach(
+          context -> context.put(MetricSetListHandoff.AD_HOC_CANARY_KEY, true));
+    }
+
     int maxMetricIndex =
         canaryConfig.getMetrics().size()
             - 1; // 0 based naming, so we want the last index value, not the count
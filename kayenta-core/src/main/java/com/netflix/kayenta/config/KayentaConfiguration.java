@@ -25,14 +25,22 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.common.collect.ImmutableList;
 import com.netflix.kayenta.atlas.config.KayentaSerializationConfigurationProperties;
 import com.netflix.kayenta.canary.CanaryMetricSetQueryConfig;
+import com.netflix.kayenta.canary.CanaryResultArchiveConfigurationProperties;
+import com.netflix.kayenta.events.ExecutionChangesConfigurationProperties;
+import com.netflix.kayenta.events.listeners.ExecutionArchivalConfigurationProperties;
 import com.netflix.kayenta.metrics.MapBackedMetricsServiceRepository;
+import com.netflix.kayenta.metrics.MetricQueryResultCacheProperties;
+import com.netflix.kayenta.metrics.MetricSetListHandoffProperties;
 import com.netflix.kayenta.metrics.MetricSetMixerService;
+import com.netflix.kayenta.metrics.MetricsCircuitBreakerConfigurationProperties;
 import com.netflix.kayenta.metrics.MetricsRetryConfigurationProperties;
 import com.netflix.kayenta.metrics.MetricsServiceRepository;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.security.MapBackedAccountCredentialsRepository;
 import com.netflix.kayenta.service.MetricSetPairListService;
 import com.netflix.kayenta.storage.MapBackedStorageServiceRepository;
+import com.netflix.kayenta.storage.StorageIoConfigurationProperties;
+import com.netflix.kayenta.storage.StorageIoExecutors;
 import com.netflix.kayenta.storage.StorageService;
 import com.netflix.kayenta.storage.StorageServiceRepository;
 import com.netflix.spinnaker.kork.jackson.ObjectMapperSubtypeConfigurer;
@@ -61,7 +69,16 @@ import org.springframework.context.annotation.Primary;
   "com.netflix.kayenta.persistence.config",
   "com.netflix.kayenta.retrofit.config"
 })
-@EnableConfigurationProperties(MetricsRetryConfigurationProperties.class)
+@EnableConfigurationProperties({
+  MetricsRetryConfigurationProperties.class,
+  MetricQueryResultCacheProperties.class,
+  MetricSetListHandoffProperties.class,
+  MetricsCircuitBreakerConfigurationProperties.class,
+  ExecutionChangesConfigurationProperties.class,
+  ExecutionArchivalConfigurationProperties.class,
+  StorageIoConfigurationProperties.class,
+  CanaryResultArchiveConfigurationProperties.class
+})
 public class KayentaConfiguration {
 
   @Bean
@@ -89,6 +106,12 @@ public class KayentaConfiguration {
     return new MapBackedStorageServiceRepository(storageServices.orElse(Collections.emptyList()));
   }
 
+  @Bean
+  @ConditionalOnMissingBean
+  StorageIoExecutors storageIoExecutors(StorageIoConfigurationProperties properties) {
+    return new StorageIoExecutors(properties);
+  }
+
   @Bean
   @ConditionalOnMissingBean
   MetricSetPairListService metricSetPairListService(
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.events;
+
+import com.netflix.spinnaker.orca.events.ExecutionComplete;
+import com.netflix.spinnaker.orca.events.ExecutionEvent;
+import com.netflix.spinnaker.orca.events.ExecutionStarted;
+import com.netflix.spinnaker.orca.events.StageComplete;
+import com.netflix.spinnaker.orca.events.StageStarted;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * Tells the clients waiting on an execution that one of its stages, or the execution itself,
+ * started or completed.
+ *
+ * <p>Changes are picked up from the Orca events of the instance running the stage, and relayed to
+ * the other instances over a single Redis channel, so a client is notified whichever instance it
+ * waits on. Each instance holds one subscription to the channel, opened once the first client
+ * waits, rather than one per waiting client. Listeners are called on the thread that delivered the
+ * change and must hand any slow work off to another thread.
+ */
+@Component
+@Slf4j
+public class ExecutionChangeNotifier {
+
+  static final String CHANNEL = "kayenta:execution-changes";
+
+  private static final String SEPARATOR = " ";
+
+  private final String instanceId = UUID.randomUUID().toString();
+
+  private final Map<String, Set<Runnable>> listeners = new ConcurrentHashMap<>();
+
+  private final JedisPool jedisPool;
+
+  private volatile boolean stopped;
+
+  private Thread subscriberThread;
+
+  private JedisPubSub subscriber;
+
+  @Autowired
+  public ExecutionChangeNotifier(
+      Optional<JedisPool> jedisPool, ExecutionChangesConfigurationProperties properties) {
+    this.jedisPool = properties.isRedisEnabled() ? jedisPool.orElse(null) : null;
+  }
+
+  /**
+   * Calls the listener whenever the execution changes, until the returned handle is run.
+   *
+   * @return the handle to run to stop listening
+   */
+  public Runnable subscribe(String executionId, Runnable listener) {
+    listeners.computeIfAbsent(executionId, id -> ConcurrentHashMap.newKeySet()).add(listener);
+    startSubscriber();
+
+    return () ->
+        listeners.computeIfPresent(
+            executionId,
+            (id, executionListeners) -> {
+              executionListeners.remove(listener);
+              return executionListeners.isEmpty() ? null : executionListeners;
+            });
+  }
+
+  @EventListener({
+    ExecutionStarted.class,
+    ExecutionComplete.class,
+    StageStarted.class,
+    StageComplete.class
+  })
+  public void onExecutionEvent(ExecutionEvent event) {
+    String executionId = event.getExecutionId();
+
+    notifyListeners(executionId);
+
+    if (jedisPool == null) {
+      return;
+    }
+
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.publish(CHANNEL, instanceId + SEPARATOR + executionId);
+    } catch (Exception e) {
+      log.warn("Unable to relay a change of execution {}: {}", executionId, e.getMessage());
+    }
+  }
+
+  void notifyListeners(String executionId) {
+    Set<Runnable> executionListeners = listeners.get(executionId);
+
+    if (executionListeners == null) {
+      return;
+    }
+
+    for (Runnable listener : executionListeners) {
+      try {
+        listener.run();
+      } catch (Exception e) {
+        log.warn("Listener of execution {} failed: {}", executionId, e.getMessage());
+      }
+    }
+  }
+
+  void onMessage(String message) {
+    int separator = message.indexOf(SEPARATOR);
+
+    // This instance's own changes were delivered when they were published.
+    if (separator > 0 && !message.substring(0, separator).equals(instanceId)) {
+      notifyListeners(message.substring(separator + 1));
+    }
+  }
+
+  private synchronized void startSubscriber() {
+    if (jedisPool == null || subscriberThread != null || stopped) {
+      return;
+    }
+
+    subscriberThread = new Thread(this::subscribeUntilStopped, "execution-change-subscriber");
+    subscriberThread.setDaemon(true);
+    subscriberThread.start();
+  }
+
+  private void subscribeUntilStopped() {
+    while (!stopped) {
+      JedisPubSub pubSub =
+          new JedisPubSub() {
+            @Override
+            public void onMessage(String channel, String message) {
+              ExecutionChangeNotifier.this.onMessage(message);
+            }
+          };
+
+      synchronized (this) {
+        if (stopped) {
+          return;
+        }
+        subscriber = pubSub;
+      }
+
+      try (Jedis jedis = jedisPool.getResource()) {
+        // Blocks until unsubscribed or the connection is lost.
+        jedis.subscribe(pubSub, CHANNEL);
+      } catch (Exception e) {
+        log.warn("Lost the subscription to execution changes, resubscribing: {}", e.getMessage());
+
+        try {
+          TimeUnit.SECONDS.sleep(5);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+    }
+  }
+
+  @PreDestroy
+  public synchronized void stop() {
+    stopped = true;
+
+    if (subscriber != null && subscriber.isSubscribed()) {
+      subscriber.unsubscribe();
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.events;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of how clients waiting on an execution, through a long poll or a status stream,
+ * are told that it changed.
+ */
+@Data
+@ConfigurationProperties("kayenta.execution-changes")
+public class ExecutionChangesConfigurationProperties {
+
+  /**
+   * Whether changes are relayed between instances over a Redis channel. Without it, a client only
+   * hears of the changes made by the instance it is connected to, and otherwise waits until its
+   * long poll times out.
+   */
+  private boolean redisEnabled = true;
+
+  /** How many threads re-read the status of changed executions for their waiting clients. */
+  private int dispatchThreads = 4;
+
+  /** The longest a long poll may wait for a change, whatever the client asks for. */
+  private long maxWaitForChangeMs = Duration.ofMinutes(1).toMillis();
+
+  /** How long a status stream stays open before the client has to reconnect. */
+  private long streamTimeoutMs = Duration.ofHours(1).toMillis();
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.events;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Serves the long polls and status streams of executions without holding a thread per waiting
+ * client: requests are parked as {@link DeferredResult}s and {@link SseEmitter}s, and the status of
+ * an execution is only re-read, on a small shared pool, when {@link ExecutionChangeNotifier} says
+ * it changed.
+ */
+@Component
+@Slf4j
+public class ExecutionStatusWatcher {
+
+  /** The name of the stream events carrying the fields of the summary that changed. */
+  public static final String STATUS_EVENT = "status";
+
+  /** The name of the stream event carrying the full status of the completed execution. */
+  public static final String RESULT_EVENT = "result";
+
+  private final ExecutionChangeNotifier executionChangeNotifier;
+  private final ExecutionChangesConfigurationProperties properties;
+  private final ExecutorService dispatchExecutor;
+
+  @Autowired
+  public ExecutionStatusWatcher(
+      ExecutionChangeNotifier executionChangeNotifier,
+      ExecutionChangesConfigurationProperties properties) {
+    this.executionChangeNotifier = executionChangeNotifier;
+    this.properties = properties;
+    this.dispatchExecutor =
+        Executors.newFixedThreadPool(
+            Math.max(1, properties.getDispatchThreads()),
+            new ThreadFactoryBuilder()
+                .setNameFormat("execution-status-dispatch-%d")
+                .setDaemon(true)
+                .build());
+  }
+
+  /**
+   * Returns the status of the execution once it changes, once it is complete, or once {@code
+   * waitForChangeMs} passed, whichever comes first.
+   */
+  public <T> DeferredResult<T> awaitChange(
+      String executionId, long waitForChangeMs, Supplier<T> status, Predicate<T> isComplete) {
+    long timeoutMs = Math.min(Math.max(0, waitForChangeMs), properties.getMaxWaitForChangeMs());
+    DeferredResult<T> result = new DeferredResult<>(timeoutMs);
+
+    Runnable unsubscribe =
+        executionChangeNotifier.subscribe(
+            executionId,
+            () ->
+                dispatchExecutor.execute(
+                    () -> {
+                      if (!result.isSetOrExpired()) {
+                        setResult(result, status);
+                      }
+                    }));
+
+    result.onCompletion(unsubscribe);
+    result.onTimeout(() -> setResult(result, status));
+
+    // Read only once subscribed, so that no change slips in between.
+    T current;
+    try {
+      current = status.get();
+    } catch (RuntimeException e) {
+      unsubscribe.run();
+      throw e;
+    }
+
+    if (timeoutMs == 0 || isComplete.test(current)) {
+      result.setResult(current);
+    }
+
+    return result;
+  }
+
+  /**
+   * Streams the summary of the execution: first in full as a {@link #STATUS_EVENT}, then as a
+   * {@link #STATUS_EVENT} of just the fields that changed each time some did, and finally the full
+   * status as a {@link #RESULT_EVENT} once the execution is complete, which ends the stream.
+   *
+   * @param summarize reduces a status to the fields a change of which is streamed; a field whose
+   *     value is a map is compared, and streamed, entry by entry
+   */
+  public <T> SseEmitter stream(
+      String executionId,
+      Supplier<T> status,
+      Predicate<T> isComplete,
+      Function<T, Map<String, Object>> summarize) {
+    SseEmitter emitter = new SseEmitter(properties.getStreamTimeoutMs());
+    StatusStream<T> stream = new StatusStream<>(emitter, status, isComplete, summarize);
+
+    Runnable unsubscribe =
+        executionChangeNotifier.subscribe(
+            executionId, () -> dispatchExecutor.execute(stream::refresh));
+
+    emitter.onCompletion(unsubscribe);
+    emitter.onTimeout(unsubscribe);
+    emitter.onError(e -> unsubscribe.run());
+
+    T current;
+    try {
+      current = status.get();
+    } catch (RuntimeException e) {
+      unsubscribe.run();
+      throw e;
+    }
+
+    stream.publish(current);
+
+    return emitter;
+  }
+
+  /**
+   * Returns the fields of {@code current} that differ from {@code previous}; of a field whose value
+   * is a map in both, just the entries that differ.
+   */
+  static Map<String, Object> delta(Map<String, Object> previous, Map<String, Object> current) {
+    Map<String, Object> delta = new LinkedHashMap<>();
+
+    current.forEach(
+        (field, value) -> {
+          Object previousValue = previous.get(field);
+
+          if (value instanceof Map && previousValue instanceof Map) {
+            Map<Object, Object> changedEntries = new LinkedHashMap<>();
+
+            ((Map<?, ?>) value)
+                .forEach(
+                    (key, entryValue) -> {
+                      if (!Objects.equals(entryValue, ((Map<?, ?>) previousValue).get(key))) {
+                        changedEntries.put(key, entryValue);
+                      }
+                    });
+
+            if (!changedEntries.isEmpty()) {
+              delta.put(field, changedEntries);
+            }
+          } else if (!Objects.equals(value, previousValue)) {
+            delta.put(field, value);
+          }
+        });
+
+    return delta;
+  }
+
+  private static <T> void setResult(DeferredResult<T> result, Supplier<T> status) {
+    try {
+      result.setResult(status.get());
+    } catch (RuntimeException e) {
+      result.setErrorResult(e);
+    }
+  }
+
+  private static class StatusStream<T> {
+
+    private final SseEmitter emitter;
+    private final Supplier<T> status;
+    private final Predicate<T> isComplete;
+    private final Function<T, Map<String, Object>> summarize;
+
+    private Map<String, Object> sent = Collections.emptyMap();
+    private boolean done;
+
+    StatusStream(
+        SseEmitter emitter,
+        Supplier<T> status,
+        Predicate<T> isComplete,
+        Function<T, Map<String, Object>> summarize) {
+      this.emitter = emitter;
+      this.status = status;
+      this.isComplete = isComplete;
+      this.summarize = summarize;
+    }
+
+    void refresh() {
+      try {
+        publish(status.get());
+      } catch (RuntimeException e) {
+        log.warn("Unable to refresh an execution status stream: {}", e.getMessage());
+        emitter.completeWithError(e);
+      }
+    }
+
+    synchronized void publish(T current) {
+      if (done) {
+        return;
+      }
+
+      try {
+        Map<String, Object> summary = summarize.apply(current);
+        Map<String, Object> changed = delta(sent, summary);
+        sent = summary;
+
+        if (!changed.isEmpty()) {
+          emitter.send(SseEmitter.event().name(STATUS_EVENT).data(changed));
+        }
+
+        if (isComplete.test(current)) {
+          done = true;
+          emitter.send(SseEmitter.event().name(RESULT_EVENT).data(current));
+          emitter.complete();
+        }
+      } catch (IOException e) {
+        // The client went away.
+        done = true;
+        emitter.completeWithError(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.events.listeners;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Configuration of the queue and workers that archive the results of completed canary runs. */
+@Data
+@ConfigurationProperties("kayenta.archival")
+public class ExecutionArchivalConfigurationProperties {
+
+  /** How many archives are written at once. */
+  private int workerThreads = 4;
+
+  /**
+   * How many completed runs may wait to be archived. Once the queue is full, the thread completing
+   * a run archives it itself, which slows completions down to the pace of the object store.
+   */
+  private int queueCapacity = 1000;
+
+  /** How many times writing an archive is attempted before it is given up on. */
+  private int maxAttempts = 3;
+
+  /** How long to wait before the first retry; each further retry waits that much longer. */
+  private long backoffPeriodMs = Duration.ofSeconds(1).toMillis();
+
+  /** How long shutdown waits for the queued archives to be written. */
+  private long shutdownTimeoutMs = Duration.ofSeconds(30).toMillis();
+}
@@ -15,18 +15,40 @@
  */
 package com.netflix.kayenta.events.listeners;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.kayenta.canary.CanaryExecutionStatusResponse;
 import com.netflix.kayenta.events.CanaryExecutionCompletedEvent;
+import com.netflix.kayenta.index.CanaryResultArchiveIndex;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.storage.ObjectType;
+import com.netflix.kayenta.storage.StorageService;
 import com.netflix.kayenta.storage.StorageServiceRepository;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.histogram.PercentileTimer;
+import java.util.Collection;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+/**
+ * Archives the results of completed canary runs to their storage account.
+ *
+ * <p>Archives are written off the thread completing the run, by a bounded pool of workers fed
+ * from a bounded queue. When the queue is full, the completing thread writes the archive itself,
+ * so that a slow object store slows completions down rather than losing archives. Failed writes
+ * are retried with a linear backoff, and on shutdown the queue is drained before the storage
+ * services go away.
+ */
 @ConditionalOnProperty(
     name = "kayenta.default-archivers.enabled",
     havingValue = "true",
@@ -37,12 +59,53 @@ public class ExecutionArchivalListener {
 
   private final AccountCredentialsRepository accountCredentialsRepository;
   private final StorageServiceRepository storageServiceRepository;
+  private final Registry registry;
+  private final ExecutionArchivalConfigurationProperties properties;
+  private final CanaryResultArchiveIndex canaryResultArchiveIndex;
+  private final ThreadPoolExecutor archivalExecutor;
+
+  private final Id writeLatencyId;
+  private final Id queueFullId;
+  private final Id retriesId;
+  private final Id failuresId;
 
   public ExecutionArchivalListener(
       AccountCredentialsRepository accountCredentialsRepository,
-      StorageServiceRepository storageServiceRepository) {
+      StorageServiceRepository storageServiceRepository,
+      Registry registry,
+      ExecutionArchivalConfigurationProperties properties,
+      Optional<CanaryResultArchiveIndex> canaryResultArchiveIndex) {
     this.accountCredentialsRepository = Objects.requireNonNull(accountCredentialsRepository);
     this.storageServiceRepository = Objects.requireNonNull(storageServiceRepository);
+    this.registry = Objects.requireNonNull(registry);
+    this.properties = Objects.requireNonNull(properties);
+    this.canaryResultArchiveIndex = canaryResultArchiveIndex.orElse(null);
+
+    this.writeLatencyId = registry.createId("canary.archive.write.latency");
+    this.queueFullId = registry.createId("canary.archive.queueFull");
+    this.retriesId = registry.createId("canary.archive.retries");
+    this.failuresId = registry.createId("canary.archive.failures");
+
+    int workerThreads = Math.max(1, properties.getWorkerThreads());
+    this.archivalExecutor =
+        new ThreadPoolExecutor(
+            workerThreads,
+            workerThreads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+            new ThreadFactoryBuilder().setNameFormat("execution-archival-%d").build(),
+            (archival, executor) -> {
+              // Also reached once shut down, when a run completes while the queue is drained.
+              registry.counter(queueFullId).increment();
+              archival.run();
+            });
+
+    registry.gauge(
+        registry.createId("canary.archive.queue.depth"),
+        archivalExecutor.getQueue(),
+        Collection::size);
+
     log.info("Loaded ExecutionArchivalListener");
   }
 
@@ -51,18 +114,107 @@ public class ExecutionArchivalListener {
     var response = event.getCanaryExecutionStatusResponse();
     var storageAccountName = response.getStorageAccountName();
     if (storageAccountName != null) {
-      var resolvedStorageAccountName =
+      archivalExecutor.execute(() -> archive(storageAccountName, response));
+    }
+  }
+
+  private void archive(String storageAccountName, CanaryExecutionStatusResponse response) {
+    String resolvedStorageAccountName;
+    StorageService storageService;
+
+    try {
+      resolvedStorageAccountName =
           accountCredentialsRepository
               .getRequiredOneBy(storageAccountName, AccountCredentials.Type.OBJECT_STORE)
               .getName();
+      storageService = storageServiceRepository.getRequiredOne(resolvedStorageAccountName);
+    } catch (Exception e) {
+      registry.counter(failuresId).increment();
+      log.error(
+          "Unable to archive canary execution {} to storage account {}",
+          response.getPipelineId(),
+          storageAccountName,
+          e);
+      return;
+    }
+
+    for (int attempt = 1; ; attempt++) {
+      long startNanos = registry.clock().monotonicTime();
 
-      var storageService = storageServiceRepository.getRequiredOne(resolvedStorageAccountName);
+      try {
+        storageService.storeObject(
+            resolvedStorageAccountName,
+            ObjectType.CANARY_RESULT_ARCHIVE,
+            response.getPipelineId(),
+            response);
+        recordWriteLatency(startNanos, "success");
+        index(resolvedStorageAccountName, response);
+        return;
+      } catch (Exception e) {
+        recordWriteLatency(startNanos, "failure");
 
-      storageService.storeObject(
-          resolvedStorageAccountName,
-          ObjectType.CANARY_RESULT_ARCHIVE,
+        if (attempt >= properties.getMaxAttempts()) {
+          registry.counter(failuresId).increment();
+          log.error(
+              "Giving up archiving canary execution {} after {} attempts",
+              response.getPipelineId(),
+              attempt,
+              e);
+          return;
+        }
+
+        registry.counter(retriesId).increment();
+        log.warn(
+            "Attempt {} to archive canary execution {} failed, retrying: {}",
+            attempt,
+            response.getPipelineId(),
+            e.getMessage());
+
+        try {
+          TimeUnit.MILLISECONDS.sleep(properties.getBackoffPeriodMs() * attempt);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          registry.counter(failuresId).increment();
+          log.error(
+              "Interrupted while archiving canary execution {}, it is not archived",
+              response.getPipelineId());
+          return;
+        }
+      }
+    }
+  }
+
+  private void index(String resolvedStorageAccountName, CanaryExecutionStatusResponse response) {
+    if (canaryResultArchiveIndex == null) {
+      return;
+    }
+
+    try {
+      canaryResultArchiveIndex.index(resolvedStorageAccountName, response);
+    } catch (Exception e) {
+      log.warn(
+          "Archived canary execution {} but could not index it: {}",
           response.getPipelineId(),
-          response);
+          e.getMessage());
+    }
+  }
+
+  private void recordWriteLatency(long startNanos, String outcome) {
+    PercentileTimer.get(registry, writeLatencyId.withTag("outcome", outcome))
+        .record(registry.clock().monotonicTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Stops taking new archives off the completing threads, and writes the ones still queued. */
+  @PreDestroy
+  public void drain() throws InterruptedException {
+    archivalExecutor.shutdown();
+
+    if (!archivalExecutor.awaitTermination(
+        properties.getShutdownTimeoutMs(), TimeUnit.MILLISECONDS)) {
+      int abandoned = archivalExecutor.shutdownNow().size();
+      log.error(
+          "Shut down before archiving {} queued canary executions, they are not archived",
+          abandoned);
     }
   }
 }
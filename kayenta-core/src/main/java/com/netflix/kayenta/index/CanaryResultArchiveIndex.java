@@ -0,0 +1,284 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.index;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.kayenta.canary.CanaryExecutionStatusResponse;
+import com.netflix.kayenta.canary.CanaryExecutionSummary;
+import com.netflix.kayenta.util.PageCursor;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.Tuple;
+
+/**
+ * A secondary index of the canary result archives of each storage account, so that they can be
+ * listed by application, canary config, end time and score without loading every archive.
+ *
+ * <p>Per storage account, redis holds a hash from pipeline id to {@link CanaryExecutionSummary},
+ * and sorted sets of pipeline ids scored by end time: one of all archives, one per application and
+ * one per canary config. The index is maintained as archives are written and deleted; archives
+ * written before it existed are added by {@link #index} when the archives are re-indexed.
+ */
+@Slf4j
+public class CanaryResultArchiveIndex {
+
+  static final String KEY_PREFIX = "kayenta:canaryResultArchive:";
+
+  private static final int MIN_SCAN_BATCH_SIZE = 100;
+
+  private final JedisPool jedisPool;
+  private final ObjectMapper kayentaObjectMapper;
+
+  public CanaryResultArchiveIndex(JedisPool jedisPool, ObjectMapper kayentaObjectMapper) {
+    this.jedisPool = jedisPool;
+    this.kayentaObjectMapper = kayentaObjectMapper;
+  }
+
+  @Value
+  @Builder
+  public static class Query {
+    String application;
+    String canaryConfigId;
+    // Inclusive bounds on the end time of the canary executions, in epoch millis.
+    Long endTimeFromMillis;
+    Long endTimeToMillis;
+    Double minScore;
+    Double maxScore;
+    int limit;
+    String cursor;
+  }
+
+  @Value
+  public static class Page {
+    List<CanaryExecutionSummary> summaries;
+    // Null if there are no more summaries.
+    String nextCursor;
+  }
+
+  /** Adds the archive to the index, or updates its entry if it was indexed already. */
+  public void index(String storageAccountName, CanaryExecutionStatusResponse response) {
+    CanaryExecutionSummary summary = CanaryExecutionSummary.fromStatusResponse(response);
+    String pipelineId = summary.getPipelineId();
+    String summariesKey = summariesKey(storageAccountName);
+    String summaryJson;
+
+    try {
+      summaryJson = kayentaObjectMapper.writeValueAsString(summary);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Unable to index archive '" + pipelineId + "'", e);
+    }
+
+    try (Jedis jedis = jedisPool.getResource()) {
+      double score = endTime(summary);
+      List<Object> results;
+
+      // Watch the summary, so that a concurrent update of the same archive between reading the
+      // previous summary and writing this one makes the transaction fail and be retried, rather
+      // than leave the previous summary's sorted set members behind.
+      do {
+        jedis.watch(summariesKey);
+        CanaryExecutionSummary previous = parse(jedis.hget(summariesKey, pipelineId));
+        Transaction transaction = jedis.multi();
+
+        if (previous != null) {
+          removeFromSortedSets(transaction, storageAccountName, previous);
+        }
+        transaction.hset(summariesKey, pipelineId, summaryJson);
+        for (String key : sortedSetKeys(storageAccountName, summary)) {
+          transaction.zadd(key, score, pipelineId);
+        }
+        results = transaction.exec();
+      } while (results == null);
+    }
+  }
+
+  public void remove(String storageAccountName, String pipelineId) {
+    String summariesKey = summariesKey(storageAccountName);
+
+    try (Jedis jedis = jedisPool.getResource()) {
+      List<Object> results;
+
+      do {
+        jedis.watch(summariesKey);
+        CanaryExecutionSummary previous = parse(jedis.hget(summariesKey, pipelineId));
+
+        if (previous == null) {
+          jedis.unwatch();
+          return;
+        }
+
+        Transaction transaction = jedis.multi();
+        removeFromSortedSets(transaction, storageAccountName, previous);
+        transaction.hdel(summariesKey, pipelineId);
+        results = transaction.exec();
+      } while (results == null);
+    }
+  }
+
+  /**
+   * Lists the summaries of the indexed archives matching the query, latest end time first, a page
+   * of at most {@code query.limit} at a time.
+   */
+  public Page list(String storageAccountName, Query query) {
+    if (query.getLimit() <= 0) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+
+    PageCursor cursor = query.getCursor() != null ? PageCursor.decode(query.getCursor()) : null;
+    // Scan the narrowest of the sorted sets the query allows, and filter the rest.
+    String key =
+        query.getCanaryConfigId() != null
+            ? canaryConfigKey(storageAccountName, query.getCanaryConfigId())
+            : query.getApplication() != null
+                ? applicationKey(storageAccountName, query.getApplication())
+                : allKey(storageAccountName);
+    double max =
+        query.getEndTimeToMillis() != null ? query.getEndTimeToMillis() : Double.POSITIVE_INFINITY;
+    double min =
+        query.getEndTimeFromMillis() != null
+            ? query.getEndTimeFromMillis()
+            : Double.NEGATIVE_INFINITY;
+
+    if (cursor != null) {
+      max = Math.min(max, cursor.getTime());
+    }
+
+    int batchSize = Math.max(MIN_SCAN_BATCH_SIZE, query.getLimit() * 2);
+    List<CanaryExecutionSummary> summaries = new ArrayList<>();
+
+    try (Jedis jedis = jedisPool.getResource()) {
+      int offset = 0;
+
+      while (summaries.size() <= query.getLimit()) {
+        Set<Tuple> entries = jedis.zrevrangeByScoreWithScores(key, max, min, offset, batchSize);
+        offset += entries.size();
+        List<String> pipelineIds = new ArrayList<>(entries.size());
+
+        for (Tuple entry : entries) {
+          // Members of equal score come in reverse lexicographical order.
+          if (cursor == null || cursor.precedes((long) entry.getScore(), entry.getElement())) {
+            pipelineIds.add(entry.getElement());
+          }
+        }
+
+        if (!pipelineIds.isEmpty()) {
+          List<String> summaryJsons =
+              jedis.hmget(summariesKey(storageAccountName), pipelineIds.toArray(new String[0]));
+
+          for (String summaryJson : summaryJsons) {
+            CanaryExecutionSummary summary = parse(summaryJson);
+
+            if (summary != null && matches(summary, query)) {
+              summaries.add(summary);
+            }
+          }
+        }
+
+        if (entries.size() < batchSize) {
+          break;
+        }
+      }
+    }
+
+    if (summaries.size() <= query.getLimit()) {
+      return new Page(summaries, null);
+    }
+
+    List<CanaryExecutionSummary> page = new ArrayList<>(summaries.subList(0, query.getLimit()));
+    CanaryExecutionSummary last = page.get(page.size() - 1);
+    return new Page(page, new PageCursor(endTime(last), last.getPipelineId()).encode());
+  }
+
+  private static boolean matches(CanaryExecutionSummary summary, Query query) {
+    if (query.getApplication() != null
+        && !query.getApplication().equals(summary.getApplication())) {
+      return false;
+    }
+    if (query.getMinScore() == null && query.getMaxScore() == null) {
+      return true;
+    }
+    if (summary.getScore() == null) {
+      return false;
+    }
+    return (query.getMinScore() == null || summary.getScore() >= query.getMinScore())
+        && (query.getMaxScore() == null || summary.getScore() <= query.getMaxScore());
+  }
+
+  private void removeFromSortedSets(
+      Transaction transaction, String storageAccountName, CanaryExecutionSummary summary) {
+    for (String key : sortedSetKeys(storageAccountName, summary)) {
+      transaction.zrem(key, summary.getPipelineId());
+    }
+  }
+
+  private static List<String> sortedSetKeys(
+      String storageAccountName, CanaryExecutionSummary summary) {
+    List<String> keys = new ArrayList<>(3);
+    keys.add(allKey(storageAccountName));
+    if (summary.getApplication() != null) {
+      keys.add(applicationKey(storageAccountName, summary.getApplication()));
+    }
+    if (summary.getCanaryConfigId() != null) {
+      keys.add(canaryConfigKey(storageAccountName, summary.getCanaryConfigId()));
+    }
+    return keys;
+  }
+
+  private static long endTime(CanaryExecutionSummary summary) {
+    if (summary.getEndTimeMillis() != null) {
+      return summary.getEndTimeMillis();
+    }
+    return summary.getBuildTimeMillis() != null ? summary.getBuildTimeMillis() : 0;
+  }
+
+  private CanaryExecutionSummary parse(String summaryJson) {
+    if (summaryJson == null) {
+      return null;
+    }
+
+    try {
+      return kayentaObjectMapper.readValue(summaryJson, CanaryExecutionSummary.class);
+    } catch (IOException e) {
+      log.warn("Ignoring unreadable canary result archive summary: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  static String summariesKey(String storageAccountName) {
+    return KEY_PREFIX + storageAccountName + ":summaries";
+  }
+
+  static String allKey(String storageAccountName) {
+    return KEY_PREFIX + storageAccountName + ":byEndTime";
+  }
+
+  static String applicationKey(String storageAccountName, String application) {
+    return KEY_PREFIX + storageAccountName + ":application:" + application + ":byEndTime";
+  }
+
+  static String canaryConfigKey(String storageAccountName, String canaryConfigId) {
+    return KEY_PREFIX + storageAccountName + ":canaryConfig:" + canaryConfigId + ":byEndTime";
+  }
+}
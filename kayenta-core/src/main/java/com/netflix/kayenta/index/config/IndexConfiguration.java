@@ -19,6 +19,7 @@ package com.netflix.kayenta.index.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.index.CanaryConfigIndex;
 import com.netflix.kayenta.index.CanaryConfigIndexingAgent;
+import com.netflix.kayenta.index.CanaryResultArchiveIndex;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.storage.StorageServiceRepository;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -62,6 +63,12 @@ public class IndexConfiguration {
     return new CanaryConfigIndex(jedisPool, kayentaObjectMapper);
   }
 
+  @Bean
+  CanaryResultArchiveIndex canaryResultArchiveIndex(
+      JedisPool jedisPool, ObjectMapper kayentaObjectMapper) {
+    return new CanaryResultArchiveIndex(jedisPool, kayentaObjectMapper);
+  }
+
   @Bean
   public ThreadPoolTaskScheduler threadPoolTaskScheduler() {
     ThreadPoolTaskScheduler threadPoolTaskScheduler = new ThreadPoolTaskScheduler();
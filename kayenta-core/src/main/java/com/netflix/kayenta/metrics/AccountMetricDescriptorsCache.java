@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.CollectionUtils;
+
+/**
+ * Holds a {@link MetricDescriptorIndex} per metrics account.
+ *
+ * <p>A refresh loads every account (in parallel when given an executor) and then swaps in a new
+ * snapshot in one step, so readers never see a partially-refreshed cache. An account whose load
+ * fails or comes back empty keeps the descriptors from its last successful load.
+ */
+@Slf4j
+public class AccountMetricDescriptorsCache<T> {
+
+  private final Function<T, String> nameFunction;
+
+  private volatile Map<String, MetricDescriptorIndex<T>> indexesByAccount =
+      Collections.emptyMap();
+
+  public AccountMetricDescriptorsCache(Function<T, String> nameFunction) {
+    this.nameFunction = nameFunction;
+  }
+
+  public List<T> search(String accountName, String filter) {
+    MetricDescriptorIndex<T> index = indexesByAccount.get(accountName);
+
+    return index != null ? index.search(filter) : Collections.emptyList();
+  }
+
+  /**
+   * @param loadersByAccount the descriptor loader for each account to cache; accounts that are not
+   *     present are dropped from the cache
+   * @param executor runs the loaders; if null, accounts are loaded one after another
+   */
+  public void refresh(Map<String, Callable<List<T>>> loadersByAccount, ExecutorService executor) {
+    Map<String, CompletableFuture<List<T>>> futuresByAccount = new LinkedHashMap<>();
+
+    loadersByAccount.forEach(
+        (accountName, loader) ->
+            futuresByAccount.put(
+                accountName,
+                executor != null
+                    ? CompletableFuture.supplyAsync(() -> call(loader), executor)
+                    : load(loader)));
+
+    Map<String, MetricDescriptorIndex<T>> previousIndexesByAccount = indexesByAccount;
+    Map<String, MetricDescriptorIndex<T>> updatedIndexesByAccount = new HashMap<>();
+
+    futuresByAccount.forEach(
+        (accountName, future) -> {
+          MetricDescriptorIndex<T> previousIndex = previousIndexesByAccount.get(accountName);
+
+          try {
+            List<T> descriptors = future.join();
+
+            if (!CollectionUtils.isEmpty(descriptors)) {
+              updatedIndexesByAccount.put(
+                  accountName, new MetricDescriptorIndex<>(descriptors, nameFunction));
+
+              log.debug(
+                  "Updated cache with {} metric descriptors via account {}.",
+                  descriptors.size(),
+                  accountName);
+              return;
+            }
+
+            log.debug(
+                "While updating cache, found no metric descriptors via account {}.", accountName);
+          } catch (CompletionException e) {
+            log.warn(
+                "Failed to update metric descriptors cache via account {}.",
+                accountName,
+                e.getCause());
+          }
+
+          if (previousIndex != null) {
+            updatedIndexesByAccount.put(accountName, previousIndex);
+          }
+        });
+
+    indexesByAccount = Collections.unmodifiableMap(updatedIndexesByAccount);
+  }
+
+  private static <T> CompletableFuture<List<T>> load(Callable<List<T>> loader) {
+    CompletableFuture<List<T>> future = new CompletableFuture<>();
+
+    try {
+      future.complete(loader.call());
+    } catch (Exception e) {
+      future.completeExceptionally(e);
+    }
+
+    return future;
+  }
+
+  private static <T> List<T> call(Callable<List<T>> loader) {
+    try {
+      return loader.call();
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    }
+  }
+}
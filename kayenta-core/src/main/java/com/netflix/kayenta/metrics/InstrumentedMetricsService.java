@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import com.netflix.kayenta.canary.CanaryConfig;
+import com.netflix.kayenta.canary.CanaryMetricConfig;
+import com.netflix.kayenta.canary.CanaryScope;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import com.netflix.spectator.api.histogram.PercentileDistributionSummary;
+import com.netflix.spectator.api.histogram.PercentileTimer;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the same telemetry for the queries of every metrics service, tagged by metrics store,
+ * metrics account, metric name and outcome:
+ *
+ * <ul>
+ *   <li>{@code canary.telemetry.fetch.latency}: the time of the whole query, as a percentile timer
+ *   <li>{@code canary.telemetry.fetch.networkTime}: the time spent in HTTP requests
+ *   <li>{@code canary.telemetry.fetch.conversionTime}: the rest, i.e. building the metric sets
+ *   <li>{@code canary.telemetry.fetch.requests}: the HTTP requests made, including any retried or
+ *       sliced ones
+ *   <li>{@code canary.telemetry.fetch.responseBytes}: the response bytes read
+ *   <li>{@code canary.telemetry.fetch.series} and {@code canary.telemetry.fetch.points}: the size
+ *       of the result
+ * </ul>
+ *
+ * Metric names come from canary configs, so only the first {@code maxTaggedMetricNames} distinct
+ * ones, shared by all metrics services, get a tag value of their own; queries of later ones are
+ * tagged {@code other}.
+ */
+class InstrumentedMetricsService implements MetricsService {
+
+  static final String OTHER_METRIC_NAME = "other";
+
+  private final MetricsService delegate;
+
+  private final Registry registry;
+
+  private final Set<String> taggedMetricNames;
+
+  private final int maxTaggedMetricNames;
+
+  InstrumentedMetricsService(
+      MetricsService delegate,
+      Registry registry,
+      Set<String> taggedMetricNames,
+      int maxTaggedMetricNames) {
+    this.delegate = delegate;
+    this.registry = registry;
+    this.taggedMetricNames = taggedMetricNames;
+    this.maxTaggedMetricNames = maxTaggedMetricNames;
+  }
+
+  @Override
+  public String getType() {
+    return delegate.getType();
+  }
+
+  @Override
+  public boolean servicesAccount(String accountName) {
+    return delegate.servicesAccount(accountName);
+  }
+
+  @Override
+  public String buildQuery(
+      String metricsAccountName,
+      CanaryConfig canaryConfig,
+      CanaryMetricConfig canaryMetricConfig,
+      CanaryScope canaryScope) {
+    return delegate.buildQuery(metricsAccountName, canaryConfig, canaryMetricConfig, canaryScope);
+  }
+
+  @Override
+  public List<MetricSet> queryMetrics(
+      String accountName,
+      CanaryConfig canaryConfig,
+      CanaryMetricConfig canaryMetricConfig,
+      CanaryScope canaryScope)
+      throws IOException {
+    MetricsQueryStats stats = new MetricsQueryStats();
+    MetricsQueryStats previous = MetricsQueryStats.start(stats);
+    long startNanos = registry.clock().monotonicTime();
+    List<MetricSet> metricSets = null;
+    String outcome = "failure";
+
+    try {
+      metricSets =
+          delegate.queryMetrics(accountName, canaryConfig, canaryMetricConfig, canaryScope);
+      outcome = "success";
+      return metricSets;
+    } finally {
+      MetricsQueryStats.restore(previous);
+      record(
+          accountName,
+          canaryMetricConfig,
+          outcome,
+          registry.clock().monotonicTime() - startNanos,
+          stats,
+          metricSets);
+    }
+  }
+
+  @Override
+  public List<Map> getMetadata(String metricsAccountName, String filter) throws IOException {
+    return delegate.getMetadata(metricsAccountName, filter);
+  }
+
+  private void record(
+      String accountName,
+      CanaryMetricConfig canaryMetricConfig,
+      String outcome,
+      long durationNanos,
+      MetricsQueryStats stats,
+      List<MetricSet> metricSets) {
+    Id id =
+        registry
+            .createId("canary.telemetry.fetch")
+            .withTag("metricsStore", getType())
+            .withTag("metricsAccount", accountName)
+            .withTag("metricName", getMetricNameTag(canaryMetricConfig))
+            .withTag("outcome", outcome);
+    long networkNanos = Math.min(durationNanos, stats.getNetworkNanos());
+
+    PercentileTimer.get(registry, withName(id, "latency"))
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+    registry.timer(withName(id, "networkTime")).record(networkNanos, TimeUnit.NANOSECONDS);
+    registry
+        .timer(withName(id, "conversionTime"))
+        .record(durationNanos - networkNanos, TimeUnit.NANOSECONDS);
+    registry.distributionSummary(withName(id, "requests")).record(stats.getRequests());
+    PercentileDistributionSummary.get(registry, withName(id, "responseBytes"))
+        .record(stats.getResponseBytes());
+
+    if (metricSets != null) {
+      long points = 0;
+
+      for (MetricSet metricSet : metricSets) {
+        points += metricSet.getValues() == null ? 0 : metricSet.getValues().size();
+      }
+
+      registry.distributionSummary(withName(id, "series")).record(metricSets.size());
+      PercentileDistributionSummary.get(registry, withName(id, "points")).record(points);
+    }
+  }
+
+  private Id withName(Id id, String suffix) {
+    return registry.createId(id.name() + "." + suffix, id.tags());
+  }
+
+  private String getMetricNameTag(CanaryMetricConfig canaryMetricConfig) {
+    String metricName = canaryMetricConfig != null ? canaryMetricConfig.getName() : null;
+
+    if (metricName == null) {
+      return OTHER_METRIC_NAME;
+    }
+
+    if (taggedMetricNames.contains(metricName)) {
+      return metricName;
+    }
+
+    // Racing threads may let the set grow slightly past its limit, which is harmless.
+    if (taggedMetricNames.size() < maxTaggedMetricNames) {
+      taggedMetricNames.add(metricName);
+      return metricName;
+    }
+
+    return OTHER_METRIC_NAME;
+  }
+}
@@ -16,18 +16,47 @@
 
 package com.netflix.kayenta.metrics;
 
+import com.netflix.spectator.api.Registry;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 public class MapBackedMetricsServiceRepository implements MetricsServiceRepository {
 
   @Autowired(required = false)
   List<MetricsService> metricsServices = Collections.emptyList();
 
+  @Autowired(required = false)
+  Registry registry;
+
+  @Value("${kayenta.metrics.instrumentation.max-tagged-metric-names:200}")
+  int maxTaggedMetricNames = 200;
+
+  private final Map<MetricsService, MetricsService> instrumentedMetricsServices =
+      new ConcurrentHashMap<>();
+
+  private final Set<String> taggedMetricNames = ConcurrentHashMap.newKeySet();
+
   @Override
   public Optional<MetricsService> getOne(String accountName) {
-    return metricsServices.stream().filter(m -> m.servicesAccount(accountName)).findFirst();
+    return metricsServices.stream()
+        .filter(m -> m.servicesAccount(accountName))
+        .findFirst()
+        .map(this::instrument);
+  }
+
+  private MetricsService instrument(MetricsService metricsService) {
+    if (registry == null) {
+      return metricsService;
+    }
+
+    return instrumentedMetricsServices.computeIfAbsent(
+        metricsService,
+        m -> new InstrumentedMetricsService(m, registry, taggedMetricNames, maxTaggedMetricNames));
   }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.springframework.util.StringUtils;
+
+/**
+ * An immutable, case-insensitive substring index over a list of metric descriptors.
+ *
+ * <p>Every lower-cased descriptor name is broken into trigrams, and each trigram maps to the sorted
+ * positions of the descriptors containing it. A filter is answered by walking the postings of its
+ * rarest trigram and verifying each candidate, rather than scanning every descriptor. Filters
+ * shorter than a trigram fall back to a scan over the pre-lower-cased names. Results are always
+ * returned in the order the descriptors were given.
+ */
+public class MetricDescriptorIndex<T> {
+
+  private static final int GRAM_LENGTH = 3;
+
+  private static final int[] NO_POSTINGS = new int[0];
+
+  private final List<T> descriptors;
+
+  private final String[] lowerCaseNames;
+
+  private final Map<String, int[]> postingsByGram;
+
+  public MetricDescriptorIndex(List<T> descriptors, Function<T, String> nameFunction) {
+    this.descriptors = Collections.unmodifiableList(new ArrayList<>(descriptors));
+    this.lowerCaseNames = new String[this.descriptors.size()];
+
+    Map<String, List<Integer>> positionsByGram = new HashMap<>();
+
+    for (int i = 0; i < lowerCaseNames.length; i++) {
+      String name = nameFunction.apply(this.descriptors.get(i));
+      String lowerCaseName = name != null ? name.toLowerCase() : "";
+      lowerCaseNames[i] = lowerCaseName;
+
+      for (int j = 0; j + GRAM_LENGTH <= lowerCaseName.length(); j++) {
+        List<Integer> positions =
+            positionsByGram.computeIfAbsent(
+                lowerCaseName.substring(j, j + GRAM_LENGTH), gram -> new ArrayList<>());
+
+        // Positions are appended in ascending order, so a repeated trigram within one name is
+        // always the last entry.
+        if (positions.isEmpty() || positions.get(positions.size() - 1) != i) {
+          positions.add(i);
+        }
+      }
+    }
+
+    this.postingsByGram = new HashMap<>(positionsByGram.size());
+    positionsByGram.forEach(
+        (gram, positions) ->
+            postingsByGram.put(gram, positions.stream().mapToInt(Integer::intValue).toArray()));
+  }
+
+  /**
+   * Returns the descriptors whose name contains {@code filter}, ignoring case. An empty filter
+   * matches every descriptor.
+   */
+  public List<T> search(String filter) {
+    if (StringUtils.isEmpty(filter)) {
+      return new ArrayList<>(descriptors);
+    }
+
+    String lowerCaseFilter = filter.toLowerCase();
+    List<T> matches = new ArrayList<>();
+
+    if (lowerCaseFilter.length() < GRAM_LENGTH) {
+      for (int i = 0; i < lowerCaseNames.length; i++) {
+        if (lowerCaseNames[i].contains(lowerCaseFilter)) {
+          matches.add(descriptors.get(i));
+        }
+      }
+
+      return matches;
+    }
+
+    int[] candidates = null;
+
+    for (int j = 0; j + GRAM_LENGTH <= lowerCaseFilter.length(); j++) {
+      int[] postings =
+          postingsByGram.getOrDefault(
+              lowerCaseFilter.substring(j, j + GRAM_LENGTH), NO_POSTINGS);
+
+      if (candidates == null || postings.length < candidates.length) {
+        candidates = postings;
+      }
+
+      if (candidates.length == 0) {
+        return matches;
+      }
+    }
+
+    for (int i : candidates) {
+      if (lowerCaseNames[i].contains(lowerCaseFilter)) {
+        matches.add(descriptors.get(i));
+      }
+    }
+
+    return matches;
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.netflix.kayenta.canary.CanaryConfig;
+import com.netflix.kayenta.canary.CanaryMetricConfig;
+import com.netflix.kayenta.canary.CanaryScope;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Remembers which stored METRIC_SET_LIST answered a metric query, so that identical queries made
+ * by other canary executions (a shared baseline, a re-judged canary) reuse it instead of fetching
+ * the same data again.
+ *
+ * <p>A query is identified by the resolved query string from {@link MetricsService#buildQuery},
+ * its start, end and step, and the accounts and metric name it was made for. Results live in a
+ * local LRU tier and, optionally, in Redis, which only ever holds the IDs of metric set lists that
+ * were already persisted. Windows ending too close to now are never cached, and neither are
+ * queries of metrics services that cannot describe their query.
+ */
+@Component
+@Slf4j
+public class MetricQueryResultCache {
+
+  private static final String REDIS_KEY_PREFIX = "kayenta:metricQueryResult:";
+
+  private final MetricQueryResultCacheProperties properties;
+
+  private final JedisPool jedisPool;
+
+  private final Clock clock;
+
+  private final Cache<String, String> localCache;
+
+  @Autowired
+  public MetricQueryResultCache(MetricQueryResultCacheProperties properties, JedisPool jedisPool) {
+    this(properties, jedisPool, Clock.systemUTC());
+  }
+
+  public MetricQueryResultCache(
+      MetricQueryResultCacheProperties properties, JedisPool jedisPool, Clock clock) {
+    this.properties = properties;
+    this.jedisPool = jedisPool;
+    this.clock = clock;
+    this.localCache =
+        CacheBuilder.newBuilder()
+            .maximumSize(properties.getLocalMaxEntries())
+            .expireAfterWrite(properties.getTtlMS(), TimeUnit.MILLISECONDS)
+            .build();
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /** Returns the key identifying this query, or null if its result must not be cached. */
+  public String getKey(
+      MetricsService metricsService,
+      String metricsAccountName,
+      String storageAccountName,
+      CanaryConfig canaryConfig,
+      CanaryMetricConfig canaryMetricConfig,
+      CanaryScope canaryScope) {
+    if (!isEnabled()
+        || canaryScope == null
+        || canaryScope.getStart() == null
+        || canaryScope.getEnd() == null) {
+      return null;
+    }
+
+    Instant newestCacheableEnd = clock.instant().minusMillis(properties.getMinWindowAgeMS());
+
+    if (canaryScope.getEnd().isAfter(newestCacheableEnd)) {
+      return null;
+    }
+
+    String query =
+        metricsService.buildQuery(
+            metricsAccountName, canaryConfig, canaryMetricConfig, canaryScope);
+
+    if (query == null || query.startsWith(MetricsService.BUILD_QUERY_NOT_IMPLEMENTED)) {
+      return null;
+    }
+
+    String description =
+        String.join(
+            "\n",
+            metricsService.getType(),
+            metricsAccountName,
+            storageAccountName,
+            canaryMetricConfig.getName(),
+            query,
+            String.valueOf(canaryScope.getStart().toEpochMilli()),
+            String.valueOf(canaryScope.getEnd().toEpochMilli()),
+            String.valueOf(canaryScope.getStep()));
+
+    return Hashing.sha256().hashString(description, StandardCharsets.UTF_8).toString();
+  }
+
+  /** Returns the ID of the metric set list stored for this key, or null if there is none. */
+  public String get(String key) {
+    String metricSetListId = localCache.getIfPresent(key);
+
+    if (metricSetListId != null || !properties.isRedisEnabled() || jedisPool == null) {
+      return metricSetListId;
+    }
+
+    try (Jedis jedis = jedisPool.getResource()) {
+      metricSetListId = jedis.get(REDIS_KEY_PREFIX + key);
+    } catch (Exception e) {
+      log.warn("Unable to read cached metric query result from Redis: {}", e.getMessage());
+      return null;
+    }
+
+    if (metricSetListId != null) {
+      localCache.put(key, metricSetListId);
+    }
+
+    return metricSetListId;
+  }
+
+  public void put(String key, String metricSetListId) {
+    localCache.put(key, metricSetListId);
+
+    if (!properties.isRedisEnabled() || jedisPool == null) {
+      return;
+    }
+
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.psetex(REDIS_KEY_PREFIX + key, properties.getTtlMS(), metricSetListId);
+    } catch (Exception e) {
+      log.warn("Unable to cache metric query result in Redis: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Configuration of the cache of metric query results shared across canary executions. */
+@Data
+@ConfigurationProperties("kayenta.metrics.result-cache")
+public class MetricQueryResultCacheProperties {
+
+  private boolean enabled = false;
+
+  /** The most results kept in this instance's own tier. */
+  private long localMaxEntries = 1000;
+
+  /** Whether results are also shared with other instances through Redis. */
+  private boolean redisEnabled = true;
+
+  /**
+   * How long a result is reused. This must stay below the retention of the stored metric set
+   * lists, since the cache only holds references to them.
+   */
+  private long ttlMS = Duration.ofHours(6).toMillis();
+
+  /**
+   * Windows that end less than this long ago are never cached, since the metrics store may still
+   * be receiving data for them.
+   */
+  private long minWindowAgeMS = Duration.ofMinutes(10).toMillis();
+}
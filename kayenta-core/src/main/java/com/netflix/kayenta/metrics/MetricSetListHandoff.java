@@ -0,0 +1,212 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.netflix.kayenta.storage.ObjectType;
+import com.netflix.kayenta.storage.StorageService;
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands the metric set lists fetched by a canary run straight to its mixer when both run in this
+ * instance, sparing the mixer a round trip to the object store for each list.
+ *
+ * <p>Lists are kept for a short while in memory, keyed by metric set list id. They are still
+ * written to the object store, either before the fetch task completes or in the background, so
+ * that a mixer running on another instance, and anyone reading the list later, can load them;
+ * lists of ad-hoc canary runs may be kept in memory only.
+ *
+ * <p>A list that is not in the object store is its only copy, so until it is stored it is kept
+ * apart from the others and is not evicted to make room: it is dropped once released, or after a
+ * long safety TTL.
+ */
+@Component
+@Slf4j
+public class MetricSetListHandoff {
+
+  /** The fetch stage context key marking the fetches of ad-hoc canary runs. */
+  public static final String AD_HOC_CANARY_KEY = "adHocCanary";
+
+  private final MetricSetListHandoffProperties properties;
+
+  private final Cache<String, List<MetricSet>> metricSetLists;
+
+  private final Cache<String, List<MetricSet>> unstoredMetricSetLists;
+
+  private final ThreadPoolExecutor writeExecutor;
+
+  private final Id handoffId;
+
+  private final Id writeFailuresId;
+
+  private final Registry registry;
+
+  @Autowired
+  public MetricSetListHandoff(MetricSetListHandoffProperties properties, Registry registry) {
+    this.properties = properties;
+    this.registry = registry;
+    this.handoffId = registry.createId("canary.metricSetList.handoff");
+    this.writeFailuresId = registry.createId("canary.metricSetList.handoff.writeFailures");
+    this.metricSetLists =
+        CacheBuilder.newBuilder()
+            .maximumSize(properties.getMaxEntries())
+            .expireAfterWrite(properties.getTtlMS(), TimeUnit.MILLISECONDS)
+            .build();
+    this.unstoredMetricSetLists =
+        CacheBuilder.newBuilder()
+            .expireAfterWrite(properties.getUnstoredTtlMS(), TimeUnit.MILLISECONDS)
+            .build();
+    this.writeExecutor =
+        new ThreadPoolExecutor(
+            Math.max(1, properties.getWriteThreads()),
+            Math.max(1, properties.getWriteThreads()),
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, properties.getWriteQueueCapacity())),
+            new ThreadFactoryBuilder()
+                .setNameFormat("metric-set-list-write-%d")
+                .setDaemon(true)
+                .build());
+  }
+
+  public boolean isEnabled() {
+    return properties.isEnabled();
+  }
+
+  /**
+   * Whether a metric set list id handed out may not be loadable from the object store yet, or
+   * ever, because it is written in the background or not at all.
+   */
+  public boolean mayBeUnstored() {
+    return isEnabled()
+        && (properties.getStorageWrite() == MetricSetListHandoffProperties.StorageWrite.ASYNCHRONOUS
+            || properties.isSkipStorageForAdHocCanaries());
+  }
+
+  /**
+   * Stores the metric set list as configured, and keeps it for the mixer if handoff is enabled.
+   * A failure to store the list on the calling thread is thrown, as if it were stored directly.
+   *
+   * @param onStored run once the list is in the object store, which may be later, on another
+   *     thread, or never
+   */
+  public void store(
+      StorageService storageService,
+      String storageAccountName,
+      String metricSetListId,
+      List<MetricSet> metricSetList,
+      boolean adHocCanary,
+      Runnable onStored) {
+    if (!isEnabled()) {
+      storageService.storeObject(
+          storageAccountName, ObjectType.METRIC_SET_LIST, metricSetListId, metricSetList);
+      onStored.run();
+      return;
+    }
+
+    if (adHocCanary && properties.isSkipStorageForAdHocCanaries()) {
+      unstoredMetricSetLists.put(metricSetListId, metricSetList);
+      return;
+    }
+
+    if (properties.getStorageWrite() == MetricSetListHandoffProperties.StorageWrite.ASYNCHRONOUS) {
+      unstoredMetricSetLists.put(metricSetListId, metricSetList);
+
+      try {
+        writeExecutor.execute(
+            () -> {
+              try {
+                storageService.storeObject(
+                    storageAccountName, ObjectType.METRIC_SET_LIST, metricSetListId, metricSetList);
+              } catch (Exception e) {
+                registry.counter(writeFailuresId).increment();
+                log.error("Failed to store metric set list {}", metricSetListId, e);
+                return;
+              }
+              stored(metricSetListId);
+              onStored.run();
+            });
+        return;
+      } catch (RejectedExecutionException e) {
+        // The write queue is full, so write the list here, as if writes were synchronous.
+        log.debug("Storing metric set list {} on the fetch thread", metricSetListId);
+      }
+    }
+
+    storageService.storeObject(
+        storageAccountName, ObjectType.METRIC_SET_LIST, metricSetListId, metricSetList);
+    unstoredMetricSetLists.invalidate(metricSetListId);
+    metricSetLists.put(metricSetListId, metricSetList);
+    onStored.run();
+  }
+
+  // Makes a list written in the background evictable, unless it was released meanwhile.
+  private void stored(String metricSetListId) {
+    List<MetricSet> metricSetList = unstoredMetricSetLists.asMap().remove(metricSetListId);
+
+    if (metricSetList != null) {
+      metricSetLists.put(metricSetListId, metricSetList);
+    }
+  }
+
+  /** Returns the metric set list if it was fetched by this instance lately, or null. */
+  public List<MetricSet> get(String metricSetListId) {
+    if (!isEnabled()) {
+      return null;
+    }
+
+    List<MetricSet> metricSetList = unstoredMetricSetLists.getIfPresent(metricSetListId);
+
+    if (metricSetList == null) {
+      metricSetList = metricSetLists.getIfPresent(metricSetListId);
+    }
+
+    registry
+        .counter(handoffId.withTag("result", metricSetList != null ? "hit" : "miss"))
+        .increment();
+    return metricSetList;
+  }
+
+  /** Drops the metric set lists once mixed. */
+  public void release(Iterable<String> metricSetListIds) {
+    unstoredMetricSetLists.invalidateAll(metricSetListIds);
+    metricSetLists.invalidateAll(metricSetListIds);
+  }
+
+  @PreDestroy
+  public void drain() throws InterruptedException {
+    writeExecutor.shutdown();
+
+    if (!writeExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+      log.warn(
+          "Gave up waiting on {} metric set list writes at shutdown",
+          writeExecutor.getQueue().size() + writeExecutor.getActiveCount());
+    }
+  }
+}
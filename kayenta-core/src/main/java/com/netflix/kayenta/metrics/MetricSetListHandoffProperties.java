@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the local handoff of fetched metric set lists to the mixer of the same canary
+ * run.
+ */
+@Data
+@ConfigurationProperties("kayenta.metrics.handoff")
+public class MetricSetListHandoffProperties {
+
+  public enum StorageWrite {
+    /** The fetch task completes once the list is stored. */
+    SYNCHRONOUS,
+    /** The fetch task completes at once, and the list is stored in the background. */
+    ASYNCHRONOUS
+  }
+
+  private boolean enabled = false;
+
+  /** The most metric set lists kept for handoff. */
+  private long maxEntries = 1000;
+
+  /** How long a metric set list is kept for handoff; the mixer normally runs within seconds. */
+  private long ttlMS = Duration.ofMinutes(10).toMillis();
+
+  /**
+   * How long a metric set list that isn't in the object store is kept if it is never released,
+   * e.g. because its canary run was canceled. These lists don't count towards {@code maxEntries}.
+   */
+  private long unstoredTtlMS = Duration.ofHours(6).toMillis();
+
+  private StorageWrite storageWrite = StorageWrite.SYNCHRONOUS;
+
+  /**
+   * Whether the metric set lists of ad-hoc canary runs, whose canary config isn't stored, are
+   * never written to the object store. Only safe when every canary run is fetched and mixed by the
+   * same instance, since the lists can't then be loaded anywhere else.
+   */
+  private boolean skipStorageForAdHocCanaries = false;
+
+  /** How many background writes run at once. */
+  private int writeThreads = 4;
+
+  /**
+   * How many background writes may wait. Once full, the fetch task writes its list itself, as if
+   * writes were synchronous.
+   */
+  private int writeQueueCapacity = 1000;
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018 Nike, inc.
+ * Copyright 2020 Google, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License")
  * you may not use this file except in compliance with the License.
@@ -12,19 +12,16 @@
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
  * See the License for the specific language governing permissions and
  * limitations under the License.
- *
  */
 
-package com.netflix.kayenta.signalfx.service;
-
-import com.signalfx.signalflow.ChannelMessage;
-import java.util.List;
-import lombok.Builder;
-import lombok.Data;
+package com.netflix.kayenta.metrics;
 
-@Data
-@Builder
-public class SignalFlowExecutionResult {
-
-  private List<ChannelMessage> channelMessages;
+/**
+ * Thrown instead of querying a metrics account whose bulkhead is full or whose circuit breaker is
+ * open. No query was made, so the fetch may be retried once the account has recovered.
+ */
+public class MetricsAccountUnavailableException extends RetryableQueryException {
+  public MetricsAccountUnavailableException(String message) {
+    super(message);
+  }
 }
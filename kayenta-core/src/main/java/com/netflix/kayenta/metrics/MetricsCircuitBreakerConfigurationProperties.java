@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the bulkhead and circuit breaker that isolate the metrics accounts from each
+ * other, so that one slow or failing metrics store can't take up every worker thread.
+ */
+@Data
+@ConfigurationProperties("kayenta.metrics.circuit-breaker")
+public class MetricsCircuitBreakerConfigurationProperties {
+
+  private boolean enabled = true;
+
+  /** The most queries of one metrics account in flight at once. 0 disables the bulkhead. */
+  private int maxConcurrentQueries = 25;
+
+  /** How long a query waits for one of its account's in-flight slots before it is rejected. */
+  private long bulkheadMaxWaitMs = 0;
+
+  /** How many of the account's latest query outcomes the failure rate is computed over. */
+  private int slidingWindowSize = 20;
+
+  /** The fewest outcomes in the window before the failure rate can open the breaker. */
+  private int minimumQueries = 10;
+
+  /** The failure rate, between 0 and 1, at which the breaker opens. */
+  private double failureRateThreshold = 0.5;
+
+  /** How long an open breaker rejects queries before letting trial queries through. */
+  private long openDurationMs = Duration.ofSeconds(30).toMillis();
+
+  /** How many trial queries must succeed in a row for a half-open breaker to close again. */
+  private int halfOpenQueries = 3;
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import com.netflix.spectator.api.Id;
+import com.netflix.spectator.api.Registry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Guards the queries of each metrics account with a bulkhead, bounding how many of them are in
+ * flight at once, and a circuit breaker, which stops querying an account once too many of its
+ * latest queries failed.
+ *
+ * <p>An open breaker rejects every query for {@code openDurationMs}, then lets through up to
+ * {@code halfOpenQueries} trial queries. It closes again once they all succeed, and opens again as
+ * soon as one of them fails.
+ *
+ * <p>The state of each breaker (0 closed, 1 half open, 2 open), the queries in flight and the
+ * rejected queries are reported per account.
+ */
+@Slf4j
+class MetricsCircuitBreakers {
+
+  enum State {
+    CLOSED,
+    HALF_OPEN,
+    OPEN
+  }
+
+  /** A no-op permit, handed out when the guards are disabled. */
+  private static final Permit UNGUARDED = new Permit(null, 0);
+
+  private final MetricsCircuitBreakerConfigurationProperties configuration;
+
+  private final Registry registry;
+
+  private final ConcurrentMap<String, AccountGuard> guardsByAccount = new ConcurrentHashMap<>();
+
+  MetricsCircuitBreakers(
+      MetricsCircuitBreakerConfigurationProperties configuration, Registry registry) {
+    this.configuration = configuration;
+    this.registry = registry;
+  }
+
+  /**
+   * Admits a query of the metrics account. The returned permit must be released once the query is
+   * done, after recording its outcome if it says anything about the health of the metrics store.
+   */
+  Permit acquire(String metricsAccountName) throws MetricsAccountUnavailableException {
+    if (configuration == null || !configuration.isEnabled()) {
+      return UNGUARDED;
+    }
+
+    return guardsByAccount
+        .computeIfAbsent(metricsAccountName, AccountGuard::new)
+        .acquire();
+  }
+
+  State getState(String metricsAccountName) {
+    AccountGuard guard = guardsByAccount.get(metricsAccountName);
+
+    return guard == null ? State.CLOSED : guard.state;
+  }
+
+  static class Permit {
+    private final AccountGuard guard;
+    private final long generation;
+    private boolean done;
+
+    private Permit(AccountGuard guard, long generation) {
+      this.guard = guard;
+      this.generation = generation;
+    }
+
+    void recordSuccess() {
+      record(true);
+    }
+
+    void recordFailure() {
+      record(false);
+    }
+
+    private void record(boolean success) {
+      if (guard != null && !done) {
+        done = true;
+        guard.record(generation, success);
+      }
+    }
+
+    void release() {
+      if (guard != null) {
+        if (!done) {
+          done = true;
+          guard.abandon(generation);
+        }
+        guard.release();
+      }
+    }
+  }
+
+  private class AccountGuard {
+    private final String metricsAccountName;
+    private final Semaphore inFlight;
+    private final Id rejectedId;
+
+    // The outcomes of the latest queries, true for failures, in a ring of slidingWindowSize.
+    private final boolean[] outcomes;
+    private int outcomeCount;
+    private int nextOutcome;
+    private int failureCount;
+
+    // Bumped on every state change, so that outcomes of queries admitted in an earlier state are
+    // ignored.
+    private long generation;
+    private volatile State state = State.CLOSED;
+    private long openedAtNanos;
+    private int trialsInFlight;
+    private int trialSuccesses;
+
+    private AccountGuard(String metricsAccountName) {
+      int maxConcurrentQueries = configuration.getMaxConcurrentQueries();
+
+      this.metricsAccountName = metricsAccountName;
+      this.inFlight = maxConcurrentQueries > 0 ? new Semaphore(maxConcurrentQueries) : null;
+      this.rejectedId =
+          registry
+              .createId("canary.telemetry.query.rejected")
+              .withTag("metricsAccount", metricsAccountName);
+      this.outcomes = new boolean[Math.max(1, configuration.getSlidingWindowSize())];
+
+      registry.gauge(
+          registry
+              .createId("canary.telemetry.query.circuitBreaker.state")
+              .withTag("metricsAccount", metricsAccountName),
+          this,
+          guard -> guard.state.ordinal());
+
+      if (inFlight != null) {
+        registry.gauge(
+            registry
+                .createId("canary.telemetry.query.inFlight")
+                .withTag("metricsAccount", metricsAccountName),
+            this,
+            guard -> maxConcurrentQueries - guard.inFlight.availablePermits());
+      }
+    }
+
+    private Permit acquire() throws MetricsAccountUnavailableException {
+      long permitGeneration;
+
+      synchronized (this) {
+        if (state == State.OPEN) {
+          long openNanos = TimeUnit.MILLISECONDS.toNanos(configuration.getOpenDurationMs());
+
+          if (registry.clock().monotonicTime() - openedAtNanos < openNanos) {
+            throw reject("circuitOpen", "has an open circuit breaker");
+          }
+
+          transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+          if (trialsInFlight >= getHalfOpenQueries()) {
+            throw reject("circuitOpen", "is waiting for the trial queries of its circuit breaker");
+          }
+          trialsInFlight++;
+        }
+
+        permitGeneration = generation;
+      }
+
+      if (inFlight != null && !tryAcquireInFlight()) {
+        abandon(permitGeneration);
+        throw reject(
+            "bulkheadFull",
+            "already has " + configuration.getMaxConcurrentQueries() + " queries in flight");
+      }
+
+      return new Permit(this, permitGeneration);
+    }
+
+    private MetricsAccountUnavailableException reject(String reason, String description) {
+      registry.counter(rejectedId.withTag("reason", reason)).increment();
+
+      return new MetricsAccountUnavailableException(
+          "Metrics account " + metricsAccountName + " " + description + ".");
+    }
+
+    private boolean tryAcquireInFlight() {
+      try {
+        return inFlight.tryAcquire(configuration.getBulkheadMaxWaitMs(), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    private void release() {
+      if (inFlight != null) {
+        inFlight.release();
+      }
+    }
+
+    private synchronized void abandon(long permitGeneration) {
+      if (permitGeneration == generation && state == State.HALF_OPEN) {
+        trialsInFlight--;
+      }
+    }
+
+    private synchronized void record(long permitGeneration, boolean success) {
+      if (permitGeneration != generation) {
+        return;
+      }
+
+      if (state == State.HALF_OPEN) {
+        trialsInFlight--;
+
+        if (!success) {
+          transitionTo(State.OPEN);
+        } else if (++trialSuccesses >= getHalfOpenQueries()) {
+          transitionTo(State.CLOSED);
+        }
+        return;
+      }
+
+      if (outcomeCount == outcomes.length) {
+        if (outcomes[nextOutcome]) {
+          failureCount--;
+        }
+      } else {
+        outcomeCount++;
+      }
+
+      outcomes[nextOutcome] = !success;
+      nextOutcome = (nextOutcome + 1) % outcomes.length;
+
+      if (!success) {
+        failureCount++;
+      }
+
+      if (outcomeCount >= configuration.getMinimumQueries()
+          && failureCount >= configuration.getFailureRateThreshold() * outcomeCount) {
+        transitionTo(State.OPEN);
+      }
+    }
+
+    private void transitionTo(State newState) {
+      log.info("Circuit breaker of metrics account {} is now {}.", metricsAccountName, newState);
+      generation++;
+      state = newState;
+      trialsInFlight = 0;
+      trialSuccesses = 0;
+
+      if (newState == State.OPEN) {
+        openedAtNanos = registry.clock().monotonicTime();
+      } else if (newState == State.CLOSED) {
+        outcomeCount = 0;
+        nextOutcome = 0;
+        failureCount = 0;
+      }
+    }
+
+    private int getHalfOpenQueries() {
+      return Math.max(1, configuration.getHalfOpenQueries());
+    }
+  }
+}
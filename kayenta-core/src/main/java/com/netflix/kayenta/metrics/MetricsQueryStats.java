@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The network activity of the metrics query running on the current thread: the HTTP requests it
+ * made, how long they took and how many response bytes they read. Every retrofit client made by
+ * {@link com.netflix.kayenta.retrofit.config.RetrofitClientFactory}, and every Google API client
+ * made by kayenta-google, reports into it, so providers only have to hand it on when they fan
+ * requests out to other threads, using {@link #propagate(Callable)}.
+ *
+ * <p>Network time is summed over requests, so it can exceed the wall-clock time of a query whose
+ * requests ran concurrently.
+ */
+public class MetricsQueryStats {
+
+  private static final ThreadLocal<MetricsQueryStats> current = new ThreadLocal<>();
+
+  private final AtomicLong requests = new AtomicLong();
+
+  private final AtomicLong networkNanos = new AtomicLong();
+
+  private final AtomicLong responseBytes = new AtomicLong();
+
+  /** Returns the stats of the metrics query running on this thread, or null if there is none. */
+  public static MetricsQueryStats current() {
+    return current.get();
+  }
+
+  /** Wraps the callable so that it reports into this thread's stats wherever it runs. */
+  public static <T> Callable<T> propagate(Callable<T> callable) {
+    MetricsQueryStats stats = current.get();
+
+    if (stats == null) {
+      return callable;
+    }
+
+    return () -> {
+      MetricsQueryStats previous = current.get();
+      current.set(stats);
+
+      try {
+        return callable.call();
+      } finally {
+        restore(previous);
+      }
+    };
+  }
+
+  /** Starts collecting the stats of a query on this thread, returning the stats it replaced. */
+  static MetricsQueryStats start(MetricsQueryStats stats) {
+    MetricsQueryStats previous = current.get();
+    current.set(stats);
+    return previous;
+  }
+
+  static void restore(MetricsQueryStats previous) {
+    if (previous == null) {
+      current.remove();
+    } else {
+      current.set(previous);
+    }
+  }
+
+  public void recordRequest(long networkNanos, long responseBytes) {
+    this.requests.incrementAndGet();
+    this.networkNanos.addAndGet(networkNanos);
+    this.responseBytes.addAndGet(responseBytes);
+  }
+
+  public long getRequests() {
+    return requests.get();
+  }
+
+  public long getNetworkNanos() {
+    return networkNanos.get();
+  }
+
+  public long getResponseBytes() {
+    return responseBytes.get();
+  }
+}
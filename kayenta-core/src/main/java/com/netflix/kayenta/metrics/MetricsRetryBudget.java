@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Limits how much retrying each metrics account may do, so that a flaky metrics store can't keep
+ * the worker pool busy with retries.
+ *
+ * <p>Each account holds up to {@code retryBudgetMaxTokens} tokens. Every failed query takes one
+ * and every successful query returns {@code retryBudgetTokenRatio}; a failed query is only retried
+ * while more than half of the tokens are left.
+ */
+class MetricsRetryBudget {
+
+  private final MetricsRetryConfigurationProperties retryConfiguration;
+
+  private final ConcurrentMap<String, Double> tokensByAccount = new ConcurrentHashMap<>();
+
+  MetricsRetryBudget(MetricsRetryConfigurationProperties retryConfiguration) {
+    this.retryConfiguration = retryConfiguration;
+  }
+
+  /** Records a failed query, and returns whether it may be retried. */
+  boolean tryRetry(String metricsAccountName) {
+    int maxTokens = retryConfiguration.getRetryBudgetMaxTokens();
+
+    if (maxTokens <= 0) {
+      return true;
+    }
+
+    double tokens =
+        tokensByAccount.compute(
+            metricsAccountName,
+            (name, current) -> Math.max(0, (current == null ? maxTokens : current) - 1));
+
+    return tokens > maxTokens / 2.0;
+  }
+
+  void recordSuccess(String metricsAccountName) {
+    int maxTokens = retryConfiguration.getRetryBudgetMaxTokens();
+
+    if (maxTokens <= 0) {
+      return;
+    }
+
+    tokensByAccount.computeIfPresent(
+        metricsAccountName,
+        (name, current) ->
+            Math.min(maxTokens, current + retryConfiguration.getRetryBudgetTokenRatio()));
+  }
+}
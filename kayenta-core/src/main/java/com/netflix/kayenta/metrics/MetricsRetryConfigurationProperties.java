@@ -42,4 +42,14 @@ public class MetricsRetryConfigurationProperties {
   private int attempts = 10;
 
   private int backoffPeriodMultiplierMs = 1000;
+
+  // The share of each backoff period that is randomized away, between 0 (none) and 1.
+  private double backoffJitter = 0.5;
+
+  // Every failed query of a metrics account takes one of its tokens, and every successful query
+  // returns retryBudgetTokenRatio of one. Failed queries are only retried while the account has
+  // more than half of its tokens left. 0 disables the budget.
+  private int retryBudgetMaxTokens = 100;
+
+  private double retryBudgetTokenRatio = 0.2;
 }
@@ -25,6 +25,9 @@ import java.util.List;
 import java.util.Map;
 
 public interface MetricsService {
+  /** The start of the description returned by metrics services that don't implement buildQuery. */
+  String BUILD_QUERY_NOT_IMPLEMENTED = "buildQuery() is not implemented";
+
   String getType();
 
   boolean servicesAccount(String accountName);
@@ -34,7 +37,7 @@ public interface MetricsService {
       CanaryConfig canaryConfig,
       CanaryMetricConfig canaryMetricConfig,
       CanaryScope canaryScope) {
-    return "buildQuery() is not implemented for " + this.getClass().getSimpleName() + ".";
+    return BUILD_QUERY_NOT_IMPLEMENTED + " for " + this.getClass().getSimpleName() + ".";
   }
 
   List<MetricSet> queryMetrics(
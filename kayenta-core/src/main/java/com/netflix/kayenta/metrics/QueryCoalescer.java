@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Coalesces concurrent queries that share a key, typically an account and time range, into a
+ * single request to a metrics backend that accepts several queries at once.
+ *
+ * <p>A query is sent on its own straight away when nothing else is pending for its key, so a query
+ * that has no one to share a request with never waits. Queries made while another is in flight
+ * are batched instead: the first opens a batch and waits up to {@code windowMillis} for others to
+ * join it, then the batch is sent merged and the response split back into one result per query.
+ * If the merged request fails, or its response cannot be split, every caller falls back to sending
+ * its own query, so one bad query never fails the others.
+ *
+ * @param <K> the key queries must share to be sent together
+ * @param <Q> a query
+ * @param <R> the response to one query, or to several merged
+ */
+@Slf4j
+public class QueryCoalescer<K, Q, R> {
+
+  private final long windowMillis;
+
+  private final int maxQueriesPerRequest;
+
+  private final BiFunction<K, Q, R> send;
+
+  private final BiFunction<K, List<Q>, R> sendMerged;
+
+  private final BiFunction<R, Integer, List<R>> split;
+
+  private final Map<K, Batch<Q, R>> openBatches = new HashMap<>();
+
+  // The number of requests on the wire per key, guarded by openBatches.
+  private final Map<K, Integer> requestsInFlight = new HashMap<>();
+
+  /**
+   * @param send sends one query
+   * @param sendMerged sends several queries in one request
+   * @param split splits the response to a merged request into one response per query, in the
+   *     order the queries were merged, or returns null if it cannot tell them apart
+   */
+  public QueryCoalescer(
+      long windowMillis,
+      int maxQueriesPerRequest,
+      BiFunction<K, Q, R> send,
+      BiFunction<K, List<Q>, R> sendMerged,
+      BiFunction<R, Integer, List<R>> split) {
+    this.windowMillis = windowMillis;
+    this.maxQueriesPerRequest = maxQueriesPerRequest;
+    this.send = send;
+    this.sendMerged = sendMerged;
+    this.split = split;
+  }
+
+  public R query(K key, Q query) {
+    if (windowMillis <= 0 || maxQueriesPerRequest <= 1) {
+      return send.apply(key, query);
+    }
+
+    Batch<Q, R> batch;
+    int queryIndex = 0;
+    boolean leader = false;
+
+    synchronized (openBatches) {
+      batch = openBatches.get(key);
+
+      if (batch == null && !requestsInFlight.containsKey(key)) {
+        requestsInFlight.put(key, 1);
+      } else {
+        if (batch == null) {
+          batch = new Batch<>();
+          openBatches.put(key, batch);
+          leader = true;
+        }
+
+        queryIndex = batch.queries.size();
+        batch.queries.add(query);
+
+        if (batch.queries.size() >= maxQueriesPerRequest) {
+          openBatches.remove(key);
+          batch.full.countDown();
+        }
+      }
+    }
+
+    if (batch == null) {
+      try {
+        return send.apply(key, query);
+      } finally {
+        requestFinished(key);
+      }
+    }
+
+    if (leader) {
+      sendBatch(key, batch);
+    }
+
+    List<R> results;
+
+    try {
+      results = batch.results.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+
+    if (results == null) {
+      return send.apply(key, query);
+    }
+
+    return results.get(queryIndex);
+  }
+
+  private void sendBatch(K key, Batch<Q, R> batch) {
+    List<Q> queries;
+
+    try {
+      try {
+        batch.full.await(windowMillis, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+
+      synchronized (openBatches) {
+        openBatches.remove(key, batch);
+        queries = new ArrayList<>(batch.queries);
+        requestsInFlight.merge(key, 1, Integer::sum);
+      }
+
+      try {
+        if (queries.size() == 1) {
+          try {
+            batch.results.complete(Collections.singletonList(send.apply(key, queries.get(0))));
+          } catch (RuntimeException e) {
+            batch.results.completeExceptionally(e);
+          }
+          return;
+        }
+
+        batch.results.complete(split.apply(sendMerged.apply(key, queries), queries.size()));
+      } finally {
+        requestFinished(key);
+      }
+    } catch (RuntimeException e) {
+      log.debug("Merged query failed, falling back to one request per query: {}", e.getMessage());
+    } finally {
+      batch.results.complete(null);
+    }
+  }
+
+  private void requestFinished(K key) {
+    synchronized (openBatches) {
+      requestsInFlight.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+  }
+
+  private static class Batch<Q, R> {
+    private final List<Q> queries = new ArrayList<>();
+    private final CountDownLatch full = new CountDownLatch(1);
+    private final CompletableFuture<List<R>> results = new CompletableFuture<>();
+  }
+}
@@ -29,9 +29,11 @@ import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -41,23 +43,46 @@ import retrofit.RetrofitError;
 @Component
 @Slf4j
 public class SynchronousQueryProcessor {
+  /** The stage context key holding the number of retries a fetch task has made so far. */
+  public static final String RETRIES_KEY = "metricFetchRetries";
+
+  /** The stage context key holding how long a fetch task waits before its next attempt. */
+  public static final String RETRY_BACKOFF_PERIOD_KEY = "metricFetchRetryBackoffPeriodMs";
+
   private final MetricsServiceRepository metricsServiceRepository;
   private final StorageServiceRepository storageServiceRepository;
   private final Registry registry;
   private final MetricsRetryConfigurationProperties retryConfiguration;
+  private final MetricQueryResultCache resultCache;
+  private final MetricsRetryBudget retryBudget;
+  private final MetricsCircuitBreakers circuitBreakers;
+  private final MetricSetListHandoff metricSetListHandoff;
 
   @Autowired
   public SynchronousQueryProcessor(
       MetricsServiceRepository metricsServiceRepository,
       StorageServiceRepository storageServiceRepository,
       Registry registry,
-      MetricsRetryConfigurationProperties retryConfiguration) {
+      MetricsRetryConfigurationProperties retryConfiguration,
+      MetricQueryResultCache resultCache,
+      MetricsCircuitBreakerConfigurationProperties circuitBreakerConfiguration,
+      MetricSetListHandoff metricSetListHandoff) {
     this.metricsServiceRepository = metricsServiceRepository;
     this.storageServiceRepository = storageServiceRepository;
     this.registry = registry;
     this.retryConfiguration = retryConfiguration;
+    this.resultCache = resultCache;
+    this.retryBudget = new MetricsRetryBudget(retryConfiguration);
+    this.circuitBreakers = new MetricsCircuitBreakers(circuitBreakerConfiguration, registry);
+    this.metricSetListHandoff = metricSetListHandoff;
   }
 
+  /**
+   * Queries the metrics service and stores the resulting metric set list, retrying failed queries
+   * in place. Pipeline tasks should use {@link #executeQueryAndProduceTaskResult(String, String,
+   * CanaryConfig, int, CanaryScope, Map)} instead, which reschedules the task between attempts
+   * rather than holding its thread.
+   */
   public String executeQuery(
       String metricsAccountName,
       String storageAccountName,
@@ -65,6 +90,45 @@ public class SynchronousQueryProcessor {
       int metricIndex,
       CanaryScope canaryScope)
       throws IOException {
+    int retries = 0;
+
+    while (true) {
+      try {
+        return executeQueryAttempt(
+            metricsAccountName,
+            storageAccountName,
+            canaryConfig,
+            metricIndex,
+            canaryScope,
+            retries,
+            null);
+      } catch (RetrofitError | IOException | UncheckedIOException | RetryableQueryException e) {
+        retries++;
+        long backoffPeriod = getRetryBackoffPeriodMs(metricsAccountName, e, retries);
+
+        if (backoffPeriod < 0) {
+          throw e;
+        }
+
+        try {
+          Thread.sleep(backoffPeriod);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          throw e;
+        }
+      }
+    }
+  }
+
+  private String executeQueryAttempt(
+      String metricsAccountName,
+      String storageAccountName,
+      CanaryConfig canaryConfig,
+      int metricIndex,
+      CanaryScope canaryScope,
+      int retries,
+      Map<String, Object> stageContext)
+      throws IOException {
     MetricsService metricsService = metricsServiceRepository.getRequiredOne(metricsAccountName);
 
     StorageService storageService = storageServiceRepository.getRequiredOne(storageAccountName);
@@ -75,75 +139,176 @@ public class SynchronousQueryProcessor {
             .withTag("metricsStore", metricsService.getType());
 
     CanaryMetricConfig canaryMetricConfig = canaryConfig.getMetrics().get(metricIndex);
-    List<MetricSet> metricSetList = null;
+    String resultCacheKey = null;
 
-    // TODO: retry mechanism should be extracted to separate class
-    int retries = 0;
-    boolean success = false;
+    if (resultCache != null && resultCache.isEnabled()) {
+      resultCacheKey =
+          resultCache.getKey(
+              metricsService,
+              metricsAccountName,
+              storageAccountName,
+              canaryConfig,
+              canaryMetricConfig,
+              canaryScope);
 
-    while (!success) {
-      try {
-        registry.counter(queryId.withTag("retries", retries + "")).increment();
-        metricSetList =
-            metricsService.queryMetrics(
-                metricsAccountName, canaryConfig, canaryMetricConfig, canaryScope);
-        success = true;
-      } catch (RetrofitError e) {
-
-        boolean retryable = isRetryable(e);
-        if (retryable) {
-          retries++;
-          if (retries >= retryConfiguration.getAttempts()) {
-            throw e;
-          }
-          long backoffPeriod = getBackoffPeriodMs(retries);
-          try {
-            Thread.sleep(backoffPeriod);
-          } catch (InterruptedException ignored) {
-          }
-          Object error = e.getResponse() != null ? e.getResponse().getStatus() : e.getCause();
-          log.warn(
-              "Got {} result when querying for metrics. Retrying request (current attempt: "
-                  + "{}, max attempts: {}, last backoff period: {}ms)",
-              error,
-              retries,
-              retryConfiguration.getAttempts(),
-              backoffPeriod);
-        } else {
-          throw e;
-        }
-      } catch (IOException | UncheckedIOException | RetryableQueryException e) {
-        retries++;
-        if (retries >= retryConfiguration.getAttempts()) {
-          throw e;
-        }
-        long backoffPeriod = getBackoffPeriodMs(retries);
-        try {
-          Thread.sleep(backoffPeriod);
-        } catch (InterruptedException ignored) {
+      if (resultCacheKey != null) {
+        String cachedMetricSetListId = resultCache.get(resultCacheKey);
+        Id resultCacheId =
+            registry
+                .createId("canary.telemetry.query.resultCache")
+                .withTag("metricsStore", metricsService.getType());
+
+        if (cachedMetricSetListId != null) {
+          registry.counter(resultCacheId.withTag("result", "hit")).increment();
+          return cachedMetricSetListId;
         }
-        log.warn(
-            "Got error when querying for metrics. Retrying request (current attempt: {}, max "
-                + "attempts: {}, last backoff period: {}ms)",
-            retries,
-            retryConfiguration.getAttempts(),
-            backoffPeriod,
-            e);
+        registry.counter(resultCacheId.withTag("result", "miss")).increment();
       }
     }
+
+    MetricsCircuitBreakers.Permit permit = circuitBreakers.acquire(metricsAccountName);
+    List<MetricSet> metricSetList;
+
+    try {
+      registry.counter(queryId.withTag("retries", retries + "")).increment();
+      metricSetList =
+          metricsService.queryMetrics(
+              metricsAccountName, canaryConfig, canaryMetricConfig, canaryScope);
+      permit.recordSuccess();
+    } catch (IOException | RuntimeException e) {
+      if (isMetricsStoreFailure(e)) {
+        permit.recordFailure();
+      }
+      throw e;
+    } finally {
+      permit.release();
+    }
+
+    retryBudget.recordSuccess(metricsAccountName);
+
     String metricSetListId = UUID.randomUUID() + "";
 
-    storageService.storeObject(
-        storageAccountName, ObjectType.METRIC_SET_LIST, metricSetListId, metricSetList);
+    String storedResultCacheKey = resultCacheKey;
+    // A list is only reused by other canary runs once it can be loaded from the object store.
+    Runnable onStored =
+        () -> {
+          if (storedResultCacheKey != null) {
+            resultCache.put(storedResultCacheKey, metricSetListId);
+          }
+        };
+
+    // Only a fetch task's list goes on to a mixer in this instance; a list fetched through the API
+    // is loaded from the object store by whoever asked for it.
+    if (stageContext != null && metricSetListHandoff != null) {
+      metricSetListHandoff.store(
+          storageService,
+          storageAccountName,
+          metricSetListId,
+          metricSetList,
+          Boolean.TRUE.equals(stageContext.get(MetricSetListHandoff.AD_HOC_CANARY_KEY)),
+          onStored);
+    } else {
+      storageService.storeObject(
+          storageAccountName, ObjectType.METRIC_SET_LIST, metricSetListId, metricSetList);
+      onStored.run();
+    }
 
     return metricSetListId;
   }
 
+  /**
+   * Returns how long to back off before retry number {@code retries} of a failed query, or -1 if
+   * the failure must not be retried: it isn't retryable, the attempts are used up, or the metrics
+   * account has exhausted its retry budget.
+   */
+  private long getRetryBackoffPeriodMs(String metricsAccountName, Exception e, int retries) {
+    if (e instanceof RetrofitError && !isRetryable((RetrofitError) e)) {
+      return -1;
+    }
+
+    if (retries >= retryConfiguration.getAttempts()) {
+      return -1;
+    }
+
+    // A rejected query never reached the metrics store, so it doesn't spend the retry budget.
+    if (!(e instanceof MetricsAccountUnavailableException)
+        && !retryBudget.tryRetry(metricsAccountName)) {
+      log.warn(
+          "Retry budget of metrics account {} is exhausted, not retrying failed query.",
+          metricsAccountName);
+      return -1;
+    }
+
+    long backoffPeriod = getBackoffPeriodMs(retries);
+
+    if (e instanceof RetrofitError) {
+      RetrofitError retrofitError = (RetrofitError) e;
+      Object error =
+          retrofitError.getResponse() != null
+              ? retrofitError.getResponse().getStatus()
+              : retrofitError.getCause();
+      log.warn(
+          "Got {} result when querying for metrics. Retrying request (current attempt: "
+              + "{}, max attempts: {}, last backoff period: {}ms)",
+          error,
+          retries,
+          retryConfiguration.getAttempts(),
+          backoffPeriod);
+    } else {
+      log.warn(
+          "Got error when querying for metrics. Retrying request (current attempt: {}, max "
+              + "attempts: {}, last backoff period: {}ms)",
+          retries,
+          retryConfiguration.getAttempts(),
+          backoffPeriod,
+          e);
+    }
+
+    return backoffPeriod;
+  }
+
   private long getBackoffPeriodMs(int retryAttemptNumber) {
     // The retries range from 1..max, but we want the backoff periods to range from Math.pow(2,
     // 0)..Math.pow(2, max-1).
-    return (long) Math.pow(2, (retryAttemptNumber - 1))
-        * retryConfiguration.getBackoffPeriodMultiplierMs();
+    long backoffPeriod =
+        (long) Math.pow(2, (retryAttemptNumber - 1))
+            * retryConfiguration.getBackoffPeriodMultiplierMs();
+    double jitter =
+        Math.min(1, Math.max(0, retryConfiguration.getBackoffJitter()))
+            * ThreadLocalRandom.current().nextDouble();
+
+    // Spread out the retries of queries that failed together, e.g. all metrics of one canary.
+    return (long) (backoffPeriod * (1 - jitter));
+  }
+
+  /**
+   * Returns the longest a task may take to make every configured attempt at a query: each attempt
+   * may take up to {@code attemptTimeoutMs}, and is followed by the longest backoff the jitter
+   * allows before the next one.
+   */
+  public long getMaxRetryScheduleMs(long attemptTimeoutMs) {
+    int attempts = Math.max(1, retryConfiguration.getAttempts());
+    long backoffPeriods = 0;
+
+    for (int retries = 1; retries < attempts; retries++) {
+      backoffPeriods +=
+          (long) Math.pow(2, (retries - 1)) * retryConfiguration.getBackoffPeriodMultiplierMs();
+    }
+
+    return backoffPeriods + attempts * attemptTimeoutMs;
+  }
+
+  /**
+   * Returns whether a failed query says something about the health of the metrics store, as
+   * opposed to, say, a malformed query.
+   */
+  private boolean isMetricsStoreFailure(Exception e) {
+    if (e instanceof RetrofitError) {
+      return isRetryable((RetrofitError) e);
+    }
+    return e instanceof IOException
+        || e instanceof UncheckedIOException
+        || e instanceof RetryableQueryException;
   }
 
   private boolean isRetryable(RetrofitError e) {
@@ -198,27 +363,51 @@ public class SynchronousQueryProcessor {
     }
   }
 
+  /**
+   * Makes one attempt at the query of a fetch task. A retryable failure doesn't hold the task's
+   * thread: the task is left RUNNING, with the number of retries so far and the backoff period to
+   * wait before the next attempt kept in the stage context (see {@link
+   * com.netflix.kayenta.metrics.orca.MetricFetchTask}).
+   */
   public TaskResult executeQueryAndProduceTaskResult(
       String metricsAccountName,
       String storageAccountName,
       CanaryConfig canaryConfig,
       int metricIndex,
-      CanaryScope canaryScope) {
+      CanaryScope canaryScope,
+      Map<String, Object> stageContext) {
+    Object previousRetries = stageContext.get(RETRIES_KEY);
+    int retries = previousRetries instanceof Number ? ((Number) previousRetries).intValue() : 0;
+
     try {
-      Map<String, ?> outputs =
-          processQueryAndReturnMap(
+      String metricSetListId =
+          executeQueryAttempt(
               metricsAccountName,
               storageAccountName,
               canaryConfig,
-              null /* canaryMetricConfig */,
               metricIndex,
               canaryScope,
-              false /* dryRun */);
+              retries,
+              stageContext);
+
+      return TaskResult.builder(ExecutionStatus.SUCCEEDED)
+          .outputs(Collections.singletonMap("metricSetListId", metricSetListId))
+          .build();
+    } catch (RetrofitError | IOException | UncheckedIOException | RetryableQueryException e) {
+      long backoffPeriod = getRetryBackoffPeriodMs(metricsAccountName, e, retries + 1);
+
+      if (backoffPeriod < 0) {
+        if (e instanceof IOException) {
+          throw new RuntimeException(e);
+        }
+        throw (RuntimeException) e;
+      }
 
-      return TaskResult.builder(ExecutionStatus.SUCCEEDED).outputs(outputs).build();
+      Map<String, Object> context = new HashMap<>();
+      context.put(RETRIES_KEY, retries + 1);
+      context.put(RETRY_BACKOFF_PERIOD_KEY, backoffPeriod);
 
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      return TaskResult.builder(ExecutionStatus.RUNNING).context(context).build();
     }
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics.orca;
+
+import com.netflix.kayenta.metrics.SynchronousQueryProcessor;
+import com.netflix.spinnaker.orca.api.pipeline.RetryableTask;
+import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution;
+import java.time.Duration;
+
+/**
+ * A task that fetches metrics through {@link SynchronousQueryProcessor}. When its last attempt
+ * failed and is to be retried, the task is rescheduled after the backoff period the processor left
+ * in the stage context, and it times out only once every configured attempt has had its chance.
+ */
+public interface MetricFetchTask extends RetryableTask {
+
+  SynchronousQueryProcessor getSynchronousQueryProcessor();
+
+  /** The longest a single attempt at the task may take. */
+  default long getAttemptTimeout() {
+    return Duration.ofMinutes(2).toMillis();
+  }
+
+  /**
+   * Orca counts the time between reschedules against the timeout, so it has to cover the backoff
+   * before each retry as well as the attempts themselves.
+   */
+  @Override
+  default long getTimeout() {
+    return getSynchronousQueryProcessor().getMaxRetryScheduleMs(getAttemptTimeout());
+  }
+
+  @Override
+  default long getDynamicBackoffPeriod(StageExecution stage, Duration taskDuration) {
+    Object retryBackoffPeriod =
+        stage.getContext().get(SynchronousQueryProcessor.RETRY_BACKOFF_PERIOD_KEY);
+
+    if (retryBackoffPeriod instanceof Number) {
+      return ((Number) retryBackoffPeriod).longValue();
+    }
+
+    return getDynamicBackoffPeriod(taskDuration);
+  }
+}
@@ -19,13 +19,16 @@ package com.netflix.kayenta.metrics.orca;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.ExecutionMapper;
 import com.netflix.kayenta.metrics.MetricSet;
+import com.netflix.kayenta.metrics.MetricSetListHandoff;
 import com.netflix.kayenta.metrics.MetricSetMixerService;
 import com.netflix.kayenta.metrics.MetricSetPair;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.storage.ObjectType;
+import com.netflix.kayenta.storage.StorageIoExecutors;
 import com.netflix.kayenta.storage.StorageService;
 import com.netflix.kayenta.storage.StorageServiceRepository;
+import com.netflix.spinnaker.kork.web.exceptions.NotFoundException;
 import com.netflix.spinnaker.orca.api.pipeline.RetryableTask;
 import com.netflix.spinnaker.orca.api.pipeline.TaskResult;
 import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus;
@@ -46,17 +49,23 @@ public class MetricSetMixerServiceTask implements RetryableTask {
   private final StorageServiceRepository storageServiceRepository;
   private final MetricSetMixerService metricSetMixerService;
   private final ExecutionMapper executionMapper;
+  private final StorageIoExecutors storageIoExecutors;
+  private final MetricSetListHandoff metricSetListHandoff;
 
   @Autowired
   public MetricSetMixerServiceTask(
       AccountCredentialsRepository accountCredentialsRepository,
       StorageServiceRepository storageServiceRepository,
       MetricSetMixerService metricSetMixerService,
-      ExecutionMapper executionMapper) {
+      ExecutionMapper executionMapper,
+      StorageIoExecutors storageIoExecutors,
+      MetricSetListHandoff metricSetListHandoff) {
     this.accountCredentialsRepository = accountCredentialsRepository;
     this.storageServiceRepository = storageServiceRepository;
     this.metricSetMixerService = metricSetMixerService;
     this.executionMapper = executionMapper;
+    this.storageIoExecutors = storageIoExecutors;
+    this.metricSetListHandoff = metricSetListHandoff;
   }
 
   @Override
@@ -101,25 +110,44 @@ public class MetricSetMixerServiceTask implements RetryableTask {
               + ").");
     }
 
-    List<MetricSet> controlMetricSetList =
-        controlMetricSetListIds.stream()
-            .map(
-                (id) ->
-                    (List<MetricSet>)
-                        storageService.loadObject(
-                            resolvedAccountName, ObjectType.METRIC_SET_LIST, id))
-            .flatMap(Collection::stream)
-            .collect(Collectors.toList());
+    List<String> metricSetListIds = new ArrayList<>(controlMetricSetListIds);
+    metricSetListIds.addAll(experimentMetricSetListIds);
+    Map<String, List<MetricSet>> metricSetLists = new HashMap<>();
+    List<String> unloadedMetricSetListIds = new ArrayList<>();
+
+    // Take the lists fetched by this instance as they were handed off, and load only the rest.
+    for (String metricSetListId : metricSetListIds) {
+      List<MetricSet> metricSetList = metricSetListHandoff.get(metricSetListId);
 
+      if (metricSetList != null) {
+        metricSetLists.put(metricSetListId, metricSetList);
+      } else {
+        unloadedMetricSetListIds.add(metricSetListId);
+      }
+    }
+
+    // Load the control and experiment lists in a single batch, as many at once as the storage
+    // account allows, rather than one after another.
+    if (!unloadedMetricSetListIds.isEmpty()) {
+      metricSetLists.putAll(
+          storageService.loadObjects(
+              resolvedAccountName,
+              ObjectType.METRIC_SET_LIST,
+              unloadedMetricSetListIds,
+              storageIoExecutors.getExecutor(resolvedAccountName)));
+    }
+
+    // A list handed off on another instance may not have reached the object store yet; try again
+    // until the task times out.
+    if (metricSetListHandoff.mayBeUnstored()
+        && !metricSetLists.keySet().containsAll(metricSetListIds)) {
+      return TaskResult.builder(ExecutionStatus.RUNNING).build();
+    }
+
+    List<MetricSet> controlMetricSetList =
+        concatenateMetricSetLists(metricSetLists, controlMetricSetListIds);
     List<MetricSet> experimentMetricSetList =
-        experimentMetricSetListIds.stream()
-            .map(
-                (id) ->
-                    (List<MetricSet>)
-                        storageService.loadObject(
-                            resolvedAccountName, ObjectType.METRIC_SET_LIST, id))
-            .flatMap(Collection::stream)
-            .collect(Collectors.toList());
+        concatenateMetricSetLists(metricSetLists, experimentMetricSetListIds);
 
     List<MetricSetPair> aggregatedMetricSetPairList =
         metricSetMixerService.mixAll(
@@ -133,11 +161,31 @@ public class MetricSetMixerServiceTask implements RetryableTask {
         aggregatedMetricSetPairListId,
         aggregatedMetricSetPairList);
 
+    metricSetListHandoff.release(metricSetListIds);
+
     return TaskResult.builder(ExecutionStatus.SUCCEEDED)
         .output("metricSetPairListId", aggregatedMetricSetPairListId)
         .build();
   }
 
+  /** Concatenates the loaded metric set lists in the order of the ids. */
+  private static List<MetricSet> concatenateMetricSetLists(
+      Map<String, List<MetricSet>> metricSetLists, List<String> metricSetListIds) {
+    List<MetricSet> metricSets = new ArrayList<>();
+
+    for (String metricSetListId : metricSetListIds) {
+      List<MetricSet> metricSetList = metricSetLists.get(metricSetListId);
+
+      if (metricSetList == null) {
+        throw new NotFoundException("No metric set list with id " + metricSetListId + ".");
+      }
+
+      metricSets.addAll(metricSetList);
+    }
+
+    return metricSets;
+  }
+
   private List<String> getMetricSetListIds(PipelineExecution execution, String stagePrefix) {
     List<StageExecution> stages = execution.getStages();
     return stages.stream()
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.retrofit.config;
+
+import com.netflix.kayenta.metrics.MetricsQueryStats;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import retrofit.client.Client;
+import retrofit.client.Request;
+import retrofit.client.Response;
+import retrofit.mime.TypedInput;
+
+/**
+ * Reports the requests made on behalf of a metrics query into its {@link MetricsQueryStats}. A
+ * request is counted once its response body has been read to the end or closed, so its network
+ * time includes transferring the body but not converting it.
+ */
+class MetricsQueryStatsClient implements Client {
+
+  private final Client delegate;
+
+  MetricsQueryStatsClient(Client delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public Response execute(Request request) throws IOException {
+    MetricsQueryStats stats = MetricsQueryStats.current();
+
+    if (stats == null) {
+      return delegate.execute(request);
+    }
+
+    long startNanos = System.nanoTime();
+    Response response;
+
+    try {
+      response = delegate.execute(request);
+    } catch (IOException | RuntimeException e) {
+      stats.recordRequest(System.nanoTime() - startNanos, 0);
+      throw e;
+    }
+
+    if (response.getBody() == null) {
+      stats.recordRequest(System.nanoTime() - startNanos, 0);
+      return response;
+    }
+
+    return new Response(
+        response.getUrl(),
+        response.getStatus(),
+        response.getReason(),
+        response.getHeaders(),
+        new CountingTypedInput(response.getBody(), stats, startNanos));
+  }
+
+  private static class CountingTypedInput implements TypedInput {
+    private final TypedInput delegate;
+    private final MetricsQueryStats stats;
+    private final long startNanos;
+    private long bytesRead;
+    private boolean recorded;
+
+    private CountingTypedInput(TypedInput delegate, MetricsQueryStats stats, long startNanos) {
+      this.delegate = delegate;
+      this.stats = stats;
+      this.startNanos = startNanos;
+    }
+
+    @Override
+    public String mimeType() {
+      return delegate.mimeType();
+    }
+
+    @Override
+    public long length() {
+      return delegate.length();
+    }
+
+    @Override
+    public InputStream in() throws IOException {
+      return new FilterInputStream(delegate.in()) {
+        @Override
+        public int read() throws IOException {
+          int b = super.read();
+          count(b < 0 ? -1 : 1);
+          return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+          int n = super.read(buffer, offset, length);
+          count(n);
+          return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            record();
+          }
+        }
+      };
+    }
+
+    private synchronized void count(int n) {
+      if (n < 0) {
+        record();
+      } else {
+        bytesRead += n;
+      }
+    }
+
+    private synchronized void record() {
+      if (!recorded) {
+        recorded = true;
+        stats.recordRequest(System.nanoTime() - startNanos, bytesRead);
+      }
+    }
+  }
+}
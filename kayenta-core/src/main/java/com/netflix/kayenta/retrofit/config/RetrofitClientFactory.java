@@ -117,7 +117,7 @@ public class RetrofitClientFactory {
 
     return new RestAdapter.Builder()
         .setEndpoint(endpoint)
-        .setClient(new OkClient(okHttpClient))
+        .setClient(new MetricsQueryStatsClient(new OkClient(okHttpClient)))
         .setConverter(converter)
         .setLogLevel(RestAdapter.LogLevel.valueOf(retrofitLogLevel))
         .setLog(logger)
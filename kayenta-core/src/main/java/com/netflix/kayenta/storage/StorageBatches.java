@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Runs the per-object requests of a batch operation concurrently, for the object stores, or the
+ * parts of an operation, that have no bulk API.
+ */
+public final class StorageBatches {
+
+  // Shared by all storage services, so that it bounds the requests batches have in flight at once.
+  private static final int DEFAULT_PARALLELISM = 16;
+
+  private static final ExecutorService DEFAULT_EXECUTOR =
+      Executors.newFixedThreadPool(
+          DEFAULT_PARALLELISM,
+          new ThreadFactoryBuilder().setNameFormat("storage-batch-%d").setDaemon(true).build());
+
+  private StorageBatches() {}
+
+  public static Executor defaultExecutor() {
+    return DEFAULT_EXECUTOR;
+  }
+
+  /** Like {@link #map(List, Function, Executor)}, on the default executor. */
+  public static <K, R> List<R> map(List<K> items, Function<K, R> operation) {
+    return map(items, operation, DEFAULT_EXECUTOR);
+  }
+
+  /**
+   * Applies the operation to each item concurrently, and returns the results in the order of the
+   * items once all are done. If any application fails, rethrows the failure of the first such item.
+   */
+  public static <K, R> List<R> map(List<K> items, Function<K, R> operation, Executor executor) {
+    if (items.size() <= 1) {
+      List<R> results = new ArrayList<>(items.size());
+      for (K item : items) {
+        results.add(operation.apply(item));
+      }
+      return results;
+    }
+
+    List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+    for (K item : items) {
+      futures.add(CompletableFuture.supplyAsync(() -> operation.apply(item), executor));
+    }
+
+    List<R> results = new ArrayList<>(items.size());
+    RuntimeException failure = null;
+
+    // Wait for every request, even after one failed, so that none is left running unobserved.
+    for (CompletableFuture<R> future : futures) {
+      try {
+        results.add(future.join());
+      } catch (CompletionException e) {
+        if (failure == null) {
+          failure =
+              e.getCause() instanceof RuntimeException
+                  ? (RuntimeException) e.getCause()
+                  : new IllegalStateException(e.getCause());
+        }
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+
+    return results;
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Configuration of the concurrent object store requests canary runs make. */
+@Data
+@ConfigurationProperties("kayenta.storage-io")
+public class StorageIoConfigurationProperties {
+
+  /** How many requests to a storage account may be in flight at once, unless overridden below. */
+  private int defaultParallelism = 16;
+
+  /** How many requests may be in flight at once, by storage account name. */
+  private Map<String, Integer> accountParallelism = new HashMap<>();
+
+  public int getParallelism(String accountName) {
+    return Math.max(1, accountParallelism.getOrDefault(accountName, defaultParallelism));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.PreDestroy;
+
+/**
+ * Hands out an executor per storage account for the object store requests of canary runs, each with
+ * as many threads as the account's configured parallelism, so that however many objects a run
+ * needs, and however many runs there are, no account has more requests in flight than it allows.
+ */
+public class StorageIoExecutors {
+
+  private final StorageIoConfigurationProperties properties;
+
+  private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+  public StorageIoExecutors(StorageIoConfigurationProperties properties) {
+    this.properties = properties;
+  }
+
+  public Executor getExecutor(String accountName) {
+    return executors.computeIfAbsent(
+        accountName,
+        name ->
+            Executors.newFixedThreadPool(
+                properties.getParallelism(name),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("storage-io-" + name + "-%d")
+                    .setDaemon(true)
+                    .build()));
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executors.values().forEach(ExecutorService::shutdown);
+  }
+}
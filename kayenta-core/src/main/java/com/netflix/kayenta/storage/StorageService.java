@@ -17,8 +17,11 @@
 package com.netflix.kayenta.storage;
 
 import com.netflix.spinnaker.kork.web.exceptions.NotFoundException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public interface StorageService {
   boolean servicesAccount(String accountName);
@@ -46,4 +49,64 @@ public interface StorageService {
   default List<Map<String, Object>> listObjectKeys(String accountName, ObjectType objectType) {
     return listObjectKeys(accountName, objectType, null, false);
   }
+
+  /** Like {@link #loadObjects(String, ObjectType, List, Executor)}, on a shared executor. */
+  default <T> Map<String, T> loadObjects(
+      String accountName, ObjectType objectType, List<String> objectKeys) {
+    return loadObjects(accountName, objectType, objectKeys, StorageBatches.defaultExecutor());
+  }
+
+  /**
+   * Loads the objects with the given keys, concurrently on the executor unless the object store has
+   * a bulk API. Objects that do not exist are left out; any other failure fails the batch.
+   *
+   * @return the objects that exist by their keys, in the order of the keys
+   */
+  default <T> Map<String, T> loadObjects(
+      String accountName, ObjectType objectType, List<String> objectKeys, Executor executor) {
+    List<T> objects =
+        StorageBatches.map(
+            objectKeys,
+            objectKey -> {
+              try {
+                return (T) loadObject(accountName, objectType, objectKey);
+              } catch (NotFoundException e) {
+                return null;
+              }
+            },
+            executor);
+    Map<String, T> objectsByKey = new LinkedHashMap<>();
+
+    for (int i = 0; i < objectKeys.size(); i++) {
+      if (objects.get(i) != null) {
+        objectsByKey.put(objectKeys.get(i), objects.get(i));
+      }
+    }
+
+    return objectsByKey;
+  }
+
+  /** Stores each of the objects under its key, concurrently unless the store has a bulk API. */
+  default <T> void storeObjects(
+      String accountName, ObjectType objectType, Map<String, T> objectsByKey) {
+    StorageBatches.map(
+        new ArrayList<>(objectsByKey.entrySet()),
+        entry -> {
+          storeObject(accountName, objectType, entry.getKey(), entry.getValue());
+          return null;
+        });
+  }
+
+  /**
+   * Deletes the objects with the given keys, concurrently or in as few requests as the object store
+   * allows. Fails like {@link #deleteObject} does for any of them.
+   */
+  default void deleteObjects(String accountName, ObjectType objectType, List<String> objectKeys) {
+    StorageBatches.map(
+        objectKeys,
+        objectKey -> {
+          deleteObject(accountName, objectType, objectKey);
+          return null;
+        });
+  }
 }
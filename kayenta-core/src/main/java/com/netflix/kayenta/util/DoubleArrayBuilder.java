@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Netflix, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable buffer of primitive doubles, used by metrics services to assemble time series values
+ * without boxing each point until the final {@link com.netflix.kayenta.metrics.MetricSet} is built.
+ *
+ * <p>Not thread-safe.
+ */
+public class DoubleArrayBuilder {
+
+  private double[] values;
+
+  private int size;
+
+  public DoubleArrayBuilder() {
+    this(16);
+  }
+
+  public DoubleArrayBuilder(int initialCapacity) {
+    this.values = new double[Math.max(1, initialCapacity)];
+  }
+
+  /** Creates a builder holding {@code size} NaN values, ready to be filled in by {@link #set}. */
+  public static DoubleArrayBuilder ofNaN(int size) {
+    DoubleArrayBuilder builder = new DoubleArrayBuilder(size);
+    builder.pad(size);
+    return builder;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public double get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return values[index];
+  }
+
+  public DoubleArrayBuilder add(double value) {
+    ensureCapacity(size + 1);
+    values[size++] = value;
+    return this;
+  }
+
+  public DoubleArrayBuilder addAll(DoubleArrayBuilder other) {
+    ensureCapacity(size + other.size);
+    System.arraycopy(other.values, 0, values, size, other.size);
+    size += other.size;
+    return this;
+  }
+
+  /** Appends {@code count} NaN values. */
+  public DoubleArrayBuilder pad(int count) {
+    if (count > 0) {
+      ensureCapacity(size + count);
+      Arrays.fill(values, size, size + count, Double.NaN);
+      size += count;
+    }
+    return this;
+  }
+
+  /**
+   * Sets the value at {@code index}, growing the buffer with NaN values if the index is beyond the
+   * current size.
+   */
+  public DoubleArrayBuilder set(int index, double value) {
+    if (index < 0) {
+      throw new IndexOutOfBoundsException("Index: " + index);
+    }
+    if (index >= size) {
+      pad(index + 1 - size);
+    }
+    values[index] = value;
+    return this;
+  }
+
+  /** Inserts {@code count} NaN values at the front of the buffer. */
+  public DoubleArrayBuilder prependNaN(int count) {
+    if (count > 0) {
+      ensureCapacity(size + count);
+      System.arraycopy(values, 0, values, count, size);
+      Arrays.fill(values, 0, count, Double.NaN);
+      size += count;
+    }
+    return this;
+  }
+
+  public DoubleArrayBuilder clear() {
+    size = 0;
+    return this;
+  }
+
+  public double[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+
+  public List<Double> toList() {
+    List<Double> list = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      list.add(values[i]);
+    }
+    return list;
+  }
+
+  private void ensureCapacity(int minCapacity) {
+    if (minCapacity > values.length) {
+      values = Arrays.copyOf(values, Math.max(minCapacity, values.length * 2));
+    }
+  }
+}
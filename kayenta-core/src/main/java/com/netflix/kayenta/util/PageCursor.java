@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import lombok.Value;
+
+/**
+ * The position after which the next page of a list ordered newest first starts: the time of the
+ * last entry served, with its ID breaking ties. Clients only see it as an opaque string.
+ */
+@Value
+public class PageCursor {
+  long time;
+  String id;
+
+  /** Returns whether the entry with the time and ID comes after this position, newest first. */
+  public boolean precedes(long entryTime, String entryId) {
+    return entryTime < time || (entryTime == time && entryId.compareTo(id) < 0);
+  }
+
+  public String encode() {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString((time + ":" + id).getBytes(StandardCharsets.UTF_8));
+  }
+
+  public static PageCursor decode(String cursor) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+      int separator = decoded.indexOf(':');
+
+      return new PageCursor(
+          Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Invalid cursor '" + cursor + "'.", e);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.canary
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.kayenta.canary.orca.CanaryStageNames
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionType
+import com.netflix.spinnaker.orca.api.pipeline.models.PipelineExecution
+import com.netflix.spinnaker.orca.pipeline.ExecutionLauncher
+import com.netflix.spinnaker.orca.pipeline.model.PipelineExecutionImpl
+import com.netflix.spinnaker.orca.pipeline.model.StageExecutionImpl
+import com.netflix.spinnaker.orca.pipeline.persistence.ExecutionRepository
+import spock.lang.Specification
+
+class ExecutionMapperSpec extends Specification {
+
+  ObjectMapper objectMapper = Spy(ObjectMapper)
+
+  ExecutionMapper executionMapper = new ExecutionMapper(
+    objectMapper,
+    new DefaultRegistry(),
+    "",
+    Optional.empty(),
+    Mock(ExecutionLauncher),
+    Mock(ExecutionRepository),
+    false)
+
+  void "the response of a completed execution is built once"() {
+    given:
+    PipelineExecution pipeline = pipeline(ExecutionStatus.TERMINAL, 1000L)
+
+    when:
+    def first = executionMapper.fromExecution(pipeline)
+    def second = executionMapper.fromExecution(pipeline)
+
+    then:
+    1 * objectMapper.readValue('{}', CanaryExecutionRequest)
+    second.is(first)
+    first.status == "terminal"
+    first.stageStatus[CanaryStageNames.REFID_JUDGE] == "terminal"
+  }
+
+  void "a restarted execution gets a new response"() {
+    given:
+    PipelineExecution pipeline = pipeline(ExecutionStatus.TERMINAL, 1000L)
+    def first = executionMapper.fromExecution(pipeline)
+
+    when:
+    pipeline.status = ExecutionStatus.SUCCEEDED
+    pipeline.endTime = 2000L
+
+    then:
+    !executionMapper.fromExecution(pipeline).is(first)
+  }
+
+  void "a running execution gets a fresh status, but its inputs are deserialized once"() {
+    given:
+    PipelineExecution pipeline = pipeline(ExecutionStatus.RUNNING, null)
+
+    when:
+    def first = executionMapper.fromExecution(pipeline)
+    pipeline.stages.find { it.refId == CanaryStageNames.REFID_JUDGE }.status =
+      ExecutionStatus.RUNNING
+    def second = executionMapper.fromExecution(pipeline)
+
+    then:
+    1 * objectMapper.readValue('{}', CanaryExecutionRequest)
+    first.stageStatus[CanaryStageNames.REFID_JUDGE] == "not_started"
+    second.stageStatus[CanaryStageNames.REFID_JUDGE] == "running"
+    second.config.is(first.config)
+  }
+
+  private static PipelineExecution pipeline(ExecutionStatus status, Long endTime) {
+    PipelineExecutionImpl pipeline = new PipelineExecutionImpl(ExecutionType.PIPELINE, "app")
+    pipeline.name = ExecutionMapper.PIPELINE_NAME
+    pipeline.status = status
+    pipeline.endTime = endTime
+
+    [
+      (CanaryStageNames.REFID_SET_CONTEXT):
+        [canaryConfig: [name: "config"], canaryExecutionRequest: '{}'],
+      (CanaryStageNames.REFID_MIX_METRICS): [:],
+      (CanaryStageNames.REFID_JUDGE)      : [:]
+    ].each { refId, context ->
+      StageExecutionImpl stage = new StageExecutionImpl(pipeline, refId, refId, context)
+      stage.refId = refId
+      stage.status = status.complete ? status : ExecutionStatus.NOT_STARTED
+      pipeline.stages << stage
+    }
+
+    return pipeline
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.events
+
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.util.function.Predicate
+import java.util.function.Supplier
+
+class ExecutionStatusWatcherSpec extends Specification {
+
+  ExecutionChangesConfigurationProperties properties = new ExecutionChangesConfigurationProperties()
+
+  ExecutionChangeNotifier notifier = new ExecutionChangeNotifier(Optional.empty(), properties)
+
+  ExecutionStatusWatcher watcher = new ExecutionStatusWatcher(notifier, properties)
+
+  Predicate<Map> isComplete = { it.complete } as Predicate<Map>
+
+  void "a long poll of a complete execution responds at once"() {
+    when:
+    def result = watcher.awaitChange("id", 30000, { [complete: true] } as Supplier<Map>, isComplete)
+
+    then:
+    result.result == [complete: true]
+  }
+
+  void "a long poll of a running execution responds once it changes"() {
+    given:
+    def status = [complete: false, stage: "RUNNING"]
+
+    when:
+    def result = watcher.awaitChange("id", 30000, { status } as Supplier<Map>, isComplete)
+
+    then:
+    !result.hasResult()
+
+    when:
+    status = [complete: false, stage: "SUCCEEDED"]
+    notifier.notifyListeners("other-id")
+    notifier.notifyListeners("id")
+
+    then:
+    new PollingConditions(timeout: 5).eventually {
+      assert result.result == [complete: false, stage: "SUCCEEDED"]
+    }
+  }
+
+  void "only the changes relayed by other instances are delivered again"() {
+    given:
+    def calls = 0
+    notifier.subscribe("id", { calls++ })
+
+    when:
+    notifier.onMessage("another-instance id")
+
+    then:
+    calls == 1
+
+    when:
+    notifier.onMessage(notifier.@instanceId + " id")
+
+    then:
+    calls == 1
+  }
+
+  void "the listener of an execution is dropped once unsubscribed"() {
+    given:
+    def calls = 0
+    def unsubscribe = notifier.subscribe("id", { calls++ })
+
+    when:
+    unsubscribe.run()
+    notifier.notifyListeners("id")
+
+    then:
+    calls == 0
+    notifier.@listeners.isEmpty()
+  }
+
+  void "the delta holds only the fields, and stage entries, that changed"() {
+    expect:
+    ExecutionStatusWatcher.delta(
+      [status: "RUNNING", stageStatus: [setup: "succeeded", judge: "running"]],
+      [status: "RUNNING", stageStatus: [setup: "succeeded", judge: "succeeded"]]) ==
+      [stageStatus: [judge: "succeeded"]]
+    ExecutionStatusWatcher.delta([:], [status: "RUNNING", stageStatus: [:]]) ==
+      [status: "RUNNING", stageStatus: [:]]
+  }
+}
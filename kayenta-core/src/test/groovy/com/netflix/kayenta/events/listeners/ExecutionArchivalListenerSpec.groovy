@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.events.listeners
+
+import com.netflix.kayenta.canary.CanaryExecutionStatusResponse
+import com.netflix.kayenta.events.CanaryExecutionCompletedEvent
+import com.netflix.kayenta.security.AccountCredentials
+import com.netflix.kayenta.security.AccountCredentialsRepository
+import com.netflix.kayenta.storage.ObjectType
+import com.netflix.kayenta.storage.StorageService
+import com.netflix.kayenta.storage.StorageServiceRepository
+import com.netflix.spectator.api.DefaultRegistry
+import spock.lang.Specification
+
+class ExecutionArchivalListenerSpec extends Specification {
+
+  StorageService storageService = Mock(StorageService)
+
+  ExecutionArchivalConfigurationProperties properties =
+    new ExecutionArchivalConfigurationProperties(backoffPeriodMs: 1)
+
+  DefaultRegistry registry = new DefaultRegistry()
+
+  ExecutionArchivalListener listener = new ExecutionArchivalListener(
+    Stub(AccountCredentialsRepository) {
+      getRequiredOneBy("storage", AccountCredentials.Type.OBJECT_STORE) >>
+        Stub(AccountCredentials) { getName() >> "storage" }
+    },
+    Stub(StorageServiceRepository) { getRequiredOne("storage") >> storageService },
+    registry,
+    properties,
+    Optional.empty())
+
+  void "every queued archive is written by the time the listener is drained"() {
+    when:
+    (1..10).each { listener.onApplicationEvent(completed("id-$it")) }
+    listener.drain()
+
+    then:
+    10 * storageService.storeObject("storage", ObjectType.CANARY_RESULT_ARCHIVE, _, _)
+  }
+
+  void "a failed write is retried"() {
+    when:
+    listener.onApplicationEvent(completed("id"))
+    listener.drain()
+
+    then:
+    1 * storageService.storeObject(*_) >> { throw new IOException("boom") }
+
+    then:
+    1 * storageService.storeObject("storage", ObjectType.CANARY_RESULT_ARCHIVE, "id", _)
+    registry.counter("canary.archive.retries").count() == 1
+    registry.counter("canary.archive.failures").count() == 0
+  }
+
+  void "a write is given up on after the last attempt"() {
+    when:
+    listener.onApplicationEvent(completed("id"))
+    listener.drain()
+
+    then:
+    3 * storageService.storeObject(*_) >> { throw new IOException("boom") }
+    registry.counter("canary.archive.failures").count() == 1
+  }
+
+  void "runs without a storage account are not archived"() {
+    when:
+    listener.onApplicationEvent(
+      new CanaryExecutionCompletedEvent(this, CanaryExecutionStatusResponse.builder().build()))
+    listener.drain()
+
+    then:
+    0 * storageService.storeObject(*_)
+  }
+
+  private CanaryExecutionCompletedEvent completed(String id) {
+    return new CanaryExecutionCompletedEvent(
+      this,
+      CanaryExecutionStatusResponse.builder().pipelineId(id).storageAccountName("storage").build())
+  }
+}
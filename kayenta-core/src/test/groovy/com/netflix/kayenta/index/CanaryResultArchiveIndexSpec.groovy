@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.index
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.kayenta.canary.CanaryExecutionStatusResponse
+import com.netflix.kayenta.canary.results.CanaryJudgeResult
+import com.netflix.kayenta.canary.results.CanaryJudgeScore
+import com.netflix.kayenta.canary.results.CanaryResult
+import com.netflix.spinnaker.kork.jedis.EmbeddedRedis
+import spock.lang.AutoCleanup
+import spock.lang.Shared
+import spock.lang.Specification
+import spock.lang.Subject
+
+class CanaryResultArchiveIndexSpec extends Specification {
+
+  static String ACCOUNT_NAME = "some-account"
+
+  @Shared
+  @AutoCleanup("destroy")
+  EmbeddedRedis embeddedRedis
+
+  @Subject
+  CanaryResultArchiveIndex index
+
+  def setupSpec() {
+    embeddedRedis = EmbeddedRedis.embed()
+  }
+
+  def setup() {
+    index = new CanaryResultArchiveIndex(embeddedRedis.pool, new ObjectMapper())
+  }
+
+  def cleanup() {
+    embeddedRedis.jedis.withCloseable { it.flushDB() }
+  }
+
+  def "archives are listed by application, latest end time first"() {
+    given:
+    index.index(ACCOUNT_NAME, archive("a1", "app-a", "config-1", 1000, 90d))
+    index.index(ACCOUNT_NAME, archive("b1", "app-b", "config-1", 2000, 80d))
+    index.index(ACCOUNT_NAME, archive("a2", "app-a", "config-2", 3000, 70d))
+
+    expect:
+    ids(query(application: "app-a")) == ["a2", "a1"]
+    ids(query(canaryConfigId: "config-1")) == ["b1", "a1"]
+    ids(query(application: "app-a", canaryConfigId: "config-1")) == ["a1"]
+    ids(query([:])) == ["a2", "b1", "a1"]
+  }
+
+  def "archives are filtered by end time and score"() {
+    given:
+    index.index(ACCOUNT_NAME, archive("a1", "app-a", "config-1", 1000, 90d))
+    index.index(ACCOUNT_NAME, archive("a2", "app-a", "config-1", 2000, 80d))
+    index.index(ACCOUNT_NAME, archive("a3", "app-a", "config-1", 3000, null))
+
+    expect:
+    ids(query(endTimeFromMillis: 2000L)) == ["a3", "a2"]
+    ids(query(endTimeToMillis: 2000L)) == ["a2", "a1"]
+    ids(query(minScore: 85d)) == ["a1"]
+    ids(query(maxScore: 85d)) == ["a2"]
+  }
+
+  def "pages follow each other through the cursor, ties included"() {
+    given:
+    ["a", "b", "c", "d", "e"].each {
+      index.index(ACCOUNT_NAME, archive(it, "app", "config", 1000, 50d))
+    }
+
+    when:
+    def first = index.list(ACCOUNT_NAME, query(limit: 2))
+    def second = index.list(ACCOUNT_NAME, query(limit: 2, cursor: first.nextCursor))
+    def third = index.list(ACCOUNT_NAME, query(limit: 2, cursor: second.nextCursor))
+
+    then:
+    first.summaries*.pipelineId == ["e", "d"]
+    second.summaries*.pipelineId == ["c", "b"]
+    third.summaries*.pipelineId == ["a"]
+    third.nextCursor == null
+  }
+
+  def "an updated archive moves to its new application, and a removed one is gone"() {
+    given:
+    index.index(ACCOUNT_NAME, archive("a1", "app-a", "config-1", 1000, 90d))
+    index.index(ACCOUNT_NAME, archive("a2", "app-a", "config-1", 2000, 90d))
+
+    when:
+    index.index(ACCOUNT_NAME, archive("a1", "app-b", "config-1", 1000, 90d))
+    index.remove(ACCOUNT_NAME, "a2")
+
+    then:
+    ids(query(application: "app-a")) == []
+    ids(query(application: "app-b")) == ["a1"]
+    ids(query([:])) == ["a1"]
+  }
+
+  private List<String> ids(CanaryResultArchiveIndex.Query query) {
+    return index.list(ACCOUNT_NAME, query).summaries*.pipelineId
+  }
+
+  private static CanaryResultArchiveIndex.Query query(Map<String, Object> fields) {
+    def builder = CanaryResultArchiveIndex.Query.builder().limit(20)
+    fields.each { field, value -> builder."$field"(value) }
+    return builder.build()
+  }
+
+  private static CanaryExecutionStatusResponse archive(
+    String id, String application, String canaryConfigId, long endTime, Double score) {
+    CanaryResult result = score == null ? null : CanaryResult.builder()
+      .judgeResult(
+        CanaryJudgeResult.builder().score(CanaryJudgeScore.builder().score(score).build()).build())
+      .build()
+    return CanaryExecutionStatusResponse.builder()
+      .pipelineId(id)
+      .application(application)
+      .canaryConfigId(canaryConfigId)
+      .status("succeeded")
+      .complete(true)
+      .endTimeMillis(endTime)
+      .result(result)
+      .build()
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics
+
+import com.netflix.kayenta.canary.CanaryConfig
+import com.netflix.kayenta.canary.CanaryMetricConfig
+import com.netflix.kayenta.canary.CanaryScope
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spectator.api.Id
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+
+class InstrumentedMetricsServiceSpec extends Specification {
+
+  DefaultRegistry registry = new DefaultRegistry()
+
+  MetricsService delegate = Mock(MetricsService) {
+    getType() >> "test"
+  }
+
+  InstrumentedMetricsService metricsService =
+    new InstrumentedMetricsService(delegate, registry, ConcurrentHashMap.newKeySet(), 2)
+
+  void "queries are timed and sized, with the network activity reported during the query"() {
+    when:
+    metricsService.queryMetrics("account", new CanaryConfig(), metric("cpu"), new CanaryScope())
+
+    then:
+    1 * delegate.queryMetrics(*_) >> {
+      MetricsQueryStats.current().recordRequest(1000, 300)
+      MetricsQueryStats.current().recordRequest(2000, 200)
+      [metricSet(1.0, 2.0, 3.0), metricSet(4.0)]
+    }
+    MetricsQueryStats.current() == null
+
+    def id = fetchId("cpu", "success")
+    registry.distributionSummary(name(id, "requests")).totalAmount() == 2
+    registry.timer(name(id, "networkTime")).totalTime() == 3000
+    registry.distributionSummary(name(id, "series")).totalAmount() == 2
+    registry.timer(name(id, "conversionTime")).count() == 1
+  }
+
+  void "failed queries are recorded too"() {
+    when:
+    metricsService.queryMetrics("account", new CanaryConfig(), metric("cpu"), new CanaryScope())
+
+    then:
+    1 * delegate.queryMetrics(*_) >> { throw new IOException("boom") }
+    thrown(IOException)
+    registry.timer(name(fetchId("cpu", "failure"), "networkTime")).count() == 1
+  }
+
+  void "metric names beyond the limit share one tag value"() {
+    given:
+    delegate.queryMetrics(*_) >> []
+
+    when:
+    ["cpu", "memory", "disk", "cpu"].each {
+      metricsService.queryMetrics("account", new CanaryConfig(), metric(it), new CanaryScope())
+    }
+
+    then:
+    registry.distributionSummary(name(fetchId("cpu", "success"), "series")).count() == 2
+    registry.distributionSummary(name(fetchId("memory", "success"), "series")).count() == 1
+    registry.distributionSummary(name(
+      fetchId(InstrumentedMetricsService.OTHER_METRIC_NAME, "success"), "series")).count() == 1
+  }
+
+  private Id fetchId(String metricName, String outcome) {
+    return registry.createId("canary.telemetry.fetch")
+      .withTag("metricsStore", "test")
+      .withTag("metricsAccount", "account")
+      .withTag("metricName", metricName)
+      .withTag("outcome", outcome)
+  }
+
+  private Id name(Id id, String suffix) {
+    return registry.createId(id.name() + "." + suffix, id.tags())
+  }
+
+  private static CanaryMetricConfig metric(String name) {
+    return CanaryMetricConfig.builder().name(name).build()
+  }
+
+  private static MetricSet metricSet(Double... values) {
+    return MetricSet.builder().name("metric").values(values.toList()).build()
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.util.concurrent.Callable
+
+class MetricDescriptorIndexSpec extends Specification {
+
+  static final List<String> NAMES = [
+    "compute.googleapis.com/instance/cpu/utilization",
+    "compute.googleapis.com/instance/disk/read_bytes_count",
+    "loadbalancing.googleapis.com/https/request_count",
+    "custom.googleapis.com/CPU/Throttled",
+    null
+  ]
+
+  @Unroll
+  void "search for '#filter' matches the same descriptors as a linear scan, in order"() {
+    given:
+    MetricDescriptorIndex<String> index = new MetricDescriptorIndex<>(NAMES, { it })
+
+    expect:
+    index.search(filter) == NAMES.findAll { it?.toLowerCase()?.contains(filter.toLowerCase()) }
+
+    where:
+    filter << ["cpu", "CPU", "count", "googleapis.com/instance", "https/req", "cp", "x", "zzz", "counts"]
+  }
+
+  void "an empty filter matches every descriptor"() {
+    given:
+    MetricDescriptorIndex<String> index = new MetricDescriptorIndex<>(NAMES, { it })
+
+    expect:
+    index.search("") == NAMES
+    index.search(null) == NAMES
+  }
+
+  void "each account is cached separately and keeps its last good descriptors when a refresh fails"() {
+    given:
+    AccountMetricDescriptorsCache<String> cache = new AccountMetricDescriptorsCache<>({ it })
+
+    when:
+    cache.refresh([
+      "account-1": { ["metric_1", "metric_2"] } as Callable,
+      "account-2": { ["other_metric"] } as Callable
+    ], null)
+
+    then:
+    cache.search("account-1", "metric") == ["metric_1", "metric_2"]
+    cache.search("account-2", "metric") == ["other_metric"]
+    cache.search("account-3", "metric") == []
+
+    when:
+    cache.refresh([
+      "account-1": { throw new IOException("boom") } as Callable,
+      "account-2": { [] } as Callable
+    ], null)
+
+    then:
+    cache.search("account-1", "metric") == ["metric_1", "metric_2"]
+    cache.search("account-2", "metric") == ["other_metric"]
+
+    when:
+    cache.refresh(["account-2": { ["other_metric"] } as Callable], null)
+
+    then:
+    cache.search("account-1", "metric") == []
+  }
+}
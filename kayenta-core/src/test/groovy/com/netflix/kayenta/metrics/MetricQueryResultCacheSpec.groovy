@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics
+
+import com.netflix.kayenta.canary.CanaryConfig
+import com.netflix.kayenta.canary.CanaryMetricConfig
+import com.netflix.kayenta.canary.CanaryScope
+import com.netflix.kayenta.storage.ObjectType
+import com.netflix.kayenta.storage.StorageService
+import com.netflix.kayenta.storage.StorageServiceRepository
+import com.netflix.spectator.api.DefaultRegistry
+import spock.lang.Specification
+
+import java.time.Clock
+import java.time.Duration
+import java.time.Instant
+import java.time.ZoneOffset
+
+class MetricQueryResultCacheSpec extends Specification {
+
+  static final Instant NOW = Instant.parse("2020-01-01T12:00:00Z")
+
+  CanaryConfig canaryConfig =
+    CanaryConfig.builder().metric(CanaryMetricConfig.builder().name("cpu").build()).build()
+
+  MetricsService metricsService = Mock(MetricsService) {
+    getType() >> "test"
+    buildQuery(*_) >> "avg(cpu)"
+  }
+
+  MetricQueryResultCache resultCache = new MetricQueryResultCache(
+    new MetricQueryResultCacheProperties(enabled: true, redisEnabled: false),
+    null,
+    Clock.fixed(NOW, ZoneOffset.UTC))
+
+  void "an identical query reuses the stored metric set list"() {
+    given:
+    StorageService storageService = Mock(StorageService)
+    SynchronousQueryProcessor processor = new SynchronousQueryProcessor(
+      Stub(MetricsServiceRepository) { getRequiredOne("metrics") >> metricsService },
+      Stub(StorageServiceRepository) { getRequiredOne("storage") >> storageService },
+      new DefaultRegistry(),
+      new MetricsRetryConfigurationProperties(),
+      resultCache,
+      null,
+      null)
+    CanaryScope scope = scopeEndingAgo(Duration.ofHours(1))
+
+    when:
+    String first = processor.executeQuery("metrics", "storage", canaryConfig, 0, scope)
+    String second = processor.executeQuery("metrics", "storage", canaryConfig, 0, scope)
+
+    then:
+    1 * metricsService.queryMetrics("metrics", canaryConfig, _, scope) >> []
+    1 * storageService.storeObject("storage", ObjectType.METRIC_SET_LIST, first, [])
+    second == first
+  }
+
+  void "queries differing in window or step get different keys"() {
+    expect:
+    key(scopeEndingAgo(Duration.ofHours(1))) == key(scopeEndingAgo(Duration.ofHours(1)))
+    key(scopeEndingAgo(Duration.ofHours(1))) != key(scopeEndingAgo(Duration.ofHours(2)))
+    key(scopeEndingAgo(Duration.ofHours(1), 60)) != key(scopeEndingAgo(Duration.ofHours(1), 300))
+  }
+
+  void "windows ending too close to now are not cached"() {
+    expect:
+    key(scopeEndingAgo(Duration.ofMinutes(5))) == null
+    key(scopeEndingAgo(Duration.ofMinutes(15))) != null
+  }
+
+  void "queries of metrics services that cannot describe them are not cached"() {
+    given:
+    MetricsService undescribed = Stub(MetricsService) {
+      buildQuery(*_) >> MetricsService.BUILD_QUERY_NOT_IMPLEMENTED + " for Undescribed."
+    }
+
+    expect:
+    resultCache.getKey(
+      undescribed, "metrics", "storage", canaryConfig, canaryConfig.metrics[0],
+      scopeEndingAgo(Duration.ofHours(1))) == null
+  }
+
+  private String key(CanaryScope scope) {
+    return resultCache.getKey(
+      metricsService, "metrics", "storage", canaryConfig, canaryConfig.metrics[0], scope)
+  }
+
+  private static CanaryScope scopeEndingAgo(Duration age, long step = 60) {
+    Instant end = NOW - age
+    return new CanaryScope("scope", "location", end - Duration.ofHours(1), end, step, null)
+  }
+}
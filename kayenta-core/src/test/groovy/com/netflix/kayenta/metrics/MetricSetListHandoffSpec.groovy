@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics
+
+import com.netflix.kayenta.storage.ObjectType
+import com.netflix.kayenta.storage.StorageService
+import com.netflix.spectator.api.DefaultRegistry
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.netflix.kayenta.metrics.MetricSetListHandoffProperties.StorageWrite.ASYNCHRONOUS
+import static com.netflix.kayenta.metrics.MetricSetListHandoffProperties.StorageWrite.SYNCHRONOUS
+
+class MetricSetListHandoffSpec extends Specification {
+
+  List<MetricSet> metricSetList = [MetricSet.builder().name("cpu").values([1d]).build()]
+
+  StorageService storageService = Mock(StorageService)
+
+  AtomicInteger storedCalls = new AtomicInteger()
+
+  Runnable onStored = { storedCalls.incrementAndGet() }
+
+  void "a disabled handoff only stores the list"() {
+    given:
+    MetricSetListHandoff handoff = handoff(new MetricSetListHandoffProperties())
+
+    when:
+    handoff.store(storageService, "storage", "id", metricSetList, false, onStored)
+
+    then:
+    1 * storageService.storeObject("storage", ObjectType.METRIC_SET_LIST, "id", metricSetList)
+    storedCalls.get() == 1
+    handoff.get("id") == null
+    !handoff.mayBeUnstored()
+  }
+
+  void "a synchronous handoff stores the list and keeps it for the mixer until released"() {
+    given:
+    MetricSetListHandoff handoff =
+      handoff(new MetricSetListHandoffProperties(enabled: true, storageWrite: SYNCHRONOUS))
+
+    when:
+    handoff.store(storageService, "storage", "id", metricSetList, false, onStored)
+
+    then:
+    1 * storageService.storeObject("storage", ObjectType.METRIC_SET_LIST, "id", metricSetList)
+    storedCalls.get() == 1
+    handoff.get("id") == metricSetList
+    !handoff.mayBeUnstored()
+
+    when:
+    handoff.release(["id"])
+
+    then:
+    handoff.get("id") == null
+  }
+
+  void "a synchronous write failure is thrown to the fetch task"() {
+    given:
+    MetricSetListHandoff handoff =
+      handoff(new MetricSetListHandoffProperties(enabled: true, storageWrite: SYNCHRONOUS))
+    storageService.storeObject(*_) >> { throw new IllegalStateException("unavailable") }
+
+    when:
+    handoff.store(storageService, "storage", "id", metricSetList, false, onStored)
+
+    then:
+    thrown(IllegalStateException)
+    storedCalls.get() == 0
+  }
+
+  void "an asynchronous handoff keeps the list before it is stored"() {
+    given:
+    MetricSetListHandoff handoff =
+      handoff(new MetricSetListHandoffProperties(enabled: true, storageWrite: ASYNCHRONOUS))
+    CountDownLatch stored = new CountDownLatch(1)
+
+    when:
+    handoff.store(
+      storageService, "storage", "id", metricSetList, false, { stored.countDown() } as Runnable)
+
+    then:
+    handoff.get("id") == metricSetList
+    handoff.mayBeUnstored()
+    stored.await(5, TimeUnit.SECONDS)
+  }
+
+  void "an asynchronous write failure never reports the list stored"() {
+    given:
+    MetricSetListHandoff handoff =
+      handoff(new MetricSetListHandoffProperties(enabled: true, storageWrite: ASYNCHRONOUS))
+    CountDownLatch attempted = new CountDownLatch(1)
+    storageService.storeObject(*_) >> {
+      attempted.countDown()
+      throw new IllegalStateException("unavailable")
+    }
+
+    when:
+    handoff.store(storageService, "storage", "id", metricSetList, false, onStored)
+    attempted.await(5, TimeUnit.SECONDS)
+    handoff.drain()
+
+    then:
+    storedCalls.get() == 0
+    handoff.get("id") == metricSetList
+  }
+
+  void "a write that doesn't fit in the queue is made, and fails, on the fetch thread"() {
+    given:
+    MetricSetListHandoff handoff =
+      handoff(
+        new MetricSetListHandoffProperties(
+          enabled: true, storageWrite: ASYNCHRONOUS, writeThreads: 1, writeQueueCapacity: 1))
+    CountDownLatch blocked = new CountDownLatch(1)
+    CountDownLatch release = new CountDownLatch(1)
+    storageService.storeObject("storage", ObjectType.METRIC_SET_LIST, "slow", _) >> {
+      blocked.countDown()
+      release.await(5, TimeUnit.SECONDS)
+    }
+    storageService.storeObject("storage", ObjectType.METRIC_SET_LIST, "overflow", _) >> {
+      throw new IllegalStateException("unavailable")
+    }
+
+    when:
+    handoff.store(storageService, "storage", "slow", metricSetList, false, {} as Runnable)
+    blocked.await(5, TimeUnit.SECONDS)
+    handoff.store(storageService, "storage", "queued", metricSetList, false, {} as Runnable)
+    handoff.store(storageService, "storage", "overflow", metricSetList, false, onStored)
+
+    then:
+    thrown(IllegalStateException)
+    storedCalls.get() == 0
+
+    cleanup:
+    release.countDown()
+  }
+
+  void "the lists of ad-hoc canary runs can be kept from the object store"() {
+    given:
+    MetricSetListHandoff handoff =
+      handoff(new MetricSetListHandoffProperties(enabled: true, skipStorageForAdHocCanaries: true))
+
+    when:
+    handoff.store(storageService, "storage", "id", metricSetList, adHocCanary, onStored)
+
+    then:
+    storeCalls * storageService.storeObject(*_)
+    storedCalls.get() == storeCalls
+    handoff.get("id") == metricSetList
+
+    where:
+    adHocCanary || storeCalls
+    true        || 0
+    false       || 1
+  }
+
+  void "lists kept from the object store outnumbering maxEntries stay until released"() {
+    given:
+    MetricSetListHandoff handoff =
+      handoff(
+        new MetricSetListHandoffProperties(
+          enabled: true, skipStorageForAdHocCanaries: true, maxEntries: 2))
+    List<String> ids = (1..5).collect { "id-$it" as String }
+
+    when:
+    ids.each { handoff.store(storageService, "storage", it, metricSetList, true, onStored) }
+
+    then:
+    0 * storageService.storeObject(*_)
+    ids.every { handoff.get(it) == metricSetList }
+
+    when:
+    handoff.release(ids)
+
+    then:
+    ids.every { handoff.get(it) == null }
+  }
+
+  void "stored lists outnumbering maxEntries are evicted"() {
+    given:
+    MetricSetListHandoff handoff =
+      handoff(new MetricSetListHandoffProperties(enabled: true, maxEntries: 2))
+    List<String> ids = (1..5).collect { "id-$it" as String }
+
+    when:
+    ids.each { handoff.store(storageService, "storage", it, metricSetList, false, onStored) }
+
+    then:
+    ids.count { handoff.get(it) != null } <= 2
+  }
+
+  private static MetricSetListHandoff handoff(MetricSetListHandoffProperties properties) {
+    return new MetricSetListHandoff(properties, new DefaultRegistry())
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics
+
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spectator.api.ManualClock
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+import static com.netflix.kayenta.metrics.MetricsCircuitBreakers.State.CLOSED
+import static com.netflix.kayenta.metrics.MetricsCircuitBreakers.State.HALF_OPEN
+import static com.netflix.kayenta.metrics.MetricsCircuitBreakers.State.OPEN
+
+class MetricsCircuitBreakersSpec extends Specification {
+
+  ManualClock clock = new ManualClock()
+
+  DefaultRegistry registry = new DefaultRegistry(clock)
+
+  MetricsCircuitBreakerConfigurationProperties configuration =
+    new MetricsCircuitBreakerConfigurationProperties(
+      maxConcurrentQueries: 2,
+      slidingWindowSize: 4,
+      minimumQueries: 4,
+      failureRateThreshold: 0.5,
+      openDurationMs: 1000,
+      halfOpenQueries: 1)
+
+  MetricsCircuitBreakers circuitBreakers = new MetricsCircuitBreakers(configuration, registry)
+
+  void "the bulkhead rejects queries beyond the account's concurrency limit"() {
+    given:
+    def first = circuitBreakers.acquire("slow")
+    circuitBreakers.acquire("slow")
+
+    when:
+    circuitBreakers.acquire("slow")
+
+    then:
+    thrown(MetricsAccountUnavailableException)
+    rejected("slow", "bulkheadFull") == 1
+
+    when: "other accounts are unaffected, and released slots are reused"
+    circuitBreakers.acquire("other")
+    first.release()
+    circuitBreakers.acquire("slow")
+
+    then:
+    notThrown(MetricsAccountUnavailableException)
+  }
+
+  void "the breaker opens once the failure rate reaches the threshold"() {
+    when:
+    query("flaky", false)
+    query("flaky", true)
+    query("flaky", false)
+
+    then:
+    circuitBreakers.getState("flaky") == CLOSED
+
+    when:
+    query("flaky", true)
+
+    then:
+    circuitBreakers.getState("flaky") == OPEN
+
+    when:
+    circuitBreakers.acquire("flaky")
+
+    then:
+    thrown(MetricsAccountUnavailableException)
+    rejected("flaky", "circuitOpen") == 1
+  }
+
+  void "an open breaker closes after a successful trial query and reopens after a failed one"() {
+    given:
+    4.times { query("flaky", false) }
+
+    when:
+    clock.setMonotonicTime(TimeUnit.SECONDS.toNanos(1))
+    def trial = circuitBreakers.acquire("flaky")
+
+    then:
+    circuitBreakers.getState("flaky") == HALF_OPEN
+
+    when: "only one trial query is let through at a time"
+    circuitBreakers.acquire("flaky")
+
+    then:
+    thrown(MetricsAccountUnavailableException)
+
+    when:
+    trial.recordFailure()
+    trial.release()
+
+    then:
+    circuitBreakers.getState("flaky") == OPEN
+
+    when:
+    clock.setMonotonicTime(TimeUnit.SECONDS.toNanos(2))
+    query("flaky", true)
+
+    then:
+    circuitBreakers.getState("flaky") == CLOSED
+  }
+
+  void "outcomes of queries admitted before the breaker opened are ignored"() {
+    given:
+    def late = circuitBreakers.acquire("flaky")
+    4.times { query("flaky", false) }
+    clock.setMonotonicTime(TimeUnit.SECONDS.toNanos(1))
+    def trial = circuitBreakers.acquire("flaky")
+
+    when:
+    late.recordFailure()
+    late.release()
+
+    then:
+    circuitBreakers.getState("flaky") == HALF_OPEN
+
+    when:
+    trial.recordSuccess()
+    trial.release()
+
+    then:
+    circuitBreakers.getState("flaky") == CLOSED
+  }
+
+  void "disabled guards admit every query"() {
+    given:
+    configuration.enabled = false
+
+    when:
+    10.times { circuitBreakers.acquire("slow") }
+
+    then:
+    notThrown(MetricsAccountUnavailableException)
+  }
+
+  private void query(String metricsAccountName, boolean success) {
+    def permit = circuitBreakers.acquire(metricsAccountName)
+    success ? permit.recordSuccess() : permit.recordFailure()
+    permit.release()
+  }
+
+  private long rejected(String metricsAccountName, String reason) {
+    return registry.counter(
+      "canary.telemetry.query.rejected", "metricsAccount", metricsAccountName, "reason", reason)
+      .count()
+  }
+}
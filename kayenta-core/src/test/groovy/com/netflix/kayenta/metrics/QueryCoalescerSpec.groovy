@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics
+
+import spock.lang.Specification
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class QueryCoalescerSpec extends Specification {
+
+  static final long WINDOW_MS = 60_000
+
+  List<String> sentRequests = new CopyOnWriteArrayList<>()
+  CountDownLatch firstQuerySent = new CountDownLatch(1)
+  CountDownLatch firstQueryAnswered = new CountDownLatch(1)
+  boolean splittable = true
+
+  // Answers each query with its upper-cased self, holding the query "first" until released.
+  String send(String key, String query) {
+    sentRequests << query
+
+    if (query == "first") {
+      firstQuerySent.countDown()
+      firstQueryAnswered.await()
+    }
+
+    query.toUpperCase()
+  }
+
+  QueryCoalescer<String, String, String> coalescer(int maxQueriesPerRequest) {
+    new QueryCoalescer<String, String, String>(
+      WINDOW_MS,
+      maxQueriesPerRequest,
+      { String key, String query -> send(key, query) },
+      { String key, List<String> queries -> send(key, queries.join(",")) },
+      { String merged, Integer count -> splittable ? merged.split(",") as List : null })
+  }
+
+  void "a query with nothing else pending is sent without waiting for the window"() {
+    given:
+    def coalescer = coalescer(10)
+    firstQueryAnswered.countDown()
+
+    when:
+    def result = CompletableFuture.supplyAsync {
+      coalescer.query("range", "first")
+    }.get(5, TimeUnit.SECONDS)
+
+    then:
+    result == "FIRST"
+    sentRequests == ["first"]
+  }
+
+  void "queries made while another is in flight are sent together"() {
+    given:
+    def coalescer = coalescer(2)
+
+    when:
+    def first = CompletableFuture.supplyAsync { coalescer.query("range", "first") }
+    firstQuerySent.await(5, TimeUnit.SECONDS)
+    def second = CompletableFuture.supplyAsync { coalescer.query("range", "second") }
+    def third = CompletableFuture.supplyAsync { coalescer.query("range", "third") }
+    def results = [second.get(5, TimeUnit.SECONDS), third.get(5, TimeUnit.SECONDS)]
+    firstQueryAnswered.countDown()
+
+    then:
+    first.get(5, TimeUnit.SECONDS) == "FIRST"
+    results == ["SECOND", "THIRD"]
+    sentRequests[0] == "first"
+    sentRequests[1] in ["second,third", "third,second"]
+    sentRequests.size() == 2
+  }
+
+  void "queries with different keys are not sent together"() {
+    given:
+    def coalescer = coalescer(2)
+
+    when:
+    def first = CompletableFuture.supplyAsync { coalescer.query("range", "first") }
+    firstQuerySent.await(5, TimeUnit.SECONDS)
+    def other = coalescer.query("other-range", "other")
+    firstQueryAnswered.countDown()
+
+    then:
+    first.get(5, TimeUnit.SECONDS) == "FIRST"
+    other == "OTHER"
+    sentRequests == ["first", "other"]
+  }
+
+  void "every query is sent on its own when the merged response cannot be split"() {
+    given:
+    def coalescer = coalescer(2)
+    splittable = false
+
+    when:
+    def first = CompletableFuture.supplyAsync { coalescer.query("range", "first") }
+    firstQuerySent.await(5, TimeUnit.SECONDS)
+    def second = CompletableFuture.supplyAsync { coalescer.query("range", "second") }
+    def third = CompletableFuture.supplyAsync { coalescer.query("range", "third") }
+    def results = [second.get(5, TimeUnit.SECONDS), third.get(5, TimeUnit.SECONDS)]
+    firstQueryAnswered.countDown()
+
+    then:
+    first.get(5, TimeUnit.SECONDS) == "FIRST"
+    results == ["SECOND", "THIRD"]
+    sentRequests.size() == 4
+    sentRequests.containsAll(["second", "third"])
+  }
+}
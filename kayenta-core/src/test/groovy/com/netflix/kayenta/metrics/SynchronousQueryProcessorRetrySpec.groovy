@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics
+
+import com.netflix.kayenta.canary.CanaryConfig
+import com.netflix.kayenta.canary.CanaryMetricConfig
+import com.netflix.kayenta.canary.CanaryScope
+import com.netflix.kayenta.storage.StorageService
+import com.netflix.kayenta.storage.StorageServiceRepository
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus
+import spock.lang.Specification
+
+import static com.netflix.kayenta.metrics.SynchronousQueryProcessor.RETRIES_KEY
+import static com.netflix.kayenta.metrics.SynchronousQueryProcessor.RETRY_BACKOFF_PERIOD_KEY
+
+class SynchronousQueryProcessorRetrySpec extends Specification {
+
+  CanaryConfig canaryConfig =
+    CanaryConfig.builder().metric(CanaryMetricConfig.builder().name("cpu").build()).build()
+
+  MetricsService metricsService = Mock(MetricsService)
+
+  MetricsRetryConfigurationProperties retryConfiguration =
+    new MetricsRetryConfigurationProperties(attempts: 3, backoffPeriodMultiplierMs: 1000)
+
+  SynchronousQueryProcessor processor = new SynchronousQueryProcessor(
+    Stub(MetricsServiceRepository) { getRequiredOne("metrics") >> metricsService },
+    Stub(StorageServiceRepository) { getRequiredOne("storage") >> Mock(StorageService) },
+    new DefaultRegistry(),
+    retryConfiguration,
+    null,
+    null,
+    null)
+
+  void "a failed attempt leaves the task running with a jittered backoff instead of sleeping"() {
+    when:
+    def result = processor.executeQueryAndProduceTaskResult(
+      "metrics", "storage", canaryConfig, 0, new CanaryScope(), [(RETRIES_KEY): 1])
+
+    then:
+    1 * metricsService.queryMetrics(*_) >> { throw new IOException("boom") }
+    result.status == ExecutionStatus.RUNNING
+    result.context[RETRIES_KEY] == 2
+    result.context[RETRY_BACKOFF_PERIOD_KEY] > 1000
+    result.context[RETRY_BACKOFF_PERIOD_KEY] <= 2000
+  }
+
+  void "the last attempt's failure fails the task"() {
+    when:
+    processor.executeQueryAndProduceTaskResult(
+      "metrics", "storage", canaryConfig, 0, new CanaryScope(), [(RETRIES_KEY): 2])
+
+    then:
+    1 * metricsService.queryMetrics(*_) >> { throw new IOException("boom") }
+    RuntimeException e = thrown()
+    e.cause instanceof IOException
+  }
+
+  void "an account that exhausted its retry budget stops retrying"() {
+    given:
+    retryConfiguration.retryBudgetMaxTokens = 4
+
+    when:
+    def results = (1..3).collect {
+      try {
+        processor.executeQueryAndProduceTaskResult(
+          "metrics", "storage", canaryConfig, 0, new CanaryScope(), [:]).status
+      } catch (RuntimeException e) {
+        "failed"
+      }
+    }
+
+    then:
+    3 * metricsService.queryMetrics(*_) >> { throw new IOException("boom") }
+    results == [ExecutionStatus.RUNNING, "failed", "failed"]
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics.orca
+
+import com.netflix.kayenta.canary.CanaryConfig
+import com.netflix.kayenta.canary.CanaryMetricConfig
+import com.netflix.kayenta.canary.CanaryScope
+import com.netflix.kayenta.metrics.MetricsRetryConfigurationProperties
+import com.netflix.kayenta.metrics.MetricsService
+import com.netflix.kayenta.metrics.MetricsServiceRepository
+import com.netflix.kayenta.metrics.SynchronousQueryProcessor
+import com.netflix.kayenta.storage.StorageService
+import com.netflix.kayenta.storage.StorageServiceRepository
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.orca.api.pipeline.TaskResult
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus
+import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.annotation.Nonnull
+import java.time.Duration
+
+class MetricFetchTaskSpec extends Specification {
+
+  CanaryConfig canaryConfig =
+    CanaryConfig.builder().metric(CanaryMetricConfig.builder().name("cpu").build()).build()
+
+  MetricsService metricsService = Stub(MetricsService) {
+    queryMetrics(*_) >> { throw new IOException("boom") }
+  }
+
+  @Unroll
+  void "every one of #attempts attempts fits inside the task's timeout"() {
+    given:
+    // Without jitter every backoff is as long as it can be.
+    def retryConfiguration = new MetricsRetryConfigurationProperties(
+      attempts: attempts, backoffPeriodMultiplierMs: backoffPeriodMultiplierMs, backoffJitter: 0)
+    def task = new TestMetricFetchTask(processor(retryConfiguration))
+    Map<String, Object> context = [:]
+    long elapsed = 0
+    int attemptsMade = 0
+
+    when:
+    while (true) {
+      attemptsMade++
+      // Each attempt takes as long as an attempt may.
+      elapsed += task.attemptTimeout
+
+      try {
+        TaskResult result = task.processor.executeQueryAndProduceTaskResult(
+          "metrics", "storage", canaryConfig, 0, new CanaryScope(), context)
+        context.putAll(result.context)
+      } catch (RuntimeException e) {
+        break
+      }
+
+      elapsed += context[SynchronousQueryProcessor.RETRY_BACKOFF_PERIOD_KEY] as long
+    }
+
+    then:
+    attemptsMade == attempts
+    elapsed <= task.timeout
+
+    where:
+    attempts | backoffPeriodMultiplierMs
+    1        | 1000
+    3        | 1000
+    10       | 1000
+    10       | 5000
+  }
+
+  void "the default retry configuration outlasts the old two minute timeout"() {
+    given:
+    def task = new TestMetricFetchTask(processor(new MetricsRetryConfigurationProperties()))
+
+    expect:
+    // 10 attempts of up to 2 minutes each, with 1 + 2 + ... + 256 seconds of backoff between them.
+    task.timeout == Duration.ofMinutes(20).plusSeconds(511).toMillis()
+  }
+
+  private SynchronousQueryProcessor processor(
+    MetricsRetryConfigurationProperties retryConfiguration) {
+    new SynchronousQueryProcessor(
+      Stub(MetricsServiceRepository) { getRequiredOne("metrics") >> metricsService },
+      Stub(StorageServiceRepository) { getRequiredOne("storage") >> Mock(StorageService) },
+      new DefaultRegistry(),
+      retryConfiguration,
+      null,
+      null,
+      null)
+  }
+
+  static class TestMetricFetchTask implements MetricFetchTask {
+
+    final SynchronousQueryProcessor processor
+
+    TestMetricFetchTask(SynchronousQueryProcessor processor) {
+      this.processor = processor
+    }
+
+    @Override
+    SynchronousQueryProcessor getSynchronousQueryProcessor() {
+      processor
+    }
+
+    @Override
+    long getBackoffPeriod() {
+      Duration.ofSeconds(2).toMillis()
+    }
+
+    @Nonnull
+    @Override
+    TaskResult execute(@Nonnull StageExecution stage) {
+      TaskResult.ofStatus(ExecutionStatus.SUCCEEDED)
+    }
+  }
+}
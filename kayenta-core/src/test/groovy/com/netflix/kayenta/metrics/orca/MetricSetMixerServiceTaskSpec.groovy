@@ -0,0 +1,150 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.metrics.orca
+
+import com.netflix.kayenta.canary.CanaryConfig
+import com.netflix.kayenta.canary.ExecutionMapper
+import com.netflix.kayenta.canary.orca.CanaryStageNames
+import com.netflix.kayenta.metrics.MetricSet
+import com.netflix.kayenta.metrics.MetricSetListHandoff
+import com.netflix.kayenta.metrics.MetricSetListHandoffProperties
+import com.netflix.kayenta.metrics.MetricSetMixerService
+import com.netflix.kayenta.security.AccountCredentials
+import com.netflix.kayenta.security.AccountCredentialsRepository
+import com.netflix.kayenta.storage.ObjectType
+import com.netflix.kayenta.storage.StorageIoConfigurationProperties
+import com.netflix.kayenta.storage.StorageIoExecutors
+import com.netflix.kayenta.storage.StorageService
+import com.netflix.kayenta.storage.StorageServiceRepository
+import com.netflix.spectator.api.DefaultRegistry
+import com.netflix.spinnaker.kork.web.exceptions.NotFoundException
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionType
+import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution
+import com.netflix.spinnaker.orca.pipeline.model.PipelineExecutionImpl
+import com.netflix.spinnaker.orca.pipeline.model.StageExecutionImpl
+import spock.lang.Specification
+
+import static com.netflix.kayenta.metrics.MetricSetListHandoffProperties.StorageWrite.ASYNCHRONOUS
+import static com.netflix.kayenta.metrics.MetricSetListHandoffProperties.StorageWrite.SYNCHRONOUS
+
+class MetricSetMixerServiceTaskSpec extends Specification {
+
+  List<MetricSet> controlList = [MetricSet.builder().name("cpu").values([1d]).build()]
+
+  List<MetricSet> experimentList = [MetricSet.builder().name("cpu").values([2d]).build()]
+
+  StorageService storageService = Mock(StorageService)
+
+  MetricSetMixerService metricSetMixerService = Mock(MetricSetMixerService)
+
+  StorageIoExecutors storageIoExecutors =
+    new StorageIoExecutors(new StorageIoConfigurationProperties())
+
+  void cleanup() {
+    storageIoExecutors.shutdown()
+  }
+
+  void "lists handed off in this instance aren't loaded from the object store"() {
+    given:
+    MetricSetListHandoff handoff = handoff(SYNCHRONOUS)
+    handoff.store(storageService, "storage", "control", controlList, false, {} as Runnable)
+
+    when:
+    def result = task(handoff).execute(mixStage())
+
+    then:
+    1 * storageService.loadObjects("storage", ObjectType.METRIC_SET_LIST, ["experiment"], _) >>
+      [experiment: experimentList]
+    1 * metricSetMixerService.mixAll(_, controlList, experimentList) >> []
+    result.status == ExecutionStatus.SUCCEEDED
+    result.outputs.metricSetPairListId != null
+
+    and: "the handed off list is released once mixed"
+    handoff.get("control") == null
+  }
+
+  void "a missing list that may not be stored yet leaves the task running"() {
+    given:
+    MetricSetListHandoff handoff = handoff(ASYNCHRONOUS)
+
+    when:
+    def result = task(handoff).execute(mixStage())
+
+    then:
+    1 * storageService.loadObjects("storage", ObjectType.METRIC_SET_LIST, _, _) >>
+      [control: controlList]
+    0 * metricSetMixerService.mixAll(*_)
+    0 * storageService.storeObject(*_)
+    result.status == ExecutionStatus.RUNNING
+  }
+
+  void "a missing list fails the task when every list is stored before the fetch completes"() {
+    given:
+    MetricSetListHandoff handoff = handoff(SYNCHRONOUS)
+
+    when:
+    task(handoff).execute(mixStage())
+
+    then:
+    1 * storageService.loadObjects("storage", ObjectType.METRIC_SET_LIST, _, _) >>
+      [control: controlList]
+    thrown(NotFoundException)
+  }
+
+  private MetricSetListHandoff handoff(MetricSetListHandoffProperties.StorageWrite storageWrite) {
+    return new MetricSetListHandoff(
+      new MetricSetListHandoffProperties(enabled: true, storageWrite: storageWrite),
+      new DefaultRegistry())
+  }
+
+  private MetricSetMixerServiceTask task(MetricSetListHandoff handoff) {
+    AccountCredentials credentials = Stub(AccountCredentials) { getName() >> "storage" }
+    return new MetricSetMixerServiceTask(
+      Stub(AccountCredentialsRepository) {
+        getRequiredOneBy("storage", AccountCredentials.Type.OBJECT_STORE) >> credentials
+      },
+      Stub(StorageServiceRepository) { getRequiredOne("storage") >> storageService },
+      metricSetMixerService,
+      Stub(ExecutionMapper) { getCanaryConfig(_) >> CanaryConfig.builder().build() },
+      storageIoExecutors,
+      handoff)
+  }
+
+  private static StageExecution mixStage() {
+    def execution = new PipelineExecutionImpl(ExecutionType.PIPELINE, "canary", "app")
+    def fetchControl = new StageExecutionImpl(execution, "fetch", "Fetch Control", [:])
+    fetchControl.refId = CanaryStageNames.REFID_FETCH_CONTROL_PREFIX + 0
+    fetchControl.outputs.metricSetListId = "control"
+    def fetchExperiment = new StageExecutionImpl(execution, "fetch", "Fetch Experiment", [:])
+    fetchExperiment.refId = CanaryStageNames.REFID_FETCH_EXPERIMENT_PREFIX + 0
+    fetchExperiment.outputs.metricSetListId = "experiment"
+    def mix =
+      new StageExecutionImpl(
+        execution,
+        "metricSetMixer",
+        "Mix Control and Experiment Results",
+        [
+          storageAccountName   : "storage",
+          controlRefidPrefix   : CanaryStageNames.REFID_FETCH_CONTROL_PREFIX,
+          experimentRefidPrefix: CanaryStageNames.REFID_FETCH_EXPERIMENT_PREFIX
+        ])
+    mix.refId = CanaryStageNames.REFID_MIX_METRICS
+    execution.stages.addAll([fetchControl, fetchExperiment, mix])
+    return mix
+  }
+}
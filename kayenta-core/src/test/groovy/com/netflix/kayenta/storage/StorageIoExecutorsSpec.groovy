@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.storage
+
+import java.util.concurrent.ThreadPoolExecutor
+import spock.lang.Specification
+
+class StorageIoExecutorsSpec extends Specification {
+
+  StorageIoExecutors executors = new StorageIoExecutors(
+    new StorageIoConfigurationProperties(defaultParallelism: 4, accountParallelism: [big: 32]))
+
+  def cleanup() {
+    executors.shutdown()
+  }
+
+  def "each account gets one executor sized by its parallelism"() {
+    expect:
+    executors.getExecutor("big").is(executors.getExecutor("big"))
+    ((ThreadPoolExecutor) executors.getExecutor("big")).maximumPoolSize == 32
+    ((ThreadPoolExecutor) executors.getExecutor("other")).maximumPoolSize == 4
+  }
+
+  def "loads through an account's executor keep the order of the keys"() {
+    given:
+    StorageServiceBatchSpec.MapStorageService storageService = new StorageServiceBatchSpec.MapStorageService()
+    List<String> keys = (1..50).collect { "id$it".toString() }
+    keys.each { storageService.storeObject("account", ObjectType.METRIC_SET_LIST, it, [it]) }
+
+    when:
+    Map<String, List<String>> loaded = storageService.loadObjects(
+      "account", ObjectType.METRIC_SET_LIST, keys.reverse(), executors.getExecutor("account"))
+
+    then:
+    loaded.keySet().toList() == keys.reverse()
+  }
+}
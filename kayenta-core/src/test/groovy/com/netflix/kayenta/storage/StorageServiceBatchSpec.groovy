@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.storage
+
+import com.netflix.spinnaker.kork.web.exceptions.NotFoundException
+import java.util.concurrent.ConcurrentHashMap
+import spock.lang.Specification
+
+class StorageServiceBatchSpec extends Specification {
+
+  MapStorageService storageService = new MapStorageService()
+
+  def "loadObjects returns the objects that exist in the order of their keys"() {
+    given:
+    (1..20).each { storageService.storeObject("account", ObjectType.METRIC_SET_LIST, "id$it", [it]) }
+
+    when:
+    Map<String, List<Integer>> loaded =
+      storageService.loadObjects("account", ObjectType.METRIC_SET_LIST, ["id20", "missing", "id3", "id11"])
+
+    then:
+    loaded.keySet().toList() == ["id20", "id3", "id11"]
+    loaded.values().toList() == [[20], [3], [11]]
+  }
+
+  def "a failure other than a missing object fails the batch"() {
+    given:
+    storageService.storeObject("account", ObjectType.METRIC_SET_LIST, "id1", [1])
+    storageService.failingKey = "id2"
+
+    when:
+    storageService.loadObjects("account", ObjectType.METRIC_SET_LIST, ["id1", "id2", "id3"])
+
+    then:
+    IllegalStateException e = thrown()
+    e.message == "boom id2"
+  }
+
+  def "storeObjects and deleteObjects apply to every object"() {
+    when:
+    storageService.storeObjects("account", ObjectType.METRIC_SET_LIST, [a: [1], b: [2], c: [3]])
+
+    then:
+    storageService.objects.keySet() == ["a", "b", "c"] as Set
+
+    when:
+    storageService.deleteObjects("account", ObjectType.METRIC_SET_LIST, ["a", "c"])
+
+    then:
+    storageService.objects.keySet() == ["b"] as Set
+  }
+
+  static class MapStorageService implements StorageService {
+
+    Map<String, Object> objects = new ConcurrentHashMap<>()
+    String failingKey
+
+    @Override
+    boolean servicesAccount(String accountName) {
+      return true
+    }
+
+    @Override
+    def <T> T loadObject(String accountName, ObjectType objectType, String objectKey) {
+      if (objectKey == failingKey) {
+        throw new IllegalStateException("boom $objectKey")
+      }
+      if (!objects.containsKey(objectKey)) {
+        throw new NotFoundException("No such object named $objectKey")
+      }
+      return (T) objects[objectKey]
+    }
+
+    @Override
+    def <T> void storeObject(String accountName, ObjectType objectType, String objectKey, T obj, String filename, boolean isAnUpdate) {
+      objects[objectKey] = obj
+    }
+
+    @Override
+    void deleteObject(String accountName, ObjectType objectType, String objectKey) {
+      objects.remove(objectKey)
+    }
+
+    @Override
+    List<Map<String, Object>> listObjectKeys(String accountName, ObjectType objectType, List<String> applications, boolean skipIndex) {
+      return []
+    }
+  }
+}
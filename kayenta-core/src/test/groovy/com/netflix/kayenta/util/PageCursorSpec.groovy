@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.util
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class PageCursorSpec extends Specification {
+
+  void "a cursor survives encoding, ids with colons included"() {
+    given:
+    def cursor = new PageCursor(1600000000000L, "01E:abc")
+
+    expect:
+    PageCursor.decode(cursor.encode()) == cursor
+  }
+
+  @Unroll
+  void "'#encoded' is not a cursor"() {
+    when:
+    PageCursor.decode(encoded)
+
+    then:
+    thrown(IllegalArgumentException)
+
+    where:
+    encoded << ["not base64!", Base64.urlEncoder.encodeToString("no-separator".bytes),
+                Base64.urlEncoder.encodeToString("soon:id".bytes)]
+  }
+
+  @Unroll
+  void "an entry at #time with id #id comes after the cursor: #expected"() {
+    expect:
+    new PageCursor(2000, "m").precedes(time, id) == expected
+
+    where:
+    time | id  || expected
+    1999 | "z" || true
+    2000 | "a" || true
+    2000 | "m" || false
+    2000 | "z" || false
+    2001 | "a" || false
+  }
+}
@@ -17,9 +17,12 @@
 package com.netflix.kayenta.datadog.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.kayenta.datadog.metrics.DatadogMetricsService;
 import com.netflix.kayenta.datadog.security.DatadogCredentials;
 import com.netflix.kayenta.datadog.security.DatadogNamedAccountCredentials;
+import com.netflix.kayenta.datadog.service.DatadogQueryCoalescer;
+import com.netflix.kayenta.datadog.service.DatadogRateLimitInterceptor;
 import com.netflix.kayenta.datadog.service.DatadogRemoteService;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.retrofit.config.RemoteService;
@@ -30,6 +33,7 @@ import com.netflix.spinnaker.kork.annotations.VisibleForTesting;
 import com.squareup.okhttp.OkHttpClient;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -66,7 +70,14 @@ public class DatadogConfiguration {
       AccountCredentialsRepository accountCredentialsRepository)
       throws IOException {
     DatadogMetricsService.DatadogMetricsServiceBuilder metricsServiceBuilder =
-        DatadogMetricsService.builder();
+        DatadogMetricsService.builder()
+            .metadataRefreshExecutor(
+                Executors.newFixedThreadPool(
+                    Math.max(1, datadogConfigurationProperties.getMetadataRefreshParallelism()),
+                    new ThreadFactoryBuilder()
+                        .setNameFormat("datadog-metadata-refresh-%d")
+                        .setDaemon(true)
+                        .build()));
 
     for (DatadogManagedAccount account : datadogConfigurationProperties.getAccounts()) {
       String name = account.getName();
@@ -87,9 +98,25 @@ public class DatadogConfiguration {
 
       if (!CollectionUtils.isEmpty(supportedTypes)) {
         if (supportedTypes.contains(AccountCredentials.Type.METRICS_STORE)) {
-          accountCredentialsBuilder.datadogRemoteService(
+          // Each account gets its own client so its requests are paced by its own rate limit.
+          OkHttpClient accountHttpClient = okHttpClient.clone();
+          accountHttpClient
+              .interceptors()
+              .add(
+                  new DatadogRateLimitInterceptor(
+                      datadogConfigurationProperties.getMaxRateLimitWaitMS()));
+
+          DatadogRemoteService datadogRemoteService =
               createDatadogRemoteService(
-                  retrofitClientFactory, objectMapper, account.getEndpoint(), okHttpClient));
+                  retrofitClientFactory, objectMapper, account.getEndpoint(), accountHttpClient);
+
+          accountCredentialsBuilder
+              .datadogRemoteService(datadogRemoteService)
+              .datadogQueryCoalescer(
+                  new DatadogQueryCoalescer(
+                      datadogRemoteService,
+                      datadogConfigurationProperties.getQueryCoalescingWindowMS(),
+                      datadogConfigurationProperties.getMaxQueriesPerRequest()));
         }
         accountCredentialsBuilder.supportedTypes(supportedTypes);
       }
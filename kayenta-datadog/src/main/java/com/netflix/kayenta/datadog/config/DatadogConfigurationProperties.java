@@ -27,5 +27,24 @@ public class DatadogConfigurationProperties {
   // Datadog has an api limit of 100 metric retrievals per hour, default to 15 minutes here
   @Getter @Setter private long metadataCachingIntervalMS = Duration.ofMinutes(15).toMillis();
 
+  /** The number of accounts whose metric descriptors may be refreshed at once. */
+  @Getter @Setter private int metadataRefreshParallelism = 4;
+
+  /**
+   * How long a time series query made while another of the same account and time range is in
+   * flight waits for more to join it in one multi-query request; 0 disables coalescing. Queries
+   * with nothing else pending are sent straight away.
+   */
+  @Getter @Setter private long queryCoalescingWindowMS = 50;
+
+  /** The most queries sent together in one coalesced request. */
+  @Getter @Setter private int maxQueriesPerRequest = 10;
+
+  /**
+   * The longest a request waits for the account's rate limit, as reported by Datadog, before it
+   * fails instead.
+   */
+  @Getter @Setter private long maxRateLimitWaitMS = Duration.ofSeconds(30).toMillis();
+
   @Getter private List<DatadogManagedAccount> accounts = new ArrayList<>();
 }
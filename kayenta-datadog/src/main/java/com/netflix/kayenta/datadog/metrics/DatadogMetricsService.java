@@ -23,8 +23,10 @@ import com.netflix.kayenta.canary.providers.metrics.DatadogCanaryMetricSetQueryC
 import com.netflix.kayenta.canary.providers.metrics.QueryConfigUtils;
 import com.netflix.kayenta.datadog.security.DatadogCredentials;
 import com.netflix.kayenta.datadog.security.DatadogNamedAccountCredentials;
+import com.netflix.kayenta.datadog.service.DatadogQueryCoalescer;
 import com.netflix.kayenta.datadog.service.DatadogRemoteService;
 import com.netflix.kayenta.datadog.service.DatadogTimeSeries;
+import com.netflix.kayenta.metrics.AccountMetricDescriptorsCache;
 import com.netflix.kayenta.metrics.MetricSet;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.model.DatadogMetricDescriptor;
@@ -36,9 +38,12 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
@@ -60,7 +65,12 @@ public class DatadogMetricsService implements MetricsService {
   @Autowired private final Registry registry;
 
   @Builder.Default
-  private List<DatadogMetricDescriptor> metricDescriptorsCache = Collections.emptyList();
+  private final AccountMetricDescriptorsCache<DatadogMetricDescriptor> metricDescriptorsCache =
+      new AccountMetricDescriptorsCache<>(DatadogMetricDescriptor::getName);
+
+  // Used to refresh the metric descriptors of every account at once. If absent, accounts are
+  // refreshed sequentially.
+  private final ExecutorService metadataRefreshExecutor;
 
   @Override
   public String getType() {
@@ -116,13 +126,21 @@ public class DatadogMetricsService implements MetricsService {
     }
 
     String query = buildQuery(accountName, canaryConfig, canaryMetricConfig, canaryScope);
+    DatadogQueryCoalescer queryCoalescer = accountCredentials.getDatadogQueryCoalescer();
     DatadogTimeSeries timeSeries =
-        remoteService.getTimeSeries(
-            credentials.getApiKey(),
-            credentials.getApplicationKey(),
-            (int) canaryScope.getStart().getEpochSecond(),
-            (int) canaryScope.getEnd().getEpochSecond(),
-            query);
+        queryCoalescer != null
+            ? queryCoalescer.getTimeSeries(
+                credentials.getApiKey(),
+                credentials.getApplicationKey(),
+                (int) canaryScope.getStart().getEpochSecond(),
+                (int) canaryScope.getEnd().getEpochSecond(),
+                query)
+            : remoteService.getTimeSeries(
+                credentials.getApiKey(),
+                credentials.getApplicationKey(),
+                (int) canaryScope.getStart().getEpochSecond(),
+                (int) canaryScope.getEnd().getEpochSecond(),
+                query);
 
     List<MetricSet> ret = new ArrayList<MetricSet>();
 
@@ -160,65 +178,47 @@ public class DatadogMetricsService implements MetricsService {
 
   @Override
   public List<Map> getMetadata(String metricsAccountName, String filter) {
-    if (!StringUtils.isEmpty(filter)) {
-      String lowerCaseFilter = filter.toLowerCase();
-
-      return metricDescriptorsCache.stream()
-          .filter(
-              metricDescriptor ->
-                  metricDescriptor.getName().toLowerCase().contains(lowerCaseFilter))
-          .map(metricDescriptor -> metricDescriptor.getMap())
-          .collect(Collectors.toList());
-    } else {
-      return metricDescriptorsCache.stream()
-          .map(metricDescriptor -> metricDescriptor.getMap())
-          .collect(Collectors.toList());
-    }
+    return metricDescriptorsCache.search(metricsAccountName, filter).stream()
+        .map(metricDescriptor -> metricDescriptor.getMap())
+        .collect(Collectors.toList());
   }
 
   @Scheduled(fixedDelayString = "#{@datadogConfigurationProperties.metadataCachingIntervalMS}")
   public void updateMetricDescriptorsCache() {
     Set<AccountCredentials> accountCredentialsSet =
         accountCredentialsRepository.getAllOf(AccountCredentials.Type.METRICS_STORE);
+    Map<String, Callable<List<DatadogMetricDescriptor>>> loadersByAccount = new LinkedHashMap<>();
 
     for (AccountCredentials credentials : accountCredentialsSet) {
       if (credentials instanceof DatadogNamedAccountCredentials) {
         DatadogNamedAccountCredentials datadogCredentials =
             (DatadogNamedAccountCredentials) credentials;
-        DatadogRemoteService datadogRemoteService = datadogCredentials.getDatadogRemoteService();
-        DatadogCredentials ddCredentials = datadogCredentials.getCredentials();
-        // Retrieve all metrics actively reporting in the last hour.
-        long from = Instant.now().getEpochSecond() - 60 * 60;
-        DatadogMetricDescriptorsResponse datadogMetricDescriptorsResponse =
-            datadogRemoteService.getMetrics(
-                ddCredentials.getApiKey(), ddCredentials.getApplicationKey(), from);
-
-        if (datadogMetricDescriptorsResponse != null) {
-          List<String> metrics = datadogMetricDescriptorsResponse.getMetrics();
-
-          if (!CollectionUtils.isEmpty(metrics)) {
-            // TODO(duftler): Should we instead be building the union across all accounts? This
-            // doesn't seem quite right yet.
-            metricDescriptorsCache =
-                metrics.stream()
-                    .map(metricName -> new DatadogMetricDescriptor(metricName))
-                    .collect(Collectors.toList());
-
-            log.debug(
-                "Updated cache with {} metric descriptors via account {}.",
-                metricDescriptorsCache.size(),
-                datadogCredentials.getName());
-          } else {
-            log.debug(
-                "While updating cache, found no metric descriptors via account {}.",
-                datadogCredentials.getName());
-          }
-        } else {
-          log.debug(
-              "While updating cache, found no metric descriptors via account {}.",
-              datadogCredentials.getName());
-        }
+
+        loadersByAccount.put(
+            datadogCredentials.getName(), () -> listMetricDescriptors(datadogCredentials));
       }
     }
+
+    metricDescriptorsCache.refresh(loadersByAccount, metadataRefreshExecutor);
+  }
+
+  private List<DatadogMetricDescriptor> listMetricDescriptors(
+      DatadogNamedAccountCredentials datadogCredentials) {
+    DatadogRemoteService datadogRemoteService = datadogCredentials.getDatadogRemoteService();
+    DatadogCredentials ddCredentials = datadogCredentials.getCredentials();
+    // Retrieve all metrics actively reporting in the last hour.
+    long from = Instant.now().getEpochSecond() - 60 * 60;
+    DatadogMetricDescriptorsResponse datadogMetricDescriptorsResponse =
+        datadogRemoteService.getMetrics(
+            ddCredentials.getApiKey(), ddCredentials.getApplicationKey(), from);
+
+    if (datadogMetricDescriptorsResponse == null
+        || CollectionUtils.isEmpty(datadogMetricDescriptorsResponse.getMetrics())) {
+      return Collections.emptyList();
+    }
+
+    return datadogMetricDescriptorsResponse.getMetrics().stream()
+        .map(metricName -> new DatadogMetricDescriptor(metricName))
+        .collect(Collectors.toList());
   }
 }
@@ -17,6 +17,7 @@
 package com.netflix.kayenta.datadog.security;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.netflix.kayenta.datadog.service.DatadogQueryCoalescer;
 import com.netflix.kayenta.datadog.service.DatadogRemoteService;
 import com.netflix.kayenta.retrofit.config.RemoteService;
 import com.netflix.kayenta.security.AccountCredentials;
@@ -43,4 +44,6 @@ public class DatadogNamedAccountCredentials implements AccountCredentials<Datado
   }
 
   @JsonIgnore DatadogRemoteService datadogRemoteService;
+
+  @JsonIgnore DatadogQueryCoalescer datadogQueryCoalescer;
 }
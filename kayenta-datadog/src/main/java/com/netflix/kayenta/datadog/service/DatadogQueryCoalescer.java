@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.datadog.service;
+
+import com.netflix.kayenta.metrics.QueryCoalescer;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Coalesces concurrent time series queries made with one Datadog account for the same time range
+ * into a single multi-query request, as described on {@link QueryCoalescer}. The queries are sent
+ * comma-separated and each caller is handed back the series tagged with its {@code query_index}.
+ */
+public class DatadogQueryCoalescer {
+
+  private final QueryCoalescer<TimeSeriesRange, String, DatadogTimeSeries> queryCoalescer;
+
+  public DatadogQueryCoalescer(
+      DatadogRemoteService remoteService, long windowMillis, int maxQueriesPerRequest) {
+    this.queryCoalescer =
+        new QueryCoalescer<>(
+            windowMillis,
+            maxQueriesPerRequest,
+            (range, query) ->
+                remoteService.getTimeSeries(
+                    range.getApiKey(),
+                    range.getApplicationKey(),
+                    range.getStartTimestamp(),
+                    range.getEndTimestamp(),
+                    query),
+            (range, queries) ->
+                remoteService.getTimeSeries(
+                    range.getApiKey(),
+                    range.getApplicationKey(),
+                    range.getStartTimestamp(),
+                    range.getEndTimestamp(),
+                    String.join(",", queries)),
+            DatadogQueryCoalescer::demultiplex);
+  }
+
+  public DatadogTimeSeries getTimeSeries(
+      String apiKey, String applicationKey, int startTimestamp, int endTimestamp, String query) {
+    return queryCoalescer.query(
+        new TimeSeriesRange(apiKey, applicationKey, startTimestamp, endTimestamp), query);
+  }
+
+  /**
+   * Splits a multi-query response by {@code query_index}, or returns null if any series does not
+   * say which query it answers.
+   */
+  static List<DatadogTimeSeries> demultiplex(DatadogTimeSeries combined, int queryCount) {
+    List<DatadogTimeSeries> results = new ArrayList<>(queryCount);
+
+    for (int i = 0; i < queryCount; i++) {
+      DatadogTimeSeries timeSeries = new DatadogTimeSeries();
+      timeSeries.setSeries(new ArrayList<>());
+      results.add(timeSeries);
+    }
+
+    if (combined == null || combined.getSeries() == null) {
+      return results;
+    }
+
+    for (DatadogTimeSeries.DatadogSeriesEntry entry : combined.getSeries()) {
+      Integer queryIndex = entry.getQueryIndex();
+
+      if (queryIndex == null || queryIndex < 0 || queryIndex >= queryCount) {
+        return null;
+      }
+
+      results.get(queryIndex).getSeries().add(entry);
+    }
+
+    return results;
+  }
+
+  @Value
+  private static class TimeSeriesRange {
+    String apiKey;
+    String applicationKey;
+    int startTimestamp;
+    int endTimestamp;
+  }
+}
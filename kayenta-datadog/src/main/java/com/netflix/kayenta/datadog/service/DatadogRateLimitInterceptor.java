@@ -0,0 +1,115 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.datadog.service;
+
+import com.squareup.okhttp.Interceptor;
+import com.squareup.okhttp.Request;
+import com.squareup.okhttp.Response;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Schedules every request of one Datadog account through a {@link DatadogRateLimiter}, and feeds
+ * the {@code X-RateLimit-*} headers of every response back into it.
+ *
+ * <p>Datadog limits each endpoint separately and names the limit a response counts against in its
+ * {@code X-RateLimit-Name} header, so there is one rate limiter per limit name. Requests to a path
+ * Datadog has not named a limit for yet share a rate limiter keyed by the path itself.
+ */
+public class DatadogRateLimitInterceptor implements Interceptor {
+
+  private static final int TOO_MANY_REQUESTS = 429;
+
+  private final Supplier<DatadogRateLimiter> rateLimiterFactory;
+
+  private final long maxWaitMillis;
+
+  private final ConcurrentMap<String, DatadogRateLimiter> rateLimitersByName =
+      new ConcurrentHashMap<>();
+
+  // The limit name Datadog last reported for each request path.
+  private final ConcurrentMap<String, String> rateLimitNamesByPath = new ConcurrentHashMap<>();
+
+  public DatadogRateLimitInterceptor(long maxWaitMillis) {
+    this(DatadogRateLimiter::new, maxWaitMillis);
+  }
+
+  public DatadogRateLimitInterceptor(
+      Supplier<DatadogRateLimiter> rateLimiterFactory, long maxWaitMillis) {
+    this.rateLimiterFactory = rateLimiterFactory;
+    this.maxWaitMillis = maxWaitMillis;
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String path = request.httpUrl().encodedPath();
+
+    getRateLimiter(path).acquire(getPriority(request), maxWaitMillis);
+
+    Response response = chain.proceed(request);
+    String rateLimitName = response.header("X-RateLimit-Name");
+
+    if (rateLimitName != null && !rateLimitName.trim().isEmpty()) {
+      rateLimitNamesByPath.put(path, rateLimitName.trim());
+    }
+
+    long remaining = getLongHeader(response, "X-RateLimit-Remaining");
+    long reset = getLongHeader(response, "X-RateLimit-Reset");
+
+    if (response.code() == TOO_MANY_REQUESTS) {
+      remaining = 0;
+      reset = Math.max(1, reset);
+    }
+
+    getRateLimiter(path)
+        .update(
+            getLongHeader(response, "X-RateLimit-Limit"),
+            getLongHeader(response, "X-RateLimit-Period"),
+            remaining,
+            reset);
+
+    return response;
+  }
+
+  private DatadogRateLimiter getRateLimiter(String path) {
+    return rateLimitersByName.computeIfAbsent(
+        rateLimitNamesByPath.getOrDefault(path, path), name -> rateLimiterFactory.get());
+  }
+
+  static DatadogRateLimiter.Priority getPriority(Request request) {
+    return request.urlString().contains("/api/v1/metrics")
+        ? DatadogRateLimiter.Priority.METADATA
+        : DatadogRateLimiter.Priority.CANARY_FETCH;
+  }
+
+  private static long getLongHeader(Response response, String name) {
+    String value = response.header(name);
+
+    if (value == null) {
+      return -1;
+    }
+
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.datadog.service;
+
+import com.google.common.base.Ticker;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that paces the requests of one Datadog account against one of its rate limits.
+ *
+ * <p>Datadog reports its rate limits on every response through the {@code X-RateLimit-*} headers;
+ * until the first response arrives requests are not throttled at all. After that the bucket holds
+ * {@code limit} tokens, refilled evenly over {@code period}, and is resynchronized with the
+ * reported remaining count on each response. Once Datadog reports the quota exhausted, requests
+ * wait for the reported reset.
+ *
+ * <p>Canary fetches take priority over metadata refreshes: a metadata request never goes ahead of
+ * a waiting canary fetch, and leaves a share of the bucket untouched for canary fetches.
+ */
+public class DatadogRateLimiter {
+
+  public enum Priority {
+    CANARY_FETCH,
+    METADATA
+  }
+
+  // The share of the bucket that metadata requests leave for canary fetches.
+  private static final double METADATA_RESERVE = 0.1;
+
+  private static final long METADATA_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+  private final Ticker ticker;
+
+  private double capacity = Double.POSITIVE_INFINITY;
+
+  private double tokens = Double.POSITIVE_INFINITY;
+
+  private double refillPerNano;
+
+  private long lastRefillNanos;
+
+  private boolean exhausted;
+
+  private long exhaustedUntilNanos;
+
+  private int waitingCanaryFetches;
+
+  public DatadogRateLimiter() {
+    this(Ticker.systemTicker());
+  }
+
+  public DatadogRateLimiter(Ticker ticker) {
+    this.ticker = ticker;
+    this.lastRefillNanos = ticker.read();
+  }
+
+  /**
+   * Takes a token, waiting for one if necessary.
+   *
+   * @throws IOException if no token will be available within {@code maxWaitMillis}
+   */
+  public synchronized void acquire(Priority priority, long maxWaitMillis) throws IOException {
+    long deadlineNanos = ticker.read() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+    if (priority == Priority.CANARY_FETCH) {
+      waitingCanaryFetches++;
+    }
+
+    try {
+      while (true) {
+        long nowNanos = ticker.read();
+        refill(nowNanos);
+
+        long waitNanos = nanosUntilAvailable(priority, nowNanos);
+
+        if (waitNanos <= 0) {
+          tokens -= 1;
+          return;
+        }
+
+        if (waitNanos > deadlineNanos - nowNanos) {
+          throw new IOException(
+              "Datadog rate limit exhausted; the next "
+                  + priority
+                  + " request could be sent in "
+                  + TimeUnit.NANOSECONDS.toMillis(waitNanos)
+                  + "ms.");
+        }
+
+        TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the Datadog rate limit.");
+    } finally {
+      if (priority == Priority.CANARY_FETCH) {
+        waitingCanaryFetches--;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Resynchronizes the bucket with the rate limit state reported by Datadog. Negative values mean
+   * the corresponding header was absent.
+   */
+  public synchronized void update(
+      long limit, long periodSeconds, long remaining, long resetSeconds) {
+    long nowNanos = ticker.read();
+    refill(nowNanos);
+
+    if (limit > 0 && periodSeconds > 0) {
+      capacity = limit;
+      refillPerNano = limit / (double) TimeUnit.SECONDS.toNanos(periodSeconds);
+    }
+
+    if (remaining >= 0) {
+      tokens = Math.min(capacity, remaining);
+
+      if (remaining == 0 && resetSeconds > 0) {
+        exhausted = true;
+        exhaustedUntilNanos = nowNanos + TimeUnit.SECONDS.toNanos(resetSeconds);
+      }
+    }
+
+    notifyAll();
+  }
+
+  private void refill(long nowNanos) {
+    if (exhausted) {
+      if (nowNanos - exhaustedUntilNanos >= 0) {
+        // Datadog limits are fixed windows; the whole quota is back once the window resets.
+        exhausted = false;
+        tokens = capacity;
+      }
+    } else if (refillPerNano > 0) {
+      tokens = Math.min(capacity, tokens + (nowNanos - lastRefillNanos) * refillPerNano);
+    }
+
+    lastRefillNanos = nowNanos;
+  }
+
+  private long nanosUntilAvailable(Priority priority, long nowNanos) {
+    if (exhausted) {
+      return exhaustedUntilNanos - nowNanos;
+    }
+
+    double required = 1;
+
+    if (priority == Priority.METADATA) {
+      if (waitingCanaryFetches > 0) {
+        return METADATA_POLL_NANOS;
+      }
+
+      required += capacity * METADATA_RESERVE;
+    }
+
+    if (tokens >= required) {
+      return 0;
+    }
+
+    if (refillPerNano <= 0) {
+      return Long.MAX_VALUE;
+    }
+
+    return (long) Math.ceil((required - tokens) / refillPerNano);
+  }
+}
@@ -17,6 +17,7 @@
 package com.netflix.kayenta.datadog.service;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
@@ -36,6 +37,11 @@ public class DatadogTimeSeries {
     private Long end;
     private List<List<Number>> pointlist;
 
+    // The position of the query this series answers, when several comma-separated queries were
+    // sent in one request.
+    @JsonProperty("query_index")
+    private Integer queryIndex;
+
     // Datadog returns an array of timestamp/value pairs; the pairs are
     // ordered, but may not be sequential (ie. may be a sparse result)
     // Since Kayenta's MetricSet is storing a simple array, we need to
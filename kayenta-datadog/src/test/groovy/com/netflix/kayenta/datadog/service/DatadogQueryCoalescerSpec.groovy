@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.datadog.service
+
+import spock.lang.Specification
+
+class DatadogQueryCoalescerSpec extends Specification {
+
+  void "a combined response is split by query index"() {
+    given:
+    DatadogTimeSeries combined = new DatadogTimeSeries(series: [
+      new DatadogTimeSeries.DatadogSeriesEntry(scope: "b", queryIndex: 1),
+      new DatadogTimeSeries.DatadogSeriesEntry(scope: "a", queryIndex: 0),
+      new DatadogTimeSeries.DatadogSeriesEntry(scope: "c", queryIndex: 1)
+    ])
+
+    when:
+    List<DatadogTimeSeries> results = DatadogQueryCoalescer.demultiplex(combined, 3)
+
+    then:
+    results*.series*.scope == [["a"], ["b", "c"], []]
+  }
+
+  void "a combined response without query indexes cannot be split"() {
+    given:
+    DatadogTimeSeries combined = new DatadogTimeSeries(series: [
+      new DatadogTimeSeries.DatadogSeriesEntry(scope: "a")
+    ])
+
+    expect:
+    DatadogQueryCoalescer.demultiplex(combined, 2) == null
+  }
+}
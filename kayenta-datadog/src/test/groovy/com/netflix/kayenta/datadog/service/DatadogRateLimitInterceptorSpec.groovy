@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.datadog.service
+
+import com.google.common.base.Ticker
+import com.squareup.okhttp.Interceptor
+import com.squareup.okhttp.Protocol
+import com.squareup.okhttp.Request
+import com.squareup.okhttp.Response
+import spock.lang.Specification
+
+import java.util.function.Supplier
+
+class DatadogRateLimitInterceptorSpec extends Specification {
+
+  // Time stands still, so an exhausted limit stays exhausted.
+  Ticker ticker = new Ticker() {
+    long read() {
+      return 0
+    }
+  }
+
+  DatadogRateLimitInterceptor interceptor =
+    new DatadogRateLimitInterceptor({ new DatadogRateLimiter(ticker) } as Supplier, 0)
+
+  void "interleaved responses from two endpoints update their own limits"() {
+    when:
+    interceptor.intercept(chain("/api/v1/query", rateLimitHeaders("query", 10)))
+    interceptor.intercept(chain("/api/v1/metrics", rateLimitHeaders("metrics", 50)))
+    interceptor.intercept(chain("/api/v1/query", rateLimitHeaders("query", 0)))
+    interceptor.intercept(chain("/api/v1/metrics", rateLimitHeaders("metrics", 40)))
+
+    then:
+    noExceptionThrown()
+
+    when: "the query limit is exhausted"
+    interceptor.intercept(chain("/api/v1/query", [:]))
+
+    then:
+    thrown(IOException)
+
+    when: "the metadata limit is not"
+    interceptor.intercept(chain("/api/v1/metrics", rateLimitHeaders("metrics", 30)))
+
+    then:
+    noExceptionThrown()
+  }
+
+  void "paths sharing a limit name share its limit"() {
+    when:
+    interceptor.intercept(chain("/api/v1/query", rateLimitHeaders("query", 10)))
+    interceptor.intercept(chain("/api/v2/query", rateLimitHeaders("query", 0)))
+    interceptor.intercept(chain("/api/v1/query", [:]))
+
+    then:
+    thrown(IOException)
+  }
+
+  void "responses without a limit name are limited by request path"() {
+    given:
+    Map<String, String> exhausted = rateLimitHeaders(null, 0)
+
+    when:
+    interceptor.intercept(chain("/api/v1/query", exhausted))
+    interceptor.intercept(chain("/api/v1/metrics", rateLimitHeaders(null, 50)))
+
+    then:
+    noExceptionThrown()
+
+    when:
+    interceptor.intercept(chain("/api/v1/query", [:]))
+
+    then:
+    thrown(IOException)
+  }
+
+  private static Map<String, String> rateLimitHeaders(String name, int remaining) {
+    Map<String, String> headers = [
+      "X-RateLimit-Limit": "100",
+      "X-RateLimit-Period": "3600",
+      "X-RateLimit-Remaining": remaining as String,
+      "X-RateLimit-Reset": "600"
+    ]
+
+    if (name != null) {
+      headers["X-RateLimit-Name"] = name
+    }
+
+    headers
+  }
+
+  private Interceptor.Chain chain(String path, Map<String, String> headers) {
+    Request request = new Request.Builder().url("https://api.datadoghq.com" + path).build()
+    Response.Builder response =
+      new Response.Builder().request(request).protocol(Protocol.HTTP_1_1).code(200)
+    headers.each { name, value -> response.header(name, value) }
+
+    Stub(Interceptor.Chain) {
+      request() >> request
+      proceed(request) >> response.build()
+    }
+  }
+}
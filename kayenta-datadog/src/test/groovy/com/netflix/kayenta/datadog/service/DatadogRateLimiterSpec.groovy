@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.datadog.service
+
+import com.google.common.base.Ticker
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+import static com.netflix.kayenta.datadog.service.DatadogRateLimiter.Priority.CANARY_FETCH
+import static com.netflix.kayenta.datadog.service.DatadogRateLimiter.Priority.METADATA
+
+class DatadogRateLimiterSpec extends Specification {
+
+  class FakeTicker extends Ticker {
+    long nanos = 0
+
+    long read() {
+      return nanos
+    }
+  }
+
+  FakeTicker ticker = new FakeTicker()
+  DatadogRateLimiter rateLimiter = new DatadogRateLimiter(ticker)
+
+  void "requests are not throttled before Datadog reports a limit"() {
+    when:
+    100.times { rateLimiter.acquire(CANARY_FETCH, 0) }
+    rateLimiter.acquire(METADATA, 0)
+
+    then:
+    noExceptionThrown()
+  }
+
+  void "an exhausted quota fails fast until Datadog's reported reset"() {
+    given:
+    rateLimiter.update(100, 3600, 0, 30)
+
+    when:
+    rateLimiter.acquire(CANARY_FETCH, 1000)
+
+    then:
+    thrown(IOException)
+
+    when:
+    ticker.nanos = TimeUnit.SECONDS.toNanos(30)
+    rateLimiter.acquire(CANARY_FETCH, 0)
+
+    then:
+    noExceptionThrown()
+  }
+
+  void "metadata requests leave a reserve for canary fetches"() {
+    given:
+    rateLimiter.update(100, 3600, 5, 600)
+
+    when:
+    rateLimiter.acquire(METADATA, 0)
+
+    then:
+    thrown(IOException)
+
+    when:
+    5.times { rateLimiter.acquire(CANARY_FETCH, 0) }
+
+    then:
+    noExceptionThrown()
+  }
+}
@@ -19,7 +19,11 @@ package com.netflix.kayenta.gcs.storage;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
 import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.HttpHeaders;
 import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.storage.Storage;
 import com.google.api.services.storage.model.Bucket;
@@ -51,6 +55,9 @@ import org.springframework.util.StringUtils;
 @Slf4j
 public class GcsStorageService implements StorageService {
 
+  // The most requests a single batch request may carry.
+  private static final int MAX_REQUESTS_PER_BATCH = 100;
+
   @Autowired private ObjectMapper kayentaObjectMapper;
 
   @NotNull @Singular @Getter private List<String> accountNames;
@@ -391,6 +398,126 @@ public class GcsStorageService implements StorageService {
     }
   }
 
+  @Override
+  public void deleteObjects(String accountName, ObjectType objectType, List<String> objectKeys) {
+    if (objectType == ObjectType.CANARY_CONFIG) {
+      // Each deleted canary config is also removed from the index.
+      StorageService.super.deleteObjects(accountName, objectType, objectKeys);
+      return;
+    }
+
+    GoogleNamedAccountCredentials credentials =
+        accountCredentialsRepository.getRequiredOne(accountName);
+    Storage storage = credentials.getStorage();
+    String bucketName = credentials.getBucket();
+
+    for (List<String> batchKeys : Lists.partition(objectKeys, MAX_REQUESTS_PER_BATCH)) {
+      List<String> itemNames =
+          resolveSingularItemNames(objectType, batchKeys, credentials, storage, bucketName);
+      List<String> failures = new ArrayList<>();
+
+      try {
+        BatchRequest batch = storage.batch();
+
+        for (String itemName : itemNames) {
+          storage
+              .objects()
+              .delete(bucketName, itemName)
+              .queue(
+                  batch,
+                  new JsonBatchCallback<Void>() {
+                    @Override
+                    public void onSuccess(Void result, HttpHeaders responseHeaders) {}
+
+                    @Override
+                    public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) {
+                      // Like a single delete, one of an object that is already gone succeeds.
+                      if (e.getCode() != 404) {
+                        failures.add(itemName + " (" + e.getCode() + " " + e.getMessage() + ")");
+                      }
+                    }
+                  });
+        }
+
+        batch.execute();
+      } catch (IOException e) {
+        log.error("Failed to delete {} {}: {}", itemNames.size(), objectType.getGroup(), e);
+        throw new IllegalArgumentException(e);
+      }
+
+      if (!failures.isEmpty()) {
+        log.error("Failed to delete {}", failures);
+        throw new IllegalArgumentException("Failed to delete " + failures);
+      }
+    }
+  }
+
+  /**
+   * Like {@link #resolveSingularItem}, for a batch of object keys at once: the listings are sent
+   * as a single batch request.
+   */
+  private List<String> resolveSingularItemNames(
+      ObjectType objectType,
+      List<String> objectKeys,
+      GoogleNamedAccountCredentials credentials,
+      Storage storage,
+      String bucketName) {
+    String[] itemNames = new String[objectKeys.size()];
+    List<String> unresolvedObjectKeys = new ArrayList<>();
+
+    try {
+      BatchRequest batch = storage.batch();
+
+      for (int i = 0; i < objectKeys.size(); i++) {
+        int index = i;
+        String objectKey = objectKeys.get(i);
+        String rootFolder = daoRoot(credentials, objectType.getGroup()) + "/" + objectKey;
+
+        storage
+            .objects()
+            .list(bucketName)
+            .setPrefix(rootFolder)
+            .queue(
+                batch,
+                new JsonBatchCallback<Objects>() {
+                  @Override
+                  public void onSuccess(Objects objects, HttpHeaders responseHeaders) {
+                    List<StorageObject> items = objects.getItems();
+
+                    if (items != null && items.size() == 1) {
+                      itemNames[index] = items.get(0).getName();
+                    } else {
+                      unresolvedObjectKeys.add(objectKey);
+                    }
+                  }
+
+                  @Override
+                  public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) {
+                    unresolvedObjectKeys.add(objectKey);
+                  }
+                });
+      }
+
+      batch.execute();
+    } catch (IOException e) {
+      throw new IllegalArgumentException(
+          "Could not fetch items from Google Cloud Storage: " + e.getMessage(), e);
+    }
+
+    if (!unresolvedObjectKeys.isEmpty()) {
+      throw new IllegalArgumentException(
+          "Unable to resolve singular "
+              + objectType
+              + " at "
+              + daoRoot(credentials, objectType.getGroup())
+              + '/'
+              + unresolvedObjectKeys
+              + ".");
+    }
+
+    return Arrays.asList(itemNames);
+  }
+
   @Override
   public List<Map<String, Object>> listObjectKeys(
       String accountName, ObjectType objectType, List<String> applications, boolean skipIndex) {
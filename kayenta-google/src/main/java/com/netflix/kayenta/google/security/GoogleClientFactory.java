@@ -17,8 +17,10 @@
 package com.netflix.kayenta.google.security;
 
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpExecuteInterceptor;
 import com.google.api.client.http.HttpRequest;
 import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponseInterceptor;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
@@ -28,9 +30,11 @@ import com.google.api.services.storage.Storage;
 import com.google.api.services.storage.StorageScopes;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.netflix.kayenta.metrics.MetricsQueryStats;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
@@ -99,7 +103,44 @@ public class GoogleClientFactory {
         super.initialize(httpRequest);
         httpRequest.setConnectTimeout(2 * 60000); // 2 minutes connect timeout
         httpRequest.setReadTimeout(2 * 60000); // 2 minutes read timeout
+        reportQueryStats(httpRequest);
       }
     };
   }
+
+  /**
+   * Reports the request into the stats of the metrics query running on this thread, if any, as
+   * {@link com.netflix.kayenta.retrofit.config.RetrofitClientFactory} does for retrofit clients.
+   * The network time of a request ends when its response headers arrive, and its response bytes
+   * are as many as its Content-Length says.
+   */
+  private static void reportQueryStats(HttpRequest httpRequest) {
+    MetricsQueryStats stats = MetricsQueryStats.current();
+
+    if (stats == null) {
+      return;
+    }
+
+    HttpExecuteInterceptor interceptor = httpRequest.getInterceptor();
+    HttpResponseInterceptor responseInterceptor = httpRequest.getResponseInterceptor();
+    AtomicLong startNanos = new AtomicLong();
+
+    httpRequest.setInterceptor(
+        request -> {
+          if (interceptor != null) {
+            interceptor.intercept(request);
+          }
+          startNanos.set(System.nanoTime());
+        });
+    httpRequest.setResponseInterceptor(
+        response -> {
+          Long contentLength = response.getHeaders().getContentLength();
+          stats.recordRequest(
+              System.nanoTime() - startNanos.get(), contentLength != null ? contentLength : 0);
+
+          if (responseInterceptor != null) {
+            responseInterceptor.interceptResponse(response);
+          }
+        });
+  }
 }
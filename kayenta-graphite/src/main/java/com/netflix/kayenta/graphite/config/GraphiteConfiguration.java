@@ -17,10 +17,12 @@
 package com.netflix.kayenta.graphite.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheBuilder;
 import com.netflix.kayenta.graphite.metrics.GraphiteMetricsService;
 import com.netflix.kayenta.graphite.security.GraphiteCredentials;
 import com.netflix.kayenta.graphite.security.GraphiteNamedAccountCredentials;
 import com.netflix.kayenta.graphite.service.GraphiteRemoteService;
+import com.netflix.kayenta.graphite.service.GraphiteRenderCoalescer;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.retrofit.config.RetrofitClientFactory;
 import com.netflix.kayenta.security.AccountCredentials;
@@ -28,6 +30,7 @@ import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.squareup.okhttp.OkHttpClient;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -64,7 +67,14 @@ public class GraphiteConfiguration {
       AccountCredentialsRepository accountCredentialsRepository)
       throws IOException {
     GraphiteMetricsService.GraphiteMetricsServiceBuilder graphiteMetricsServiceBuilder =
-        GraphiteMetricsService.builder();
+        GraphiteMetricsService.builder()
+            .findMetricsCache(
+                CacheBuilder.newBuilder()
+                    .maximumSize(graphiteConfigurationProperties.getMetadataCacheMaxEntries())
+                    .expireAfterWrite(
+                        graphiteConfigurationProperties.getMetadataCacheTtlMS(),
+                        TimeUnit.MILLISECONDS)
+                    .build());
 
     for (GraphiteManagedAccount account : graphiteConfigurationProperties.getAccounts()) {
       String accountName = account.getName();
@@ -80,12 +90,20 @@ public class GraphiteConfiguration {
                   .credentials(credentials);
       if (!CollectionUtils.isEmpty(supportedTypes)) {
         if (supportedTypes.contains(AccountCredentials.Type.METRICS_STORE)) {
-          accountCredentialsBuilder.graphiteRemoteService(
+          GraphiteRemoteService graphiteRemoteService =
               retrofitClientFactory.createClient(
                   GraphiteRemoteService.class,
                   new JacksonConverter(objectMapper),
                   account.getEndpoint(),
-                  okHttpClient));
+                  okHttpClient);
+
+          accountCredentialsBuilder
+              .graphiteRemoteService(graphiteRemoteService)
+              .graphiteRenderCoalescer(
+                  new GraphiteRenderCoalescer(
+                      graphiteRemoteService,
+                      graphiteConfigurationProperties.getRenderCoalescingWindowMS(),
+                      graphiteConfigurationProperties.getMaxTargetsPerRender()));
         }
 
         accountCredentialsBuilder.supportedTypes(supportedTypes);
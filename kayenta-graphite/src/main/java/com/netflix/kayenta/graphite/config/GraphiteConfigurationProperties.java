@@ -16,10 +16,29 @@
 
 package com.netflix.kayenta.graphite.config;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.Getter;
+import lombok.Setter;
 
 public class GraphiteConfigurationProperties {
+
+  /**
+   * How long a render query made while another of the same account and time range is in flight
+   * waits for more to join it in one multi-target render; 0 disables consolidation. Queries with
+   * nothing else pending are sent straight away.
+   */
+  @Getter @Setter private long renderCoalescingWindowMS = 50;
+
+  /** The most targets sent together in one consolidated render. */
+  @Getter @Setter private int maxTargetsPerRender = 10;
+
+  /** How long a metric descriptor lookup is served from cache. */
+  @Getter @Setter private long metadataCacheTtlMS = Duration.ofSeconds(30).toMillis();
+
+  /** The most metric descriptor lookups kept in the cache. */
+  @Getter @Setter private long metadataCacheMaxEntries = 1000;
+
   @Getter private List<GraphiteManagedAccount> accounts = new ArrayList<>();
 }
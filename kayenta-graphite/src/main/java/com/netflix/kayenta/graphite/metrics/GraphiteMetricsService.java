@@ -17,6 +17,10 @@
 package com.netflix.kayenta.graphite.metrics;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.CanaryMetricConfig;
 import com.netflix.kayenta.canary.CanaryScope;
@@ -26,6 +30,7 @@ import com.netflix.kayenta.graphite.model.GraphiteMetricDescriptorsResponse;
 import com.netflix.kayenta.graphite.model.GraphiteResults;
 import com.netflix.kayenta.graphite.security.GraphiteNamedAccountCredentials;
 import com.netflix.kayenta.graphite.service.GraphiteRemoteService;
+import com.netflix.kayenta.graphite.service.GraphiteRenderCoalescer;
 import com.netflix.kayenta.metrics.MetricSet;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
@@ -39,6 +44,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
@@ -67,6 +74,15 @@ public class GraphiteMetricsService implements MetricsService {
   @Builder.Default
   private List<GraphiteMetricDescriptor> metricDescriptorsCache = Collections.emptyList();
 
+  // Metric descriptor lookups keyed by account and converted filter, so that the UI's completion
+  // requests don't each reach Graphite.
+  @Builder.Default
+  private final Cache<List<String>, GraphiteMetricDescriptorsResponse> findMetricsCache =
+      CacheBuilder.newBuilder()
+          .maximumSize(1000)
+          .expireAfterWrite(30, TimeUnit.SECONDS)
+          .build();
+
   @Override
   public String getType() {
     return GraphiteCanaryMetricSetQueryConfig.SERVICE_TYPE;
@@ -110,14 +126,21 @@ public class GraphiteMetricsService implements MetricsService {
         accountCredentialsRepository.getRequiredOne(metricsAccountName);
 
     GraphiteRemoteService remoteService = accountCredentials.getGraphiteRemoteService();
+    GraphiteRenderCoalescer renderCoalescer = accountCredentials.getGraphiteRenderCoalescer();
 
     String query = buildQuery(metricsAccountName, canaryConfig, canaryMetricConfig, canaryScope);
     List<GraphiteResults> graphiteResultsList =
-        remoteService.rangeQuery(
-            query,
-            canaryScope.getStart().getEpochSecond(),
-            canaryScope.getEnd().getEpochSecond(),
-            DEFAULT_FORMAT);
+        renderCoalescer != null
+            ? renderCoalescer.rangeQuery(
+                query,
+                canaryScope.getStart().getEpochSecond(),
+                canaryScope.getEnd().getEpochSecond(),
+                DEFAULT_FORMAT)
+            : remoteService.rangeQuery(
+                query,
+                canaryScope.getStart().getEpochSecond(),
+                canaryScope.getEnd().getEpochSecond(),
+                DEFAULT_FORMAT);
 
     List<MetricSet> metricSets = new ArrayList<>();
 
@@ -137,7 +160,6 @@ public class GraphiteMetricsService implements MetricsService {
     return metricSets;
   }
 
-  // TODO: in case of performance issue when there are lots of users, we could cache last responses
   @Override
   public List<Map> getMetadata(String metricsAccountName, String filter) throws IOException {
     log.debug(String.format("Getting metadata for %s with filter %s", metricsAccountName, filter));
@@ -160,10 +182,20 @@ public class GraphiteMetricsService implements MetricsService {
 
       GraphiteRemoteService remoteService = accountCredentials.getGraphiteRemoteService();
 
-      filter = convertFilterToGraphiteQuery(filter);
+      String graphiteQuery = convertFilterToGraphiteQuery(filter);
+
+      GraphiteMetricDescriptorsResponse graphiteMetricDescriptorsResponse;
 
-      GraphiteMetricDescriptorsResponse graphiteMetricDescriptorsResponse =
-          remoteService.findMetrics(filter, DEFAULT_DESCRIPTOR_FORMAT);
+      try {
+        graphiteMetricDescriptorsResponse =
+            findMetricsCache.get(
+                Arrays.asList(metricsAccountName, graphiteQuery),
+                () -> remoteService.findMetrics(graphiteQuery, DEFAULT_DESCRIPTOR_FORMAT));
+      } catch (ExecutionException | UncheckedExecutionException e) {
+        Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+        Throwables.throwIfUnchecked(e.getCause());
+        throw new IllegalStateException(e.getCause());
+      }
 
       log.debug(
           String.format(
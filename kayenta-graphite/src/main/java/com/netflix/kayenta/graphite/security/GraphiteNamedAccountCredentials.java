@@ -19,6 +19,7 @@ package com.netflix.kayenta.graphite.security;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.netflix.kayenta.canary.providers.metrics.GraphiteCanaryMetricSetQueryConfig;
 import com.netflix.kayenta.graphite.service.GraphiteRemoteService;
+import com.netflix.kayenta.graphite.service.GraphiteRenderCoalescer;
 import com.netflix.kayenta.retrofit.config.RemoteService;
 import com.netflix.kayenta.security.AccountCredentials;
 import java.util.List;
@@ -44,4 +45,6 @@ public class GraphiteNamedAccountCredentials implements AccountCredentials<Graph
   }
 
   @JsonIgnore GraphiteRemoteService graphiteRemoteService;
+
+  @JsonIgnore GraphiteRenderCoalescer graphiteRenderCoalescer;
 }
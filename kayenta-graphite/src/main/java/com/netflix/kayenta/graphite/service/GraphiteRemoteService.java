@@ -32,6 +32,14 @@ public interface GraphiteRemoteService {
       @Query("until") long until,
       @Query("format") String format);
 
+  // Renders several targets at once; Graphite repeats the target parameter for each of them.
+  @GET("/render")
+  List<GraphiteResults> rangeQuery(
+      @Query(value = "target", encodeValue = true) List<String> targets,
+      @Query("from") long from,
+      @Query("until") long until,
+      @Query("format") String format);
+
   @GET("/metrics/find")
   GraphiteMetricDescriptorsResponse findMetrics(
       @Query("query") String query, @Query("format") String format);
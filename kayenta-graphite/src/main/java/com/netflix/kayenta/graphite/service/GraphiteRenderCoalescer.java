@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.graphite.service;
+
+import com.netflix.kayenta.graphite.model.GraphiteResults;
+import com.netflix.kayenta.metrics.QueryCoalescer;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Consolidates concurrent render queries of one Graphite account for the same time range into a
+ * single {@code /render} call with several {@code target} parameters, as described on {@link
+ * QueryCoalescer}. Each target is sent wrapped in an {@code alias()} naming its position, since
+ * Graphite names returned series after what they resolved to rather than what was asked for, and
+ * the combined results are split back by that alias.
+ */
+public class GraphiteRenderCoalescer {
+
+  static final String ALIAS_PREFIX = "kayenta-target-";
+
+  private final QueryCoalescer<RenderRange, String, List<GraphiteResults>> queryCoalescer;
+
+  public GraphiteRenderCoalescer(
+      GraphiteRemoteService remoteService, long windowMillis, int maxTargetsPerRender) {
+    this.queryCoalescer =
+        new QueryCoalescer<>(
+            windowMillis,
+            maxTargetsPerRender,
+            (range, target) ->
+                remoteService.rangeQuery(
+                    target, range.getFrom(), range.getUntil(), range.getFormat()),
+            (range, targets) ->
+                remoteService.rangeQuery(
+                    aliasByPosition(targets), range.getFrom(), range.getUntil(), range.getFormat()),
+            GraphiteRenderCoalescer::demultiplex);
+  }
+
+  public List<GraphiteResults> rangeQuery(String target, long from, long until, String format) {
+    return queryCoalescer.query(new RenderRange(from, until, format), target);
+  }
+
+  private static List<String> aliasByPosition(List<String> targets) {
+    List<String> aliasedTargets = new ArrayList<>(targets.size());
+
+    for (int i = 0; i < targets.size(); i++) {
+      aliasedTargets.add("alias(" + targets.get(i) + ",\"" + ALIAS_PREFIX + i + "\")");
+    }
+
+    return aliasedTargets;
+  }
+
+  /**
+   * Splits the results of an aliased multi-target render by target position, or returns null if
+   * any series does not carry one of the expected aliases.
+   */
+  static List<List<GraphiteResults>> demultiplex(List<GraphiteResults> combined, int targetCount) {
+    List<List<GraphiteResults>> results = new ArrayList<>(targetCount);
+
+    for (int i = 0; i < targetCount; i++) {
+      results.add(new ArrayList<>());
+    }
+
+    if (combined == null) {
+      return results;
+    }
+
+    for (GraphiteResults entry : combined) {
+      String alias = entry.getTarget();
+
+      if (alias == null || !alias.startsWith(ALIAS_PREFIX)) {
+        return null;
+      }
+
+      int targetIndex;
+
+      try {
+        targetIndex = Integer.parseInt(alias.substring(ALIAS_PREFIX.length()));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+
+      if (targetIndex < 0 || targetIndex >= targetCount) {
+        return null;
+      }
+
+      results.get(targetIndex).add(entry);
+    }
+
+    return results;
+  }
+
+  @Value
+  private static class RenderRange {
+    long from;
+    long until;
+    String format;
+  }
+}
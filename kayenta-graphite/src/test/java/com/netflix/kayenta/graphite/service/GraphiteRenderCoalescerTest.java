@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.graphite.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.netflix.kayenta.graphite.model.GraphiteResults;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class GraphiteRenderCoalescerTest {
+
+  @Test
+  public void combinedResultsAreSplitByTargetAlias() {
+    List<GraphiteResults> combined =
+        Arrays.asList(
+            series(GraphiteRenderCoalescer.ALIAS_PREFIX + 2, 3.0),
+            series(GraphiteRenderCoalescer.ALIAS_PREFIX + 0, 1.0),
+            series(GraphiteRenderCoalescer.ALIAS_PREFIX + 2, 4.0));
+
+    List<List<GraphiteResults>> results = GraphiteRenderCoalescer.demultiplex(combined, 3);
+
+    assertEquals(Arrays.asList(1.0), firstValues(results.get(0)));
+    assertEquals(Collections.emptyList(), firstValues(results.get(1)));
+    assertEquals(Arrays.asList(3.0, 4.0), firstValues(results.get(2)));
+  }
+
+  @Test
+  public void combinedResultsWithUnknownSeriesCannotBeSplit() {
+    List<GraphiteResults> combined =
+        Arrays.asList(
+            series(GraphiteRenderCoalescer.ALIAS_PREFIX + 0, 1.0),
+            series("some.metric.name", 2.0));
+
+    assertNull(GraphiteRenderCoalescer.demultiplex(combined, 2));
+    assertNull(
+        GraphiteRenderCoalescer.demultiplex(
+            Arrays.asList(series(GraphiteRenderCoalescer.ALIAS_PREFIX + 5, 1.0)), 2));
+  }
+
+  private static GraphiteResults series(String target, double value) {
+    return GraphiteResults.builder()
+        .target(target)
+        .datapoints(Collections.singletonList(Arrays.asList(value, 1000.0)))
+        .build();
+  }
+
+  private static List<Double> firstValues(List<GraphiteResults> results) {
+    return results.stream()
+        .map(result -> result.getDataPoints().findFirst().get())
+        .collect(Collectors.toList());
+  }
+}
@@ -64,7 +64,9 @@ public class InfluxDbConfiguration {
       AccountCredentialsRepository accountCredentialsRepository)
       throws IOException {
     InfluxDbMetricsService.InfluxDbMetricsServiceBuilder metricsServiceBuilder =
-        InfluxDbMetricsService.builder();
+        InfluxDbMetricsService.builder()
+            .chunkSize(influxDbConfigurationProperties.getChunkSize())
+            .responseConverter(influxDbResponseConverter);
 
     for (InfluxDbManagedAccount account : influxDbConfigurationProperties.getAccounts()) {
       String name = account.getName();
@@ -19,7 +19,14 @@ package com.netflix.kayenta.influxdb.config;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.Getter;
+import lombok.Setter;
 
 public class InfluxDbConfigurationProperties {
   @Getter private List<InfluxDbManagedAccount> accounts = new ArrayList<>();
+
+  /**
+   * The number of points per chunk InfluxDB should stream query responses in, so that large
+   * responses are converted as they arrive. Set to 0 to request unchunked responses.
+   */
+  @Getter @Setter private int chunkSize = 10000;
 }
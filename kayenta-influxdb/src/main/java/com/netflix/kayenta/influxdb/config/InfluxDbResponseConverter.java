@@ -16,32 +16,42 @@
 
 package com.netflix.kayenta.influxdb.config;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.influxdb.model.InfluxDbResult;
-import java.io.BufferedReader;
+import com.netflix.kayenta.util.DoubleArrayBuilder;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
-import org.springframework.util.CollectionUtils;
 import retrofit.converter.ConversionException;
 import retrofit.converter.Converter;
 import retrofit.mime.TypedInput;
 import retrofit.mime.TypedOutput;
 
+/**
+ * Converts InfluxDB query responses into one {@link InfluxDbResult} per series and field.
+ *
+ * <p>The response is read token by token rather than bound to a tree, so every series (including
+ * GROUP BY tag series) and every numeric field is handled without buffering the whole body. A
+ * chunked response is a stream of JSON documents; partial series that continue across chunks are
+ * merged by measurement, tags and field. Null values become NaN so the remaining values keep their
+ * positions.
+ */
 @Component
 @Slf4j
 public class InfluxDbResponseConverter implements Converter {
 
   private static final int DEFAULT_STEP_SIZE = 0;
+  private static final String TIME_COLUMN = "time";
   private final ObjectMapper kayentaObjectMapper;
 
   @Autowired
@@ -51,78 +61,252 @@ public class InfluxDbResponseConverter implements Converter {
 
   @Override
   public Object fromBody(TypedInput body, Type type) throws ConversionException {
+    return readResults(body);
+  }
+
+  /** Reads the results from the body, closing it once read. */
+  public List<InfluxDbResult> readResults(TypedInput body) throws ConversionException {
+    SeriesAccumulator accumulator = new SeriesAccumulator();
+    boolean receivedResults = false;
+
+    try (JsonParser parser = kayentaObjectMapper.getFactory().createParser(body.in())) {
+      while (parser.nextToken() == JsonToken.START_OBJECT) {
+        receivedResults |= readResponse(parser, accumulator);
+      }
+    } catch (IOException e) {
+      throw new ConversionException("Failed to read response from influxDb", e);
+    }
+
+    if (!receivedResults) {
+      throw new ConversionException("Unexpected response from influxDb");
+    }
+
+    List<InfluxDbResult> influxDbResultsList = accumulator.build();
+
+    if (influxDbResultsList.isEmpty()) {
+      log.warn("Received no data from Influxdb.");
+    }
+
+    log.debug("Converted response: {} ", influxDbResultsList);
+    return influxDbResultsList;
+  }
+
+  private boolean readResponse(JsonParser parser, SeriesAccumulator accumulator)
+      throws IOException, ConversionException {
+    boolean receivedResults = false;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if ("results".equals(fieldName) && token == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          readResult(parser, accumulator);
+          receivedResults = true;
+        }
+      } else if ("error".equals(fieldName)) {
+        throw new ConversionException("Received error from influxDb: " + parser.getText());
+      } else {
+        parser.skipChildren();
+      }
+    }
 
-    try (BufferedReader reader = new BufferedReader(new InputStreamReader(body.in()))) {
-      String json = reader.readLine();
-      log.debug("Converting response from influxDb: {}", json);
+    return receivedResults;
+  }
 
-      Map result = getResultObject(json);
-      List<Map> seriesList = (List<Map>) result.get("series");
+  private void readResult(JsonParser parser, SeriesAccumulator accumulator)
+      throws IOException, ConversionException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
 
-      if (CollectionUtils.isEmpty(seriesList)) {
-        log.warn("Received no data from Influxdb.");
-        return null;
+      if ("series".equals(fieldName) && token == JsonToken.START_ARRAY) {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          readSeries(parser, accumulator);
+        }
+      } else if ("error".equals(fieldName)) {
+        throw new ConversionException("Received error from influxDb: " + parser.getText());
+      } else {
+        parser.skipChildren();
       }
+    }
+  }
+
+  private void readSeries(JsonParser parser, SeriesAccumulator accumulator)
+      throws IOException, ConversionException {
+    String name = null;
+    Map<String, String> tags = null;
+    List<String> columns = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String fieldName = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
 
-      Map series = seriesList.get(0);
-      List<String> seriesColumns = (List<String>) series.get("columns");
-      List<List> seriesValues = (List<List>) series.get("values");
-      List<InfluxDbResult> influxDbResultsList = new ArrayList<InfluxDbResult>(seriesValues.size());
-
-      // TODO(joerajeev): if returning tags (other than the field names) we will need to skip tags
-      // from this loop,
-      // and to extract and set the tag values to the influxDb result.
-      for (int i = 1;
-          i < seriesColumns.size();
-          i++) { // Starting from index 1 to skip 'time' column
-
-        String id = seriesColumns.get(i);
-        long firstTimeMillis = extractTimeInMillis(seriesValues, 0);
-        long stepMillis = calculateStep(seriesValues, firstTimeMillis);
-        List<Double> values = new ArrayList<>(seriesValues.size());
-        for (List<Object> valueRow : seriesValues) {
-          if (valueRow.get(i) != null) {
-            values.add(Double.valueOf((Integer) valueRow.get(i)));
-          }
+      if ("name".equals(fieldName)) {
+        name = parser.getValueAsString();
+      } else if ("tags".equals(fieldName) && token == JsonToken.START_OBJECT) {
+        tags = readTags(parser);
+      } else if ("columns".equals(fieldName) && token == JsonToken.START_ARRAY) {
+        columns = readColumns(parser);
+      } else if ("values".equals(fieldName) && token == JsonToken.START_ARRAY) {
+        // InfluxDB always writes the columns ahead of the values, which lets rows be consumed as
+        // they are read.
+        if (columns == null) {
+          throw new ConversionException("Received series values before columns from influxDb");
         }
-        influxDbResultsList.add(new InfluxDbResult(id, firstTimeMillis, stepMillis, null, values));
+        readRows(parser, columns, accumulator.getFields(name, tags, columns));
+      } else {
+        parser.skipChildren();
       }
+    }
+  }
 
-      log.debug("Converted response: {} ", influxDbResultsList);
-      return influxDbResultsList;
-    } catch (IOException e) {
-      e.printStackTrace();
+  private static Map<String, String> readTags(JsonParser parser) throws IOException {
+    Map<String, String> tags = new LinkedHashMap<>();
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String tagName = parser.getCurrentName();
+      parser.nextToken();
+      tags.put(tagName, parser.getValueAsString());
     }
 
-    return null;
+    return tags;
   }
 
-  private Map getResultObject(String json)
-      throws IOException, JsonParseException, JsonMappingException, ConversionException {
-    Map responseMap = kayentaObjectMapper.readValue(json, Map.class);
-    List<Map> results = (List<Map>) responseMap.get("results");
-    if (CollectionUtils.isEmpty(results)) {
-      throw new ConversionException("Unexpected response from influxDb");
+  private static List<String> readColumns(JsonParser parser) throws IOException {
+    List<String> columns = new ArrayList<>();
+
+    while (parser.nextToken() != JsonToken.END_ARRAY) {
+      columns.add(parser.getValueAsString());
     }
-    Map result = (Map) results.get(0);
-    return result;
+
+    return columns;
   }
 
-  private long calculateStep(List<List> seriesValues, long firstTimeMillis) {
-    long nextTimeMillis = extractTimeInMillis(seriesValues, 1);
-    long stepMillis =
-        seriesValues.size() > 1 ? nextTimeMillis - firstTimeMillis : DEFAULT_STEP_SIZE;
-    return stepMillis;
+  private static void readRows(JsonParser parser, List<String> columns, FieldSeries[] fields)
+      throws IOException {
+    int timeColumn = Math.max(0, columns.indexOf(TIME_COLUMN));
+    double[] row = new double[columns.size()];
+
+    while (parser.nextToken() == JsonToken.START_ARRAY) {
+      long timeMillis = 0;
+      int column = 0;
+
+      for (JsonToken token = parser.nextToken();
+          token != JsonToken.END_ARRAY;
+          token = parser.nextToken(), column++) {
+        if (column == timeColumn) {
+          timeMillis = readTimeMillis(parser, token);
+        } else if (column < row.length) {
+          row[column] = readValue(parser, token);
+        } else {
+          parser.skipChildren();
+        }
+      }
+
+      for (int i = 0; i < fields.length; i++) {
+        if (fields[i] != null) {
+          fields[i].add(timeMillis, i < column ? row[i] : Double.NaN);
+        }
+      }
+    }
   }
 
-  private long extractTimeInMillis(List<List> seriesValues, int index) {
-    String firstUtcTime = (String) seriesValues.get(index).get(0);
-    long startTimeMillis = Instant.parse(firstUtcTime).toEpochMilli();
-    return startTimeMillis;
+  private static long readTimeMillis(JsonParser parser, JsonToken token) throws IOException {
+    if (token == JsonToken.VALUE_NUMBER_INT) {
+      // Epoch timestamps, as returned when the query asks for epoch=ms.
+      return parser.getLongValue();
+    }
+
+    return Instant.parse(parser.getText()).toEpochMilli();
+  }
+
+  private static double readValue(JsonParser parser, JsonToken token) throws IOException {
+    switch (token) {
+      case VALUE_NUMBER_INT:
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_TRUE:
+        return 1;
+      case VALUE_FALSE:
+        return 0;
+      case VALUE_STRING:
+        try {
+          return Double.parseDouble(parser.getText());
+        } catch (NumberFormatException e) {
+          return Double.NaN;
+        }
+      default:
+        parser.skipChildren();
+        return Double.NaN;
+    }
   }
 
   @Override
   public TypedOutput toBody(Object object) {
     return null;
   }
+
+  /** Collects the values of each series field, keyed by measurement, tags and field name. */
+  private static class SeriesAccumulator {
+
+    private final Map<List<Object>, FieldSeries> fieldSeriesByKey = new LinkedHashMap<>();
+
+    /** Returns the field series for each column, with {@code null} for the time column. */
+    FieldSeries[] getFields(String name, Map<String, String> tags, List<String> columns) {
+      FieldSeries[] fields = new FieldSeries[columns.size()];
+
+      for (int i = 0; i < columns.size(); i++) {
+        String column = columns.get(i);
+
+        if (!TIME_COLUMN.equals(column)) {
+          fields[i] =
+              fieldSeriesByKey.computeIfAbsent(
+                  Arrays.asList(name, tags, column), key -> new FieldSeries(column, tags));
+        }
+      }
+
+      return fields;
+    }
+
+    List<InfluxDbResult> build() {
+      List<InfluxDbResult> influxDbResultsList = new ArrayList<>(fieldSeriesByKey.size());
+
+      for (FieldSeries fieldSeries : fieldSeriesByKey.values()) {
+        if (!fieldSeries.values.isEmpty()) {
+          influxDbResultsList.add(fieldSeries.build());
+        }
+      }
+
+      return influxDbResultsList;
+    }
+  }
+
+  private static class FieldSeries {
+
+    private final String id;
+    private final Map<String, String> tags;
+    private final DoubleArrayBuilder values = new DoubleArrayBuilder(256);
+    private long firstTimeMillis;
+    private long stepMillis = DEFAULT_STEP_SIZE;
+
+    FieldSeries(String id, Map<String, String> tags) {
+      this.id = id;
+      this.tags = tags;
+    }
+
+    void add(long timeMillis, double value) {
+      if (values.isEmpty()) {
+        firstTimeMillis = timeMillis;
+      } else if (values.size() == 1) {
+        stepMillis = timeMillis - firstTimeMillis;
+      }
+
+      values.add(value);
+    }
+
+    InfluxDbResult build() {
+      return new InfluxDbResult(id, firstTimeMillis, stepMillis, tags, values.toList());
+    }
+  }
 }
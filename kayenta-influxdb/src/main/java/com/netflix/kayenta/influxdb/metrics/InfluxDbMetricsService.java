@@ -16,10 +16,12 @@
 
 package com.netflix.kayenta.influxdb.metrics;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.CanaryMetricConfig;
 import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.canary.providers.metrics.InfluxdbCanaryMetricSetQueryConfig;
+import com.netflix.kayenta.influxdb.config.InfluxDbResponseConverter;
 import com.netflix.kayenta.influxdb.model.InfluxDbResult;
 import com.netflix.kayenta.influxdb.security.InfluxDbNamedAccountCredentials;
 import com.netflix.kayenta.influxdb.service.InfluxDbRemoteService;
@@ -29,6 +31,7 @@ import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
@@ -40,10 +43,17 @@ import lombok.Getter;
 import lombok.Singular;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import retrofit.RetrofitError;
+import retrofit.client.Response;
+import retrofit.converter.ConversionException;
 
 @Slf4j
 @Builder
 public class InfluxDbMetricsService implements MetricsService {
+
+  // Epoch timestamps are cheaper to parse than RFC3339 strings.
+  private static final String EPOCH_PRECISION = "ms";
+
   @NotNull @Singular @Getter private List<String> accountNames;
 
   @Autowired private final AccountCredentialsRepository accountCredentialsRepository;
@@ -52,6 +62,11 @@ public class InfluxDbMetricsService implements MetricsService {
 
   @Autowired private final InfluxDbQueryBuilder queryBuilder;
 
+  @Autowired private final InfluxDbResponseConverter responseConverter;
+
+  // The number of points per chunk InfluxDB streams the response in; 0 disables chunking.
+  @Builder.Default private int chunkSize = 0;
+
   @Override
   public String getType() {
     return InfluxdbCanaryMetricSetQueryConfig.SERVICE_TYPE;
@@ -91,7 +106,11 @@ public class InfluxDbMetricsService implements MetricsService {
     List<InfluxDbResult> influxDbResults;
 
     try {
-      influxDbResults = remoteService.query(metricSetName, query);
+      Response response =
+          chunkSize > 0
+              ? remoteService.query(metricSetName, query, EPOCH_PRECISION, true, chunkSize)
+              : remoteService.query(metricSetName, query, EPOCH_PRECISION, null, null);
+      influxDbResults = readResults(response);
     } finally {
       long endTime = registry.clock().monotonicTime();
       Id influxDbFetchTimerId = registry.createId("influxdb.fetchTime");
@@ -100,6 +119,27 @@ public class InfluxDbMetricsService implements MetricsService {
     return influxDbResults;
   }
 
+  /**
+   * Parses the streamed response body. Failures are thrown as retrofit would have thrown them had
+   * it read the body itself, so a connection lost mid-body is still retried as a network error.
+   */
+  private List<InfluxDbResult> readResults(Response response) {
+    if (response.getBody() == null) {
+      return null;
+    }
+
+    try {
+      return responseConverter.readResults(response.getBody());
+    } catch (ConversionException e) {
+      if (e.getCause() instanceof IOException
+          && !(e.getCause() instanceof JsonProcessingException)) {
+        throw RetrofitError.networkError(response.getUrl(), (IOException) e.getCause());
+      }
+      throw RetrofitError.conversionError(
+          response.getUrl(), response, responseConverter, List.class, e);
+    }
+  }
+
   private List<MetricSet> buildMetricSets(
       String metricSetName, List<InfluxDbResult> influxDbResults) {
     List<MetricSet> metricSets = new ArrayList<MetricSet>();
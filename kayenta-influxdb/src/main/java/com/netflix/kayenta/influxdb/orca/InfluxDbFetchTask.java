@@ -20,9 +20,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.metrics.SynchronousQueryProcessor;
+import com.netflix.kayenta.metrics.orca.MetricFetchTask;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
-import com.netflix.spinnaker.orca.api.pipeline.RetryableTask;
 import com.netflix.spinnaker.orca.api.pipeline.TaskResult;
 import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution;
 import java.io.IOException;
@@ -35,7 +35,7 @@ import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class InfluxDbFetchTask implements RetryableTask {
+public class InfluxDbFetchTask implements MetricFetchTask {
   private final ObjectMapper kayentaObjectMapper;
   private final AccountCredentialsRepository accountCredentialsRepository;
   private final SynchronousQueryProcessor synchronousQueryProcessor;
@@ -56,8 +56,8 @@ public class InfluxDbFetchTask implements RetryableTask {
   }
 
   @Override
-  public long getTimeout() {
-    return Duration.ofMinutes(2).toMillis();
+  public SynchronousQueryProcessor getSynchronousQueryProcessor() {
+    return synchronousQueryProcessor;
   }
 
   @Nonnull
@@ -91,6 +91,7 @@ public class InfluxDbFetchTask implements RetryableTask {
         resolvedStorageAccountName,
         kayentaObjectMapper.convertValue(context.get("canaryConfig"), CanaryConfig.class),
         (Integer) stage.getContext().get("metricIndex"),
-        canaryScope);
+        canaryScope,
+        context);
   }
 }
@@ -16,15 +16,25 @@
 
 package com.netflix.kayenta.influxdb.service;
 
-import com.netflix.kayenta.influxdb.model.InfluxDbResult;
-import java.util.List;
+import retrofit.client.Response;
 import retrofit.http.GET;
 import retrofit.http.Query;
+import retrofit.http.Streaming;
 
 public interface InfluxDbRemoteService {
 
   // See
   // https://docs.influxdata.com/influxdb/v1.5/guides/querying_data/#querying-data-with-the-http-api
+  //
+  // Leaving chunked or chunkSize null omits them, so the whole response comes back in one piece.
+  // Streaming leaves the body unread, so InfluxDbResponseConverter can parse it as it arrives
+  // rather than after retrofit buffered all of it. Retrofit only streams raw responses.
   @GET("/query")
-  List<InfluxDbResult> query(@Query("db") String databaseName, @Query("q") String query);
+  @Streaming
+  Response query(
+      @Query("db") String databaseName,
+      @Query("q") String query,
+      @Query("epoch") String epoch,
+      @Query("chunked") Boolean chunked,
+      @Query("chunk_size") Integer chunkSize);
 }
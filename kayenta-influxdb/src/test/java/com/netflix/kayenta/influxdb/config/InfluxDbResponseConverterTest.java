@@ -24,6 +24,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.influxdb.model.InfluxDbResult;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import org.junit.Before;
 import org.junit.Test;
@@ -74,6 +76,39 @@ public class InfluxDbResponseConverterTest {
     assertThat(result, is(results));
   }
 
+  @Test
+  public void deserializeChunkedTaggedSeries() throws Exception {
+    String chunks =
+        "{\"results\":[{\"statement_id\":0,\"series\":["
+            + "{\"name\":\"cpu\",\"tags\":{\"host\":\"a\"},\"columns\":[\"time\",\"usage\"],"
+            + "\"values\":[[1527396600000,0.5],[1527396660000,null]],\"partial\":true}],"
+            + "\"partial\":true}]}\n"
+            + "{\"results\":[{\"statement_id\":0,\"series\":["
+            + "{\"name\":\"cpu\",\"tags\":{\"host\":\"a\"},\"columns\":[\"time\",\"usage\"],"
+            + "\"values\":[[1527396720000,1.25]]},"
+            + "{\"name\":\"cpu\",\"tags\":{\"host\":\"b\"},\"columns\":[\"time\",\"usage\"],"
+            + "\"values\":[[1527396600000,2]]}]}]}\n";
+    TypedInput input = new TypedByteArray(MIME_TYPE, chunks.getBytes());
+    List<InfluxDbResult> result =
+        (List<InfluxDbResult>) influxDbResponseConverter.fromBody(input, List.class);
+
+    assertThat(result.size(), is(2));
+    assertThat(result.get(0).getTags(), is(Collections.singletonMap("host", "a")));
+    assertThat(result.get(0).getStartTimeMillis(), is(1527396600000L));
+    assertThat(result.get(0).getStepMillis(), is(60000L));
+    assertThat(result.get(0).getValues(), is(Arrays.asList(0.5, Double.NaN, 1.25)));
+    assertThat(result.get(1).getTags(), is(Collections.singletonMap("host", "b")));
+    assertThat(result.get(1).getValues(), is(Collections.singletonList(2d)));
+  }
+
+  @Test(expected = ConversionException.class)
+  public void deserializeErrorResult() throws Exception {
+    TypedInput input =
+        new TypedByteArray(
+            MIME_TYPE, "{\"results\":[{\"statement_id\":0,\"error\":\"boom\"}]}".getBytes());
+    influxDbResponseConverter.fromBody(input, List.class);
+  }
+
   @Test(expected = ConversionException.class)
   public void deserializeWrongValue() throws Exception {
     TypedInput input = new TypedByteArray(MIME_TYPE, "{\"foo\":\"bar\"}".getBytes());
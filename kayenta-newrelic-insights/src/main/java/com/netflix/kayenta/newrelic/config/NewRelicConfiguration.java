@@ -17,6 +17,7 @@
 package com.netflix.kayenta.newrelic.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.newrelic.metrics.NewRelicMetricsService;
 import com.netflix.kayenta.newrelic.security.NewRelicCredentials;
@@ -29,6 +30,7 @@ import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.squareup.okhttp.OkHttpClient;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -124,6 +126,13 @@ public class NewRelicConfiguration {
                   new JacksonConverter(objectMapper),
                   endpoint,
                   okHttpClient));
+          accountCredentialsBuilder.sliceExecutor(
+              Executors.newFixedThreadPool(
+                  Math.max(1, account.getSliceConcurrency()),
+                  new ThreadFactoryBuilder()
+                      .setNameFormat("newrelic-" + name + "-slice-%d")
+                      .setDaemon(true)
+                      .build()));
         }
         accountCredentialsBuilder.supportedTypes(supportedTypes);
       }
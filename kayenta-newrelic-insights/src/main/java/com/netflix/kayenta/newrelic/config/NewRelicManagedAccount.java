@@ -37,6 +37,9 @@ public class NewRelicManagedAccount {
 
   @Nullable private String defaultLocationKey;
 
+  // The number of slices of a long, sliced query that may be in flight at once for this account.
+  private int sliceConcurrency = 4;
+
   private List<AccountCredentials.Type> supportedTypes =
       Collections.singletonList(AccountCredentials.Type.METRICS_STORE);
 }
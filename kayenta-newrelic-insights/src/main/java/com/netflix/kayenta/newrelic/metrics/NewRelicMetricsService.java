@@ -21,6 +21,7 @@ import com.netflix.kayenta.canary.CanaryMetricConfig;
 import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.canary.providers.metrics.NewRelicCanaryMetricSetQueryConfig;
 import com.netflix.kayenta.metrics.MetricSet;
+import com.netflix.kayenta.metrics.MetricsQueryStats;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.newrelic.canary.NewRelicCanaryScope;
 import com.netflix.kayenta.newrelic.config.NewRelicScopeConfiguration;
@@ -29,13 +30,18 @@ import com.netflix.kayenta.newrelic.security.NewRelicNamedAccountCredentials;
 import com.netflix.kayenta.newrelic.service.NewRelicRemoteService;
 import com.netflix.kayenta.newrelic.service.NewRelicTimeSeries;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
+import com.netflix.kayenta.util.DoubleArrayBuilder;
 import com.netflix.spectator.api.Registry;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
@@ -100,7 +106,22 @@ public class NewRelicMetricsService implements MetricsService {
     NewRelicCredentials credentials = accountCredentials.getCredentials();
     NewRelicRemoteService remoteService = accountCredentials.getNewRelicRemoteService();
 
-    String query = buildQuery(accountName, canaryConfig, canaryMetricConfig, canaryScope);
+    NewRelicCanaryScope newRelicCanaryScope = (NewRelicCanaryScope) canaryScope;
+    NewRelicCanaryMetricSetQueryConfig queryConfig =
+        (NewRelicCanaryMetricSetQueryConfig) canaryMetricConfig.getQuery();
+    List<NewRelicQueryBuilderService.QuerySlice> slices =
+        queryBuilder.planQuery(
+            canaryConfig,
+            newRelicCanaryScope,
+            queryConfig,
+            newrelicScopeConfigurationMap.get(accountName));
+
+    if (slices.size() > 1) {
+      return Collections.singletonList(
+          querySlices(accountCredentials, canaryMetricConfig, canaryScope, slices));
+    }
+
+    String query = slices.get(0).getQuery();
 
     NewRelicTimeSeries timeSeries =
         remoteService.getTimeSeries(
@@ -127,6 +148,118 @@ public class NewRelicMetricsService implements MetricsService {
             .build());
   }
 
+  /**
+   * Runs each slice of a sliced query (concurrently, when the account has a slice executor) and
+   * merges the results into one contiguous metric set. Buckets are placed by their begin time, so
+   * any bucket missing from a slice's results is NaN.
+   */
+  private MetricSet querySlices(
+      NewRelicNamedAccountCredentials accountCredentials,
+      CanaryMetricConfig canaryMetricConfig,
+      CanaryScope canaryScope,
+      List<NewRelicQueryBuilderService.QuerySlice> slices) {
+    List<NewRelicTimeSeries> sliceResults = executeSlices(accountCredentials, slices);
+
+    NewRelicTimeSeries.NewresultResultMetadata firstMetadata = sliceResults.get(0).getMetadata();
+    NewRelicTimeSeries.NewresultResultMetadata lastMetadata =
+        sliceResults.get(sliceResults.size() - 1).getMetadata();
+    Instant begin =
+        firstMetadata != null && firstMetadata.getBeginTimeMillis() != null
+            ? Instant.ofEpochMilli(firstMetadata.getBeginTimeMillis())
+            : slices.get(0).getStart();
+    Instant end =
+        lastMetadata != null && lastMetadata.getEndTimeMillis() != null
+            ? Instant.ofEpochMilli(lastMetadata.getEndTimeMillis())
+            : slices.get(slices.size() - 1).getEnd();
+
+    long stepSeconds = canaryScope.getStep();
+    long durationSeconds = end.getEpochSecond() - begin.getEpochSecond();
+    DoubleArrayBuilder values =
+        DoubleArrayBuilder.ofNaN((int) ((durationSeconds + stepSeconds - 1) / stepSeconds));
+
+    for (NewRelicTimeSeries sliceResult : sliceResults) {
+      if (sliceResult.getTimeSeries() == null) {
+        continue;
+      }
+
+      for (NewRelicTimeSeries.NewRelicSeriesEntry entry : sliceResult.getTimeSeries()) {
+        long offsetSeconds = entry.getBeginTimeSeconds() - begin.getEpochSecond();
+
+        if (offsetSeconds >= 0) {
+          values.set((int) (offsetSeconds / stepSeconds), entry.getValue());
+        }
+      }
+    }
+
+    return MetricSet.builder()
+        .name(canaryMetricConfig.getName())
+        .startTimeMillis(begin.toEpochMilli())
+        .startTimeIso(begin.toString())
+        .stepMillis(Duration.ofSeconds(stepSeconds).toMillis())
+        .endTimeMillis(end.toEpochMilli())
+        .endTimeIso(end.toString())
+        .values(values.toList())
+        .attribute(
+            "query",
+            slices.stream()
+                .map(NewRelicQueryBuilderService.QuerySlice::getQuery)
+                .collect(Collectors.joining("\n")))
+        .attribute("querySlices", String.valueOf(slices.size()))
+        .build();
+  }
+
+  private List<NewRelicTimeSeries> executeSlices(
+      NewRelicNamedAccountCredentials accountCredentials,
+      List<NewRelicQueryBuilderService.QuerySlice> slices) {
+    NewRelicCredentials credentials = accountCredentials.getCredentials();
+    NewRelicRemoteService remoteService = accountCredentials.getNewRelicRemoteService();
+    ExecutorService sliceExecutor = accountCredentials.getSliceExecutor();
+    List<NewRelicTimeSeries> sliceResults = new ArrayList<>(slices.size());
+
+    if (sliceExecutor == null) {
+      for (NewRelicQueryBuilderService.QuerySlice slice : slices) {
+        sliceResults.add(
+            remoteService.getTimeSeries(
+                credentials.getApiKey(), credentials.getApplicationKey(), slice.getQuery()));
+      }
+
+      return sliceResults;
+    }
+
+    List<Future<NewRelicTimeSeries>> futures = new ArrayList<>(slices.size());
+
+    for (NewRelicQueryBuilderService.QuerySlice slice : slices) {
+      futures.add(
+          sliceExecutor.submit(
+              MetricsQueryStats.propagate(
+                  () ->
+                      remoteService.getTimeSeries(
+                          credentials.getApiKey(),
+                          credentials.getApplicationKey(),
+                          slice.getQuery()))));
+    }
+
+    try {
+      for (Future<NewRelicTimeSeries> future : futures) {
+        sliceResults.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while querying New Relic.", e);
+    } catch (ExecutionException e) {
+      // Surface the underlying RetrofitError (or similar) so that callers can decide whether the
+      // failure is retryable.
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to query New Relic.", e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+
+    return sliceResults;
+  }
+
   /**
    * identifies the stepDuration based on the timeseries. With 'TIMESERIES MAX' New Relic returns
    * the maximum possible resolution we need to determine the step size.
@@ -5,9 +5,14 @@ import com.netflix.kayenta.canary.providers.metrics.NewRelicCanaryMetricSetQuery
 import com.netflix.kayenta.canary.providers.metrics.QueryConfigUtils;
 import com.netflix.kayenta.newrelic.canary.NewRelicCanaryScope;
 import com.netflix.kayenta.newrelic.config.NewRelicScopeConfiguration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import lombok.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -21,6 +26,97 @@ import org.springframework.util.StringUtils;
 @Component
 public class NewRelicQueryBuilderService {
 
+  /** The most buckets New Relic returns from a single TIMESERIES query. */
+  static final int MAX_TIMESERIES_BUCKETS = 366;
+
+  /** One NRQL statement of a planned query, and the part of the scope it covers. */
+  @Value
+  static class QuerySlice {
+    Instant start;
+    Instant end;
+    String query;
+  }
+
+  /**
+   * Plans the NRQL statements needed to fetch the data for a metric. A scope that spans more
+   * TIMESERIES buckets than New Relic returns from a single query is split into consecutive,
+   * step-aligned slices that each stay within the limit, so no resolution is lost.
+   *
+   * @param canaryConfig The supplied canary configuration for the execution.
+   * @param canaryScope The New Relic Canary Scope for the execution.
+   * @param queryConfig The New Relic Query Config for the metric.
+   * @param scopeConfiguration The default scope configuration for the given metrics account.
+   * @return The slices, in time order, whose results together cover the whole scope.
+   */
+  List<QuerySlice> planQuery(
+      CanaryConfig canaryConfig,
+      NewRelicCanaryScope canaryScope,
+      NewRelicCanaryMetricSetQueryConfig queryConfig,
+      NewRelicScopeConfiguration scopeConfiguration) {
+    return planQuery(
+        canaryConfig, canaryScope, queryConfig, scopeConfiguration, MAX_TIMESERIES_BUCKETS);
+  }
+
+  List<QuerySlice> planQuery(
+      CanaryConfig canaryConfig,
+      NewRelicCanaryScope canaryScope,
+      NewRelicCanaryMetricSetQueryConfig queryConfig,
+      NewRelicScopeConfiguration scopeConfiguration,
+      int maxBuckets) {
+    Instant start = canaryScope.getStart();
+    Instant end = canaryScope.getEnd();
+    long stepSeconds = canaryScope.getStep() == null ? 0 : canaryScope.getStep();
+    long durationSeconds = end.getEpochSecond() - start.getEpochSecond();
+
+    // With TIMESERIES MAX New Relic picks the resolution itself, so there is nothing to split.
+    if (stepSeconds <= 0 || (durationSeconds + stepSeconds - 1) / stepSeconds <= maxBuckets) {
+      return Collections.singletonList(
+          new QuerySlice(
+              start, end, buildQuery(canaryConfig, canaryScope, queryConfig, scopeConfiguration)));
+    }
+
+    long sliceSeconds = maxBuckets * stepSeconds;
+    List<QuerySlice> slices = new ArrayList<>();
+
+    for (Instant sliceStart = start;
+        sliceStart.isBefore(end);
+        sliceStart = sliceStart.plusSeconds(sliceSeconds)) {
+      Instant sliceEnd = sliceStart.plusSeconds(sliceSeconds);
+
+      if (sliceEnd.isAfter(end)) {
+        sliceEnd = end;
+      }
+
+      NewRelicCanaryScope sliceScope = copyWithInterval(canaryScope, sliceStart, sliceEnd);
+      slices.add(
+          new QuerySlice(
+              sliceStart,
+              sliceEnd,
+              buildQuery(canaryConfig, sliceScope, queryConfig, scopeConfiguration)));
+    }
+
+    return slices;
+  }
+
+  private static NewRelicCanaryScope copyWithInterval(
+      NewRelicCanaryScope canaryScope, Instant start, Instant end) {
+    NewRelicCanaryScope sliceScope = new NewRelicCanaryScope();
+    sliceScope.setScope(canaryScope.getScope());
+    sliceScope.setLocation(canaryScope.getLocation());
+    sliceScope.setStart(start);
+    sliceScope.setEnd(end);
+    sliceScope.setStep(canaryScope.getStep());
+    sliceScope.setScopeKey(canaryScope.getScopeKey());
+    sliceScope.setLocationKey(canaryScope.getLocationKey());
+
+    // buildQuery adds template values to the extended scope params, so every slice gets its own.
+    if (canaryScope.getExtendedScopeParams() != null) {
+      sliceScope.setExtendedScopeParams(new HashMap<>(canaryScope.getExtendedScopeParams()));
+    }
+
+    return sliceScope;
+  }
+
   /**
    * Method for taking data from the execution request and metric under evaluation and generating
    * the NRQL statement to send to the New Relic Insights API to fetch the data needed for Kayenta
@@ -20,10 +20,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.metrics.SynchronousQueryProcessor;
+import com.netflix.kayenta.metrics.orca.MetricFetchTask;
 import com.netflix.kayenta.newrelic.canary.NewRelicCanaryScope;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
-import com.netflix.spinnaker.orca.api.pipeline.RetryableTask;
 import com.netflix.spinnaker.orca.api.pipeline.TaskResult;
 import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution;
 import java.io.IOException;
@@ -36,7 +36,7 @@ import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class NewRelicFetchTask implements RetryableTask {
+public class NewRelicFetchTask implements MetricFetchTask {
 
   private final ObjectMapper kayentaObjectMapper;
   private final AccountCredentialsRepository accountCredentialsRepository;
@@ -58,8 +58,8 @@ public class NewRelicFetchTask implements RetryableTask {
   }
 
   @Override
-  public long getTimeout() {
-    return Duration.ofMinutes(2).toMillis();
+  public SynchronousQueryProcessor getSynchronousQueryProcessor() {
+    return synchronousQueryProcessor;
   }
 
   @Nonnull
@@ -94,6 +94,7 @@ public class NewRelicFetchTask implements RetryableTask {
         resolvedStorageAccountName,
         kayentaObjectMapper.convertValue(context.get("canaryConfig"), CanaryConfig.class),
         (Integer) stage.getContext().get("metricIndex"),
-        canaryScope);
+        canaryScope,
+        context);
   }
 }
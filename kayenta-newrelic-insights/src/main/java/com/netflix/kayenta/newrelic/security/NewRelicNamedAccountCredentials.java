@@ -21,6 +21,7 @@ import com.netflix.kayenta.newrelic.service.NewRelicRemoteService;
 import com.netflix.kayenta.retrofit.config.RemoteService;
 import com.netflix.kayenta.security.AccountCredentials;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Data;
@@ -44,4 +45,7 @@ public class NewRelicNamedAccountCredentials implements AccountCredentials<NewRe
   }
 
   @JsonIgnore NewRelicRemoteService newRelicRemoteService;
+
+  // Runs the slices of a sliced query; sized to the account's slice concurrency.
+  @JsonIgnore ExecutorService sliceExecutor;
 }
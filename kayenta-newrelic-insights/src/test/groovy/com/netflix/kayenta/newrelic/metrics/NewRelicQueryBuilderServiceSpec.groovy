@@ -225,4 +225,47 @@ class NewRelicQueryBuilderServiceSpec extends Specification {
 
   }
 
+  void "scopes with more buckets than a single query returns are planned as contiguous slices"() {
+    given:
+    NewRelicCanaryMetricSetQueryConfig queryConfig =
+      NewRelicCanaryMetricSetQueryConfig.builder()
+        .select("SELECT count(*) FROM Transaction")
+        .build()
+    CanaryConfig canaryConfig =
+      CanaryConfig.builder()
+        .templates(templates)
+        .metric(CanaryMetricConfig.builder().query(queryConfig).build())
+        .build()
+    NewRelicCanaryScope newRelicCanaryScope = new NewRelicCanaryScope()
+    newRelicCanaryScope.setScope('myservice-prod-v01')
+    newRelicCanaryScope.setLocation('us-west-2')
+    newRelicCanaryScope.setStep(60)
+    newRelicCanaryScope.setStart(start)
+    newRelicCanaryScope.setEnd(end)
+    newRelicCanaryScope.setExtendedScopeParams([:])
+    NewRelicScopeConfiguration scopeConfiguration = NewRelicScopeConfiguration.builder()
+      .defaultScopeKey('asg_name')
+      .build()
+
+    when:
+    List<NewRelicQueryBuilderService.QuerySlice> slices =
+      queryBuilder.planQuery(canaryConfig, newRelicCanaryScope, queryConfig, scopeConfiguration, 25)
+
+    then:
+    slices*.start == [start, start.plusSeconds(1500), start.plusSeconds(3000)]
+    slices*.end == [start.plusSeconds(1500), start.plusSeconds(3000), end]
+    slices[1].query ==
+      "SELECT count(*) FROM Transaction TIMESERIES 60 seconds " +
+        "SINCE ${start.plusSeconds(1500).epochSecond} UNTIL ${start.plusSeconds(3000).epochSecond} " +
+        "WHERE asg_name LIKE 'myservice-prod-v01'"
+    newRelicCanaryScope.start == start
+    newRelicCanaryScope.end == end
+
+    when:
+    slices = queryBuilder.planQuery(canaryConfig, newRelicCanaryScope, queryConfig, scopeConfiguration, 60)
+
+    then:
+    slices.size() == 1
+    slices[0].query == queryBuilder.buildQuery(canaryConfig, newRelicCanaryScope, queryConfig, scopeConfiguration)
+  }
 }
@@ -26,9 +26,11 @@ import com.netflix.spinnaker.kork.web.exceptions.NotFoundException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Getter;
@@ -67,6 +69,40 @@ public class MemoryStorageService implements StorageService {
     return (T) entry;
   }
 
+  // The batch operations run in the calling thread: there are no requests to overlap.
+
+  @Override
+  public <T> Map<String, T> loadObjects(
+      String accountName, ObjectType objectType, List<String> objectKeys, Executor executor) {
+    Map<String, Object> objects =
+        getCredentials(accountName, objectType).getObjects().get(objectType);
+    Map<String, T> objectsByKey = new LinkedHashMap<>();
+
+    for (String objectKey : objectKeys) {
+      Object entry = objects.get(objectKey);
+
+      if (entry != null) {
+        objectsByKey.put(objectKey, (T) entry);
+      }
+    }
+
+    return objectsByKey;
+  }
+
+  @Override
+  public <T> void storeObjects(
+      String accountName, ObjectType objectType, Map<String, T> objectsByKey) {
+    objectsByKey.forEach(
+        (objectKey, obj) -> storeObject(accountName, objectType, objectKey, obj, null, true));
+  }
+
+  @Override
+  public void deleteObjects(String accountName, ObjectType objectType, List<String> objectKeys) {
+    for (String objectKey : objectKeys) {
+      deleteObject(accountName, objectType, objectKey);
+    }
+  }
+
   @Override
   public <T> void storeObject(
       String accountName,
@@ -16,6 +16,7 @@
 
 package com.netflix.kayenta.prometheus.config;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.prometheus.health.PrometheusHealthCache;
 import com.netflix.kayenta.prometheus.health.PrometheusHealthIndicator;
@@ -31,6 +32,7 @@ import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.squareup.okhttp.OkHttpClient;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.actuate.health.HealthIndicator;
 import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
@@ -77,7 +79,17 @@ public class PrometheusConfiguration {
       AccountCredentialsRepository accountCredentialsRepository) {
     PrometheusMetricsService.PrometheusMetricsServiceBuilder prometheusMetricsServiceBuilder =
         PrometheusMetricsService.builder();
-    prometheusMetricsServiceBuilder.scopeLabel(prometheusConfigurationProperties.getScopeLabel());
+    prometheusMetricsServiceBuilder
+        .scopeLabel(prometheusConfigurationProperties.getScopeLabel())
+        .maxPointsPerQuery(prometheusConfigurationProperties.getMaxPointsPerQuery())
+        .maxPointsPerSeries(prometheusConfigurationProperties.getMaxPointsPerSeries())
+        .queryExecutor(
+            Executors.newFixedThreadPool(
+                Math.max(1, prometheusConfigurationProperties.getQueryParallelism()),
+                new ThreadFactoryBuilder()
+                    .setNameFormat("prometheus-query-%d")
+                    .setDaemon(true)
+                    .build()));
 
     for (PrometheusManagedAccount prometheusManagedAccount :
         prometheusConfigurationProperties.getAccounts()) {
@@ -26,6 +26,24 @@ public class PrometheusConfigurationProperties {
 
   @Getter @Setter private long metadataCachingIntervalMS = Duration.ofSeconds(60).toMillis();
 
+  /**
+   * The most points per series a single range query may return. Prometheus rejects queries that
+   * would return more than 11,000 points per series, so longer ranges are split into sub-range
+   * queries that are issued in parallel and stitched back together. Set to 0 to disable splitting.
+   */
+  @Getter @Setter private int maxPointsPerQuery = 11000;
+
+  /**
+   * Optional cap on the number of points per series in a complete result. When a canary scope would
+   * produce more points than this, the step is raised until it fits and the effective step is
+   * recorded in the metric set's attributes. Set to 0 (the default) to always honor the requested
+   * step.
+   */
+  @Getter @Setter private int maxPointsPerSeries = 0;
+
+  /** The number of sub-range queries that may be in flight at once, across all accounts. */
+  @Getter @Setter private int queryParallelism = 4;
+
   /**
    * TODO(duftler): Once we've finished docs for all target platforms, move this somewhere more
    * appropriate. GCE: Configures Prometheus service discovery to automatically identify the GCE
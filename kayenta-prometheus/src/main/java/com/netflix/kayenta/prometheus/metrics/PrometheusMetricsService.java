@@ -22,6 +22,7 @@ import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.canary.providers.metrics.PrometheusCanaryMetricSetQueryConfig;
 import com.netflix.kayenta.canary.providers.metrics.QueryConfigUtils;
 import com.netflix.kayenta.metrics.MetricSet;
+import com.netflix.kayenta.metrics.MetricsQueryStats;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.prometheus.canary.PrometheusCanaryScope;
 import com.netflix.kayenta.prometheus.model.PrometheusResults;
@@ -35,8 +36,12 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
@@ -61,6 +66,14 @@ public class PrometheusMetricsService implements MetricsService {
 
   @Autowired private final PrometheusMetricDescriptorsCache metricDescriptorsCache;
 
+  @Builder.Default private int maxPointsPerQuery = 11000;
+
+  @Builder.Default private int maxPointsPerSeries = 0;
+
+  // Only used when a query has to be split into several sub-range queries. If absent, the
+  // sub-range queries are issued sequentially.
+  private final ExecutorService queryExecutor;
+
   @Override
   public String getType() {
     return "prometheus";
@@ -252,19 +265,35 @@ public class PrometheusMetricsService implements MetricsService {
       throw new IllegalArgumentException("End time is required.");
     }
 
+    if (canaryScope.getStep() == null) {
+      throw new IllegalArgumentException("Step is required.");
+    }
+
     String query =
         buildQuery(accountName, canaryConfig, canaryMetricConfig, canaryScope).toString();
 
+    PrometheusQueryPlan queryPlan =
+        PrometheusQueryPlan.plan(
+            canaryScope.getStart(),
+            canaryScope.getEnd(),
+            canaryScope.getStep(),
+            maxPointsPerQuery,
+            maxPointsPerSeries);
+
+    if (queryPlan.isStepRaised()) {
+      log.debug(
+          "Raised step from {}s to {}s to stay within {} points per series for query: {}",
+          canaryScope.getStep(),
+          queryPlan.getStepSecs(),
+          maxPointsPerSeries,
+          query);
+    }
+
     long startTime = registry.clock().monotonicTime();
     List<PrometheusResults> prometheusResultsList;
 
     try {
-      prometheusResultsList =
-          prometheusRemoteService.rangeQuery(
-              query,
-              canaryScope.getStart().toString(),
-              canaryScope.getEnd().toString(),
-              canaryScope.getStep());
+      prometheusResultsList = executeQueryPlan(prometheusRemoteService, query, queryPlan);
     } finally {
       long endTime = registry.clock().monotonicTime();
       // TODO(ewiseblatt/duftler): Add appropriate tags.
@@ -274,6 +303,7 @@ public class PrometheusMetricsService implements MetricsService {
     }
 
     List<MetricSet> metricSetList = new ArrayList<>();
+    String effectiveStep = Long.toString(queryPlan.getStepSecs());
 
     if (!CollectionUtils.isEmpty(prometheusResultsList)) {
       for (PrometheusResults prometheusResults : prometheusResultsList) {
@@ -297,6 +327,7 @@ public class PrometheusMetricsService implements MetricsService {
         }
 
         metricSetBuilder.attribute("query", query);
+        metricSetBuilder.attribute("effectiveStep", effectiveStep);
 
         metricSetList.add(metricSetBuilder.build());
       }
@@ -309,10 +340,11 @@ public class PrometheusMetricsService implements MetricsService {
               .startTimeIso(canaryScope.getStart().toString())
               .endTimeMillis(canaryScope.getEnd().toEpochMilli())
               .endTimeIso(canaryScope.getEnd().toString())
-              .stepMillis(TimeUnit.SECONDS.toMillis(canaryScope.getStep()))
+              .stepMillis(queryPlan.getStepMillis())
               .values(Collections.emptyList());
 
       metricSetBuilder.attribute("query", query);
+      metricSetBuilder.attribute("effectiveStep", effectiveStep);
 
       metricSetList.add(metricSetBuilder.build());
     }
@@ -320,6 +352,138 @@ public class PrometheusMetricsService implements MetricsService {
     return metricSetList;
   }
 
+  private List<PrometheusResults> executeQueryPlan(
+      PrometheusRemoteService prometheusRemoteService,
+      String query,
+      PrometheusQueryPlan queryPlan) {
+    if (!queryPlan.isSplit()) {
+      return prometheusRemoteService.rangeQuery(
+          query,
+          queryPlan.getStart().toString(),
+          queryPlan.getEnd().toString(),
+          queryPlan.getStepSecs());
+    }
+
+    if (queryExecutor == null) {
+      List<List<PrometheusResults>> rangeResults = new ArrayList<>();
+
+      for (PrometheusQueryPlan.Range range : queryPlan.getRanges()) {
+        rangeResults.add(
+            prometheusRemoteService.rangeQuery(
+                query,
+                range.getStart().toString(),
+                range.getEnd().toString(),
+                queryPlan.getStepSecs()));
+      }
+
+      return stitch(queryPlan, rangeResults);
+    }
+
+    List<Future<List<PrometheusResults>>> futures = new ArrayList<>();
+
+    for (PrometheusQueryPlan.Range range : queryPlan.getRanges()) {
+      futures.add(
+          queryExecutor.submit(
+              MetricsQueryStats.propagate(
+                  () ->
+                      prometheusRemoteService.rangeQuery(
+                          query,
+                          range.getStart().toString(),
+                          range.getEnd().toString(),
+                          queryPlan.getStepSecs()))));
+    }
+
+    List<List<PrometheusResults>> rangeResults = new ArrayList<>(futures.size());
+
+    try {
+      for (Future<List<PrometheusResults>> future : futures) {
+        rangeResults.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while querying Prometheus: " + query, e);
+    } catch (ExecutionException e) {
+      // Surface the underlying RetrofitError (or similar) so that callers can decide whether the
+      // failure is retryable.
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to query Prometheus: " + query, e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+
+    return stitch(queryPlan, rangeResults);
+  }
+
+  /**
+   * Combines the per-range results of a split query into one series per distinct tag set. Points
+   * are placed by their offset from the start of the plan, so a series that is missing from some
+   * ranges has NaN for those ranges.
+   */
+  static List<PrometheusResults> stitch(
+      PrometheusQueryPlan queryPlan, List<List<PrometheusResults>> rangeResults) {
+    long planStartMillis = queryPlan.getStart().toEpochMilli();
+    long stepMillis = queryPlan.getStepMillis();
+    int totalPoints = queryPlan.getTotalPoints();
+    Map<Map<String, String>, String> ids = new LinkedHashMap<>();
+    Map<Map<String, String>, double[]> valuesByTags = new LinkedHashMap<>();
+
+    for (List<PrometheusResults> prometheusResultsList : rangeResults) {
+      if (CollectionUtils.isEmpty(prometheusResultsList)) {
+        continue;
+      }
+
+      for (PrometheusResults prometheusResults : prometheusResultsList) {
+        Map<String, String> tags =
+            prometheusResults.getTags() != null
+                ? prometheusResults.getTags()
+                : Collections.emptyMap();
+        double[] values =
+            valuesByTags.computeIfAbsent(
+                tags,
+                key -> {
+                  double[] initialValues = new double[totalPoints];
+                  Arrays.fill(initialValues, Double.NaN);
+                  return initialValues;
+                });
+        ids.putIfAbsent(tags, prometheusResults.getId());
+
+        int offset =
+            (int) ((prometheusResults.getStartTimeMillis() - planStartMillis) / stepMillis);
+        List<Double> rangeValues = prometheusResults.getValues();
+
+        for (int i = 0; i < rangeValues.size() && offset + i < totalPoints; i++) {
+          if (offset + i >= 0) {
+            values[offset + i] = rangeValues.get(i);
+          }
+        }
+      }
+    }
+
+    List<PrometheusResults> stitchedResultsList = new ArrayList<>(valuesByTags.size());
+
+    for (Map.Entry<Map<String, String>, double[]> entry : valuesByTags.entrySet()) {
+      double[] values = entry.getValue();
+      List<Double> valueList = new ArrayList<>(values.length);
+
+      for (double value : values) {
+        valueList.add(value);
+      }
+
+      stitchedResultsList.add(
+          new PrometheusResults(
+              ids.get(entry.getKey()),
+              planStartMillis,
+              queryPlan.getStepSecs(),
+              planStartMillis + totalPoints * stepMillis,
+              entry.getKey(),
+              valueList));
+    }
+
+    return stitchedResultsList;
+  }
+
   @Override
   public List<Map> getMetadata(String metricsAccountName, String filter) {
     return metricDescriptorsCache.getMetadata(metricsAccountName, filter);
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.prometheus.metrics;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Describes how a single Prometheus range query is issued: the effective step, and the sub-ranges
+ * that together cover the requested interval.
+ *
+ * <p>Every sub-range starts a whole number of steps after the requested start, so stitching the
+ * sub-range results back together yields exactly the points an unsplit query would have returned.
+ */
+@Value
+public class PrometheusQueryPlan {
+
+  Instant start;
+
+  Instant end;
+
+  long stepSecs;
+
+  boolean stepRaised;
+
+  List<Range> ranges;
+
+  public long getStepMillis() {
+    return stepSecs * 1000;
+  }
+
+  /** The number of points per series that the complete, stitched result is expected to hold. */
+  public int getTotalPoints() {
+    return (int) (durationSecs(start, end) / stepSecs) + 1;
+  }
+
+  public boolean isSplit() {
+    return ranges.size() > 1;
+  }
+
+  /**
+   * @param start the start of the requested interval
+   * @param end the end of the requested interval
+   * @param requestedStepSecs the step from the canary scope
+   * @param maxPointsPerQuery the most points per series a single request may return; anything
+   *     less than 1 disables splitting
+   * @param maxPointsPerSeries the most points per series the complete result may hold; anything
+   *     less than 1 disables raising the step
+   */
+  public static PrometheusQueryPlan plan(
+      Instant start,
+      Instant end,
+      long requestedStepSecs,
+      int maxPointsPerQuery,
+      int maxPointsPerSeries) {
+    if (requestedStepSecs <= 0) {
+      throw new IllegalArgumentException("Step must be greater than zero.");
+    }
+
+    if (end.isBefore(start)) {
+      throw new IllegalArgumentException("End time must not be before start time.");
+    }
+
+    long durationSecs = durationSecs(start, end);
+    long stepSecs = requestedStepSecs;
+    boolean stepRaised = false;
+
+    if (maxPointsPerSeries > 0 && durationSecs / stepSecs + 1 > maxPointsPerSeries) {
+      // Smallest step that keeps (durationSecs / stepSecs + 1) <= maxPointsPerSeries.
+      long intervals = Math.max(1, maxPointsPerSeries - 1);
+      stepSecs = (durationSecs + intervals - 1) / intervals;
+      stepRaised = true;
+    }
+
+    long totalPoints = durationSecs / stepSecs + 1;
+
+    if (maxPointsPerQuery <= 0 || totalPoints <= maxPointsPerQuery) {
+      return new PrometheusQueryPlan(
+          start, end, stepSecs, stepRaised, Collections.singletonList(new Range(start, end)));
+    }
+
+    long rangeSpanSecs = (long) (Math.max(1, maxPointsPerQuery) - 1) * stepSecs;
+    List<Range> ranges = new ArrayList<>();
+    Instant rangeStart = start;
+
+    while (!rangeStart.isAfter(end)) {
+      Instant rangeEnd = rangeStart.plusSeconds(rangeSpanSecs);
+
+      if (rangeEnd.isAfter(end)) {
+        rangeEnd = end;
+      }
+
+      ranges.add(new Range(rangeStart, rangeEnd));
+      rangeStart = rangeEnd.plusSeconds(stepSecs);
+
+      // The last range may end off a step boundary; make sure we never re-query that tail.
+      if (rangeEnd.equals(end)) {
+        break;
+      }
+    }
+
+    return new PrometheusQueryPlan(
+        start, end, stepSecs, stepRaised, Collections.unmodifiableList(ranges));
+  }
+
+  private static long durationSecs(Instant start, Instant end) {
+    return end.getEpochSecond() - start.getEpochSecond();
+  }
+
+  @Value
+  public static class Range {
+    Instant start;
+    Instant end;
+  }
+}
@@ -20,10 +20,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.metrics.SynchronousQueryProcessor;
+import com.netflix.kayenta.metrics.orca.MetricFetchTask;
 import com.netflix.kayenta.prometheus.canary.PrometheusCanaryScope;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
-import com.netflix.spinnaker.orca.api.pipeline.RetryableTask;
 import com.netflix.spinnaker.orca.api.pipeline.TaskResult;
 import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution;
 import java.io.IOException;
@@ -36,7 +36,7 @@ import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class PrometheusFetchTask implements RetryableTask {
+public class PrometheusFetchTask implements MetricFetchTask {
 
   private final ObjectMapper kayentaObjectMapper;
   private final AccountCredentialsRepository accountCredentialsRepository;
@@ -60,10 +60,8 @@ public class PrometheusFetchTask implements RetryableTask {
   }
 
   @Override
-  public long getTimeout() {
-    // TODO(duftler): Externalize this configuration.
-    // TODO(ewiseblatt): Copied from stackdriver.
-    return Duration.ofMinutes(2).toMillis();
+  public SynchronousQueryProcessor getSynchronousQueryProcessor() {
+    return synchronousQueryProcessor;
   }
 
   @Nonnull
@@ -99,6 +97,7 @@ public class PrometheusFetchTask implements RetryableTask {
         resolvedStorageAccountName,
         canaryConfig,
         metricIndex,
-        canaryScope);
+        canaryScope,
+        context);
   }
 }
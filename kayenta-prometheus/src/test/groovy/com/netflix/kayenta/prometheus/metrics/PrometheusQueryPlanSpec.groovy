@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.prometheus.metrics
+
+import com.netflix.kayenta.prometheus.model.PrometheusResults
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.Instant
+
+class PrometheusQueryPlanSpec extends Specification {
+
+  static final Instant START = Instant.parse("2020-01-01T00:00:00Z")
+
+  void "short ranges are issued as a single query with the requested step"() {
+    when:
+    PrometheusQueryPlan plan = PrometheusQueryPlan.plan(START, START.plusSeconds(3600), 60, 11000, 0)
+
+    then:
+    !plan.split
+    !plan.stepRaised
+    plan.stepSecs == 60
+    plan.totalPoints == 61
+    plan.ranges == [new PrometheusQueryPlan.Range(START, START.plusSeconds(3600))]
+  }
+
+  void "long ranges are split into step-aligned sub-ranges that cover the interval exactly once"() {
+    when:
+    PrometheusQueryPlan plan = PrometheusQueryPlan.plan(START, START.plusSeconds(250), 10, 10, 0)
+
+    then:
+    plan.split
+    plan.totalPoints == 26
+    plan.ranges == [
+      new PrometheusQueryPlan.Range(START, START.plusSeconds(90)),
+      new PrometheusQueryPlan.Range(START.plusSeconds(100), START.plusSeconds(190)),
+      new PrometheusQueryPlan.Range(START.plusSeconds(200), START.plusSeconds(250))
+    ]
+  }
+
+  @Unroll
+  void "step is raised to respect maxPointsPerSeries=#maxPointsPerSeries"() {
+    when:
+    PrometheusQueryPlan plan = PrometheusQueryPlan.plan(START, START.plusSeconds(3600), 10, 11000, maxPointsPerSeries)
+
+    then:
+    plan.stepRaised == expectedStepRaised
+    plan.stepSecs == expectedStepSecs
+    plan.totalPoints <= (maxPointsPerSeries ?: Integer.MAX_VALUE)
+
+    where:
+    maxPointsPerSeries || expectedStepRaised | expectedStepSecs
+    0                  || false              | 10
+    361                || false              | 10
+    360                || true               | 11
+    61                 || true               | 60
+    7                  || true               | 600
+  }
+
+  void "stitching places each sub-range result at its offset and fills gaps with NaN"() {
+    given:
+    PrometheusQueryPlan plan = PrometheusQueryPlan.plan(START, START.plusSeconds(50), 10, 3, 0)
+    long startMillis = START.toEpochMilli()
+
+    when:
+    List<PrometheusResults> stitched = PrometheusMetricsService.stitch(plan, [
+      [new PrometheusResults("m", startMillis, 10, startMillis + 30000, [a: "1"], [1d, 2d, 3d]),
+       new PrometheusResults("m", startMillis + 10000, 10, startMillis + 30000, [a: "2"], [20d, 30d])],
+      [new PrometheusResults("m", startMillis + 30000, 10, startMillis + 60000, [a: "1"], [4d, 5d, 6d])]
+    ])
+
+    then:
+    stitched.size() == 2
+    stitched[0].tags == [a: "1"]
+    stitched[0].startTimeMillis == startMillis
+    stitched[0].endTimeMillis == startMillis + 60000
+    stitched[0].values == [1d, 2d, 3d, 4d, 5d, 6d]
+    stitched[1].tags == [a: "2"]
+    stitched[1].values[0].isNaN()
+    stitched[1].values[1..2] == [20d, 30d]
+    stitched[1].values[3..5].every { it.isNaN() }
+  }
+}
@@ -24,6 +24,7 @@ import com.netflix.kayenta.security.AccountCredentialsRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -37,10 +38,17 @@ public class S3Configuration {
 
   @Autowired ObjectMapper kayentaObjectMapper;
 
+  @Bean
+  @ConfigurationProperties("kayenta.s3")
+  S3ConfigurationProperties s3ConfigurationProperties() {
+    return new S3ConfigurationProperties();
+  }
+
   @Bean
   @DependsOn({"registerAwsCredentials"})
   public S3StorageService s3StorageService(
-      AccountCredentialsRepository accountCredentialsRepository) {
+      AccountCredentialsRepository accountCredentialsRepository,
+      S3ConfigurationProperties s3ConfigurationProperties) {
     S3StorageService.S3StorageServiceBuilder s3StorageServiceBuilder = S3StorageService.builder();
 
     accountCredentialsRepository.getAll().stream()
@@ -50,7 +58,13 @@ public class S3Configuration {
         .forEach(s3StorageServiceBuilder::accountName);
 
     S3StorageService s3StorageService =
-        s3StorageServiceBuilder.objectMapper(kayentaObjectMapper).build();
+        s3StorageServiceBuilder
+            .objectMapper(kayentaObjectMapper)
+            .partitionEphemeralObjects(s3ConfigurationProperties.isPartitionEphemeralObjects())
+            .ephemeralObjectRetentionDays(
+                s3ConfigurationProperties.getEphemeralObjectRetentionDays())
+            .partitionLookupDays(s3ConfigurationProperties.getPartitionLookupDays())
+            .build();
 
     log.info(
         "Populated S3StorageService with {} AWS accounts.",
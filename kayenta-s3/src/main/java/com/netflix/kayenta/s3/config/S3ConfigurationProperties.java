@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.s3.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+
+public class S3ConfigurationProperties {
+
+  /**
+   * Whether to store metric set lists and metric set pair lists under a folder per day they were
+   * written, e.g. {@code metrics/2020/10/16/{id}/metric_sets.json}, rather than directly under
+   * {@code metrics/{id}/}. Objects written with the flat layout remain readable either way.
+   */
+  @Getter @Setter private boolean partitionEphemeralObjects = false;
+
+  /**
+   * The number of days the daily folders of metric set lists and metric set pair lists are kept
+   * before they are deleted. Set to 0 (the default) to keep them forever. Only applies when {@link
+   * #partitionEphemeralObjects} is set; objects written with the flat layout are never swept.
+   */
+  @Getter @Setter private int ephemeralObjectRetentionDays = 0;
+
+  /**
+   * How many days back the daily folders are searched for a metric set list or metric set pair list
+   * that is in neither today's nor yesterday's folder, nor in the flat layout. Objects in older
+   * folders are not found by id. Capped by {@link #ephemeralObjectRetentionDays} when that is set.
+   */
+  @Getter @Setter private int partitionLookupDays = 30;
+
+  @Getter @Setter private long retentionSweepIntervalMS = Duration.ofHours(1).toMillis();
+}
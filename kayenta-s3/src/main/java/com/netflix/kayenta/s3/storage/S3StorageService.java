@@ -23,6 +23,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.netflix.kayenta.aws.security.AwsNamedAccountCredentials;
 import com.netflix.kayenta.canary.CanaryConfig;
@@ -30,13 +31,20 @@ import com.netflix.kayenta.index.CanaryConfigIndex;
 import com.netflix.kayenta.index.config.CanaryConfigIndexAction;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.storage.ObjectType;
+import com.netflix.kayenta.storage.StorageBatches;
 import com.netflix.kayenta.storage.StorageService;
 import com.netflix.kayenta.util.Retry;
 import com.netflix.spinnaker.kork.web.exceptions.NotFoundException;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.time.Clock;
+import java.time.DateTimeException;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Getter;
@@ -44,6 +52,7 @@ import lombok.Singular;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.util.StringUtils;
 
 @Builder
@@ -53,6 +62,22 @@ public class S3StorageService implements StorageService {
   public final int MAX_RETRIES = 10; // maximum number of times we'll retry an operation
   public final long RETRY_BACKOFF = 1000; // time between retries in millis
 
+  // The object types that are only read around the canary run that wrote them, and so may be stored
+  // under a folder per day and swept once old enough.
+  private static final Set<ObjectType> EPHEMERAL_OBJECT_TYPES =
+      ImmutableSet.of(ObjectType.METRIC_SET_LIST, ObjectType.METRIC_SET_PAIR_LIST);
+
+  private static final DateTimeFormatter PARTITION_FORMAT =
+      DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+  private static final Pattern PARTITION_PREFIX = Pattern.compile("^\\d{4}/\\d{2}/\\d{2}/");
+
+  // Partitioning was introduced in 2020, so no partition is older.
+  private static final int FIRST_PARTITION_YEAR = 2020;
+
+  // The most keys a single DeleteObjects request may carry.
+  private static final int MAX_KEYS_PER_DELETE = 1000;
+
   @NotNull private ObjectMapper objectMapper;
 
   @NotNull @Singular @Getter private List<String> accountNames;
@@ -61,6 +86,15 @@ public class S3StorageService implements StorageService {
 
   @Autowired CanaryConfigIndex canaryConfigIndex;
 
+  private boolean partitionEphemeralObjects;
+
+  private int ephemeralObjectRetentionDays;
+
+  @Builder.Default private int partitionLookupDays = 30;
+
+  // Partitions are days in UTC.
+  @Builder.Default private Clock clock = Clock.systemUTC();
+
   @Override
   public boolean servicesAccount(String accountName) {
     return accountNames.contains(accountName);
@@ -133,13 +167,49 @@ public class S3StorageService implements StorageService {
       AwsNamedAccountCredentials credentials,
       AmazonS3 amazonS3,
       String bucket) {
-    String rootFolder = daoRoot(credentials, objectType.getGroup()) + "/" + objectKey;
-    ObjectListing bucketListing =
-        amazonS3.listObjects(new ListObjectsRequest(bucket, rootFolder, null, null, 10000));
-    List<S3ObjectSummary> summaries = bucketListing.getObjectSummaries();
+    String path = null;
+
+    if (isPartitioned(objectType)) {
+      String typedFolder = buildTypedFolder(credentials, objectType.getGroup());
+      LocalDate today = LocalDate.now(clock);
+      // Objects are almost always read within a day of being written, so look there first. Next
+      // comes the flat layout, which holds the objects written before partitioning was enabled,
+      // and only then the older partitions, as far back as the lookup bound.
+      path =
+          findSingularPath(partitionFolder(typedFolder, today) + "/" + objectKey, amazonS3, bucket);
+
+      if (path == null) {
+        path =
+            findSingularPath(
+                partitionFolder(typedFolder, today.minusDays(1)) + "/" + objectKey,
+                amazonS3,
+                bucket);
+      }
 
-    if (summaries != null && summaries.size() == 1) {
-      return summaries.get(0).getKey();
+      if (path == null) {
+        path = findSingularPath(typedFolder + "/" + objectKey, amazonS3, bucket);
+      }
+
+      int lookupDays =
+          ephemeralObjectRetentionDays > 0
+              ? Math.min(ephemeralObjectRetentionDays, partitionLookupDays)
+              : partitionLookupDays;
+
+      for (int daysAgo = 2; path == null && daysAgo <= lookupDays; daysAgo++) {
+        path =
+            findSingularPath(
+                partitionFolder(typedFolder, today.minusDays(daysAgo)) + "/" + objectKey,
+                amazonS3,
+                bucket);
+      }
+    } else {
+      path =
+          findSingularPath(
+              daoRoot(credentials, objectType.getGroup()) + "/" + objectKey, amazonS3, bucket);
+    }
+
+    if (path != null) {
+      return path;
     } else {
       throw new IllegalArgumentException(
           "Unable to resolve singular "
@@ -152,6 +222,19 @@ public class S3StorageService implements StorageService {
     }
   }
 
+  /** Returns the key of the single object under the prefix, or null if there isn't exactly one. */
+  private String findSingularPath(String prefix, AmazonS3 amazonS3, String bucket) {
+    ObjectListing bucketListing =
+        amazonS3.listObjects(new ListObjectsRequest(bucket, prefix, null, null, 10000));
+    List<S3ObjectSummary> summaries = bucketListing.getObjectSummaries();
+
+    if (summaries != null && summaries.size() == 1) {
+      return summaries.get(0).getKey();
+    } else {
+      return null;
+    }
+  }
+
   private <T> T deserialize(S3Object s3Object, TypeReference<T> typeReference) throws IOException {
     return objectMapper.readValue(s3Object.getObjectContent(), typeReference);
   }
@@ -169,7 +252,10 @@ public class S3StorageService implements StorageService {
     AmazonS3 amazonS3 = credentials.getAmazonS3();
     String bucket = credentials.getBucket();
     String group = objectType.getGroup();
-    String path = buildS3Key(credentials, objectType, group, objectKey, filename);
+    String path =
+        isPartitioned(objectType)
+            ? buildPartitionedS3Key(credentials, objectType, group, objectKey, filename)
+            : buildS3Key(credentials, objectType, group, objectKey, filename);
 
     ensureBucketExists(accountName);
 
@@ -351,6 +437,32 @@ public class S3StorageService implements StorageService {
     }
   }
 
+  @Override
+  public void deleteObjects(String accountName, ObjectType objectType, List<String> objectKeys) {
+    if (objectType == ObjectType.CANARY_CONFIG) {
+      // Each deleted canary config is also removed from the index.
+      StorageService.super.deleteObjects(accountName, objectType, objectKeys);
+      return;
+    }
+
+    AwsNamedAccountCredentials credentials =
+        accountCredentialsRepository.getRequiredOne(accountName);
+    AmazonS3 amazonS3 = credentials.getAmazonS3();
+    String bucket = credentials.getBucket();
+    // Only finding the keys takes a request per object.
+    List<String> paths =
+        StorageBatches.map(
+            objectKeys,
+            objectKey -> resolveSingularPath(objectType, objectKey, credentials, amazonS3, bucket));
+
+    try {
+      deleteKeys(paths, amazonS3, bucket);
+    } catch (Exception e) {
+      log.error("Failed to delete {} {}: {}", paths.size(), objectType.getGroup(), e);
+      throw new IllegalArgumentException(e);
+    }
+  }
+
   @Override
   public List<Map<String, Object>> listObjectKeys(
       String accountName, ObjectType objectType, List<String> applications, boolean skipIndex) {
@@ -392,7 +504,14 @@ public class S3StorageService implements StorageService {
           Map<String, Object> objectMetadataMap = new HashMap<>();
           long updatedTimestamp = summary.getLastModified().getTime();
 
-          objectMetadataMap.put("id", itemName.substring(skipToOffset, indexOfLastSlash));
+          String id = itemName.substring(skipToOffset, indexOfLastSlash);
+
+          if (EPHEMERAL_OBJECT_TYPES.contains(objectType)) {
+            // Objects may have been written with either layout.
+            id = PARTITION_PREFIX.matcher(id).replaceFirst("");
+          }
+
+          objectMetadataMap.put("id", id);
           objectMetadataMap.put("updatedTimestamp", updatedTimestamp);
           objectMetadataMap.put(
               "updatedTimestampIso", Instant.ofEpochMilli(updatedTimestamp).toString());
@@ -437,7 +556,150 @@ public class S3StorageService implements StorageService {
         .replace("//", "/");
   }
 
+  private String buildPartitionedS3Key(
+      AwsNamedAccountCredentials credentials,
+      ObjectType objectType,
+      String group,
+      String objectKey,
+      String metadataFilename) {
+    if (metadataFilename == null) {
+      metadataFilename = objectType.getDefaultFilename();
+    }
+
+    String partitionFolder =
+        partitionFolder(buildTypedFolder(credentials, group), LocalDate.now(clock));
+
+    return (partitionFolder + "/" + objectKey + "/" + metadataFilename).replace("//", "/");
+  }
+
   private String buildTypedFolder(AwsNamedAccountCredentials credentials, String type) {
     return daoRoot(credentials, type).replaceAll("//", "/");
   }
+
+  private boolean isPartitioned(ObjectType objectType) {
+    return partitionEphemeralObjects && EPHEMERAL_OBJECT_TYPES.contains(objectType);
+  }
+
+  private static String partitionFolder(String typedFolder, LocalDate day) {
+    return typedFolder + "/" + PARTITION_FORMAT.format(day);
+  }
+
+  /**
+   * Lists the days before the given one that have a partition under the typed folder. Every year
+   * from the given day's back to the first one partitions may have been written in is walked, as
+   * a year with no partitions left says nothing about the years before it.
+   */
+  private List<LocalDate> listPartitionDaysBefore(
+      String typedFolder, LocalDate before, AmazonS3 amazonS3, String bucket) {
+    List<LocalDate> days = new ArrayList<>();
+
+    for (int year = before.getYear(); year >= FIRST_PARTITION_YEAR; year--) {
+      String yearFolder = typedFolder + "/" + year + "/";
+
+      for (String month : listSubfolders(yearFolder, amazonS3, bucket)) {
+        for (String day : listSubfolders(yearFolder + month + "/", amazonS3, bucket)) {
+          try {
+            LocalDate partitionDay =
+                LocalDate.of(year, Integer.parseInt(month), Integer.parseInt(day));
+
+            if (partitionDay.isBefore(before)) {
+              days.add(partitionDay);
+            }
+          } catch (NumberFormatException | DateTimeException e) {
+            log.debug("Ignoring folder {}{}/{} that is not a partition", yearFolder, month, day);
+          }
+        }
+      }
+    }
+
+    return days;
+  }
+
+  /** Returns the names of the folders directly under the prefix, which must end with a slash. */
+  private static List<String> listSubfolders(String prefix, AmazonS3 amazonS3, String bucket) {
+    List<String> subfolders = new ArrayList<>();
+    ObjectListing bucketListing =
+        amazonS3.listObjects(new ListObjectsRequest(bucket, prefix, null, "/", 1000));
+
+    while (true) {
+      for (String commonPrefix : bucketListing.getCommonPrefixes()) {
+        subfolders.add(commonPrefix.substring(prefix.length(), commonPrefix.length() - 1));
+      }
+
+      if (!bucketListing.isTruncated()) {
+        return subfolders;
+      }
+
+      bucketListing = amazonS3.listNextBatchOfObjects(bucketListing);
+    }
+  }
+
+  /**
+   * Deletes the partitions of metric set lists and metric set pair lists that are older than the
+   * retention period, a batch of keys per request. Every instance sweeps; deletes are idempotent,
+   * so instances sweeping the same partition at once only cost some requests.
+   */
+  @Scheduled(fixedDelayString = "#{@s3ConfigurationProperties.retentionSweepIntervalMS}")
+  public void sweepExpiredPartitions() {
+    if (!partitionEphemeralObjects || ephemeralObjectRetentionDays <= 0) {
+      return;
+    }
+
+    LocalDate oldestRetainedDay = LocalDate.now(clock).minusDays(ephemeralObjectRetentionDays);
+
+    for (String accountName : accountNames) {
+      try {
+        AwsNamedAccountCredentials credentials =
+            accountCredentialsRepository.getRequiredOne(accountName);
+        AmazonS3 amazonS3 = credentials.getAmazonS3();
+        String bucket = credentials.getBucket();
+
+        for (ObjectType objectType : EPHEMERAL_OBJECT_TYPES) {
+          String typedFolder = buildTypedFolder(credentials, objectType.getGroup());
+
+          for (LocalDate day :
+              listPartitionDaysBefore(typedFolder, oldestRetainedDay, amazonS3, bucket)) {
+            deletePartition(partitionFolder(typedFolder, day) + "/", amazonS3, bucket);
+          }
+        }
+      } catch (Exception e) {
+        log.warn("Failed to sweep expired partitions of account {}: {}", accountName, e);
+      }
+    }
+  }
+
+  private void deletePartition(String partitionPrefix, AmazonS3 amazonS3, String bucket) {
+    ObjectListing bucketListing =
+        amazonS3.listObjects(
+            new ListObjectsRequest(bucket, partitionPrefix, null, null, MAX_KEYS_PER_DELETE));
+    int deleted = 0;
+
+    while (true) {
+      List<String> keys =
+          bucketListing.getObjectSummaries().stream()
+              .map(S3ObjectSummary::getKey)
+              .collect(Collectors.toList());
+
+      deleteKeys(keys, amazonS3, bucket);
+      deleted += keys.size();
+
+      if (!bucketListing.isTruncated()) {
+        break;
+      }
+
+      bucketListing = amazonS3.listNextBatchOfObjects(bucketListing);
+    }
+
+    log.info("Swept {} objects from expired partition {}", deleted, partitionPrefix);
+  }
+
+  /** Deletes the objects at the keys with as few DeleteObjects requests as possible. */
+  private void deleteKeys(List<String> keys, AmazonS3 amazonS3, String bucket) {
+    for (List<String> batch : Lists.partition(keys, MAX_KEYS_PER_DELETE)) {
+      DeleteObjectsRequest request =
+          new DeleteObjectsRequest(bucket).withKeys(batch.toArray(new String[0])).withQuiet(true);
+
+      retry.retry(() -> amazonS3.deleteObjects(request), MAX_RETRIES, RETRY_BACKOFF);
+    }
+  }
 }
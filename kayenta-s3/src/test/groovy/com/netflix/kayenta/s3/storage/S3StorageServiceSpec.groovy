@@ -0,0 +1,239 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.s3.storage
+
+import com.amazonaws.services.s3.AmazonS3
+import com.amazonaws.services.s3.model.DeleteObjectsRequest
+import com.amazonaws.services.s3.model.ListObjectsRequest
+import com.amazonaws.services.s3.model.ObjectListing
+import com.amazonaws.services.s3.model.ObjectMetadata
+import com.amazonaws.services.s3.model.PutObjectResult
+import com.amazonaws.services.s3.model.S3Object
+import com.amazonaws.services.s3.model.S3ObjectSummary
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.netflix.kayenta.aws.security.AwsNamedAccountCredentials
+import com.netflix.kayenta.security.MapBackedAccountCredentialsRepository
+import com.netflix.kayenta.storage.ObjectType
+import com.netflix.spinnaker.kork.web.exceptions.NotFoundException
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.time.Clock
+import java.time.Instant
+import java.time.LocalDate
+import java.time.ZoneOffset
+import java.time.format.DateTimeFormatter
+
+class S3StorageServiceSpec extends Specification {
+
+  static final Clock CLOCK = Clock.fixed(Instant.parse("2022-03-01T12:00:00Z"), ZoneOffset.UTC)
+
+  // A bucket held in memory: its keys and their contents, and the prefixes listed.
+  Map<String, String> objects = new TreeMap<>()
+  List<String> listedPrefixes = []
+
+  AmazonS3 amazonS3 = Stub(AmazonS3) {
+    listObjects(_ as ListObjectsRequest) >> { ListObjectsRequest request -> list(request) }
+    putObject(_ as String, _ as String, _ as InputStream, _ as ObjectMetadata) >> {
+      String bucket, String key, InputStream content, ObjectMetadata metadata ->
+        objects[key] = content.text
+        new PutObjectResult()
+    }
+    getObject(_ as String, _ as String) >> { String bucket, String key ->
+      def s3Object = new S3Object()
+      s3Object.setKey(key)
+      s3Object.setObjectContent(new ByteArrayInputStream(objects[key].bytes) as InputStream)
+      s3Object
+    }
+    deleteObjects(_ as DeleteObjectsRequest) >> { DeleteObjectsRequest request ->
+      request.keys.each { objects.remove(it.key) }
+      null
+    }
+  }
+
+  void "metric set lists are stored under a folder per day when partitioned"() {
+    given:
+    def storageService = storageService(true, 0)
+
+    when:
+    storageService.storeObject("s3", ObjectType.METRIC_SET_LIST, "run-1", [], null, false)
+    storageService.storeObject("s3", ObjectType.METRIC_SET_PAIR_LIST, "run-1", [], null, false)
+
+    then:
+    objects.keySet() == [
+      "kayenta/metric_pairs/2022/03/01/run-1/metric_set_pairs.json",
+      "kayenta/metrics/2022/03/01/run-1/metric_sets.json"
+    ] as Set
+  }
+
+  void "metric set lists are stored directly under their folder when not partitioned"() {
+    given:
+    def storageService = storageService(false, 0)
+
+    when:
+    storageService.storeObject("s3", ObjectType.METRIC_SET_LIST, "run-1", [], null, false)
+
+    then:
+    objects.keySet() == ["kayenta/metrics/run-1/metric_sets.json"] as Set
+  }
+
+  void "a metric set list is looked up today, then yesterday, then in the flat layout"() {
+    given:
+    def storageService = storageService(true, 0)
+    objects["kayenta/metrics/run-1/metric_sets.json"] = "[]"
+
+    when:
+    def metricSets = storageService.loadObject("s3", ObjectType.METRIC_SET_LIST, "run-1")
+
+    then:
+    metricSets == []
+    listedPrefixes == [
+      "kayenta/metrics/2022/03/01/run-1",
+      "kayenta/metrics/2022/02/28/run-1",
+      "kayenta/metrics/run-1"
+    ]
+  }
+
+  void "a metric set list in an older partition is found within the lookup bound"() {
+    given:
+    def storageService = storageService(true, 0)
+    objects["kayenta/metrics/2022/02/19/run-1/metric_sets.json"] = "[]"
+
+    when:
+    def metricSets = storageService.loadObject("s3", ObjectType.METRIC_SET_LIST, "run-1")
+
+    then:
+    metricSets == []
+    listedPrefixes.last() == "kayenta/metrics/2022/02/19/run-1"
+  }
+
+  @Unroll
+  void "a missing metric set list is looked for no further back than #expectedDays days"() {
+    given:
+    def storageService = storageService(true, retentionDays)
+    objects["kayenta/metrics/2022/01/01/run-1/metric_sets.json"] = "[]"
+
+    when:
+    storageService.loadObject("s3", ObjectType.METRIC_SET_LIST, "run-1")
+
+    then:
+    thrown(NotFoundException)
+    // Every day back to the bound, and the flat layout.
+    listedPrefixes.size() == expectedDays + 2
+    def oldestDay = LocalDate.now(CLOCK).minusDays(expectedDays)
+    listedPrefixes.last() ==
+      "kayenta/metrics/" + DateTimeFormatter.ofPattern("yyyy/MM/dd").format(oldestDay) + "/run-1"
+
+    where:
+    retentionDays || expectedDays
+    0             || 30
+    7             || 7
+    90            || 30
+  }
+
+  void "partitions older than the retention period are swept across years with none left"() {
+    given:
+    def storageService = storageService(true, 30)
+    objects["kayenta/metrics/2020/06/01/run-1/metric_sets.json"] = "[]"
+    objects["kayenta/metrics/2020/06/01/run-2/metric_sets.json"] = "[]"
+    objects["kayenta/metric_pairs/2020/12/31/run-1/metric_set_pairs.json"] = "[]"
+    objects["kayenta/metrics/2022/01/29/run-3/metric_sets.json"] = "[]"
+    objects["kayenta/metrics/2022/01/30/run-4/metric_sets.json"] = "[]"
+    objects["kayenta/metrics/2022/03/01/run-5/metric_sets.json"] = "[]"
+    objects["kayenta/metrics/run-6/metric_sets.json"] = "[]"
+
+    when:
+    storageService.sweepExpiredPartitions()
+
+    then:
+    objects.keySet() == [
+      "kayenta/metrics/2022/01/30/run-4/metric_sets.json",
+      "kayenta/metrics/2022/03/01/run-5/metric_sets.json",
+      "kayenta/metrics/run-6/metric_sets.json"
+    ] as Set
+  }
+
+  void "partitions are swept when the current year has none"() {
+    given:
+    def storageService = storageService(true, 30)
+    objects["kayenta/metrics/2021/06/01/run-1/metric_sets.json"] = "[]"
+    objects["kayenta/metrics/2021/12/01/run-2/metric_sets.json"] = "[]"
+    objects["kayenta/metrics/run-3/metric_sets.json"] = "[]"
+
+    when:
+    storageService.sweepExpiredPartitions()
+
+    then:
+    objects.keySet() == ["kayenta/metrics/run-3/metric_sets.json"] as Set
+  }
+
+  void "nothing is swept when partitions are kept forever"() {
+    given:
+    def storageService = storageService(true, 0)
+    objects["kayenta/metrics/2020/06/01/run-1/metric_sets.json"] = "[]"
+
+    when:
+    storageService.sweepExpiredPartitions()
+
+    then:
+    objects.size() == 1
+    listedPrefixes.isEmpty()
+  }
+
+  private S3StorageService storageService(boolean partitioned, int retentionDays) {
+    def accountCredentialsRepository = new MapBackedAccountCredentialsRepository()
+    accountCredentialsRepository.save("s3", AwsNamedAccountCredentials.builder()
+      .name("s3")
+      .bucket("bucket")
+      .rootFolder("kayenta")
+      .amazonS3(amazonS3)
+      .build())
+
+    S3StorageService.builder()
+      .objectMapper(new ObjectMapper())
+      .accountName("s3")
+      .accountCredentialsRepository(accountCredentialsRepository)
+      .partitionEphemeralObjects(partitioned)
+      .ephemeralObjectRetentionDays(retentionDays)
+      .clock(CLOCK)
+      .build()
+  }
+
+  // Lists the bucket the way S3 does, rolling keys up to the delimiter into common prefixes.
+  private ObjectListing list(ListObjectsRequest request) {
+    def listing = new ObjectListing()
+    Set<String> commonPrefixes = new TreeSet<>()
+
+    if (!request.delimiter) {
+      listedPrefixes << request.prefix
+    }
+
+    objects.keySet().findAll { it.startsWith(request.prefix) }.each { key ->
+      int delimiterIndex =
+        request.delimiter ? key.indexOf(request.delimiter, request.prefix.length()) : -1
+
+      if (delimiterIndex >= 0) {
+        commonPrefixes << key.substring(0, delimiterIndex + 1)
+      } else {
+        listing.objectSummaries << new S3ObjectSummary(bucketName: request.bucketName, key: key)
+      }
+    }
+
+    listing.commonPrefixes = commonPrefixes as List
+    listing
+  }
+}
@@ -17,6 +17,7 @@
 
 package com.netflix.kayenta.signalfx.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.retrofit.config.RemoteService;
 import com.netflix.kayenta.retrofit.config.RetrofitClientFactory;
@@ -25,7 +26,6 @@ import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.signalfx.metrics.SignalFxMetricsService;
 import com.netflix.kayenta.signalfx.security.SignalFxCredentials;
 import com.netflix.kayenta.signalfx.security.SignalFxNamedAccountCredentials;
-import com.netflix.kayenta.signalfx.service.SignalFxConverter;
 import com.netflix.kayenta.signalfx.service.SignalFxSignalFlowRemoteService;
 import com.squareup.okhttp.OkHttpClient;
 import java.util.List;
@@ -39,6 +39,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.CollectionUtils;
+import retrofit.converter.JacksonConverter;
 
 @Configuration
 @ConditionalOnProperty("kayenta.signalfx.enabled")
@@ -72,6 +73,7 @@ public class SignalFxConfiguration {
   MetricsService signalFxMetricService(
       SignalFxConfigurationProperties signalFxConfigurationProperties,
       RetrofitClientFactory retrofitClientFactory,
+      ObjectMapper objectMapper,
       OkHttpClient okHttpClient,
       AccountCredentialsRepository accountCredentialsRepository) {
 
@@ -101,7 +103,8 @@ public class SignalFxConfiguration {
           accountCredentialsBuilder.signalFlowService(
               retrofitClientFactory.createClient(
                   SignalFxSignalFlowRemoteService.class,
-                  new SignalFxConverter(),
+                  // Reads error responses; the program is sent as plain text.
+                  new JacksonConverter(objectMapper),
                   signalFxSignalFlowEndpoint,
                   okHttpClient));
         }
@@ -17,9 +17,6 @@
 
 package com.netflix.kayenta.signalfx.metrics;
 
-import static com.signalfx.signalflow.ChannelMessage.Type.DATA_MESSAGE;
-import static com.signalfx.signalflow.ChannelMessage.Type.ERROR_MESSAGE;
-
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.CanaryMetricConfig;
 import com.netflix.kayenta.canary.CanaryScope;
@@ -32,10 +29,12 @@ import com.netflix.kayenta.signalfx.canary.SignalFxCanaryScope;
 import com.netflix.kayenta.signalfx.config.SignalFxScopeConfiguration;
 import com.netflix.kayenta.signalfx.security.SignalFxNamedAccountCredentials;
 import com.netflix.kayenta.signalfx.service.ErrorResponse;
-import com.netflix.kayenta.signalfx.service.SignalFlowExecutionResult;
+import com.netflix.kayenta.signalfx.service.SignalFlowStreamConverter;
+import com.netflix.kayenta.signalfx.service.SignalFlowTimeSeries;
 import com.netflix.kayenta.signalfx.service.SignalFxRequestError;
 import com.netflix.kayenta.signalfx.service.SignalFxSignalFlowRemoteService;
-import com.signalfx.signalflow.ChannelMessage;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
@@ -51,6 +50,8 @@ import lombok.Singular;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import retrofit.RetrofitError;
+import retrofit.client.Response;
+import retrofit.mime.TypedString;
 
 @Builder
 @Slf4j
@@ -106,7 +107,8 @@ public class SignalFxMetricsService implements MetricsService {
       String metricsAccountName,
       CanaryConfig canaryConfig,
       CanaryMetricConfig canaryMetricConfig,
-      CanaryScope canaryScope) {
+      CanaryScope canaryScope)
+      throws IOException {
 
     if (!(canaryScope instanceof SignalFxCanaryScope)) {
       throw new IllegalArgumentException(
@@ -138,36 +140,43 @@ public class SignalFxMetricsService implements MetricsService {
 
     String program = buildQuery(metricsAccountName, canaryConfig, canaryMetricConfig, canaryScope);
 
-    SignalFlowExecutionResult signalFlowExecutionResult;
+    SignalFlowTimeSeries signalFlowTimeSeries;
 
     try {
-      signalFlowExecutionResult =
-          signalFlowService.executeSignalFlowProgram(
-              accessToken, startEpochMilli, endEpochMilli, stepMilli, maxDelay, immediate, program);
+      Response response =
+          signalFlowService.executeSignalFlowProgramStream(
+              accessToken,
+              startEpochMilli,
+              endEpochMilli,
+              stepMilli,
+              maxDelay,
+              immediate,
+              new TypedString(program));
+
+      try (InputStream in = response.getBody().in()) {
+        signalFlowTimeSeries =
+            SignalFlowStreamConverter.convert(in, startEpochMilli, endEpochMilli, stepMilli);
+      }
     } catch (RetrofitError e) {
       ErrorResponse errorResponse = (ErrorResponse) e.getBodyAs(ErrorResponse.class);
       throw new SignalFxRequestError(
           errorResponse, program, startEpochMilli, endEpochMilli, stepMilli, metricsAccountName);
     }
 
-    validateResults(
-        signalFlowExecutionResult.getChannelMessages(),
-        metricsAccountName,
-        startEpochMilli,
-        endEpochMilli,
-        stepMilli,
-        maxDelay,
-        immediate,
-        program);
-
-    LinkedList<ChannelMessage.DataMessage> dataMessages =
-        extractDataMessages(signalFlowExecutionResult);
-
-    ChannelMessage.DataMessage firstDataPoint =
-        dataMessages.size() > 0 ? dataMessages.getFirst() : null;
-
-    ChannelMessage.DataMessage lastDataPoint =
-        dataMessages.size() > 0 ? dataMessages.getLast() : null;
+    if (signalFlowTimeSeries.getError() != null) {
+      // This error message is terrible, and I am not sure how to add more context to it.
+      // error.getErrors() returns a List<Object>, and it is unclear what to do with those.
+      throw new RuntimeException(
+          String.format(
+              SIGNAL_FLOW_ERROR_TEMPLATE,
+              metricsAccountName,
+              String.valueOf(startEpochMilli),
+              String.valueOf(endEpochMilli),
+              String.valueOf(stepMilli),
+              String.valueOf(maxDelay),
+              String.valueOf(immediate),
+              program));
+    }
 
     // Return a Metric set of the reduced and aggregated data
     MetricSet.MetricSetBuilder metricSetBuilder =
@@ -177,13 +186,15 @@ public class SignalFxMetricsService implements MetricsService {
             .startTimeIso(Instant.ofEpochMilli(startEpochMilli).toString())
             .endTimeMillis(endEpochMilli)
             .endTimeIso(Instant.ofEpochMilli(endEpochMilli).toString())
-            .stepMillis(stepMilli)
-            .values(getTimeSeriesDataFromDataMessages(dataMessages))
+            .stepMillis(signalFlowTimeSeries.getStepMilli())
+            .values(signalFlowTimeSeries.getValues().toList())
             .tags(
                 queryPairs.stream()
                     .collect(Collectors.toMap(QueryPair::getKey, QueryPair::getValue)))
             .attribute("signal-flow-program", program)
-            .attribute("actual-data-point-count", String.valueOf(dataMessages.size()))
+            .attribute(
+                "actual-data-point-count",
+                String.valueOf(signalFlowTimeSeries.getDataMessageCount()))
             .attribute("requested-start", String.valueOf(startEpochMilli))
             .attribute("requested-end", String.valueOf(endEpochMilli))
             .attribute("requested-step-milli", String.valueOf(stepMilli))
@@ -191,87 +202,11 @@ public class SignalFxMetricsService implements MetricsService {
             .attribute("requested-immediate", String.valueOf(immediate))
             .attribute("requested-account", metricsAccountName);
 
-    Optional.ofNullable(firstDataPoint)
-        .ifPresent(
-            dp ->
-                metricSetBuilder.attribute(
-                    "actual-start-ts", String.valueOf(dp.getLogicalTimestampMs())));
-    Optional.ofNullable(lastDataPoint)
-        .ifPresent(
-            dp ->
-                metricSetBuilder.attribute(
-                    "actual-end-ts", String.valueOf(dp.getLogicalTimestampMs())));
+    Optional.ofNullable(signalFlowTimeSeries.getFirstLogicalTimestampMs())
+        .ifPresent(ts -> metricSetBuilder.attribute("actual-start-ts", String.valueOf(ts)));
+    Optional.ofNullable(signalFlowTimeSeries.getLastLogicalTimestampMs())
+        .ifPresent(ts -> metricSetBuilder.attribute("actual-end-ts", String.valueOf(ts)));
 
     return Collections.singletonList(metricSetBuilder.build());
   }
-
-  /**
-   * Extracts the messages with data points from the Signal Fx response.
-   *
-   * @param signalFlowExecutionResult The SignalFlow program results.
-   * @return An linked list of the data points from the result.
-   */
-  private LinkedList<ChannelMessage.DataMessage> extractDataMessages(
-      SignalFlowExecutionResult signalFlowExecutionResult) {
-    return signalFlowExecutionResult.getChannelMessages().parallelStream()
-        .filter(channelMessage -> channelMessage.getType().equals(DATA_MESSAGE))
-        .map((message) -> (ChannelMessage.DataMessage) message)
-        .collect(Collectors.toCollection(LinkedList::new));
-  }
-
-  /** Parses the channel messages and the first error if present. */
-  private void validateResults(
-      List<ChannelMessage> channelMessages,
-      String account,
-      long startEpochMilli,
-      long endEpochMilli,
-      long stepMilli,
-      long maxDelay,
-      boolean immediate,
-      String program) {
-    channelMessages.stream()
-        .filter(channelMessage -> channelMessage.getType().equals(ERROR_MESSAGE))
-        .findAny()
-        .ifPresent(
-            error -> {
-              // This error message is terrible, and I am not sure how to add more context to it.
-              // error.getErrors() returns a List<Object>, and it is unclear what to do with those.
-              throw new RuntimeException(
-                  String.format(
-                      SIGNAL_FLOW_ERROR_TEMPLATE,
-                      account,
-                      String.valueOf(startEpochMilli),
-                      String.valueOf(endEpochMilli),
-                      String.valueOf(stepMilli),
-                      String.valueOf(maxDelay),
-                      String.valueOf(immediate),
-                      program));
-            });
-  }
-
-  /**
-   * Parses the data out of the SignalFx Signal Flow messages to build the data Kayenta needs to
-   * make judgements.
-   *
-   * @param dataMessages The list of data messages from the signal flow execution.
-   * @return The list of values with missing data filled with NaNs
-   */
-  protected List<Double> getTimeSeriesDataFromDataMessages(
-      List<ChannelMessage.DataMessage> dataMessages) {
-    return dataMessages.stream()
-        .map(
-            message -> {
-              Map<String, Number> data = message.getData();
-              if (data.size() > 1) {
-                throw new IllegalStateException(
-                    "There was more than one value for a given timestamp, a "
-                        + "SignalFlow stream method that can aggregate should have been applied to the data in "
-                        + "the SignalFlow program");
-              }
-              return data.size() == 1
-                  ? data.values().stream().findFirst().get().doubleValue()
-                  : Double.NaN;
-            })
-        .collect(Collectors.toList());
-  }
 }
@@ -20,10 +20,10 @@ package com.netflix.kayenta.signalfx.orca;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.metrics.SynchronousQueryProcessor;
+import com.netflix.kayenta.metrics.orca.MetricFetchTask;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.signalfx.canary.SignalFxCanaryScope;
-import com.netflix.spinnaker.orca.api.pipeline.RetryableTask;
 import com.netflix.spinnaker.orca.api.pipeline.TaskResult;
 import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution;
 import java.io.IOException;
@@ -36,7 +36,7 @@ import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class SignalFxFetchTask implements RetryableTask {
+public class SignalFxFetchTask implements MetricFetchTask {
 
   private final ObjectMapper kayentaObjectMapper;
   private final AccountCredentialsRepository accountCredentialsRepository;
@@ -59,8 +59,8 @@ public class SignalFxFetchTask implements RetryableTask {
   }
 
   @Override
-  public long getTimeout() {
-    return Duration.ofMinutes(2).toMillis();
+  public SynchronousQueryProcessor getSynchronousQueryProcessor() {
+    return synchronousQueryProcessor;
   }
 
   @SuppressWarnings("Duplicates")
@@ -97,6 +97,7 @@ public class SignalFxFetchTask implements RetryableTask {
         resolvedStorageAccountName,
         kayentaObjectMapper.convertValue(context.get("canaryConfig"), CanaryConfig.class),
         (Integer) stage.getContext().get("metricIndex"),
-        canaryScope);
+        canaryScope,
+        context);
   }
 }
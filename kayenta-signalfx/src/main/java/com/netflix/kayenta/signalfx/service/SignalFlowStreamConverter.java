@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.kayenta.signalfx.service;
+
+import com.netflix.kayenta.util.DoubleArrayBuilder;
+import com.signalfx.signalflow.ChannelMessage;
+import com.signalfx.signalflow.ServerSentEventsTransport;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads a SignalFlow execution response as it streams in, instead of first materializing every
+ * channel message.
+ *
+ * <p>Each data point is written by its logical timestamp into a primitive buffer, at index {@code
+ * (timestamp - start) / step}, and the buffer is padded to the whole requested interval, so missing
+ * points, trailing ones included, are left as NaN. Reading stops at the first error message.
+ */
+@Slf4j
+public class SignalFlowStreamConverter {
+
+  private static final String JOB_RUNNING_RESOLUTION = "JOB_RUNNING_RESOLUTION";
+
+  public static SignalFlowTimeSeries convert(
+      InputStream in, long startEpochMilli, long endEpochMilli, long stepMilli)
+      throws IOException {
+    if (stepMilli <= 0) {
+      throw new IllegalArgumentException("Step must be greater than zero.");
+    }
+
+    long step = stepMilli;
+    DoubleArrayBuilder values =
+        new DoubleArrayBuilder((int) Math.max(1, (endEpochMilli - startEpochMilli) / stepMilli));
+    int dataMessageCount = 0;
+    Long firstLogicalTimestampMs = null;
+    Long lastLogicalTimestampMs = null;
+    ChannelMessage.ErrorMessage error = null;
+
+    try (ServerSentEventsTransport.TransportEventStreamParser parser =
+        new ServerSentEventsTransport.TransportEventStreamParser(in)) {
+
+      while (error == null && parser.hasNext()) {
+        ChannelMessage channelMessage = ChannelMessage.decodeStreamMessage(parser.next());
+
+        switch (channelMessage.getType()) {
+          case DATA_MESSAGE:
+            ChannelMessage.DataMessage dataMessage = (ChannelMessage.DataMessage) channelMessage;
+            long logicalTimestampMs = dataMessage.getLogicalTimestampMs();
+
+            if (firstLogicalTimestampMs == null) {
+              firstLogicalTimestampMs = logicalTimestampMs;
+            }
+            lastLogicalTimestampMs = logicalTimestampMs;
+            dataMessageCount++;
+
+            setValue(values, logicalTimestampMs - startEpochMilli, step, dataMessage.getData());
+            break;
+          case INFO_MESSAGE:
+            long resolution = getRunningResolution((ChannelMessage.InfoMessage) channelMessage);
+
+            // The job may run at a coarser resolution than requested; honor it as long as no point
+            // has been placed past the first slot yet.
+            if (resolution > step && values.size() <= 1) {
+              step = resolution;
+            }
+            break;
+          case ERROR_MESSAGE:
+            error = (ChannelMessage.ErrorMessage) channelMessage;
+            break;
+          default:
+            break;
+        }
+      }
+    } catch (IOException | IllegalStateException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException("There was an issue parsing the SignalFlow response", e);
+    }
+
+    // Points missing at the end of the interval are NaN too, so every series spans the interval.
+    values.pad((int) ((endEpochMilli - startEpochMilli) / step) - values.size());
+
+    return SignalFlowTimeSeries.builder()
+        .stepMilli(step)
+        .values(values)
+        .dataMessageCount(dataMessageCount)
+        .firstLogicalTimestampMs(firstLogicalTimestampMs)
+        .lastLogicalTimestampMs(lastLogicalTimestampMs)
+        .error(error)
+        .build();
+  }
+
+  private static void setValue(
+      DoubleArrayBuilder values, long offsetMilli, long step, Map<String, Number> data) {
+    if (data != null && data.size() > 1) {
+      throw new IllegalStateException(
+          "There was more than one value for a given timestamp, a "
+              + "SignalFlow stream method that can aggregate should have been applied to the data in "
+              + "the SignalFlow program");
+    }
+
+    if (offsetMilli < 0) {
+      log.debug("Ignoring SignalFlow data point {}ms before the requested start.", -offsetMilli);
+      return;
+    }
+
+    int index = (int) (offsetMilli / step);
+
+    if (data != null && data.size() == 1) {
+      values.set(index, data.values().iterator().next().doubleValue());
+    } else if (index >= values.size()) {
+      // An empty data message still accounts for its step.
+      values.set(index, Double.NaN);
+    }
+  }
+
+  private static long getRunningResolution(ChannelMessage.InfoMessage infoMessage) {
+    Map<String, Object> message = infoMessage.getMessage();
+
+    if (message == null || !JOB_RUNNING_RESOLUTION.equals(message.get("messageCode"))) {
+      return 0;
+    }
+
+    Object contents = message.get("contents");
+
+    if (contents instanceof Map) {
+      Object resolutionMs = ((Map<?, ?>) contents).get("resolutionMs");
+
+      if (resolutionMs instanceof Number) {
+        return ((Number) resolutionMs).longValue();
+      }
+    }
+
+    return 0;
+  }
+}
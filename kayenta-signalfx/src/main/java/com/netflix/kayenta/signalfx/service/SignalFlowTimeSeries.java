@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.netflix.kayenta.signalfx.service;
+
+import com.netflix.kayenta.util.DoubleArrayBuilder;
+import com.signalfx.signalflow.ChannelMessage;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * The single time series produced by a SignalFlow program, as read by {@link
+ * SignalFlowStreamConverter}.
+ */
+@Value
+@Builder
+public class SignalFlowTimeSeries {
+
+  /** The step the values are spaced at; the job's resolution if it is coarser than requested. */
+  long stepMilli;
+
+  /** One value per step from the requested start, with NaN wherever no data point arrived. */
+  DoubleArrayBuilder values;
+
+  /** The number of data messages received, including those that carried no value. */
+  int dataMessageCount;
+
+  Long firstLogicalTimestampMs;
+
+  Long lastLogicalTimestampMs;
+
+  /** The first error message received, if any; nothing after it is read. */
+  ChannelMessage.ErrorMessage error;
+}
@@ -17,16 +17,20 @@
 
 package com.netflix.kayenta.signalfx.service;
 
+import retrofit.client.Response;
 import retrofit.http.Body;
 import retrofit.http.Header;
 import retrofit.http.POST;
 import retrofit.http.Query;
+import retrofit.http.Streaming;
+import retrofit.mime.TypedString;
 
 /** Retrofit interface for SignalFx API calls. */
 public interface SignalFxSignalFlowRemoteService {
 
   /**
-   * Executes a signal flow program.
+   * Executes a signal flow program, handing back the raw response so that it can be read
+   * incrementally by {@link SignalFlowStreamConverter}.
    *
    * @param accessToken The SignalFx API Access token associated with the organization that you are
    *     querying.
@@ -37,16 +41,17 @@ public interface SignalFxSignalFlowRemoteService {
    *     maximum delay) and 900000
    * @param immediate (Optional) whether to adjust the stop timestamp so that the computation
    *     doesn't wait for future data to be available
-   * @param program The signal flow program to execute
-   * @return The list of channel messages from the signal flow output
+   * @param program The signal flow program to execute, sent as plain text
+   * @return The response streaming the channel messages of the signal flow output
    */
+  @Streaming
   @POST("/v2/signalflow/execute")
-  SignalFlowExecutionResult executeSignalFlowProgram(
+  Response executeSignalFlowProgramStream(
       @Header("X-SF-TOKEN") String accessToken,
       @Query("start") long startEpochMilli,
       @Query("stop") long endEpochMilli,
       @Query("resolution") long resolution,
       @Query("maxDelay") long maxDelay,
       @Query("immediate") boolean immediate,
-      @Body String program);
+      @Body TypedString program);
 }
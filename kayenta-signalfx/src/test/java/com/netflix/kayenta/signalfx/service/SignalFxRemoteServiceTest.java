@@ -17,31 +17,39 @@
 
 package com.netflix.kayenta.signalfx.service;
 
-import static org.hamcrest.Matchers.greaterThan;
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
-import com.google.common.io.ByteStreams;
+import com.netflix.kayenta.util.DoubleArrayBuilder;
 import java.io.InputStream;
 import org.junit.Test;
-import retrofit.mime.TypedByteArray;
-import retrofit.mime.TypedInput;
 
 public class SignalFxRemoteServiceTest {
 
   @Test
-  public void test_that_a_signalfx_signal_flow_response_can_be_parsed() throws Exception {
-    InputStream response =
-        getClass().getClassLoader().getResourceAsStream("signalfx-signalflow-response.text");
-    SignalFxConverter converter = new SignalFxConverter();
-    TypedInput typedInput = new TypedByteArray("text/plain", ByteStreams.toByteArray(response));
-    SignalFlowExecutionResult signalFlowExecutionResult =
-        (SignalFlowExecutionResult) converter.fromBody(typedInput, SignalFlowExecutionResult.class);
-
-    assertNotNull(signalFlowExecutionResult);
-    assertThat(
-        "The signalFlowExecutionResult contains the channel messages",
-        signalFlowExecutionResult.getChannelMessages().size(),
-        greaterThan(1));
+  public void test_that_a_signalfx_signal_flow_response_can_be_streamed_into_a_time_series()
+      throws Exception {
+    long start = 1537140751000L;
+    SignalFlowTimeSeries signalFlowTimeSeries;
+
+    try (InputStream response =
+        getClass().getClassLoader().getResourceAsStream("signalfx-signalflow-response.text")) {
+      signalFlowTimeSeries =
+          SignalFlowStreamConverter.convert(response, start, start + 120000, 1000);
+    }
+
+    assertNull(signalFlowTimeSeries.getError());
+    assertEquals(62, signalFlowTimeSeries.getDataMessageCount());
+    assertEquals(Long.valueOf(start), signalFlowTimeSeries.getFirstLogicalTimestampMs());
+    assertEquals(1000, signalFlowTimeSeries.getStepMilli());
+
+    DoubleArrayBuilder values = signalFlowTimeSeries.getValues();
+    assertEquals(120, values.size());
+    assertTrue(Double.isNaN(values.get(0)));
+    assertEquals(53.333333333333336, values.get(3), 0);
+    assertEquals(52.0, values.get(5), 0);
+    // The response ends before the requested interval does.
+    assertTrue(Double.isNaN(values.get(119)));
   }
 }
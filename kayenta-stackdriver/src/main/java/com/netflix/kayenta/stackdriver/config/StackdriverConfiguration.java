@@ -16,11 +16,13 @@
 
 package com.netflix.kayenta.stackdriver.config;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.kayenta.google.security.GoogleNamedAccountCredentials;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.stackdriver.metrics.StackdriverMetricsService;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -51,9 +53,24 @@ public class StackdriverConfiguration {
   @Bean
   @DependsOn({"registerGoogleCredentials"})
   MetricsService stackdriverMetricsService(
-      AccountCredentialsRepository accountCredentialsRepository) {
+      AccountCredentialsRepository accountCredentialsRepository,
+      StackdriverConfigurationProperties stackdriverConfigurationProperties) {
     StackdriverMetricsService.StackdriverMetricsServiceBuilder stackdriverMetricsServiceBuilder =
-        StackdriverMetricsService.builder();
+        StackdriverMetricsService.builder()
+            .pageFetchExecutor(
+                Executors.newFixedThreadPool(
+                    Math.max(1, stackdriverConfigurationProperties.getPageFetchParallelism()),
+                    new ThreadFactoryBuilder()
+                        .setNameFormat("stackdriver-page-fetch-%d")
+                        .setDaemon(true)
+                        .build()))
+            .metadataRefreshExecutor(
+                Executors.newFixedThreadPool(
+                    Math.max(1, stackdriverConfigurationProperties.getMetadataRefreshParallelism()),
+                    new ThreadFactoryBuilder()
+                        .setNameFormat("stackdriver-metadata-refresh-%d")
+                        .setDaemon(true)
+                        .build()));
 
     accountCredentialsRepository.getAll().stream()
         .filter(c -> c instanceof GoogleNamedAccountCredentials)
@@ -23,4 +23,17 @@ import lombok.Setter;
 public class StackdriverConfigurationProperties {
 
   @Getter @Setter private long metadataCachingIntervalMS = Duration.ofSeconds(60).toMillis();
+
+  /**
+   * The maximum number of time series requested per page when listing time series. Every page is
+   * read; a smaller page size trades more round trips for smaller responses. Set to 0 to use the
+   * Stackdriver default.
+   */
+  @Getter @Setter private int timeSeriesPageSize = 0;
+
+  /** The number of next-page requests that may be in flight at once, across all queries. */
+  @Getter @Setter private int pageFetchParallelism = 4;
+
+  /** The number of accounts whose metric descriptors may be refreshed at once. */
+  @Getter @Setter private int metadataRefreshParallelism = 4;
 }
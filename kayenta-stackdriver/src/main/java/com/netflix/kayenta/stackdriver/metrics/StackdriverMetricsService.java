@@ -21,8 +21,6 @@ import com.google.api.services.monitoring.v3.model.ListMetricDescriptorsResponse
 import com.google.api.services.monitoring.v3.model.ListTimeSeriesResponse;
 import com.google.api.services.monitoring.v3.model.Metric;
 import com.google.api.services.monitoring.v3.model.MetricDescriptor;
-import com.google.api.services.monitoring.v3.model.MonitoredResource;
-import com.google.api.services.monitoring.v3.model.Point;
 import com.google.api.services.monitoring.v3.model.TimeSeries;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.CanaryMetricConfig;
@@ -30,25 +28,31 @@ import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.canary.providers.metrics.QueryConfigUtils;
 import com.netflix.kayenta.canary.providers.metrics.StackdriverCanaryMetricSetQueryConfig;
 import com.netflix.kayenta.google.security.GoogleNamedAccountCredentials;
+import com.netflix.kayenta.metrics.AccountMetricDescriptorsCache;
 import com.netflix.kayenta.metrics.MetricSet;
+import com.netflix.kayenta.metrics.MetricsQueryStats;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.stackdriver.canary.StackdriverCanaryScope;
 import com.netflix.kayenta.stackdriver.config.StackdriverConfigurationProperties;
+import com.netflix.kayenta.util.DoubleArrayBuilder;
 import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Getter;
@@ -71,7 +75,17 @@ public class StackdriverMetricsService implements MetricsService {
 
   @Autowired private final StackdriverConfigurationProperties stackdriverConfigurationProperties;
 
-  @Builder.Default private List<MetricDescriptor> metricDescriptorsCache = Collections.emptyList();
+  @Builder.Default
+  private final AccountMetricDescriptorsCache<MetricDescriptor> metricDescriptorsCache =
+      new AccountMetricDescriptorsCache<>(MetricDescriptor::getName);
+
+  // Used to fetch the next page of a paginated response while the current one is converted. If
+  // absent, pages are fetched sequentially.
+  private final ExecutorService pageFetchExecutor;
+
+  // Used to refresh the metric descriptors of every account at once. If absent, accounts are
+  // refreshed sequentially.
+  private final ExecutorService metadataRefreshExecutor;
 
   @Override
   public String getType() {
@@ -337,21 +351,10 @@ public class StackdriverMetricsService implements MetricsService {
       list.setAggregationGroupByFields(groupByFields);
     }
 
-    long startTime = registry.clock().monotonicTime();
-    ListTimeSeriesResponse response;
-
-    try {
-      response = list.execute();
-    } finally {
-      long endTime = registry.clock().monotonicTime();
-      Id stackdriverFetchTimerId =
-          registry.createId("stackdriver.fetchTime").withTag("project", projectId);
-
-      if (!StringUtils.isEmpty(location)) {
-        stackdriverFetchTimerId = stackdriverFetchTimerId.withTag("location", location);
-      }
+    int pageSize = stackdriverConfigurationProperties.getTimeSeriesPageSize();
 
-      registry.timer(stackdriverFetchTimerId).record(endTime - startTime, TimeUnit.NANOSECONDS);
+    if (pageSize > 0) {
+      list.setPageSize(pageSize);
     }
 
     long startAsLong = stackdriverCanaryScope.getStart().toEpochMilli();
@@ -364,45 +367,34 @@ public class StackdriverMetricsService implements MetricsService {
       numIntervals++;
     }
 
-    List<TimeSeries> timeSeriesList = response.getTimeSeries();
+    StackdriverTimeSeriesAccumulator accumulator = fetchAllPages(list, projectId, location);
 
-    if (timeSeriesList == null || timeSeriesList.size() == 0) {
+    if (accumulator.isEmpty()) {
       // Add placeholder metric set.
-      timeSeriesList =
-          Collections.singletonList(
-              new TimeSeries().setMetric(new Metric()).setPoints(new ArrayList<>()));
+      accumulator.add(new TimeSeries().setMetric(new Metric()).setPoints(new ArrayList<>()));
     }
 
     List<MetricSet> metricSetList = new ArrayList<>();
 
-    for (TimeSeries timeSeries : timeSeriesList) {
-      List<Point> points = timeSeries.getPoints();
+    for (StackdriverTimeSeriesAccumulator.Series series : accumulator.build()) {
+      DoubleArrayBuilder pointValues = series.getValues();
 
-      if (points.size() != numIntervals) {
+      if (pointValues.size() != numIntervals) {
         String pointOrPoints = numIntervals == 1 ? "point" : "points";
 
         log.warn(
-            "Expected {} data {}, but received {}.", numIntervals, pointOrPoints, points.size());
+            "Expected {} data {}, but received {}.",
+            numIntervals,
+            pointOrPoints,
+            pointValues.size());
       }
 
-      Collections.reverse(points);
-
       Instant responseStartTimeInstant =
-          points.size() > 0
-              ? Instant.parse(points.get(0).getInterval().getStartTime())
-              : stackdriverCanaryScope.getStart();
+          series.getStart() != null ? series.getStart() : stackdriverCanaryScope.getStart();
       long responseStartTimeMillis = responseStartTimeInstant.toEpochMilli();
 
       Instant responseEndTimeInstant =
-          points.size() > 0
-              ? Instant.parse(points.get(points.size() - 1).getInterval().getEndTime())
-              : stackdriverCanaryScope.getEnd();
-
-      // TODO(duftler): What if there are no data points?
-      List<Double> pointValues =
-          points.stream()
-              .map(point -> point.getValue().getDoubleValue())
-              .collect(Collectors.toList());
+          series.getEnd() != null ? series.getEnd() : stackdriverCanaryScope.getEnd();
 
       MetricSet.MetricSetBuilder metricSetBuilder =
           MetricSet.builder()
@@ -412,41 +404,108 @@ public class StackdriverMetricsService implements MetricsService {
               .endTimeMillis(responseEndTimeInstant.toEpochMilli())
               .endTimeIso(responseEndTimeInstant.toString())
               .stepMillis(alignmentPeriodSec * 1000)
-              .values(pointValues);
+              .values(pointValues.toList());
 
-      Map<String, String> filteredLabels = new HashMap<>();
+      metricSetBuilder.tags(series.getLabels());
 
-      MonitoredResource monitoredResource = timeSeries.getResource();
-      if (monitoredResource != null) {
-        Map<String, String> labels = monitoredResource.getLabels();
+      metricSetBuilder.attribute("query", filter);
+      metricSetBuilder.attribute("crossSeriesReducer", crossSeriesReducer);
+      metricSetBuilder.attribute("perSeriesAligner", perSeriesAligner);
 
-        if (labels != null) {
-          filteredLabels.putAll(
-              labels.entrySet().stream()
-                  .filter(entry -> entry.getKey() != "project_id")
-                  .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+      metricSetList.add(metricSetBuilder.build());
+    }
+
+    return metricSetList;
+  }
+
+  /**
+   * Follows {@code nextPageToken} until every page has been read. While one page is being folded
+   * into the accumulator, the request for the next page is already in flight.
+   */
+  private StackdriverTimeSeriesAccumulator fetchAllPages(
+      Monitoring.Projects.TimeSeries.List list, String projectId, String location)
+      throws IOException {
+    StackdriverTimeSeriesAccumulator accumulator = new StackdriverTimeSeriesAccumulator();
+    ListTimeSeriesResponse response = executeTimed(list, projectId, location);
+    int pages = 1;
+
+    while (true) {
+      String nextPageToken = response.getNextPageToken();
+      Future<ListTimeSeriesResponse> nextResponse = null;
+
+      if (!StringUtils.isEmpty(nextPageToken)) {
+        // The request object is only touched by one thread at a time: the page fetch below, and
+        // then (after Future.get()) this thread again.
+        list.setPageToken(nextPageToken);
+
+        if (pageFetchExecutor != null) {
+          nextResponse =
+              pageFetchExecutor.submit(
+                  MetricsQueryStats.propagate(() -> executeTimed(list, projectId, location)));
         }
       }
 
-      Metric metric = timeSeries.getMetric();
-      if (metric != null) {
-        Map<String, String> labels = metric.getLabels();
+      accumulator.addAll(response.getTimeSeries());
 
-        if (labels != null) {
-          filteredLabels.putAll(labels);
-        }
+      if (StringUtils.isEmpty(nextPageToken)) {
+        break;
       }
 
-      metricSetBuilder.tags(filteredLabels);
+      response =
+          nextResponse != null
+              ? awaitPage(nextResponse, list)
+              : executeTimed(list, projectId, location);
+      pages++;
+    }
 
-      metricSetBuilder.attribute("query", filter);
-      metricSetBuilder.attribute("crossSeriesReducer", crossSeriesReducer);
-      metricSetBuilder.attribute("perSeriesAligner", perSeriesAligner);
+    if (pages > 1) {
+      log.debug("Read {} pages of time series for filter {}.", pages, list.getFilter());
+    }
 
-      metricSetList.add(metricSetBuilder.build());
+    return accumulator;
+  }
+
+  private ListTimeSeriesResponse executeTimed(
+      Monitoring.Projects.TimeSeries.List list, String projectId, String location)
+      throws IOException {
+    long startTime = registry.clock().monotonicTime();
+
+    try {
+      return list.execute();
+    } finally {
+      long endTime = registry.clock().monotonicTime();
+      Id stackdriverFetchTimerId =
+          registry.createId("stackdriver.fetchTime").withTag("project", projectId);
+
+      if (!StringUtils.isEmpty(location)) {
+        stackdriverFetchTimerId = stackdriverFetchTimerId.withTag("location", location);
+      }
+
+      registry.timer(stackdriverFetchTimerId).record(endTime - startTime, TimeUnit.NANOSECONDS);
     }
+  }
 
-    return metricSetList;
+  private static ListTimeSeriesResponse awaitPage(
+      Future<ListTimeSeriesResponse> nextResponse, Monitoring.Projects.TimeSeries.List list)
+      throws IOException {
+    try {
+      return nextResponse.get();
+    } catch (InterruptedException e) {
+      nextResponse.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(
+          "Interrupted while fetching time series page for filter " + list.getFilter());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+
+      throw new IOException("Failed to fetch time series page for filter " + list.getFilter(), e);
+    }
   }
 
   private String determineProjectId(
@@ -465,53 +524,50 @@ public class StackdriverMetricsService implements MetricsService {
 
   @Override
   public List<Map> getMetadata(String metricsAccountName, String filter) {
-    if (!StringUtils.isEmpty(filter)) {
-      String lowerCaseFilter = filter.toLowerCase();
-
-      return metricDescriptorsCache.stream()
-          .filter(
-              metricDescriptor ->
-                  metricDescriptor.getName().toLowerCase().contains(lowerCaseFilter))
-          .collect(Collectors.toList());
-    } else {
-      return metricDescriptorsCache.stream().collect(Collectors.toList());
-    }
+    return new ArrayList<>(metricDescriptorsCache.search(metricsAccountName, filter));
   }
 
   @Scheduled(fixedDelayString = "#{@stackdriverConfigurationProperties.metadataCachingIntervalMS}")
-  public void updateMetricDescriptorsCache() throws IOException {
+  public void updateMetricDescriptorsCache() {
     Set<AccountCredentials> accountCredentialsSet =
         accountCredentialsRepository.getAllOf(AccountCredentials.Type.METRICS_STORE);
+    Map<String, Callable<List<MetricDescriptor>>> loadersByAccount = new LinkedHashMap<>();
 
     for (AccountCredentials credentials : accountCredentialsSet) {
       if (credentials instanceof GoogleNamedAccountCredentials) {
         GoogleNamedAccountCredentials stackdriverCredentials =
             (GoogleNamedAccountCredentials) credentials;
-        ListMetricDescriptorsResponse listMetricDescriptorsResponse =
-            stackdriverCredentials
-                .getMonitoring()
-                .projects()
-                .metricDescriptors()
-                .list("projects/" + stackdriverCredentials.getProject())
-                .execute();
-        List<MetricDescriptor> metricDescriptors =
-            listMetricDescriptorsResponse.getMetricDescriptors();
-
-        if (!CollectionUtils.isEmpty(metricDescriptors)) {
-          // TODO(duftler): Should we instead be building the union across all accounts? This
-          // doesn't seem quite right yet.
-          metricDescriptorsCache = metricDescriptors;
-
-          log.debug(
-              "Updated cache with {} metric descriptors via account {}.",
-              metricDescriptors.size(),
-              stackdriverCredentials.getName());
-        } else {
-          log.debug(
-              "While updating cache, found no metric descriptors via account {}.",
-              stackdriverCredentials.getName());
-        }
+
+        loadersByAccount.put(
+            stackdriverCredentials.getName(), () -> listMetricDescriptors(stackdriverCredentials));
       }
     }
+
+    metricDescriptorsCache.refresh(loadersByAccount, metadataRefreshExecutor);
+  }
+
+  private List<MetricDescriptor> listMetricDescriptors(
+      GoogleNamedAccountCredentials stackdriverCredentials) throws IOException {
+    Monitoring.Projects.MetricDescriptors.List list =
+        stackdriverCredentials
+            .getMonitoring()
+            .projects()
+            .metricDescriptors()
+            .list("projects/" + stackdriverCredentials.getProject());
+    List<MetricDescriptor> metricDescriptors = new ArrayList<>();
+    String pageToken;
+
+    do {
+      ListMetricDescriptorsResponse listMetricDescriptorsResponse = list.execute();
+
+      if (!CollectionUtils.isEmpty(listMetricDescriptorsResponse.getMetricDescriptors())) {
+        metricDescriptors.addAll(listMetricDescriptorsResponse.getMetricDescriptors());
+      }
+
+      pageToken = listMetricDescriptorsResponse.getNextPageToken();
+      list.setPageToken(pageToken);
+    } while (!StringUtils.isEmpty(pageToken));
+
+    return metricDescriptors;
   }
 }
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.stackdriver.metrics;
+
+import com.google.api.services.monitoring.v3.model.Metric;
+import com.google.api.services.monitoring.v3.model.MonitoredResource;
+import com.google.api.services.monitoring.v3.model.Point;
+import com.google.api.services.monitoring.v3.model.TimeSeries;
+import com.google.api.services.monitoring.v3.model.TypedValue;
+import com.netflix.kayenta.util.DoubleArrayBuilder;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import lombok.Value;
+
+/**
+ * Assembles the time series of a (possibly paginated) Stackdriver response, one page at a time.
+ *
+ * <p>Stackdriver returns points newest-first; they are written oldest-first into a primitive buffer
+ * as each page arrives. A series whose points are spread across several pages is stitched back
+ * together by its identity: its metric and monitored resource, with all their labels. Distinct
+ * series whose labels only differ in the project are still kept apart.
+ */
+class StackdriverTimeSeriesAccumulator {
+
+  private final Map<SeriesKey, SeriesAccumulator> seriesByKey = new LinkedHashMap<>();
+
+  void addAll(List<TimeSeries> timeSeriesList) {
+    if (timeSeriesList == null) {
+      return;
+    }
+
+    for (TimeSeries timeSeries : timeSeriesList) {
+      add(timeSeries);
+    }
+  }
+
+  void add(TimeSeries timeSeries) {
+    seriesByKey
+        .computeIfAbsent(
+            SeriesKey.of(timeSeries), key -> new SeriesAccumulator(extractLabels(timeSeries)))
+        .addPoints(timeSeries.getPoints());
+  }
+
+  boolean isEmpty() {
+    return seriesByKey.isEmpty();
+  }
+
+  List<Series> build() {
+    Collection<SeriesAccumulator> seriesAccumulators = seriesByKey.values();
+    List<Series> seriesList = new ArrayList<>(seriesAccumulators.size());
+
+    for (SeriesAccumulator seriesAccumulator : seriesAccumulators) {
+      seriesList.add(seriesAccumulator.build());
+    }
+
+    return seriesList;
+  }
+
+  private static Map<String, String> extractLabels(TimeSeries timeSeries) {
+    Map<String, String> filteredLabels = new HashMap<>();
+
+    MonitoredResource monitoredResource = timeSeries.getResource();
+    if (monitoredResource != null) {
+      Map<String, String> labels = monitoredResource.getLabels();
+
+      if (labels != null) {
+        filteredLabels.putAll(
+            labels.entrySet().stream()
+                .filter(entry -> !entry.getKey().equals("project_id"))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+      }
+    }
+
+    Metric metric = timeSeries.getMetric();
+    if (metric != null) {
+      Map<String, String> labels = metric.getLabels();
+
+      if (labels != null) {
+        filteredLabels.putAll(labels);
+      }
+    }
+
+    return filteredLabels;
+  }
+
+  private static double toDouble(TypedValue typedValue) {
+    if (typedValue == null) {
+      return Double.NaN;
+    } else if (typedValue.getDoubleValue() != null) {
+      return typedValue.getDoubleValue();
+    } else if (typedValue.getInt64Value() != null) {
+      return typedValue.getInt64Value();
+    }
+
+    return Double.NaN;
+  }
+
+  /** What tells the pages of one series apart from those of another. */
+  @Value
+  private static class SeriesKey {
+    String metricType;
+    Map<String, String> metricLabels;
+    String resourceType;
+    Map<String, String> resourceLabels;
+
+    static SeriesKey of(TimeSeries timeSeries) {
+      Metric metric = timeSeries.getMetric();
+      MonitoredResource resource = timeSeries.getResource();
+
+      return new SeriesKey(
+          metric != null ? metric.getType() : null,
+          metric != null ? labelsOrEmpty(metric.getLabels()) : Collections.emptyMap(),
+          resource != null ? resource.getType() : null,
+          resource != null ? labelsOrEmpty(resource.getLabels()) : Collections.emptyMap());
+    }
+
+    private static Map<String, String> labelsOrEmpty(Map<String, String> labels) {
+      return labels != null ? labels : Collections.emptyMap();
+    }
+  }
+
+  /** A fully-assembled series; start and end are absent if the series had no points. */
+  @Value
+  static class Series {
+    Map<String, String> labels;
+    Instant start;
+    Instant end;
+    DoubleArrayBuilder values;
+  }
+
+  private static class SeriesAccumulator {
+
+    private final Map<String, String> labels;
+    private final List<Segment> segments = new ArrayList<>(1);
+
+    SeriesAccumulator(Map<String, String> labels) {
+      this.labels = labels;
+    }
+
+    void addPoints(List<Point> points) {
+      if (points == null || points.isEmpty()) {
+        return;
+      }
+
+      int size = points.size();
+      DoubleArrayBuilder values = new DoubleArrayBuilder(size);
+
+      for (int i = size - 1; i >= 0; i--) {
+        values.add(toDouble(points.get(i).getValue()));
+      }
+
+      segments.add(
+          new Segment(
+              Instant.parse(points.get(size - 1).getInterval().getStartTime()),
+              Instant.parse(points.get(0).getInterval().getEndTime()),
+              values));
+    }
+
+    Series build() {
+      if (segments.isEmpty()) {
+        return new Series(labels, null, null, new DoubleArrayBuilder(1));
+      }
+
+      if (segments.size() == 1) {
+        Segment segment = segments.get(0);
+        return new Series(labels, segment.start, segment.end, segment.values);
+      }
+
+      segments.sort(Comparator.comparing(segment -> segment.start));
+
+      int totalSize = segments.stream().mapToInt(segment -> segment.values.size()).sum();
+      DoubleArrayBuilder values = new DoubleArrayBuilder(totalSize);
+
+      for (Segment segment : segments) {
+        values.addAll(segment.values);
+      }
+
+      return new Series(
+          labels, segments.get(0).start, segments.get(segments.size() - 1).end, values);
+    }
+  }
+
+  private static class Segment {
+    final Instant start;
+    final Instant end;
+    final DoubleArrayBuilder values;
+
+    Segment(Instant start, Instant end, DoubleArrayBuilder values) {
+      this.start = start;
+      this.end = end;
+      this.values = values;
+    }
+  }
+}
@@ -19,10 +19,10 @@ package com.netflix.kayenta.stackdriver.orca;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.metrics.SynchronousQueryProcessor;
+import com.netflix.kayenta.metrics.orca.MetricFetchTask;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.stackdriver.canary.StackdriverCanaryScope;
-import com.netflix.spinnaker.orca.api.pipeline.RetryableTask;
 import com.netflix.spinnaker.orca.api.pipeline.TaskResult;
 import com.netflix.spinnaker.orca.api.pipeline.models.StageExecution;
 import java.io.IOException;
@@ -35,7 +35,7 @@ import org.springframework.stereotype.Component;
 
 @Component
 @Slf4j
-public class StackdriverFetchTask implements RetryableTask {
+public class StackdriverFetchTask implements MetricFetchTask {
 
   private final ObjectMapper kayentaObjectMapper;
   private final AccountCredentialsRepository accountCredentialsRepository;
@@ -58,9 +58,8 @@ public class StackdriverFetchTask implements RetryableTask {
   }
 
   @Override
-  public long getTimeout() {
-    // TODO(duftler): Externalize this configuration.
-    return Duration.ofMinutes(2).toMillis();
+  public SynchronousQueryProcessor getSynchronousQueryProcessor() {
+    return synchronousQueryProcessor;
   }
 
   @Nonnull
@@ -96,6 +95,7 @@ public class StackdriverFetchTask implements RetryableTask {
         resolvedStorageAccountName,
         canaryConfig,
         metricIndex,
-        stackdriverCanaryScope);
+        stackdriverCanaryScope,
+        context);
   }
 }
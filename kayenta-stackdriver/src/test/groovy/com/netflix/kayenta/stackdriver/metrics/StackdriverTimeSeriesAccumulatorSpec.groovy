@@ -0,0 +1,114 @@
+/*
+ * Copyright 2020 Google, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.stackdriver.metrics
+
+import com.google.api.services.monitoring.v3.model.Metric
+import com.google.api.services.monitoring.v3.model.MonitoredResource
+import com.google.api.services.monitoring.v3.model.Point
+import com.google.api.services.monitoring.v3.model.TimeInterval
+import com.google.api.services.monitoring.v3.model.TimeSeries
+import com.google.api.services.monitoring.v3.model.TypedValue
+import spock.lang.Specification
+
+import java.time.Instant
+
+class StackdriverTimeSeriesAccumulatorSpec extends Specification {
+
+  static final Instant START = Instant.parse("2020-01-01T00:00:00Z")
+
+  StackdriverTimeSeriesAccumulator accumulator = new StackdriverTimeSeriesAccumulator()
+
+  void "the pages of one series are stitched together oldest first"() {
+    when:
+    // Stackdriver pages the newest points first.
+    accumulator.addAll([timeSeries("my-project", [zone: "us-east1-b"], 3, [4d, 5d])])
+    accumulator.addAll([timeSeries("my-project", [zone: "us-east1-b"], 0, [1d, 2d, 3d])])
+    def series = accumulator.build()
+
+    then:
+    series.size() == 1
+    series[0].labels == [zone: "us-east1-b"]
+    series[0].start == START
+    series[0].end == START.plusSeconds(5 * 60)
+    series[0].values.toArray() as List == [1d, 2d, 3d, 4d, 5d]
+  }
+
+  void "series that only differ in their project are kept apart"() {
+    when:
+    accumulator.addAll(
+      [
+        timeSeries("project-a", [zone: "us-east1-b"], 0, [1d, 2d]),
+        timeSeries("project-b", [zone: "us-east1-b"], 0, [3d, 4d])
+      ])
+    def series = accumulator.build()
+
+    then:
+    series.size() == 2
+    series*.labels == [[zone: "us-east1-b"], [zone: "us-east1-b"]]
+    series*.values*.toArray()*.toList() == [[1d, 2d], [3d, 4d]]
+  }
+
+  void "series of different metrics with the same labels are kept apart"() {
+    given:
+    def other = timeSeries("my-project", [zone: "us-east1-b"], 0, [3d])
+    other.metric.type = "compute.googleapis.com/instance/disk/read_bytes_count"
+
+    when:
+    accumulator.addAll([timeSeries("my-project", [zone: "us-east1-b"], 0, [1d]), other])
+
+    then:
+    accumulator.build()*.values*.toArray()*.toList() == [[1d], [3d]]
+  }
+
+  void "a series without points has no interval"() {
+    when:
+    accumulator.add(new TimeSeries().setMetric(new Metric()).setPoints([]))
+    def series = accumulator.build()
+
+    then:
+    series.size() == 1
+    series[0].start == null
+    series[0].end == null
+    series[0].values.isEmpty()
+  }
+
+  /** A series of one-minute points, the first starting {@code offsetMinutes} after START. */
+  private static TimeSeries timeSeries(
+    String project, Map<String, String> resourceLabels, int offsetMinutes, List<Double> values) {
+    List<Point> points = []
+
+    values.eachWithIndex { double value, int i ->
+      Instant start = START.plusSeconds((offsetMinutes + i) * 60)
+      points.add(
+        0,
+        new Point()
+          .setInterval(
+            new TimeInterval()
+              .setStartTime(start.toString())
+              .setEndTime(start.plusSeconds(60).toString()))
+          .setValue(new TypedValue().setDoubleValue(value)))
+    }
+
+    return new TimeSeries()
+      .setMetric(new Metric().setType("compute.googleapis.com/instance/cpu/utilization"))
+      .setResource(
+        new MonitoredResource()
+          .setType("gce_instance")
+          .setLabels([project_id: project] + resourceLabels))
+      .setPoints(points)
+  }
+}
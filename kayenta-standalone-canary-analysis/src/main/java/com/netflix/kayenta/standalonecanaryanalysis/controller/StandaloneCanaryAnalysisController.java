@@ -21,6 +21,7 @@ import static org.springframework.web.bind.annotation.RequestMethod.POST;
 
 import com.netflix.kayenta.canary.CanaryConfig;
 import com.netflix.kayenta.canary.providers.metrics.QueryConfigUtils;
+import com.netflix.kayenta.events.ExecutionStatusWatcher;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.standalonecanaryanalysis.CanaryAnalysisConfig;
@@ -34,14 +35,19 @@ import com.netflix.kayenta.storage.StorageService;
 import com.netflix.kayenta.storage.StorageServiceRepository;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Controller for triggering logic that is representative of what happens in the Spinnaker Canary
@@ -57,6 +63,7 @@ public class StandaloneCanaryAnalysisController {
   private final AccountCredentialsRepository accountCredentialsRepository;
   private final CanaryAnalysisService canaryAnalysisService;
   private final StorageServiceRepository storageServiceRepository;
+  private final ExecutionStatusWatcher executionStatusWatcher;
 
   private final String AD_HOC = "ad-hoc";
 
@@ -64,11 +71,13 @@ public class StandaloneCanaryAnalysisController {
   public StandaloneCanaryAnalysisController(
       AccountCredentialsRepository accountCredentialsRepository,
       CanaryAnalysisService canaryAnalysisService,
-      StorageServiceRepository storageServiceRepository) {
+      StorageServiceRepository storageServiceRepository,
+      ExecutionStatusWatcher executionStatusWatcher) {
 
     this.accountCredentialsRepository = accountCredentialsRepository;
     this.canaryAnalysisService = canaryAnalysisService;
     this.storageServiceRepository = storageServiceRepository;
+    this.executionStatusWatcher = executionStatusWatcher;
   }
 
   /**
@@ -257,4 +266,91 @@ public class StandaloneCanaryAnalysisController {
     return canaryAnalysisService.getCanaryAnalysisExecution(
         canaryAnalysisExecutionId, storageAccountName);
   }
+
+  /**
+   * Fetches a Canary Analysis Execution from a supplied id once it changes.
+   *
+   * @param canaryAnalysisExecutionId The id for the Canary Analysis Execution
+   * @param storageAccountName The account to use to try and find the execution if not found in the
+   *     execution repo
+   * @param waitForChangeMs How long to wait for a change before responding anyway
+   * @return The canary analysis execution object, once a stage of it started or completed, it is
+   *     complete, or waitForChangeMs passed.
+   */
+  @ApiOperation(
+      value = "Retrieve status and results for a canary analysis execution once they change")
+  @RequestMapping(
+      value = "/{canaryAnalysisExecutionId:.+}",
+      params = "waitForChangeMs",
+      method = GET)
+  public DeferredResult<CanaryAnalysisExecutionStatusResponse> awaitCanaryAnalysisExecution(
+      @ApiParam(value = "The id for the Canary Analysis Execution") @PathVariable
+          final String canaryAnalysisExecutionId,
+      @ApiParam(
+              value =
+                  "The account to use to try and find the execution if not found in the execution repo",
+              example = "some-storage-account")
+          @RequestParam(required = false)
+          final String storageAccountName,
+      @ApiParam(value = "How long to wait for a change before responding anyway", example = "30000")
+          @RequestParam
+          final long waitForChangeMs) {
+
+    return executionStatusWatcher.awaitChange(
+        canaryAnalysisExecutionId,
+        waitForChangeMs,
+        () ->
+            canaryAnalysisService.getCanaryAnalysisExecution(
+                canaryAnalysisExecutionId, storageAccountName),
+        status -> Boolean.TRUE.equals(status.getComplete()));
+  }
+
+  /**
+   * Streams the status of a Canary Analysis Execution as server-sent events: a 'status' event with
+   * the status, completeness and stage statuses of the execution, then one with just those that
+   * changed whenever some did, and finally a 'result' event with the full canary analysis execution
+   * object once it is complete.
+   *
+   * @param canaryAnalysisExecutionId The id for the Canary Analysis Execution
+   * @param storageAccountName The account to use to try and find the execution if not found in the
+   *     execution repo
+   * @return The stream of status events
+   */
+  @ApiOperation(value = "Stream the status of a canary analysis execution")
+  @RequestMapping(
+      value = "/{canaryAnalysisExecutionId:.+}/stream",
+      method = GET,
+      produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamCanaryAnalysisExecution(
+      @ApiParam(value = "The id for the Canary Analysis Execution") @PathVariable
+          final String canaryAnalysisExecutionId,
+      @ApiParam(
+              value =
+                  "The account to use to try and find the execution if not found in the execution repo",
+              example = "some-storage-account")
+          @RequestParam(required = false)
+          final String storageAccountName) {
+
+    return executionStatusWatcher.stream(
+        canaryAnalysisExecutionId,
+        () ->
+            canaryAnalysisService.getCanaryAnalysisExecution(
+                canaryAnalysisExecutionId, storageAccountName),
+        status -> Boolean.TRUE.equals(status.getComplete()),
+        StandaloneCanaryAnalysisController::summarize);
+  }
+
+  private static Map<String, Object> summarize(CanaryAnalysisExecutionStatusResponse status) {
+    Map<String, Object> stageStatus = new LinkedHashMap<>();
+    Optional.ofNullable(status.getStageStatus())
+        .ifPresent(
+            stages ->
+                stages.forEach(stage -> stageStatus.put(stage.getName(), stage.getStatus())));
+
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("executionStatus", status.getExecutionStatus());
+    summary.put("complete", status.getComplete());
+    summary.put("stageStatus", stageStatus);
+    return summary;
+  }
 }
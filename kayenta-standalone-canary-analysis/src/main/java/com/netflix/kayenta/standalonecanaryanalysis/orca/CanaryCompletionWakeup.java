@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.standalonecanaryanalysis.orca;
+
+import com.netflix.kayenta.events.CanaryExecutionCompletedEvent;
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionType;
+import com.netflix.spinnaker.orca.api.pipeline.models.PipelineExecution;
+import com.netflix.spinnaker.orca.q.RescheduleExecution;
+import com.netflix.spinnaker.q.Queue;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Wakes a waiting {@link com.netflix.kayenta.standalonecanaryanalysis.orca.task.MonitorCanaryTask}
+ * as soon as the canary execution it monitors completes, rather than on its next poll.
+ *
+ * <p>When a canary execution is started on behalf of a canary analysis execution, the link between
+ * the two is recorded in Redis, so that whichever instance processes the completion of the canary
+ * execution can find the analysis execution waiting on it. On {@link
+ * CanaryExecutionCompletedEvent} the analysis execution is rescheduled through the Orca queue,
+ * which runs its running tasks immediately. Any failure here only costs latency: the monitor task
+ * still polls, slowly, as a fallback.
+ */
+@Component
+@Slf4j
+public class CanaryCompletionWakeup {
+
+  static final String REDIS_KEY_PREFIX = "kayenta:standalone-canary-analysis:waiting-execution:";
+
+  static final String EXECUTION_ID = "executionId";
+  static final String APPLICATION = "application";
+
+  // Outlives the monitor task's timeout, so a link is never dropped while a monitor may wait on it.
+  private static final long LINK_TTL_MS = Duration.ofHours(13).toMillis();
+
+  private final JedisPool jedisPool;
+  private final Queue queue;
+
+  @Autowired
+  public CanaryCompletionWakeup(Optional<JedisPool> jedisPool, Optional<Queue> queue) {
+    this.jedisPool = jedisPool.orElse(null);
+    this.queue = queue.orElse(null);
+  }
+
+  /** Records that the given execution waits on the completion of the canary execution. */
+  public void register(String canaryPipelineExecutionId, PipelineExecution waitingExecution) {
+    if (jedisPool == null || queue == null) {
+      return;
+    }
+
+    Map<String, String> link = new HashMap<>();
+    link.put(EXECUTION_ID, waitingExecution.getId());
+    link.put(APPLICATION, waitingExecution.getApplication());
+
+    String key = REDIS_KEY_PREFIX + canaryPipelineExecutionId;
+
+    try (Jedis jedis = jedisPool.getResource()) {
+      jedis.hset(key, link);
+      jedis.pexpire(key, LINK_TTL_MS);
+    } catch (Exception e) {
+      log.warn(
+          "Unable to record that execution {} waits on canary execution {}, it will be polled: {}",
+          waitingExecution.getId(),
+          canaryPipelineExecutionId,
+          e.getMessage());
+    }
+  }
+
+  @EventListener
+  public void onApplicationEvent(CanaryExecutionCompletedEvent event) {
+    if (jedisPool == null || queue == null) {
+      return;
+    }
+
+    String canaryPipelineExecutionId = event.getCanaryExecutionStatusResponse().getPipelineId();
+    String key = REDIS_KEY_PREFIX + canaryPipelineExecutionId;
+    Map<String, String> link;
+
+    try (Jedis jedis = jedisPool.getResource()) {
+      link = jedis.hgetAll(key);
+      if (link.isEmpty()) {
+        return;
+      }
+      jedis.del(key);
+    } catch (Exception e) {
+      log.warn(
+          "Unable to look up the execution waiting on canary execution {}: {}",
+          canaryPipelineExecutionId,
+          e.getMessage());
+      return;
+    }
+
+    String executionId = link.get(EXECUTION_ID);
+    String application = link.get(APPLICATION);
+
+    if (executionId == null || application == null) {
+      return;
+    }
+
+    log.debug(
+        "Canary execution {} completed, waking execution {}",
+        canaryPipelineExecutionId,
+        executionId);
+
+    try {
+      queue.push(new RescheduleExecution(ExecutionType.PIPELINE, executionId, application));
+    } catch (Exception e) {
+      log.warn("Unable to wake execution {}, it will be polled: {}", executionId, e.getMessage());
+    }
+  }
+}
@@ -48,6 +48,7 @@ import java.util.Set;
 import javax.annotation.Nonnull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -56,7 +57,9 @@ import org.springframework.stereotype.Component;
  * with alterations to use ad-hoc endpoint rather that pre-defined canary-config endpoint.
  *
  * <p>This tasks monitors a canary judgement execution waiting for it to complete and processing the
- * results.
+ * results. The task is woken by {@link
+ * com.netflix.kayenta.standalonecanaryanalysis.orca.CanaryCompletionWakeup} when the canary
+ * execution completes, so it only polls at a slow fallback interval.
  */
 @Component
 @Slf4j
@@ -67,22 +70,26 @@ public class MonitorCanaryTask implements Task, OverridableTimeoutRetryableTask
   private final ExecutionRepository executionRepository;
   private final AccountCredentialsRepository accountCredentialsRepository;
   private final ExecutionMapper executionMapper;
+  private final long fallbackPollIntervalMs;
 
   @Autowired
   public MonitorCanaryTask(
       ExecutionRepository executionRepository,
       AccountCredentialsRepository accountCredentialsRepository,
-      ExecutionMapper executionMapper) {
+      ExecutionMapper executionMapper,
+      @Value("${kayenta.standalone-canary-analysis.monitor-fallback-poll-interval-ms:30000}")
+          long fallbackPollIntervalMs) {
 
     this.executionRepository = executionRepository;
     this.accountCredentialsRepository = accountCredentialsRepository;
 
     this.executionMapper = executionMapper;
+    this.fallbackPollIntervalMs = fallbackPollIntervalMs;
   }
 
   @Override
   public long getBackoffPeriod() {
-    return 1000L;
+    return fallbackPollIntervalMs;
   }
 
   @Override
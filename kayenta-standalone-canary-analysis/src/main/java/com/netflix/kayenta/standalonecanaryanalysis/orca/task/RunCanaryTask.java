@@ -26,6 +26,7 @@ import com.netflix.kayenta.canary.CanaryScopePair;
 import com.netflix.kayenta.canary.ExecutionMapper;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
+import com.netflix.kayenta.standalonecanaryanalysis.orca.CanaryCompletionWakeup;
 import com.netflix.kayenta.standalonecanaryanalysis.orca.RunCanaryContext;
 import com.netflix.spinnaker.orca.api.pipeline.Task;
 import com.netflix.spinnaker.orca.api.pipeline.TaskResult;
@@ -46,16 +47,19 @@ public class RunCanaryTask implements Task {
   private final AccountCredentialsRepository accountCredentialsRepository;
   private final ExecutionMapper executionMapper;
   private final ObjectMapper kayentaObjectMapper;
+  private final CanaryCompletionWakeup canaryCompletionWakeup;
 
   @Autowired
   public RunCanaryTask(
       AccountCredentialsRepository accountCredentialsRepository,
       ExecutionMapper executionMapper,
-      ObjectMapper kayentaObjectMapper) {
+      ObjectMapper kayentaObjectMapper,
+      CanaryCompletionWakeup canaryCompletionWakeup) {
 
     this.accountCredentialsRepository = accountCredentialsRepository;
     this.executionMapper = executionMapper;
     this.kayentaObjectMapper = kayentaObjectMapper;
+    this.canaryCompletionWakeup = canaryCompletionWakeup;
   }
 
   @Nonnull
@@ -112,6 +116,7 @@ public class RunCanaryTask implements Task {
     }
 
     String canaryPipelineExecutionId = canaryExecutionResponse.getCanaryExecutionId();
+    canaryCompletionWakeup.register(canaryPipelineExecutionId, stage.getExecution());
 
     // Grab the first scope pair so we can store the start and end times that were used for the
     // judgement.
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2020 Nike, inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.standalonecanaryanalysis.orca;
+
+import static com.netflix.kayenta.standalonecanaryanalysis.orca.CanaryCompletionWakeup.APPLICATION;
+import static com.netflix.kayenta.standalonecanaryanalysis.orca.CanaryCompletionWakeup.EXECUTION_ID;
+import static com.netflix.kayenta.standalonecanaryanalysis.orca.CanaryCompletionWakeup.REDIS_KEY_PREFIX;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.netflix.kayenta.canary.CanaryExecutionStatusResponse;
+import com.netflix.kayenta.events.CanaryExecutionCompletedEvent;
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionType;
+import com.netflix.spinnaker.orca.pipeline.model.PipelineExecutionImpl;
+import com.netflix.spinnaker.orca.q.RescheduleExecution;
+import com.netflix.spinnaker.q.Queue;
+import java.util.Collections;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+public class CanaryCompletionWakeupTest {
+
+  private Jedis jedis;
+  private Queue queue;
+  private CanaryCompletionWakeup wakeup;
+
+  @Before
+  public void before() {
+    jedis = mock(Jedis.class);
+    JedisPool jedisPool = mock(JedisPool.class);
+    when(jedisPool.getResource()).thenReturn(jedis);
+    queue = mock(Queue.class);
+    wakeup = new CanaryCompletionWakeup(Optional.of(jedisPool), Optional.of(queue));
+  }
+
+  @Test
+  public void test_that_register_links_the_canary_execution_to_the_waiting_execution() {
+    wakeup.register(
+        "canary-id", new PipelineExecutionImpl(ExecutionType.PIPELINE, "analysis-id", "app"));
+
+    verify(jedis)
+        .hset(
+            REDIS_KEY_PREFIX + "canary-id",
+            ImmutableMap.of(EXECUTION_ID, "analysis-id", APPLICATION, "app"));
+    verify(jedis).pexpire(eq(REDIS_KEY_PREFIX + "canary-id"), anyLong());
+  }
+
+  @Test
+  public void test_that_a_completed_canary_reschedules_the_waiting_execution() {
+    when(jedis.hgetAll(REDIS_KEY_PREFIX + "canary-id"))
+        .thenReturn(ImmutableMap.of(EXECUTION_ID, "analysis-id", APPLICATION, "app"));
+
+    wakeup.onApplicationEvent(completed("canary-id"));
+
+    verify(jedis).del(REDIS_KEY_PREFIX + "canary-id");
+    verify(queue).push(new RescheduleExecution(ExecutionType.PIPELINE, "analysis-id", "app"));
+  }
+
+  @Test
+  public void test_that_a_canary_nobody_waits_on_wakes_nothing() {
+    when(jedis.hgetAll(REDIS_KEY_PREFIX + "canary-id")).thenReturn(Collections.emptyMap());
+
+    wakeup.onApplicationEvent(completed("canary-id"));
+
+    verify(queue, never()).push(any());
+  }
+
+  private CanaryExecutionCompletedEvent completed(String canaryPipelineExecutionId) {
+    return new CanaryExecutionCompletedEvent(
+        this,
+        CanaryExecutionStatusResponse.builder().pipelineId(canaryPipelineExecutionId).build());
+  }
+}
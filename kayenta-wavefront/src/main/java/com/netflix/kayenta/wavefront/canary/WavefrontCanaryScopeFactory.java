@@ -17,6 +17,7 @@ package com.netflix.kayenta.wavefront.canary;
 
 import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.canary.CanaryScopeFactory;
+import com.netflix.kayenta.wavefront.metrics.WavefrontQueryPlanner;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -46,15 +47,6 @@ public class WavefrontCanaryScopeFactory implements CanaryScopeFactory {
   }
 
   private String generateGranularity(Long step) {
-    if (step % DAY == 0) {
-      return "d";
-    }
-    if (step % HOUR == 0) {
-      return "h";
-    }
-    if (step % MINUTE == 0) {
-      return "m";
-    }
-    return "s";
+    return WavefrontQueryPlanner.granularityForStep(step);
   }
 }
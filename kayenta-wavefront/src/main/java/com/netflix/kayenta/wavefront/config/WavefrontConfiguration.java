@@ -16,6 +16,7 @@
 package com.netflix.kayenta.wavefront.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.retrofit.config.RetrofitClientFactory;
 import com.netflix.kayenta.security.AccountCredentials;
@@ -24,9 +25,12 @@ import com.netflix.kayenta.wavefront.metrics.WavefrontMetricsService;
 import com.netflix.kayenta.wavefront.security.WavefrontCredentials;
 import com.netflix.kayenta.wavefront.security.WavefrontNamedAccountCredentials;
 import com.netflix.kayenta.wavefront.service.WavefrontRemoteService;
+import com.squareup.okhttp.ConnectionPool;
 import com.squareup.okhttp.OkHttpClient;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -76,14 +80,30 @@ public class WavefrontConfiguration {
 
       if (!CollectionUtils.isEmpty(supportedTypes)) {
         if (supportedTypes.contains(AccountCredentials.Type.METRICS_STORE)) {
+          int sliceConcurrency = Math.max(1, wavefrontManagedAccount.getSliceConcurrency());
+
+          // Each account keeps its own pool of connections, sized for its concurrent slices.
+          OkHttpClient accountHttpClient = okHttpClient.clone();
+          accountHttpClient.setConnectionPool(
+              new ConnectionPool(sliceConcurrency, Duration.ofMinutes(5).toMillis()));
+
           WavefrontRemoteService wavefrontRemoteService =
               retrofitClientFactory.createClient(
                   WavefrontRemoteService.class,
                   new JacksonConverter(objectMapper),
                   wavefrontManagedAccount.getEndpoint(),
-                  okHttpClient);
+                  accountHttpClient);
 
-          wavefrontNamedAccountCredentialsBuilder.wavefrontRemoteService(wavefrontRemoteService);
+          wavefrontNamedAccountCredentialsBuilder
+              .wavefrontRemoteService(wavefrontRemoteService)
+              .maxPointsPerSlice(wavefrontManagedAccount.getMaxPointsPerSlice())
+              .sliceExecutor(
+                  Executors.newFixedThreadPool(
+                      sliceConcurrency,
+                      new ThreadFactoryBuilder()
+                          .setNameFormat("wavefront-" + name + "-slice-%d")
+                          .setDaemon(true)
+                          .build()));
         }
 
         wavefrontNamedAccountCredentialsBuilder.supportedTypes(supportedTypes);
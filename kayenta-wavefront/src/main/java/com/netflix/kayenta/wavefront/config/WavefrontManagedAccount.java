@@ -17,6 +17,7 @@ package com.netflix.kayenta.wavefront.config;
 
 import com.netflix.kayenta.retrofit.config.RemoteService;
 import com.netflix.kayenta.security.AccountCredentials;
+import com.netflix.kayenta.wavefront.metrics.WavefrontQueryPlanner;
 import java.util.List;
 import javax.validation.constraints.NotNull;
 import lombok.Data;
@@ -29,4 +30,11 @@ public class WavefrontManagedAccount {
   @NotNull private RemoteService endpoint;
 
   private List<AccountCredentials.Type> supportedTypes;
+
+  // The number of slices of a long, sliced query that may be in flight at once for this account;
+  // also the number of idle connections kept in the account's connection pool.
+  private int sliceConcurrency = 4;
+
+  // Windows that would return more points per series than this are split into slices.
+  private int maxPointsPerSlice = WavefrontQueryPlanner.DEFAULT_MAX_POINTS_PER_SLICE;
 }
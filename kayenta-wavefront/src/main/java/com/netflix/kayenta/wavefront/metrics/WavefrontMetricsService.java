@@ -20,21 +20,28 @@ import com.netflix.kayenta.canary.CanaryMetricConfig;
 import com.netflix.kayenta.canary.CanaryScope;
 import com.netflix.kayenta.canary.providers.metrics.WavefrontCanaryMetricSetQueryConfig;
 import com.netflix.kayenta.metrics.MetricSet;
+import com.netflix.kayenta.metrics.MetricsQueryStats;
 import com.netflix.kayenta.metrics.MetricsService;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
+import com.netflix.kayenta.util.DoubleArrayBuilder;
 import com.netflix.kayenta.wavefront.canary.WavefrontCanaryScope;
 import com.netflix.kayenta.wavefront.security.WavefrontCredentials;
 import com.netflix.kayenta.wavefront.security.WavefrontNamedAccountCredentials;
 import com.netflix.kayenta.wavefront.service.WavefrontRemoteService;
 import com.netflix.kayenta.wavefront.service.WavefrontTimeSeries;
+import com.netflix.spectator.api.Id;
 import com.netflix.spectator.api.Registry;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Getter;
@@ -94,52 +101,71 @@ public class WavefrontMetricsService implements MetricsService {
     WavefrontCanaryScope wavefrontCanaryScope = (WavefrontCanaryScope) canaryScope;
     WavefrontNamedAccountCredentials accountCredentials =
         accountCredentialsRepository.getRequiredOne(accountName);
-    WavefrontCredentials credentials = accountCredentials.getCredentials();
-    WavefrontRemoteService wavefrontRemoteService = accountCredentials.getWavefrontRemoteService();
 
     WavefrontCanaryMetricSetQueryConfig queryConfig =
         (WavefrontCanaryMetricSetQueryConfig) canaryMetricConfig.getQuery();
     String query = buildQuery(accountName, canaryConfig, canaryMetricConfig, canaryScope);
 
-    WavefrontTimeSeries timeSeries =
-        wavefrontRemoteService.fetch(
-            credentials.getApiToken(),
-            "Kayenta-Query",
-            query,
-            wavefrontCanaryScope.getStart().toEpochMilli(),
-            wavefrontCanaryScope.getEnd().toEpochMilli(),
-            wavefrontCanaryScope.getGranularity(),
-            queryConfig.getSummarization(),
-            true, // listMode
-            true, // strict
-            true); // sorted
+    String granularity =
+        wavefrontCanaryScope.getGranularity() != null
+            ? wavefrontCanaryScope.getGranularity()
+            : WavefrontQueryPlanner.granularityForStep(canaryScope.getStep());
+    List<WavefrontQueryPlanner.QuerySlice> slices =
+        WavefrontQueryPlanner.plan(
+            wavefrontCanaryScope.getStart(),
+            wavefrontCanaryScope.getEnd(),
+            canaryScope.getStep(),
+            granularity,
+            accountCredentials.getMaxPointsPerSlice());
 
-    List<MetricSet> metricSetList = new ArrayList<>();
+    List<WavefrontTimeSeries> sliceResults =
+        executeSlices(accountName, accountCredentials, query, granularity, queryConfig, slices);
+
+    // Series are matched across slices by their identity, in the order they are first seen.
+    Map<List<Object>, SeriesBuilder> seriesBuilders = new LinkedHashMap<>();
+    boolean anyTimeSeries = false;
 
-    if (timeSeries.getWarnings() != null) {
-      log.warn(timeSeries.getWarnings());
+    for (WavefrontTimeSeries timeSeries : sliceResults) {
+      if (timeSeries.getWarnings() != null) {
+        log.warn(timeSeries.getWarnings());
+      }
+      if (timeSeries.getTimeSeries() == null) {
+        continue;
+      }
+      anyTimeSeries = true;
+
+      for (WavefrontTimeSeries.WavefrontSeriesEntry series : timeSeries.getTimeSeries()) {
+        seriesBuilders
+            .computeIfAbsent(
+                Arrays.asList(series.getLabel(), series.getHost(), series.getTags()),
+                key -> new SeriesBuilder(series, canaryScope.getStep()))
+            .addAll(series.getData());
+      }
     }
-    if (timeSeries.getTimeSeries() == null) {
+
+    if (!anyTimeSeries) {
       throw new IllegalStateException(
           "No metrics returned for query: "
-              + timeSeries.getQuery()
+              + query
               + " from "
               + wavefrontCanaryScope.getStart()
               + " to "
               + wavefrontCanaryScope.getEnd());
     }
-    for (WavefrontTimeSeries.WavefrontSeriesEntry series : timeSeries.getTimeSeries()) {
-      List<List<Number>> seriesDate = series.getData();
-      if (seriesDate.size() == 0) {
+
+    List<MetricSet> metricSetList = new ArrayList<>();
+
+    for (SeriesBuilder seriesBuilder : seriesBuilders.values()) {
+      if (seriesBuilder.firstTimestamp == null) {
         log.warn(
             "No metrics found for label: "
-                + series.getLabel()
+                + seriesBuilder.series.getLabel()
                 + " under host: "
-                + series.getHost());
+                + seriesBuilder.series.getHost());
         continue;
       }
-      Long responseStartTime = seriesDate.get(0).get(0).longValue();
-      Long responseEndTime = seriesDate.get(seriesDate.size() - 1).get(0).longValue();
+      Long responseStartTime = seriesBuilder.firstTimestamp;
+      Long responseEndTime = seriesBuilder.lastTimestamp;
       MetricSet.MetricSetBuilder metricSetBuilder =
           MetricSet.builder()
               .name(canaryMetricConfig.getName())
@@ -148,17 +174,162 @@ public class WavefrontMetricsService implements MetricsService {
               .endTimeMillis(TimeUnit.SECONDS.toMillis(responseEndTime))
               .endTimeIso(Instant.ofEpochSecond(responseEndTime).toString())
               .stepMillis(TimeUnit.SECONDS.toMillis(canaryScope.getStep()))
-              .values(series.getDataPoints(canaryScope.getStep()).collect(Collectors.toList()));
+              .values(seriesBuilder.buildValues().toList());
 
-      Map<String, String> tags = series.getTags();
+      Map<String, String> tags = seriesBuilder.series.getTags();
 
       if (tags != null) {
         metricSetBuilder.tags(tags);
       }
       metricSetBuilder.attribute("query", query);
       metricSetBuilder.attribute("summarization", queryConfig.getSummarization());
+      metricSetBuilder.attribute("granularity", granularity);
+      if (slices.size() > 1) {
+        metricSetBuilder.attribute("querySlices", String.valueOf(slices.size()));
+      }
       metricSetList.add(metricSetBuilder.build());
     }
     return metricSetList;
   }
+
+  /**
+   * Fetches each slice (concurrently, when the account has a slice executor), timing every fetch
+   * per account and slice.
+   */
+  private List<WavefrontTimeSeries> executeSlices(
+      String accountName,
+      WavefrontNamedAccountCredentials accountCredentials,
+      String query,
+      String granularity,
+      WavefrontCanaryMetricSetQueryConfig queryConfig,
+      List<WavefrontQueryPlanner.QuerySlice> slices) {
+    ExecutorService sliceExecutor = accountCredentials.getSliceExecutor();
+    List<WavefrontTimeSeries> sliceResults = new ArrayList<>(slices.size());
+
+    if (sliceExecutor == null || slices.size() == 1) {
+      for (WavefrontQueryPlanner.QuerySlice slice : slices) {
+        sliceResults.add(
+            fetchSlice(accountName, accountCredentials, query, granularity, queryConfig, slice));
+      }
+
+      return sliceResults;
+    }
+
+    List<Future<WavefrontTimeSeries>> futures = new ArrayList<>(slices.size());
+
+    for (WavefrontQueryPlanner.QuerySlice slice : slices) {
+      futures.add(
+          sliceExecutor.submit(
+              MetricsQueryStats.propagate(
+                  () ->
+                      fetchSlice(
+                          accountName,
+                          accountCredentials,
+                          query,
+                          granularity,
+                          queryConfig,
+                          slice))));
+    }
+
+    try {
+      for (Future<WavefrontTimeSeries> future : futures) {
+        sliceResults.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while querying Wavefront.", e);
+    } catch (ExecutionException e) {
+      // Surface the underlying RetrofitError (or similar) so that callers can decide whether the
+      // failure is retryable.
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Failed to query Wavefront.", e.getCause());
+    } finally {
+      futures.forEach(future -> future.cancel(true));
+    }
+
+    return sliceResults;
+  }
+
+  private WavefrontTimeSeries fetchSlice(
+      String accountName,
+      WavefrontNamedAccountCredentials accountCredentials,
+      String query,
+      String granularity,
+      WavefrontCanaryMetricSetQueryConfig queryConfig,
+      WavefrontQueryPlanner.QuerySlice slice) {
+    WavefrontCredentials credentials = accountCredentials.getCredentials();
+    WavefrontRemoteService wavefrontRemoteService = accountCredentials.getWavefrontRemoteService();
+    long startTime = registry.clock().monotonicTime();
+
+    try {
+      return wavefrontRemoteService.fetch(
+          credentials.getApiToken(),
+          "Kayenta-Query",
+          query,
+          slice.getStart().toEpochMilli(),
+          slice.getEnd().toEpochMilli(),
+          granularity,
+          queryConfig.getSummarization(),
+          true, // listMode
+          true, // strict
+          true); // sorted
+    } finally {
+      long endTime = registry.clock().monotonicTime();
+      Id wavefrontFetchTimerId =
+          registry
+              .createId("wavefront.fetchTime")
+              .withTag("account", accountName)
+              .withTag("slice", String.valueOf(slice.getIndex()));
+      registry.timer(wavefrontFetchTimerId).record(endTime - startTime, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Assembles one series from the points of every slice into a primitive buffer. As with {@link
+   * WavefrontTimeSeries.WavefrontSeriesEntry#getDataPoints(long)}, values are laid out one per step
+   * from the first point, points off that grid are skipped and missing points are NaN.
+   */
+  private static class SeriesBuilder {
+    private final WavefrontTimeSeries.WavefrontSeriesEntry series;
+    private final long step;
+    private final DoubleArrayBuilder values = new DoubleArrayBuilder();
+    private Long firstTimestamp;
+    private Long lastTimestamp;
+
+    SeriesBuilder(WavefrontTimeSeries.WavefrontSeriesEntry series, long step) {
+      this.series = series;
+      this.step = Math.max(1, step);
+    }
+
+    void addAll(List<List<Number>> data) {
+      if (data == null) {
+        return;
+      }
+
+      for (List<Number> point : data) {
+        long timestamp = point.get(0).longValue();
+
+        if (firstTimestamp == null) {
+          firstTimestamp = timestamp;
+        }
+        if (lastTimestamp == null || timestamp > lastTimestamp) {
+          lastTimestamp = timestamp;
+        }
+
+        long offset = timestamp - firstTimestamp;
+
+        if (offset >= 0 && offset % step == 0) {
+          Number value = point.get(1);
+          values.set((int) (offset / step), value == null ? Double.NaN : value.doubleValue());
+        }
+      }
+    }
+
+    DoubleArrayBuilder buildValues() {
+      int size = (int) ((lastTimestamp - firstTimestamp) / step) + 1;
+      return values.pad(size - values.size());
+    }
+  }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Intuit, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.wavefront.metrics;
+
+import static com.netflix.kayenta.wavefront.canary.WavefrontCanaryScopeFactory.DAY;
+import static com.netflix.kayenta.wavefront.canary.WavefrontCanaryScopeFactory.HOUR;
+import static com.netflix.kayenta.wavefront.canary.WavefrontCanaryScopeFactory.MINUTE;
+import static com.netflix.kayenta.wavefront.canary.WavefrontCanaryScopeFactory.SECOND;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Plans the Wavefront chart API requests for one metric: the granularity to ask for, and the
+ * consecutive time slices a long window is split into so that no single request returns more than
+ * a bounded number of points per series.
+ */
+public class WavefrontQueryPlanner {
+
+  /** The most points per series a single request is planned to return, by default. */
+  public static final int DEFAULT_MAX_POINTS_PER_SLICE = 1440;
+
+  @Value
+  public static class QuerySlice {
+    int index;
+    Instant start;
+    Instant end;
+  }
+
+  /** Returns the coarsest Wavefront granularity that still evenly divides the step. */
+  public static String granularityForStep(Long stepSeconds) {
+    if (stepSeconds == null || stepSeconds <= 0) {
+      return "s";
+    }
+    if (stepSeconds % DAY == 0) {
+      return "d";
+    }
+    if (stepSeconds % HOUR == 0) {
+      return "h";
+    }
+    if (stepSeconds % MINUTE == 0) {
+      return "m";
+    }
+    return "s";
+  }
+
+  public static long granularitySeconds(String granularity) {
+    switch (granularity) {
+      case "d":
+        return DAY;
+      case "h":
+        return HOUR;
+      case "m":
+        return MINUTE;
+      default:
+        return SECOND;
+    }
+  }
+
+  /**
+   * Splits {@code [start, end]} into slices of at most {@code maxPointsPerSlice} points at the
+   * given granularity. Slice boundaries fall on multiples of the step from {@code start}, so the
+   * results of consecutive slices line up on the same grid.
+   */
+  public static List<QuerySlice> plan(
+      Instant start, Instant end, long stepSeconds, String granularity, int maxPointsPerSlice) {
+    List<QuerySlice> slices = new ArrayList<>();
+    long step = Math.max(1, stepSeconds);
+    long sliceSeconds = Math.max(1, maxPointsPerSlice) * granularitySeconds(granularity);
+    sliceSeconds = Math.max(step, sliceSeconds - sliceSeconds % step);
+
+    if (end.getEpochSecond() - start.getEpochSecond() <= sliceSeconds) {
+      slices.add(new QuerySlice(0, start, end));
+      return slices;
+    }
+
+    Instant sliceStart = start;
+
+    while (sliceStart.isBefore(end)) {
+      Instant sliceEnd = sliceStart.plusSeconds(sliceSeconds);
+
+      if (sliceEnd.isAfter(end)) {
+        sliceEnd = end;
+      }
+
+      slices.add(new QuerySlice(slices.size(), sliceStart, sliceEnd));
+      sliceStart = sliceEnd;
+    }
+
+    return slices;
+  }
+}
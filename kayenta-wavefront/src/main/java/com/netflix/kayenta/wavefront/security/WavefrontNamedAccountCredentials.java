@@ -18,8 +18,10 @@ package com.netflix.kayenta.wavefront.security;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.netflix.kayenta.retrofit.config.RemoteService;
 import com.netflix.kayenta.security.AccountCredentials;
+import com.netflix.kayenta.wavefront.metrics.WavefrontQueryPlanner;
 import com.netflix.kayenta.wavefront.service.WavefrontRemoteService;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import javax.validation.constraints.NotNull;
 import lombok.Builder;
 import lombok.Data;
@@ -43,4 +45,9 @@ public class WavefrontNamedAccountCredentials implements AccountCredentials<Wave
   }
 
   @JsonIgnore WavefrontRemoteService wavefrontRemoteService;
+
+  @JsonIgnore ExecutorService sliceExecutor;
+
+  @JsonIgnore @Builder.Default
+  int maxPointsPerSlice = WavefrontQueryPlanner.DEFAULT_MAX_POINTS_PER_SLICE;
 }
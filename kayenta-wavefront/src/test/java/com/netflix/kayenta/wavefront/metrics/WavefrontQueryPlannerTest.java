@@ -0,0 +1,66 @@
+/*
+ * Copyright 2019 Intuit, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License")
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netflix.kayenta.wavefront.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.Test;
+
+public class WavefrontQueryPlannerTest {
+
+  private static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+
+  @Test
+  public void testGranularityForStep() {
+    assertThat(WavefrontQueryPlanner.granularityForStep(30L), is("s"));
+    assertThat(WavefrontQueryPlanner.granularityForStep(300L), is("m"));
+    assertThat(WavefrontQueryPlanner.granularityForStep(7200L), is("h"));
+    assertThat(WavefrontQueryPlanner.granularityForStep(86400L), is("d"));
+    assertThat(WavefrontQueryPlanner.granularityForStep(null), is("s"));
+  }
+
+  @Test
+  public void testPlan_ShortWindowIsOneSlice() {
+    Instant end = START.plus(Duration.ofHours(1));
+
+    List<WavefrontQueryPlanner.QuerySlice> slices =
+        WavefrontQueryPlanner.plan(START, end, 60, "m", 1440);
+
+    assertThat(slices.size(), is(1));
+    assertThat(slices.get(0).getStart(), is(START));
+    assertThat(slices.get(0).getEnd(), is(end));
+  }
+
+  @Test
+  public void testPlan_LongWindowIsSplitIntoStepAlignedSlices() {
+    Instant end = START.plus(Duration.ofHours(51));
+
+    List<WavefrontQueryPlanner.QuerySlice> slices =
+        WavefrontQueryPlanner.plan(START, end, 300, "m", 1000);
+
+    // 1000 one-minute points, rounded down to a multiple of the five minute step.
+    assertThat(slices.size(), is(4));
+    assertThat(slices.get(0).getEnd(), is(START.plusSeconds(60_000)));
+    assertThat(slices.get(1).getStart(), is(START.plusSeconds(60_000)));
+    assertThat(slices.get(3).getIndex(), is(3));
+    assertThat(slices.get(3).getEnd(), is(end));
+  }
+}
@@ -18,11 +18,13 @@ package com.netflix.kayenta.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.netflix.kayenta.canary.*;
+import com.netflix.kayenta.events.ExecutionStatusWatcher;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.storage.ObjectType;
 import com.netflix.kayenta.storage.StorageService;
 import com.netflix.kayenta.storage.StorageServiceRepository;
+import com.netflix.kayenta.util.PageCursor;
 import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus;
 import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionType;
 import com.netflix.spinnaker.orca.api.pipeline.models.PipelineExecution;
@@ -33,33 +35,47 @@ import io.swagger.annotations.ApiParam;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequestMapping("/canary")
 @Slf4j
 public class CanaryController {
 
-  private final String AD_HOC = "ad-hoc";
+  static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  private static final Comparator<PipelineExecution> NEWEST_FIRST =
+      Comparator.comparingLong(CanaryController::buildTimeOf)
+          .thenComparing(PipelineExecution::getId)
+          .reversed();
+
+  private final String AD_HOC = ExecutionMapper.AD_HOC_CANARY_CONFIG_ID;
 
   private final ExecutionRepository executionRepository;
   private final AccountCredentialsRepository accountCredentialsRepository;
   private final StorageServiceRepository storageServiceRepository;
   private final ExecutionMapper executionMapper;
+  private final ExecutionStatusWatcher executionStatusWatcher;
 
   @Autowired
   public CanaryController(
       ExecutionRepository executionRepository,
       AccountCredentialsRepository accountCredentialsRepository,
       StorageServiceRepository storageServiceRepository,
-      ExecutionMapper executionMapper) {
+      ExecutionMapper executionMapper,
+      ExecutionStatusWatcher executionStatusWatcher) {
     this.executionRepository = executionRepository;
     this.accountCredentialsRepository = accountCredentialsRepository;
     this.storageServiceRepository = storageServiceRepository;
     this.executionMapper = executionMapper;
+    this.executionStatusWatcher = executionStatusWatcher;
   }
 
   //
@@ -159,11 +175,66 @@ public class CanaryController {
   public CanaryExecutionStatusResponse getCanaryResults(
       @RequestParam(required = false) final String storageAccountName,
       @PathVariable String canaryExecutionId) {
-    String resolvedStorageAccountName =
-        accountCredentialsRepository
-            .getRequiredOneBy(storageAccountName, AccountCredentials.Type.OBJECT_STORE)
-            .getName();
+    return loadCanaryResults(resolveStorageAccountName(storageAccountName), canaryExecutionId);
+  }
+
+  @ApiOperation(
+      value = "Retrieve status and results for a canary run once they change",
+      notes =
+          "Responds as soon as a stage of the canary run starts or completes, or the run is"
+              + " complete, and otherwise once waitForChangeMs passed.")
+  @RequestMapping(
+      value = "/{canaryExecutionId:.+}",
+      params = "waitForChangeMs",
+      method = RequestMethod.GET)
+  public DeferredResult<CanaryExecutionStatusResponse> awaitCanaryResults(
+      @RequestParam(required = false) final String storageAccountName,
+      @PathVariable String canaryExecutionId,
+      @ApiParam(value = "How long to wait for a change before responding anyway.")
+          @RequestParam
+          long waitForChangeMs) {
+    String resolvedStorageAccountName = resolveStorageAccountName(storageAccountName);
+
+    return executionStatusWatcher.awaitChange(
+        canaryExecutionId,
+        waitForChangeMs,
+        () -> loadCanaryResults(resolvedStorageAccountName, canaryExecutionId),
+        status -> Boolean.TRUE.equals(status.getComplete()));
+  }
+
+  @ApiOperation(
+      value = "Stream the status of a canary run",
+      notes =
+          "Sends a '"
+              + ExecutionStatusWatcher.STATUS_EVENT
+              + "' event with the status, completeness and stage statuses of the run, then one"
+              + " with just those that changed whenever some did, and finally a '"
+              + ExecutionStatusWatcher.RESULT_EVENT
+              + "' event with the full results once the run is complete.")
+  @RequestMapping(
+      value = "/{canaryExecutionId:.+}/stream",
+      method = RequestMethod.GET,
+      produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamCanaryResults(
+      @RequestParam(required = false) final String storageAccountName,
+      @PathVariable String canaryExecutionId) {
+    String resolvedStorageAccountName = resolveStorageAccountName(storageAccountName);
+
+    return executionStatusWatcher.stream(
+        canaryExecutionId,
+        () -> loadCanaryResults(resolvedStorageAccountName, canaryExecutionId),
+        status -> Boolean.TRUE.equals(status.getComplete()),
+        CanaryController::summarize);
+  }
+
+  private String resolveStorageAccountName(String storageAccountName) {
+    return accountCredentialsRepository
+        .getRequiredOneBy(storageAccountName, AccountCredentials.Type.OBJECT_STORE)
+        .getName();
+  }
 
+  private CanaryExecutionStatusResponse loadCanaryResults(
+      String resolvedStorageAccountName, String canaryExecutionId) {
     // First look in the online cache.  If nothing is found there, look in our storage for the ID.
     try {
       PipelineExecution pipeline =
@@ -178,14 +249,39 @@ public class CanaryController {
     }
   }
 
-  @ApiOperation(value = "Retrieve a list of an application's canary results")
+  private static Map<String, Object> summarize(CanaryExecutionStatusResponse status) {
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("status", status.getStatus());
+    summary.put("complete", status.getComplete());
+    summary.put("stageStatus", status.getStageStatus());
+    return summary;
+  }
+
+  @ApiOperation(
+      value = "Retrieve a list of an application's canary results, most recent first",
+      notes =
+          "If more results follow, the response carries a "
+              + NEXT_CURSOR_HEADER
+              + " header to pass as the cursor of the next request.")
   @RequestMapping(value = "/executions", method = RequestMethod.GET)
-  List<CanaryExecutionStatusResponse> getCanaryResultsByApplication(
+  List<?> getCanaryResultsByApplication(
       @RequestParam(required = false) String application,
       @RequestParam(value = "limit", defaultValue = "20") int limit,
-      @RequestParam(value = "page", defaultValue = "1") int page,
+      @ApiParam(value = "Deprecated, use cursor instead.")
+          @RequestParam(value = "page", defaultValue = "1")
+          int page,
       @RequestParam(value = "statuses", required = false) String statuses,
-      @RequestParam(required = false) final String storageAccountName) {
+      @RequestParam(required = false) final String storageAccountName,
+      @ApiParam(value = "The " + NEXT_CURSOR_HEADER + " header of the previous page.")
+          @RequestParam(required = false)
+          String cursor,
+      @ApiParam(
+              value =
+                  "Comma-separated summary fields to return instead of full results, e.g. "
+                      + "pipelineId,status,score,startTimeIso,endTimeIso.")
+          @RequestParam(required = false)
+          String fields,
+      HttpServletResponse response) {
     String resolvedStorageAccountName =
         accountCredentialsRepository
             .getRequiredOneBy(storageAccountName, AccountCredentials.Type.OBJECT_STORE)
@@ -205,9 +301,14 @@ public class CanaryController {
       .map(s -> s.trim())
       .filter(s -> !StringUtils.isEmpty(s))
       .collect(Collectors.toList());
+
+    PageCursor after = cursor != null ? PageCursor.decode(cursor) : null;
+    // Without a cursor, fall back on skipping whole pages.
+    int skip = after == null ? Math.max(0, page - 1) * limit : 0;
+
     ExecutionRepository.ExecutionCriteria executionCriteria = new ExecutionRepository.ExecutionCriteria()
-      .setPageSize(limit)
-      .setStatuses(statusesList);
+      .setStatuses(statusesList)
+      .setSortType(ExecutionRepository.ExecutionComparator.BUILD_TIME_DESC);
 
     // Users of the ad-hoc endpoint can either omit application or pass 'ad-hoc' explicitly.
     if (StringUtils.isEmpty(application)) {
@@ -215,13 +316,76 @@ public class CanaryController {
     }
 
     String canaryPipelineConfigId = application + "-standard-canary-pipeline";
-    List<PipelineExecution> executions =
-        executionRepository
-            .retrievePipelinesForPipelineConfigId(canaryPipelineConfigId, executionCriteria)
-            .toList()
-            .toBlocking()
-            .single();
-
-    return executions.stream().map(executionMapper::fromExecution).collect(Collectors.toList());
+    // Ask for one more execution than needed to tell whether there is a next page. After a cursor,
+    // the executions built at the cursor's build time come back too, and any of them already
+    // served are dropped. Executions sharing the oldest build time retrieved may be cut off in any
+    // order, so the page must not reach into them. Ask for more until enough are left, or there
+    // are no more.
+    int wanted = skip + limit + 1;
+    int pageSize = after != null ? wanted + 1 : wanted;
+    List<PipelineExecution> executions;
+
+    while (true) {
+      List<PipelineExecution> retrieved =
+          executionRepository.retrievePipelinesForPipelineConfigIdsBetweenBuildTimeBoundary(
+              Collections.singletonList(canaryPipelineConfigId),
+              0,
+              after != null ? after.getTime() + 1 : Long.MAX_VALUE,
+              executionCriteria.setPageSize(pageSize));
+      executions =
+          retrieved.stream()
+              .filter(
+                  execution ->
+                      after == null
+                          || after.precedes(buildTimeOf(execution), execution.getId()))
+              .sorted(NEWEST_FIRST)
+              .collect(Collectors.toList());
+
+      if (retrieved.size() < pageSize) {
+        break;
+      }
+
+      long oldestBuildTime =
+          retrieved.stream().mapToLong(CanaryController::buildTimeOf).min().orElse(0);
+      long complete =
+          executions.stream()
+              .filter(execution -> buildTimeOf(execution) > oldestBuildTime)
+              .count();
+
+      if (complete >= wanted - 1 && executions.size() >= wanted) {
+        break;
+      }
+      pageSize *= 2;
+    }
+
+    List<PipelineExecution> pageExecutions =
+        executions.stream().skip(skip).limit(limit).collect(Collectors.toList());
+
+    if (executions.size() > skip + limit && !pageExecutions.isEmpty()) {
+      PipelineExecution last = pageExecutions.get(pageExecutions.size() - 1);
+      response.setHeader(
+          NEXT_CURSOR_HEADER, new PageCursor(buildTimeOf(last), last.getId()).encode());
+    }
+
+    if (StringUtils.isEmpty(fields)) {
+      return pageExecutions.stream()
+          .map(executionMapper::fromExecution)
+          .collect(Collectors.toList());
+    }
+
+    List<String> fieldList =
+        Stream.of(fields.split(","))
+            .map(String::trim)
+            .filter(field -> !field.isEmpty())
+            .collect(Collectors.toList());
+
+    return pageExecutions.stream()
+        .map(executionMapper::summaryFromExecution)
+        .map(summary -> summary.project(fieldList))
+        .collect(Collectors.toList());
+  }
+
+  private static long buildTimeOf(PipelineExecution execution) {
+    return execution.getBuildTime() != null ? execution.getBuildTime() : 0;
   }
 }
@@ -16,8 +16,14 @@
 
 package com.netflix.kayenta.controllers;
 
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.netflix.kayenta.canary.CanaryArchiveResultUpdateResponse;
 import com.netflix.kayenta.canary.CanaryExecutionStatusResponse;
+import com.netflix.kayenta.canary.CanaryExecutionSummary;
+import com.netflix.kayenta.canary.CanaryResultArchiveConfigurationProperties;
+import com.netflix.kayenta.index.CanaryResultArchiveIndex;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
 import com.netflix.kayenta.storage.ObjectType;
@@ -26,10 +32,16 @@ import com.netflix.kayenta.storage.StorageServiceRepository;
 import com.netflix.spinnaker.kork.web.exceptions.NotFoundException;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiParam;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
 import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,13 +59,32 @@ public class CanaryResultArchiveController {
 
   private final AccountCredentialsRepository accountCredentialsRepository;
   private final StorageServiceRepository storageServiceRepository;
+  private final CanaryResultArchiveIndex canaryResultArchiveIndex;
+  private final ExecutorService bulkGetExecutor;
+  private final int maxBulkGetIds;
 
   @Autowired
   public CanaryResultArchiveController(
       AccountCredentialsRepository accountCredentialsRepository,
-      StorageServiceRepository storageServiceRepository) {
+      StorageServiceRepository storageServiceRepository,
+      Optional<CanaryResultArchiveIndex> canaryResultArchiveIndex,
+      CanaryResultArchiveConfigurationProperties canaryResultArchiveConfigurationProperties) {
     this.accountCredentialsRepository = accountCredentialsRepository;
     this.storageServiceRepository = storageServiceRepository;
+    this.canaryResultArchiveIndex = canaryResultArchiveIndex.orElse(null);
+    this.bulkGetExecutor =
+        Executors.newFixedThreadPool(
+            Math.max(1, canaryResultArchiveConfigurationProperties.getBulkGetParallelism()),
+            new ThreadFactoryBuilder()
+                .setNameFormat("canary-result-archive-bulk-get-%d")
+                .setDaemon(true)
+                .build());
+    this.maxBulkGetIds = canaryResultArchiveConfigurationProperties.getMaxBulkGetIds();
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    bulkGetExecutor.shutdown();
   }
 
   @ApiOperation(value = "Retrieve an archived canary result from object storage")
@@ -93,6 +124,7 @@ public class CanaryResultArchiveController {
           canaryExecutionStatusResponse,
           pipelineId + ".json",
           false);
+      index(resolvedConfigurationAccountName, pipelineId, canaryExecutionStatusResponse);
 
       return CanaryArchiveResultUpdateResponse.builder().pipelineId(pipelineId).build();
     }
@@ -129,6 +161,7 @@ public class CanaryResultArchiveController {
         canaryExecutionStatusResponse,
         pipelineId + ".json",
         true);
+    index(resolvedConfigurationAccountName, pipelineId, canaryExecutionStatusResponse);
 
     return CanaryArchiveResultUpdateResponse.builder().pipelineId(pipelineId).build();
   }
@@ -144,6 +177,9 @@ public class CanaryResultArchiveController {
 
     storageService.deleteObject(
         resolvedConfigurationAccountName, ObjectType.CANARY_RESULT_ARCHIVE, pipelineId);
+    if (canaryResultArchiveIndex != null) {
+      canaryResultArchiveIndex.remove(resolvedConfigurationAccountName, pipelineId);
+    }
 
     response.setStatus(HttpStatus.NO_CONTENT.value());
   }
@@ -159,6 +195,141 @@ public class CanaryResultArchiveController {
         resolvedConfigurationAccountName, ObjectType.CANARY_RESULT_ARCHIVE);
   }
 
+  @ApiOperation(
+      value = "Retrieve a page of summaries of archived canary results, latest end time first",
+      notes =
+          "Served from the archive index. If more results follow, the response carries a "
+              + CanaryController.NEXT_CURSOR_HEADER
+              + " header to pass as the cursor of the next request.")
+  @RequestMapping(value = "/summaries", method = RequestMethod.GET)
+  public List<CanaryExecutionSummary> listCanaryArchivedResultSummaries(
+      @RequestParam(required = false) final String storageAccountName,
+      @RequestParam(required = false) String application,
+      @RequestParam(required = false) String canaryConfigId,
+      @ApiParam(value = "Only results that ended at or after this time, in epoch millis.")
+          @RequestParam(required = false)
+          Long endTimeFromMillis,
+      @ApiParam(value = "Only results that ended at or before this time, in epoch millis.")
+          @RequestParam(required = false)
+          Long endTimeToMillis,
+      @RequestParam(required = false) Double minScore,
+      @RequestParam(required = false) Double maxScore,
+      @RequestParam(defaultValue = "20") int limit,
+      @ApiParam(
+              value =
+                  "The " + CanaryController.NEXT_CURSOR_HEADER + " header of the previous page.")
+          @RequestParam(required = false)
+          String cursor,
+      HttpServletResponse response) {
+    String resolvedStorageAccountName = resolveStorageAccountName(storageAccountName);
+    CanaryResultArchiveIndex.Page page =
+        getRequiredIndex()
+            .list(
+                resolvedStorageAccountName,
+                CanaryResultArchiveIndex.Query.builder()
+                    .application(application)
+                    .canaryConfigId(canaryConfigId)
+                    .endTimeFromMillis(endTimeFromMillis)
+                    .endTimeToMillis(endTimeToMillis)
+                    .minScore(minScore)
+                    .maxScore(maxScore)
+                    .limit(limit)
+                    .cursor(cursor)
+                    .build());
+
+    if (page.getNextCursor() != null) {
+      response.setHeader(CanaryController.NEXT_CURSOR_HEADER, page.getNextCursor());
+    }
+
+    return page.getSummaries();
+  }
+
+  @ApiOperation(
+      value = "Retrieve many archived canary results at once",
+      notes = "The results are keyed by pipeline id; ids without an archived result are left out.")
+  @RequestMapping(value = "/bulkGet", consumes = "application/json", method = RequestMethod.POST)
+  public Map<String, CanaryExecutionStatusResponse> bulkGetArchivedCanaryResults(
+      @RequestParam(required = false) final String storageAccountName,
+      @RequestBody List<String> pipelineIds) {
+    if (pipelineIds.size() > maxBulkGetIds) {
+      throw new IllegalArgumentException(
+          "At most " + maxBulkGetIds + " archived canary results can be retrieved at once.");
+    }
+
+    String resolvedStorageAccountName = resolveStorageAccountName(storageAccountName);
+    StorageService storageService = getStorageService(resolvedStorageAccountName);
+
+    return loadArchivedCanaryResults(
+        resolvedStorageAccountName,
+        storageService,
+        pipelineIds.stream().distinct().collect(Collectors.toList()));
+  }
+
+  @ApiOperation(
+      value = "Add every archived canary result in object storage to the archive index",
+      notes =
+          "Results archived since the index was enabled are indexed as they are written; this is"
+              + " needed only for results archived before.")
+  @RequestMapping(value = "/index", method = RequestMethod.POST)
+  public Map<String, Object> indexAllCanaryArchivedResults(
+      @RequestParam(required = false) final String storageAccountName) {
+    CanaryResultArchiveIndex index = getRequiredIndex();
+    String resolvedStorageAccountName = resolveStorageAccountName(storageAccountName);
+    StorageService storageService = getStorageService(resolvedStorageAccountName);
+    List<String> pipelineIds =
+        storageService
+            .listObjectKeys(resolvedStorageAccountName, ObjectType.CANARY_RESULT_ARCHIVE)
+            .stream()
+            .map(objectKey -> (String) objectKey.get("id"))
+            .collect(Collectors.toList());
+    int indexed = 0;
+
+    for (List<String> batch : Lists.partition(pipelineIds, Math.max(1, maxBulkGetIds))) {
+      for (CanaryExecutionStatusResponse archived :
+          loadArchivedCanaryResults(resolvedStorageAccountName, storageService, batch).values()) {
+        index.index(resolvedStorageAccountName, archived);
+        indexed++;
+      }
+    }
+
+    return ImmutableMap.of("indexed", indexed);
+  }
+
+  private Map<String, CanaryExecutionStatusResponse> loadArchivedCanaryResults(
+      String resolvedStorageAccountName, StorageService storageService, List<String> pipelineIds) {
+    return storageService.loadObjects(
+        resolvedStorageAccountName, ObjectType.CANARY_RESULT_ARCHIVE, pipelineIds, bulkGetExecutor);
+  }
+
+  private void index(
+      String resolvedStorageAccountName,
+      String pipelineId,
+      CanaryExecutionStatusResponse canaryExecutionStatusResponse) {
+    if (canaryResultArchiveIndex == null) {
+      return;
+    }
+
+    try {
+      // The archive is stored under the given id, whatever the pipeline id in its body.
+      canaryResultArchiveIndex.index(
+          resolvedStorageAccountName,
+          canaryExecutionStatusResponse.toBuilder().pipelineId(pipelineId).build());
+    } catch (Exception e) {
+      log.warn(
+          "Stored archived canary result {} but could not index it: {}",
+          pipelineId,
+          e.getMessage());
+    }
+  }
+
+  private CanaryResultArchiveIndex getRequiredIndex() {
+    if (canaryResultArchiveIndex == null) {
+      throw new IllegalArgumentException(
+          "The canary result archive index is not enabled (see kayenta.index.enabled).");
+    }
+    return canaryResultArchiveIndex;
+  }
+
   private String resolveStorageAccountName(String storageAccountName) {
     return accountCredentialsRepository
         .getRequiredOneBy(storageAccountName, AccountCredentials.Type.OBJECT_STORE)
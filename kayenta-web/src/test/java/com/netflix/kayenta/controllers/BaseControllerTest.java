@@ -8,6 +8,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.netflix.kayenta.canary.CanaryJudge;
 import com.netflix.kayenta.canary.ExecutionMapper;
 import com.netflix.kayenta.config.WebConfiguration;
+import com.netflix.kayenta.events.ExecutionChangeNotifier;
+import com.netflix.kayenta.events.ExecutionChangesConfigurationProperties;
+import com.netflix.kayenta.events.ExecutionStatusWatcher;
 import com.netflix.kayenta.metrics.MetricsServiceRepository;
 import com.netflix.kayenta.security.AccountCredentials;
 import com.netflix.kayenta.security.AccountCredentialsRepository;
@@ -98,6 +101,24 @@ public abstract class BaseControllerTest {
           false);
     }
 
+    @Bean
+    ExecutionChangesConfigurationProperties executionChangesConfigurationProperties() {
+      return new ExecutionChangesConfigurationProperties();
+    }
+
+    @Bean
+    ExecutionChangeNotifier executionChangeNotifier(
+        ExecutionChangesConfigurationProperties properties) {
+      return new ExecutionChangeNotifier(Optional.empty(), properties);
+    }
+
+    @Bean
+    ExecutionStatusWatcher executionStatusWatcher(
+        ExecutionChangeNotifier executionChangeNotifier,
+        ExecutionChangesConfigurationProperties properties) {
+      return new ExecutionStatusWatcher(executionChangeNotifier, properties);
+    }
+
     @Bean
     AccountCredentialsRepository accountCredentialsRepository() {
       MapBackedAccountCredentialsRepository repo = new MapBackedAccountCredentialsRepository();
@@ -1,12 +1,30 @@
 package com.netflix.kayenta.controllers;
 
 import static org.hamcrest.core.StringContains.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import com.google.common.collect.ImmutableMap;
 import com.netflix.kayenta.canary.CanaryConfig;
+import com.netflix.kayenta.canary.ExecutionMapper;
+import com.netflix.kayenta.canary.orca.CanaryStageNames;
 import com.netflix.kayenta.storage.ObjectType;
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionStatus;
+import com.netflix.spinnaker.orca.api.pipeline.models.ExecutionType;
+import com.netflix.spinnaker.orca.api.pipeline.models.PipelineExecution;
+import com.netflix.spinnaker.orca.pipeline.model.PipelineExecutionImpl;
+import com.netflix.spinnaker.orca.pipeline.model.StageExecutionImpl;
+import com.netflix.spinnaker.orca.pipeline.persistence.ExecutionRepository;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import org.junit.Test;
 
 public class CanaryControllerTest extends BaseControllerTest {
@@ -29,4 +47,88 @@ public class CanaryControllerTest extends BaseControllerTest {
         .andExpect(content().contentType("application/json"))
         .andExpect(jsonPath("$.message").value(containsString("at least one metric")));
   }
+
+  @Test
+  public void getCanaryResultsByApplication_returnsProjectedPageWithNextCursor() throws Exception {
+    when(storageService.servicesAccount(OBJECT_STORE)).thenReturn(true);
+    when(executionRepository.retrievePipelinesForPipelineConfigIdsBetweenBuildTimeBoundary(
+            eq(Collections.singletonList("test-app-standard-canary-pipeline")),
+            eq(0L),
+            eq(Long.MAX_VALUE),
+            any()))
+        .thenReturn(
+            Arrays.asList(execution("older", 1000L, null), execution("newer", 2000L, 95.0)));
+
+    this.mockMvc
+        .perform(get("/canary/executions?application=test-app&limit=1&fields=pipelineId,score"))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(CanaryController.NEXT_CURSOR_HEADER))
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].pipelineId").value("newer"))
+        .andExpect(jsonPath("$[0].score").value(95.0))
+        .andExpect(jsonPath("$[0].status").doesNotExist());
+  }
+
+  @Test
+  public void getCanaryResultsByApplication_skipsExecutionsServedAtTheCursorBuildTime()
+      throws Exception {
+    when(storageService.servicesAccount(OBJECT_STORE)).thenReturn(true);
+    List<PipelineExecution> executions =
+        Arrays.asList(
+            execution("c", 2000L, 95.0),
+            execution("b", 2000L, 95.0),
+            execution("a", 2000L, 95.0),
+            execution("z", 1000L, 95.0));
+    when(executionRepository.retrievePipelinesForPipelineConfigIdsBetweenBuildTimeBoundary(
+            eq(Collections.singletonList("test-app-standard-canary-pipeline")),
+            eq(0L),
+            eq(2001L),
+            any()))
+        .thenAnswer(
+            invocation -> {
+              ExecutionRepository.ExecutionCriteria criteria = invocation.getArgument(3);
+              return executions.subList(0, Math.min(criteria.getPageSize(), executions.size()));
+            });
+    String cursor =
+        Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString("2000:b".getBytes(StandardCharsets.UTF_8));
+
+    this.mockMvc
+        .perform(
+            get("/canary/executions?application=test-app&limit=1&fields=pipelineId&cursor="
+                    + cursor))
+        .andExpect(status().isOk())
+        .andExpect(header().exists(CanaryController.NEXT_CURSOR_HEADER))
+        .andExpect(jsonPath("$.length()").value(1))
+        .andExpect(jsonPath("$[0].pipelineId").value("a"));
+  }
+
+  private static PipelineExecution execution(String id, long buildTime, Double score) {
+    PipelineExecutionImpl execution = new PipelineExecutionImpl(ExecutionType.PIPELINE, id, "app");
+    execution.setName(ExecutionMapper.PIPELINE_NAME);
+    execution.setStatus(score != null ? ExecutionStatus.SUCCEEDED : ExecutionStatus.RUNNING);
+    execution.setBuildTime(buildTime);
+
+    StageExecutionImpl setupContext =
+        new StageExecutionImpl(
+            execution,
+            "setupCanary",
+            "Setup Context",
+            new HashMap<>(ImmutableMap.of("application", "test-app")));
+    setupContext.setRefId(CanaryStageNames.REFID_SET_CONTEXT);
+
+    StageExecutionImpl judge =
+        new StageExecutionImpl(execution, "canaryJudge", "Perform Analysis", new HashMap<>());
+    judge.setRefId(CanaryStageNames.REFID_JUDGE);
+
+    if (score != null) {
+      judge
+          .getOutputs()
+          .put("result", ImmutableMap.of("score", ImmutableMap.of("score", score)));
+    }
+
+    execution.getStages().addAll(Arrays.asList(setupContext, judge));
+    return execution;
+  }
 }